@@ -64,15 +64,21 @@ public class Entity {
 
     // --- World transform calculation ---
     public Matrix4f getWorldTransform() {
-        Matrix4f transform = new Matrix4f()
-                .translate(localPosition)
-                .rotateXYZ(localRotation.x, localRotation.y, localRotation.z)
-                .scale(localScale);
+        return getWorldTransform(new Matrix4f());
+    }
 
+    /**
+     * Like {@link #getWorldTransform()}, written into dest without allocating.
+     */
+    public Matrix4f getWorldTransform(Matrix4f dest) {
         if (parent != null) {
-            return new Matrix4f(parent.getWorldTransform()).mul(transform);
+            parent.getWorldTransform(dest);
+        } else {
+            dest.identity();
         }
-        return transform;
+        return dest.translate(localPosition)
+                .rotateXYZ(localRotation.x, localRotation.y, localRotation.z)
+                .scale(localScale);
     }
 
     // --- Mesh access ---
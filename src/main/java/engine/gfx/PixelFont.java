@@ -0,0 +1,143 @@
+package engine.gfx;
+
+/**
+ * The 5x7 block font of the menus and HUD, turned into quads for a {@link QuadBatch}.
+ * Text is upper-cased; a space is blank and characters without a glyph draw as a
+ * filled box. Lit pixels next to each other in a row become one quad, so a glyph
+ * costs a handful of quads rather than one per pixel.
+ */
+public final class PixelFont {
+
+    public static final int GLYPH_WIDTH = 5;
+    public static final int GLYPH_HEIGHT = 7;
+    /** Horizontal advance per character in font pixels, including one pixel of spacing. */
+    public static final int ADVANCE = GLYPH_WIDTH + 1;
+
+    // Per character, one bit per pixel of each row; bit 0 is the leftmost column
+    private static final byte[][] GLYPHS = new byte[128][];
+    private static final byte[] BLANK = new byte[GLYPH_HEIGHT];
+    private static final byte[] BOX = new byte[GLYPH_HEIGHT];
+
+    static {
+        glyph('A', ".###.", "#...#", "#...#", "#####", "#...#", "#...#", "#...#");
+        glyph('B', "####.", "#...#", "#...#", "####.", "#...#", "#...#", "####.");
+        glyph('C', ".####", "#....", "#....", "#....", "#....", "#....", ".####");
+        glyph('D', "####.", "#...#", "#...#", "#...#", "#...#", "#...#", "####.");
+        glyph('E', "#####", "#....", "#....", "####.", "#....", "#....", "#####");
+        glyph('F', "#####", "#....", "#....", "####.", "#....", "#....", "#....");
+        glyph('G', ".####", "#....", "#....", "#.###", "#...#", "#...#", ".####");
+        glyph('H', "#...#", "#...#", "#...#", "#####", "#...#", "#...#", "#...#");
+        glyph('I', "#####", "..#..", "..#..", "..#..", "..#..", "..#..", "#####");
+        glyph('J', "#####", "....#", "....#", "....#", "#...#", "#...#", ".###.");
+        glyph('K', "#...#", "#..#.", "#.#..", "##...", "#.#..", "#..#.", "#...#");
+        glyph('L', "#....", "#....", "#....", "#....", "#....", "#....", "#####");
+        glyph('M', "#...#", "##.##", "#.u.#", "#...#", "#...#", "#...#", "#...#");
+        glyph('N', "#...#", "##..#", "#.#.#", "#..##", "#...#", "#...#", "#...#");
+        glyph('O', ".###.", "#...#", "#...#", "#...#", "#...#", "#...#", ".###.");
+        glyph('P', "####.", "#...#", "#...#", "####.", "#....", "#....", "#....");
+        glyph('Q', ".###.", "#...#", "#...#", "#...#", "#.#.#", "#..##", ".##.#");
+        glyph('R', "####.", "#...#", "#...#", "####.", "#.#..", "#..#.", "#...#");
+        glyph('S', ".####", "#....", "#....", ".###.", "....#", "....#", "####.");
+        glyph('T', "#####", "..#..", "..#..", "..#..", "..#..", "..#..", "..#..");
+        glyph('U', "#...#", "#...#", "#...#", "#...#", "#...#", "#...#", ".###.");
+        glyph('V', "#...#", "#...#", "#...#", "#...#", "#...#", ".#.#.", "..#..");
+        glyph('W', "#...#", "#...#", "#...#", "#.#.#", "#.#.#", "##.##", "#...#");
+        glyph('X', "#...#", "#...#", ".#.#.", "..#..", ".#.#.", "#...#", "#...#");
+        glyph('Y', "#...#", "#...#", ".#.#.", "..#..", "..#..", "..#..", "..#..");
+        glyph('Z', "#####", "....#", "...#.", "..#..", ".#...", "#....", "#####");
+        glyph('>', "#....", ".#...", "..#..", "...#.", "..#..", ".#...", "#....");
+        glyph('<', "....#", "...#.", "..#..", ".#...", "..#..", "...#.", "....#");
+        glyph('/', "....#", "...#.", "...#.", "..#..", ".#...", ".#...", "#....");
+        glyph(':', ".....", "..#..", "..#..", ".....", "..#..", "..#..", ".....");
+        glyph('0', ".###.", "#..##", "#.###", "##.##", "###.#", "##..#", ".###.");
+        glyph('1', "..#..", ".##..", "..#..", "..#..", "..#..", "..#..", ".###.");
+        glyph('2', ".###.", "#...#", "....#", ".###.", "#....", "#....", "#####");
+        glyph('3', "#####", "....#", "..##.", "....#", "....#", "#...#", ".###.");
+        glyph('4', "#...#", "#...#", "#...#", "#####", "....#", "....#", "....#");
+        glyph('5', "#####", "#....", "####.", "....#", "....#", "#...#", ".###.");
+        glyph('6', ".###.", "#....", "####.", "#...#", "#...#", "#...#", ".###.");
+        glyph('7', "#####", "....#", "...#.", "..#..", "..#..", "..#..", "..#..");
+        glyph('8', ".###.", "#...#", "#...#", ".###.", "#...#", "#...#", ".###.");
+        glyph('9', ".###.", "#...#", "#...#", ".####", "....#", "....#", ".###.");
+        glyph('%', "#...#", ".....", "..#..", ".#.#.", "..#..", ".....", "#...#");
+        glyph('|', "..#..", "..#..", "..#..", "..#..", "..#..", "..#..", "..#..");
+        java.util.Arrays.fill(BOX, (byte) ((1 << GLYPH_WIDTH) - 1));
+    }
+
+    private PixelFont() {
+    }
+
+    private static void glyph(char c, String... rows) {
+        byte[] mask = new byte[GLYPH_HEIGHT];
+        for (int row = 0; row < GLYPH_HEIGHT; row++) {
+            String line = rows[row];
+            for (int col = 0; col < GLYPH_WIDTH && col < line.length(); col++) {
+                if (line.charAt(col) == '#')
+                    mask[row] |= 1 << col;
+            }
+        }
+        GLYPHS[c] = mask;
+    }
+
+    /**
+     * Row masks of a character's glyph; shared, do not modify.
+     */
+    public static byte[] getGlyph(char c) {
+        c = Character.toUpperCase(c);
+        if (c == ' ')
+            return BLANK;
+        byte[] glyph = c < GLYPHS.length ? GLYPHS[c] : null;
+        return glyph != null ? glyph : BOX;
+    }
+
+    public static boolean isLit(char c, int row, int col) {
+        return (getGlyph(c)[row] & (1 << col)) != 0;
+    }
+
+    /**
+     * Width of a line of text in screen units, from the first glyph's left edge to the
+     * last glyph's right edge.
+     */
+    public static float measure(CharSequence text, float scale) {
+        return text.length() == 0 ? 0 : (text.length() * ADVANCE - 1) * scale;
+    }
+
+    /**
+     * Adds text centered on (centerX, centerY), each font pixel scale units square,
+     * with the batch's current texture (normally white).
+     */
+    public static void addTextCentered(QuadBatch batch, CharSequence text, float centerX, float centerY, float scale,
+                                       float r, float g, float b, float a) {
+        float startX = centerX - measure(text, scale) / 2f;
+        float startY = centerY - (GLYPH_HEIGHT * scale) / 2f;
+        addText(batch, text, startX, startY, scale, r, g, b, a);
+    }
+
+    /**
+     * Adds text with its top-left corner at (x, y).
+     */
+    public static void addText(QuadBatch batch, CharSequence text, float x, float y, float scale,
+                               float r, float g, float b, float a) {
+        for (int ci = 0; ci < text.length(); ci++) {
+            byte[] glyph = getGlyph(text.charAt(ci));
+            float baseX = x + ci * ADVANCE * scale;
+            for (int row = 0; row < GLYPH_HEIGHT; row++) {
+                int mask = glyph[row];
+                int col = 0;
+                while (col < GLYPH_WIDTH) {
+                    if ((mask & (1 << col)) == 0) {
+                        col++;
+                        continue;
+                    }
+                    int end = col + 1;
+                    while (end < GLYPH_WIDTH && (mask & (1 << end)) != 0) {
+                        end++;
+                    }
+                    float y0 = y + row * scale;
+                    batch.addRect(baseX + col * scale, y0, baseX + end * scale, y0 + scale, 0, 0, 1, 1, r, g, b, a);
+                    col = end;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package engine.gfx;
+
+import org.joml.Matrix4fc;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * CPU side of {@link SpriteBatch}: 2D quads as interleaved vertices (x, y, u, v, r, g,
+ * b, a), four per quad, plus the runs of consecutive quads that share a texture.
+ * Quads keep their submission order so overlapping translucent sprites blend as
+ * drawn; a texture change only starts a new run. Nothing here touches GL.
+ */
+public class QuadBatch {
+
+    public static final int FLOATS_PER_VERTEX = 8;
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+    public static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * VERTICES_PER_QUAD;
+
+    private float[] vertices;
+    private int quadCount;
+    private int[] runTextures = new int[16];
+    private int[] runStarts = new int[16];
+    private int runCount;
+    private int texture;
+
+    public QuadBatch() {
+        this(256);
+    }
+
+    public QuadBatch(int initialQuads) {
+        vertices = new float[Math.max(1, initialQuads) * FLOATS_PER_QUAD];
+    }
+
+    /**
+     * Drops all quads; the current texture stays selected.
+     */
+    public void clear() {
+        quadCount = 0;
+        runCount = 0;
+    }
+
+    /**
+     * Texture for the quads added from now on, as a GL texture id.
+     */
+    public void setTexture(int textureId) {
+        texture = textureId;
+    }
+
+    public int getTexture() {
+        return texture;
+    }
+
+    /**
+     * Adds an axis-aligned rectangle; (u0, v0) maps to the (x0, y0) corner and
+     * (u1, v1) to (x1, y1).
+     */
+    public void addRect(float x0, float y0, float x1, float y1, float u0, float v0, float u1, float v1,
+                        float r, float g, float b, float a) {
+        int o = beginQuad();
+        o = vertex(o, x0, y0, u0, v0, r, g, b, a);
+        o = vertex(o, x0, y1, u0, v1, r, g, b, a);
+        o = vertex(o, x1, y1, u1, v1, r, g, b, a);
+        vertex(o, x1, y0, u1, v0, r, g, b, a);
+    }
+
+    /**
+     * Adds the unit quad (-0.5..0.5 in x and y) transformed by a 2D affine matrix, with
+     * texture v running from 1 at local y = -0.5 to 0 at y = 0.5, as the HUD's old quad mesh had.
+     */
+    public void addQuad(Matrix4fc transform, float r, float g, float b, float a) {
+        float m00 = transform.m00();
+        float m01 = transform.m01();
+        float m10 = transform.m10();
+        float m11 = transform.m11();
+        float cx = transform.m30();
+        float cy = transform.m31();
+        // Half extents of the local axes in screen space
+        float ax = m00 * 0.5f;
+        float ay = m01 * 0.5f;
+        float bx = m10 * 0.5f;
+        float by = m11 * 0.5f;
+        int o = beginQuad();
+        o = vertex(o, cx - ax + bx, cy - ay + by, 0, 0, r, g, b, a);
+        o = vertex(o, cx - ax - bx, cy - ay - by, 0, 1, r, g, b, a);
+        o = vertex(o, cx + ax - bx, cy + ay - by, 1, 1, r, g, b, a);
+        vertex(o, cx + ax + bx, cy + ay + by, 1, 0, r, g, b, a);
+    }
+
+    private int beginQuad() {
+        if (runCount == 0 || runTextures[runCount - 1] != texture) {
+            if (runCount == runTextures.length) {
+                runTextures = Arrays.copyOf(runTextures, runCount * 2);
+                runStarts = Arrays.copyOf(runStarts, runCount * 2);
+            }
+            runTextures[runCount] = texture;
+            runStarts[runCount] = quadCount;
+            runCount++;
+        }
+        if ((quadCount + 1) * FLOATS_PER_QUAD > vertices.length)
+            vertices = Arrays.copyOf(vertices, vertices.length * 2);
+        return quadCount++ * FLOATS_PER_QUAD;
+    }
+
+    private int vertex(int o, float x, float y, float u, float v, float r, float g, float b, float a) {
+        vertices[o] = x;
+        vertices[o + 1] = y;
+        vertices[o + 2] = u;
+        vertices[o + 3] = v;
+        vertices[o + 4] = r;
+        vertices[o + 5] = g;
+        vertices[o + 6] = b;
+        vertices[o + 7] = a;
+        return o + FLOATS_PER_VERTEX;
+    }
+
+    public int getQuadCount() {
+        return quadCount;
+    }
+
+    public boolean isEmpty() {
+        return quadCount == 0;
+    }
+
+    /**
+     * Vertex data, {@link #FLOATS_PER_QUAD} floats per quad; shared, valid up to
+     * {@link #getQuadCount()} quads.
+     */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getRunTexture(int run) {
+        return runTextures[run];
+    }
+
+    public int getRunFirstQuad(int run) {
+        return runStarts[run];
+    }
+
+    public int getRunQuadCount(int run) {
+        return (run + 1 < runCount ? runStarts[run + 1] : quadCount) - runStarts[run];
+    }
+
+    /**
+     * Puts all quads' vertices at the buffer's position.
+     */
+    public void writeVertices(FloatBuffer dst) {
+        dst.put(vertices, 0, quadCount * FLOATS_PER_QUAD);
+    }
+
+    /**
+     * Two triangles per quad over its four vertices, for quads 0..quads-1.
+     */
+    public static int[] quadIndices(int quads) {
+        int[] indices = new int[quads * INDICES_PER_QUAD];
+        for (int q = 0; q < quads; q++) {
+            int v = q * VERTICES_PER_QUAD;
+            int i = q * INDICES_PER_QUAD;
+            indices[i] = v;
+            indices[i + 1] = v + 1;
+            indices[i + 2] = v + 2;
+            indices[i + 3] = v + 2;
+            indices[i + 4] = v + 3;
+            indices[i + 5] = v;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,246 @@
+package engine.gfx;
+
+import engine.raster.Texture;
+import engine.shaders.ShaderProgram;
+import engine.shaders.Uniform;
+import engine.utils.Utils;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector4fc;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Immediate-style 2D drawing for the HUD and menus. Quads are collected in a
+ * {@link QuadBatch} between {@link #begin} and {@link #end}; a flush uploads them in
+ * one streaming buffer update and issues one draw per run of quads with the same
+ * texture. Untextured quads use a 1x1 white texture, so colour fills and sprites
+ * batch together. Coordinates are window pixels, origin top left.
+ */
+public class SpriteBatch {
+
+    private static final int INITIAL_QUADS = 1024;
+
+    private final QuadBatch quads = new QuadBatch(INITIAL_QUADS);
+    private final ShaderProgram shaderProgram;
+    private final Uniform uProjection;
+    private final Uniform uTextureSampler;
+    private final Matrix4f projection = new Matrix4f();
+    private final int vaoId;
+    private final int vboId;
+    private final int eboId;
+    private final int whiteTextureId;
+    private int indexCapacityQuads;
+    private FloatBuffer staging;
+    private boolean drawing;
+    private int drawCalls;
+    private int lastDrawCalls;
+    private int lastQuadCount;
+
+    public SpriteBatch() throws Exception {
+        shaderProgram = new ShaderProgram();
+        shaderProgram.createVertexShader(Utils.loadResource("shaders/sprite_batch.vs"));
+        shaderProgram.createFragmentShader(Utils.loadResource("shaders/sprite_batch.fs"));
+        shaderProgram.link();
+        uProjection = shaderProgram.createUniform("projectionMatrix");
+        uTextureSampler = shaderProgram.createUniform("texture_sampler");
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        int stride = QuadBatch.FLOATS_PER_VERTEX * Float.BYTES;
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, stride, 0);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 2L * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, 4, GL_FLOAT, false, stride, 4L * Float.BYTES);
+        glEnableVertexAttribArray(2);
+        eboId = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+        uploadIndices(INITIAL_QUADS);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        staging = MemoryUtil.memAllocFloat(INITIAL_QUADS * QuadBatch.FLOATS_PER_QUAD);
+        whiteTextureId = createWhiteTexture();
+    }
+
+    private void uploadIndices(int quadCount) {
+        // Requires the VAO bound, which records the element buffer
+        IntBuffer indices = MemoryUtil.memAllocInt(quadCount * QuadBatch.INDICES_PER_QUAD);
+        try {
+            indices.put(QuadBatch.quadIndices(quadCount)).flip();
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        } finally {
+            MemoryUtil.memFree(indices);
+        }
+        indexCapacityQuads = quadCount;
+    }
+
+    private static int createWhiteTexture() {
+        int id = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, id);
+        ByteBuffer pixel = MemoryUtil.memAlloc(4);
+        try {
+            pixel.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).flip();
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixel);
+        } finally {
+            MemoryUtil.memFree(pixel);
+        }
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        return id;
+    }
+
+    /**
+     * Starts a batch for a window of the given size: blending on, depth test and face
+     * culling off until {@link #end()}.
+     */
+    public void begin(int width, int height) {
+        if (drawing)
+            throw new IllegalStateException("SpriteBatch.begin called twice");
+        drawing = true;
+        drawCalls = 0;
+        quads.clear();
+        quads.setTexture(whiteTextureId);
+
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_CULL_FACE);
+
+        shaderProgram.bind();
+        shaderProgram.set(uProjection, projection.setOrtho2D(0, width, height, 0));
+        shaderProgram.set(uTextureSampler, 0);
+    }
+
+    /**
+     * Flushes and restores the 3D state (depth test and culling on, blending off).
+     */
+    public void end() {
+        if (!drawing)
+            throw new IllegalStateException("SpriteBatch.end without begin");
+        flush();
+        lastDrawCalls = drawCalls;
+        drawing = false;
+        shaderProgram.unbind();
+        glEnable(GL_DEPTH_TEST);
+        glEnable(GL_CULL_FACE);
+        glDisable(GL_BLEND);
+    }
+
+    /**
+     * Draws everything collected so far.
+     */
+    public void flush() {
+        int quadCount = quads.getQuadCount();
+        lastQuadCount = quadCount;
+        if (quadCount == 0)
+            return;
+
+        int floats = quadCount * QuadBatch.FLOATS_PER_QUAD;
+        if (staging.capacity() < floats) {
+            MemoryUtil.memFree(staging);
+            staging = MemoryUtil.memAllocFloat(Math.max(floats, staging.capacity() * 2));
+        }
+        staging.clear();
+        quads.writeVertices(staging);
+        staging.flip();
+
+        glBindVertexArray(vaoId);
+        if (indexCapacityQuads < quadCount)
+            uploadIndices(Math.max(quadCount, indexCapacityQuads * 2));
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        // Orphan last frame's storage instead of waiting for draws still reading it
+        glBufferData(GL_ARRAY_BUFFER, staging, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glActiveTexture(GL_TEXTURE0);
+        for (int run = 0; run < quads.getRunCount(); run++) {
+            glBindTexture(GL_TEXTURE_2D, quads.getRunTexture(run));
+            glDrawElements(GL_TRIANGLES, quads.getRunQuadCount(run) * QuadBatch.INDICES_PER_QUAD, GL_UNSIGNED_INT,
+                    (long) quads.getRunFirstQuad(run) * QuadBatch.INDICES_PER_QUAD * Integer.BYTES);
+            drawCalls++;
+        }
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindVertexArray(0);
+
+        int texture = quads.getTexture();
+        quads.clear();
+        quads.setTexture(texture);
+    }
+
+    /**
+     * A rectangle of solid colour centered on (centerX, centerY).
+     */
+    public void fillRect(float centerX, float centerY, float width, float height, Vector4fc colour) {
+        quads.setTexture(whiteTextureId);
+        quads.addRect(centerX - width / 2f, centerY - height / 2f, centerX + width / 2f, centerY + height / 2f,
+                0, 0, 1, 1, colour.x(), colour.y(), colour.z(), colour.w());
+    }
+
+    /**
+     * A whole texture stretched over a rectangle centered on (centerX, centerY) and
+     * tinted by colour.
+     */
+    public void drawTexture(Texture texture, float centerX, float centerY, float width, float height,
+                            Vector4fc colour) {
+        quads.setTexture(texture.getId());
+        // v = 1 along the top edge, the mapping of the quad mesh the HUD used before
+        quads.addRect(centerX - width / 2f, centerY - height / 2f, centerX + width / 2f, centerY + height / 2f,
+                0, 1, 1, 0, colour.x(), colour.y(), colour.z(), colour.w());
+    }
+
+    /**
+     * The unit quad centered on the origin placed by transform, e.g. an entity's world
+     * transform; texture may be null for a solid colour.
+     */
+    public void drawQuad(Matrix4fc transform, Texture texture, float r, float g, float b, float a) {
+        quads.setTexture(texture != null ? texture.getId() : whiteTextureId);
+        quads.addQuad(transform, r, g, b, a);
+    }
+
+    public void drawTextCentered(CharSequence text, float centerX, float centerY, float scale, Vector4fc colour) {
+        quads.setTexture(whiteTextureId);
+        PixelFont.addTextCentered(quads, text, centerX, centerY, scale, colour.x(), colour.y(), colour.z(),
+                colour.w());
+    }
+
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    /**
+     * Draw calls issued between the last begin/end pair.
+     */
+    public int getLastDrawCalls() {
+        return lastDrawCalls;
+    }
+
+    /**
+     * Quads in the last flush.
+     */
+    public int getLastQuadCount() {
+        return lastQuadCount;
+    }
+
+    public void cleanup() {
+        shaderProgram.cleanup();
+        glDeleteBuffers(vboId);
+        glDeleteBuffers(eboId);
+        glDeleteVertexArrays(vaoId);
+        glDeleteTextures(whiteTextureId);
+        MemoryUtil.memFree(staging);
+    }
+}
@@ -0,0 +1,117 @@
+package engine.raster;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Back-to-front order of a set of items that changes little from frame to frame,
+ * e.g. translucent chunks. Each frame the items are re-added with their current
+ * depth; items seen before keep their previous position, new ones are appended,
+ * and an insertion sort repairs the nearly sorted result. That is linear while the
+ * camera moves smoothly, where a full sort would be n log n every frame.
+ * Ties keep their previous order, so equal depths don't flicker. Nothing here touches GL.
+ */
+public class DepthOrder<T> {
+
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] order = (Entry<T>[]) new Entry<?>[64];
+    private int size;
+    private int frame;
+    private long lastShifts;
+
+    /**
+     * Starts a frame; items not added again before {@link #finish()} are dropped.
+     */
+    public void begin() {
+        frame++;
+    }
+
+    /**
+     * @param depth larger is farther; e.g. squared distance to the camera
+     */
+    public void add(T item, float depth) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            entry = new Entry<>(item);
+            entries.put(item, entry);
+            if (size == order.length)
+                order = Arrays.copyOf(order, size * 2);
+            order[size++] = entry;
+        }
+        entry.depth = depth;
+        entry.frame = frame;
+    }
+
+    /**
+     * Drops stale items and sorts farthest first.
+     *
+     * @return number of items in the order
+     */
+    public int finish() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Entry<T> entry = order[i];
+            if (entry.frame == frame) {
+                order[kept++] = entry;
+            } else {
+                entries.remove(entry.item);
+            }
+        }
+        Arrays.fill(order, kept, size, null);
+        size = kept;
+
+        long shifts = 0;
+        for (int i = 1; i < size; i++) {
+            Entry<T> entry = order[i];
+            int j = i - 1;
+            while (j >= 0 && order[j].depth < entry.depth) {
+                order[j + 1] = order[j];
+                j--;
+                shifts++;
+            }
+            order[j + 1] = entry;
+        }
+        lastShifts = shifts;
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Item i of the last {@link #finish()}, farthest first.
+     */
+    public T get(int i) {
+        return order[i].item;
+    }
+
+    public float getDepth(int i) {
+        return order[i].depth;
+    }
+
+    /**
+     * Element moves done by the last sort; small when the order barely changed.
+     */
+    public long getLastShiftCount() {
+        return lastShifts;
+    }
+
+    public void clear() {
+        entries.clear();
+        Arrays.fill(order, 0, size, null);
+        size = 0;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        float depth;
+        int frame;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+}
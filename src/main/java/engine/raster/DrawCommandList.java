@@ -0,0 +1,124 @@
+package engine.raster;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Per-frame list of indexed draws into a {@link GeometryArena}, laid out as GL
+ * DrawElementsIndirectCommand records ({count, instanceCount, firstIndex,
+ * baseVertex, baseInstance}) plus one origin per draw. Each command's baseInstance
+ * is its position in the list, so a per-instance attribute fed from
+ * {@link #writeOrigins} gives every draw of a multi-draw its own origin.
+ * Nothing here touches GL.
+ */
+public class DrawCommandList {
+
+    public static final int INTS_PER_COMMAND = 5;
+    public static final int FLOATS_PER_ORIGIN = 3;
+
+    private int[] commands;
+    private float[] origins;
+    private int size;
+
+    public DrawCommandList() {
+        this(256);
+    }
+
+    public DrawCommandList(int initialCapacity) {
+        initialCapacity = Math.max(1, initialCapacity);
+        commands = new int[initialCapacity * INTS_PER_COMMAND];
+        origins = new float[initialCapacity * FLOATS_PER_ORIGIN];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(GeometryArena.Slice slice, float originX, float originY, float originZ) {
+        add(slice.getIndexCount(), slice.getIndexOffset(), slice.getVertexOffset(), originX, originY, originZ);
+    }
+
+    /**
+     * @param firstIndex offset into the index buffer, in indices
+     * @param baseVertex added to every index of this draw
+     */
+    public void add(int indexCount, int firstIndex, int baseVertex, float originX, float originY, float originZ) {
+        if (size * INTS_PER_COMMAND == commands.length) {
+            commands = Arrays.copyOf(commands, commands.length * 2);
+            origins = Arrays.copyOf(origins, origins.length * 2);
+        }
+        int c = size * INTS_PER_COMMAND;
+        commands[c] = indexCount;
+        commands[c + 1] = 1; // instanceCount
+        commands[c + 2] = firstIndex;
+        commands[c + 3] = baseVertex;
+        commands[c + 4] = size; // baseInstance selects this draw's origin
+        int o = size * FLOATS_PER_ORIGIN;
+        origins[o] = originX;
+        origins[o + 1] = originY;
+        origins[o + 2] = originZ;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getIndexCount(int i) {
+        return commands[i * INTS_PER_COMMAND];
+    }
+
+    public int getFirstIndex(int i) {
+        return commands[i * INTS_PER_COMMAND + 2];
+    }
+
+    public int getBaseVertex(int i) {
+        return commands[i * INTS_PER_COMMAND + 3];
+    }
+
+    public int getBaseInstance(int i) {
+        return commands[i * INTS_PER_COMMAND + 4];
+    }
+
+    public float getOriginX(int i) {
+        return origins[i * FLOATS_PER_ORIGIN];
+    }
+
+    public float getOriginY(int i) {
+        return origins[i * FLOATS_PER_ORIGIN + 1];
+    }
+
+    public float getOriginZ(int i) {
+        return origins[i * FLOATS_PER_ORIGIN + 2];
+    }
+
+    /**
+     * Total indices drawn by the list.
+     */
+    public long getTotalIndexCount() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += commands[i * INTS_PER_COMMAND];
+        }
+        return total;
+    }
+
+    /**
+     * Puts {@link #size()} * {@link #INTS_PER_COMMAND} ints at the buffer's position.
+     */
+    public void writeCommands(IntBuffer dst) {
+        dst.put(commands, 0, size * INTS_PER_COMMAND);
+    }
+
+    /**
+     * Puts {@link #size()} * {@link #FLOATS_PER_ORIGIN} floats at the buffer's position.
+     */
+    public void writeOrigins(FloatBuffer dst) {
+        dst.put(origins, 0, size * FLOATS_PER_ORIGIN);
+    }
+}
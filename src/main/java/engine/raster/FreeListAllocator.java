@@ -0,0 +1,147 @@
+package engine.raster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sub-allocates ranges of a fixed-size space (e.g. vertices in one big VBO).
+ * Free ranges are kept sorted by offset and merged with their neighbours on free;
+ * allocation is best fit, ties going to the lowest offset, so small meshes fill
+ * the holes left by small meshes instead of splitting the large tail block.
+ * Units are whatever the caller counts in; nothing here touches GL.
+ */
+public class FreeListAllocator {
+
+    public static final int NO_SPACE = -1;
+
+    // offset -> size
+    private final TreeMap<Integer, Integer> freeBlocks = new TreeMap<>();
+    private final Map<Integer, Integer> allocations = new HashMap<>();
+    private int capacity;
+    private int used;
+
+    public FreeListAllocator(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity " + capacity);
+        this.capacity = capacity;
+        if (capacity > 0)
+            freeBlocks.put(0, capacity);
+    }
+
+    /**
+     * @return offset of a range of size units, or {@link #NO_SPACE} if no free block fits
+     */
+    public int allocate(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Allocation size must be positive: " + size);
+
+        int bestOffset = NO_SPACE;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Integer> block : freeBlocks.entrySet()) {
+            int blockSize = block.getValue();
+            if (blockSize >= size && blockSize < bestSize) {
+                bestOffset = block.getKey();
+                bestSize = blockSize;
+                if (blockSize == size)
+                    break;
+            }
+        }
+        if (bestOffset == NO_SPACE)
+            return NO_SPACE;
+
+        freeBlocks.remove(bestOffset);
+        if (bestSize > size)
+            freeBlocks.put(bestOffset + size, bestSize - size);
+        allocations.put(bestOffset, size);
+        used += size;
+        return bestOffset;
+    }
+
+    /**
+     * Returns a range obtained from {@link #allocate} to the free list.
+     */
+    public void free(int offset) {
+        Integer size = allocations.remove(offset);
+        if (size == null)
+            throw new IllegalArgumentException("No allocation at offset " + offset);
+        used -= size;
+
+        int start = offset;
+        int end = offset + size;
+        Map.Entry<Integer, Integer> before = freeBlocks.lowerEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            start = before.getKey();
+            freeBlocks.remove(start);
+        }
+        Integer afterSize = freeBlocks.remove(end);
+        if (afterSize != null)
+            end += afterSize;
+        freeBlocks.put(start, end - start);
+    }
+
+    /**
+     * Extends the space; the new units join the free block at the end, if any.
+     */
+    public void grow(int newCapacity) {
+        if (newCapacity < capacity)
+            throw new IllegalArgumentException("Cannot shrink from " + capacity + " to " + newCapacity);
+        if (newCapacity == capacity)
+            return;
+        int start = capacity - getTailFree();
+        freeBlocks.put(start, newCapacity - start);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Size of an allocation, or -1 if offset is not allocated.
+     */
+    public int getSize(int offset) {
+        Integer size = allocations.get(offset);
+        return size != null ? size : -1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+
+    public int getFree() {
+        return capacity - used;
+    }
+
+    public int getAllocationCount() {
+        return allocations.size();
+    }
+
+    public int getFreeBlockCount() {
+        return freeBlocks.size();
+    }
+
+    /**
+     * Size of the free block ending at the capacity, i.e. what {@link #grow} would extend.
+     */
+    public int getTailFree() {
+        Map.Entry<Integer, Integer> last = freeBlocks.lastEntry();
+        return last != null && last.getKey() + last.getValue() == capacity ? last.getValue() : 0;
+    }
+
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int size : freeBlocks.values()) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    /**
+     * 0 when all free space is one block, approaching 1 as it splinters into small holes.
+     */
+    public float getFragmentation() {
+        int free = getFree();
+        return free == 0 ? 0 : 1f - (float) getLargestFreeBlock() / free;
+    }
+}
@@ -24,4 +24,11 @@ public class FrustumCullingFilter {
     public boolean insideFrustum(float x0, float y0, float z0, float boundingRadius) {
         return frustumInt.testSphere(x0, y0, z0, boundingRadius);
     }
+
+    /**
+     * Axis-aligned box test; conservative, boxes near a frustum corner may pass.
+     */
+    public boolean insideFrustum(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return frustumInt.testAab(minX, minY, minZ, maxX, maxY, maxZ);
+    }
 }
@@ -0,0 +1,374 @@
+package engine.raster;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.opengl.GL40.*;
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * One VAO over a shared packed-vertex VBO and index buffer, sub-allocated with a
+ * {@link FreeListAllocator} per buffer. Meshes become {@link Slice}s instead of
+ * owning GL objects, so a rebuild is a glBufferSubData into a free range rather
+ * than a VAO and two buffers created and deleted. Indices stay local to their
+ * slice and are offset at draw time with glDrawElementsBaseVertex. When a buffer
+ * runs out it is reallocated at double size and the old contents copied over on
+ * the GPU.
+ * <p>
+ * A whole {@link DrawCommandList} can be drawn with one glMultiDrawElementsIndirect
+ * (GL 4.3). Each draw's origin is a per-instance attribute at
+ * {@link #ORIGIN_ATTRIBUTE_LOCATION}, picked by the command's baseInstance, so no
+ * uniforms change between draws. Without GL 4.3 the same list is drawn one
+ * command at a time with {@link #drawCommand}, the origin attribute disabled.
+ */
+public class GeometryArena {
+
+    /**
+     * The packed vertex, bound as an integer attribute.
+     */
+    public static final int VERTEX_ATTRIBUTE_LOCATION = 3;
+    public static final int ORIGIN_ATTRIBUTE_LOCATION = 4;
+
+    private static final int VERTEX_BYTES = PackedMeshData.INTS_PER_VERTEX * Integer.BYTES;
+
+    private final int vaoId;
+    private int vertexVboId;
+    private int indexVboId;
+    private final FreeListAllocator vertexSpace;
+    private final FreeListAllocator indexSpace;
+    private long grows;
+
+    // Multi-draw state, refilled every frame by uploadCommands
+    private final boolean indirectSupported;
+    private final int originVboId;
+    private final int indirectBufferId;
+    private IntBuffer commandStaging;
+    private FloatBuffer originStaging;
+    private int uploadedCommands;
+
+    /**
+     * @param initialVertices starting vertex capacity
+     * @param initialIndices  starting index capacity
+     */
+    public GeometryArena(int initialVertices, int initialIndices) {
+        vertexSpace = new FreeListAllocator(initialVertices);
+        indexSpace = new FreeListAllocator(initialIndices);
+
+        vaoId = glGenVertexArrays();
+        vertexVboId = createBuffer(GL_ARRAY_BUFFER, (long) initialVertices * VERTEX_BYTES);
+        indexVboId = createBuffer(GL_ARRAY_BUFFER, (long) initialIndices * Integer.BYTES);
+        originVboId = glGenBuffers();
+        indirectBufferId = glGenBuffers();
+        indirectSupported = GL.getCapabilities().OpenGL43;
+        commandStaging = MemoryUtil.memAllocInt(256 * DrawCommandList.INTS_PER_COMMAND);
+        originStaging = MemoryUtil.memAllocFloat(256 * DrawCommandList.FLOATS_PER_ORIGIN);
+        bindVertexArray();
+    }
+
+    private static int createBuffer(int target, long bytes) {
+        int id = glGenBuffers();
+        glBindBuffer(target, id);
+        glBufferData(target, bytes, GL_DYNAMIC_DRAW);
+        glBindBuffer(target, 0);
+        return id;
+    }
+
+    // (Re)attaches the current buffers to the VAO
+    private void bindVertexArray() {
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, vertexVboId);
+        glEnableVertexAttribArray(VERTEX_ATTRIBUTE_LOCATION);
+        glVertexAttribIPointer(VERTEX_ATTRIBUTE_LOCATION, PackedMeshData.INTS_PER_VERTEX, GL_UNSIGNED_INT,
+                VERTEX_BYTES, 0);
+        if (indirectSupported) {
+            glBindBuffer(GL_ARRAY_BUFFER, originVboId);
+            glEnableVertexAttribArray(ORIGIN_ATTRIBUTE_LOCATION);
+            glVertexAttribPointer(ORIGIN_ATTRIBUTE_LOCATION, DrawCommandList.FLOATS_PER_ORIGIN, GL_FLOAT, false, 0,
+                    0);
+            glVertexAttribDivisor(ORIGIN_ATTRIBUTE_LOCATION, 1);
+        } else {
+            // The origin buffer is only filled by uploadCommands; per-draw uniforms place the chunk instead
+            glDisableVertexAttribArray(ORIGIN_ATTRIBUTE_LOCATION);
+        }
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexVboId);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Uploads data into free ranges of the shared buffers, growing them if needed.
+     *
+     * @return the slice to draw, or null for an empty mesh
+     */
+    public Slice upload(PackedMeshData data) {
+        int vertexCount = data.getVertexCount();
+        int indexCount = data.indices.length;
+        if (vertexCount == 0 || indexCount == 0)
+            return null;
+
+        int vertexOffset = vertexSpace.allocate(vertexCount);
+        if (vertexOffset == FreeListAllocator.NO_SPACE) {
+            vertexVboId = grow(vertexVboId, vertexSpace, vertexCount, VERTEX_BYTES);
+            bindVertexArray();
+            vertexOffset = vertexSpace.allocate(vertexCount);
+        }
+        int indexOffset = indexSpace.allocate(indexCount);
+        if (indexOffset == FreeListAllocator.NO_SPACE) {
+            indexVboId = grow(indexVboId, indexSpace, indexCount, Integer.BYTES);
+            bindVertexArray();
+            indexOffset = indexSpace.allocate(indexCount);
+        }
+
+        write(vertexVboId, (long) vertexOffset * VERTEX_BYTES, data.vertices);
+        write(indexVboId, (long) indexOffset * Integer.BYTES, data.indices);
+        return new Slice(this, vertexOffset, vertexCount, indexOffset, indexCount);
+    }
+
+    /**
+     * Overwrites part of a slice's indices in place, e.g. to reorder faces for depth
+     * sorting. Indices are relative to the slice's first vertex, as in {@link #upload}.
+     *
+     * @param firstIndex offset within the slice, in indices
+     */
+    public void updateIndices(Slice slice, int firstIndex, int[] indices) {
+        if (slice.arena != this || slice.freed)
+            throw new IllegalArgumentException("Slice is not live in this arena");
+        if (firstIndex < 0 || firstIndex + indices.length > slice.indexCount)
+            throw new IllegalArgumentException("Index range outside slice: " + firstIndex + "+" + indices.length
+                    + " > " + slice.indexCount);
+        if (indices.length > 0)
+            write(indexVboId, (long) (slice.indexOffset + firstIndex) * Integer.BYTES, indices);
+    }
+
+    private static void write(int bufferId, long byteOffset, int[] values) {
+        IntBuffer buffer = MemoryUtil.memAllocInt(values.length);
+        try {
+            buffer.put(values).flip();
+            glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+            glBufferSubData(GL_ARRAY_BUFFER, byteOffset, buffer);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    /**
+     * Doubles the buffer until a block of minUnits fits, copying the old contents.
+     * The caller must reattach the returned buffer to the VAO.
+     *
+     * @return id of the replacement buffer
+     */
+    private int grow(int bufferId, FreeListAllocator space, int minUnits, int unitBytes) {
+        int oldCapacity = space.getCapacity();
+        long newCapacity = Math.max(oldCapacity, 1024);
+        while (newCapacity - oldCapacity + space.getTailFree() < minUnits) {
+            newCapacity *= 2;
+        }
+        if (newCapacity * unitBytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Geometry arena exceeds 2 GB");
+
+        int newId = createBuffer(GL_ARRAY_BUFFER, newCapacity * unitBytes);
+        glBindBuffer(GL_COPY_READ_BUFFER, bufferId);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, newId);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0, 0, (long) oldCapacity * unitBytes);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glDeleteBuffers(bufferId);
+
+        space.grow((int) newCapacity);
+        grows++;
+        return newId;
+    }
+
+    /**
+     * Returns a slice's ranges to the free lists. The GL contents are left in place
+     * and overwritten by a later upload.
+     */
+    public void free(Slice slice) {
+        if (slice.arena != this)
+            throw new IllegalArgumentException("Slice belongs to another arena");
+        if (slice.freed)
+            return;
+        slice.freed = true;
+        vertexSpace.free(slice.vertexOffset);
+        indexSpace.free(slice.indexOffset);
+    }
+
+    /**
+     * Binds the shared VAO; every slice of this arena can then be drawn with {@link #draw}.
+     */
+    public void bind() {
+        glBindVertexArray(vaoId);
+        if (!indirectSupported) {
+            // Current attribute values are context state, so set the origin on every bind
+            glVertexAttrib3f(ORIGIN_ATTRIBUTE_LOCATION, 0, 0, 0);
+        }
+    }
+
+    public void unbind() {
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Draws one slice. Requires {@link #bind()}.
+     *
+     * @param mode primitive mode, e.g. GL_TRIANGLES or GL_PATCHES
+     */
+    public void draw(int mode, Slice slice) {
+        glDrawElementsBaseVertex(mode, slice.indexCount, GL_UNSIGNED_INT, (long) slice.indexOffset * Integer.BYTES,
+                slice.vertexOffset);
+    }
+
+    /**
+     * Whether {@link #drawIndirect} is available (GL 4.3 multi-draw indirect).
+     */
+    public boolean isIndirectSupported() {
+        return indirectSupported;
+    }
+
+    /**
+     * Uploads the commands and origins of a list for {@link #drawIndirect}; the
+     * previous contents are orphaned, so this is safe while earlier draws are in flight.
+     */
+    public void uploadCommands(DrawCommandList list) {
+        int commandInts = list.size() * DrawCommandList.INTS_PER_COMMAND;
+        if (commandStaging.capacity() < commandInts) {
+            int commands = Math.max(list.size(), commandStaging.capacity() / DrawCommandList.INTS_PER_COMMAND * 2);
+            MemoryUtil.memFree(commandStaging);
+            MemoryUtil.memFree(originStaging);
+            commandStaging = MemoryUtil.memAllocInt(commands * DrawCommandList.INTS_PER_COMMAND);
+            originStaging = MemoryUtil.memAllocFloat(commands * DrawCommandList.FLOATS_PER_ORIGIN);
+        }
+        commandStaging.clear();
+        list.writeCommands(commandStaging);
+        commandStaging.flip();
+        originStaging.clear();
+        list.writeOrigins(originStaging);
+        originStaging.flip();
+
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, indirectBufferId);
+        glBufferData(GL_DRAW_INDIRECT_BUFFER, commandStaging, GL_STREAM_DRAW);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        glBindBuffer(GL_ARRAY_BUFFER, originVboId);
+        glBufferData(GL_ARRAY_BUFFER, originStaging, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        uploadedCommands = list.size();
+    }
+
+    /**
+     * Draws every command of the last uploaded list in one call. Requires {@link #bind()}.
+     */
+    public void drawIndirect(int mode) {
+        drawIndirect(mode, 0, uploadedCommands);
+    }
+
+    /**
+     * Draws commands [first, first + count) of the last uploaded list in one call, in
+     * list order. Requires {@link #bind()}.
+     */
+    public void drawIndirect(int mode, int first, int count) {
+        if (count <= 0)
+            return;
+        if (first < 0 || first + count > uploadedCommands)
+            throw new IllegalArgumentException("Commands " + first + "+" + count + " of " + uploadedCommands);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, indirectBufferId);
+        glMultiDrawElementsIndirect(mode, GL_UNSIGNED_INT,
+                (long) first * DrawCommandList.INTS_PER_COMMAND * Integer.BYTES, count, 0);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+    }
+
+    /**
+     * Draws command i of a list on its own, for drivers without multi-draw indirect.
+     * The origin is not applied; the caller sets it. Requires {@link #bind()}.
+     */
+    public void drawCommand(int mode, DrawCommandList list, int i) {
+        glDrawElementsBaseVertex(mode, list.getIndexCount(i), GL_UNSIGNED_INT,
+                (long) list.getFirstIndex(i) * Integer.BYTES, list.getBaseVertex(i));
+    }
+
+    public FreeListAllocator getVertexSpace() {
+        return vertexSpace;
+    }
+
+    public FreeListAllocator getIndexSpace() {
+        return indexSpace;
+    }
+
+    public long getGrowCount() {
+        return grows;
+    }
+
+    /**
+     * One-line summary for the debug title bar.
+     */
+    public String getSummary() {
+        return String.format("Arena %d slices %.1f/%.1fMB frag %.2f", vertexSpace.getAllocationCount(),
+                (vertexSpace.getUsed() * (double) VERTEX_BYTES + indexSpace.getUsed() * (double) Integer.BYTES)
+                        / (1024.0 * 1024.0),
+                (vertexSpace.getCapacity() * (double) VERTEX_BYTES + indexSpace.getCapacity() * (double) Integer.BYTES)
+                        / (1024.0 * 1024.0),
+                vertexSpace.getFragmentation());
+    }
+
+    public void cleanup() {
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glDeleteBuffers(vertexVboId);
+        glDeleteBuffers(indexVboId);
+        glDeleteBuffers(originVboId);
+        glDeleteBuffers(indirectBufferId);
+        glDeleteVertexArrays(vaoId);
+        MemoryUtil.memFree(commandStaging);
+        MemoryUtil.memFree(originStaging);
+    }
+
+    /**
+     * A mesh's vertex and index ranges inside an arena.
+     */
+    public static final class Slice {
+        private final GeometryArena arena;
+        private final int vertexOffset;
+        private final int vertexCount;
+        private final int indexOffset;
+        private final int indexCount;
+        private boolean freed;
+
+        private Slice(GeometryArena arena, int vertexOffset, int vertexCount, int indexOffset, int indexCount) {
+            this.arena = arena;
+            this.vertexOffset = vertexOffset;
+            this.vertexCount = vertexCount;
+            this.indexOffset = indexOffset;
+            this.indexCount = indexCount;
+        }
+
+        public void free() {
+            arena.free(this);
+        }
+
+        public int getVertexOffset() {
+            return vertexOffset;
+        }
+
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        public int getIndexOffset() {
+            return indexOffset;
+        }
+
+        public int getIndexCount() {
+            return indexCount;
+        }
+    }
+}
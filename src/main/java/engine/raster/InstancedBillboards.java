@@ -0,0 +1,121 @@
+package engine.raster;
+
+import engine.shaders.ShaderProgram;
+import engine.shaders.Uniform;
+import engine.utils.Utils;
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/**
+ * Camera-facing quads drawn with one instanced draw call. Each instance is
+ * {@link #FLOATS_PER_INSTANCE} floats: world center (x, y, z), a size factor and an
+ * RGBA colour. The quad is expanded in view space by the vertex shader, so an
+ * instance costs no matrix on the CPU. Callers fill {@link #getInstanceBuffer} and
+ * pass the count to {@link #render}, which uploads the buffer once and draws.
+ */
+public class InstancedBillboards {
+
+    public static final int FLOATS_PER_INSTANCE = 8;
+
+    private static final float[] CORNERS = { -1, -1, 1, -1, 1, 1, -1, 1 };
+
+    private final ShaderProgram shaderProgram;
+    private final Uniform uProjection;
+    private final Uniform uView;
+    private final Uniform uQuadSize;
+    private final int vaoId;
+    private final int cornerVboId;
+    private final int instanceVboId;
+    private FloatBuffer instances;
+
+    public InstancedBillboards(int initialInstances) throws Exception {
+        shaderProgram = new ShaderProgram();
+        shaderProgram.createVertexShader(Utils.loadResource("shaders/billboard.vs"));
+        shaderProgram.createFragmentShader(Utils.loadResource("shaders/billboard.fs"));
+        shaderProgram.link();
+        uProjection = shaderProgram.createUniform("projectionMatrix");
+        uView = shaderProgram.createUniform("viewMatrix");
+        uQuadSize = shaderProgram.createUniform("quadSize");
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        cornerVboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, cornerVboId);
+        glBufferData(GL_ARRAY_BUFFER, CORNERS, GL_STATIC_DRAW);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 0, 0);
+        glEnableVertexAttribArray(0);
+
+        instanceVboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+        int stride = FLOATS_PER_INSTANCE * Float.BYTES;
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, stride, 0);
+        glVertexAttribDivisor(1, 1);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, 4, GL_FLOAT, false, stride, 4L * Float.BYTES);
+        glVertexAttribDivisor(2, 1);
+        glEnableVertexAttribArray(2);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        instances = MemoryUtil.memAllocFloat(Math.max(1, initialInstances) * FLOATS_PER_INSTANCE);
+    }
+
+    /**
+     * The staging buffer, cleared and with room for at least count instances. Valid
+     * until the next call.
+     */
+    public FloatBuffer getInstanceBuffer(int count) {
+        int floats = count * FLOATS_PER_INSTANCE;
+        if (instances.capacity() < floats) {
+            MemoryUtil.memFree(instances);
+            instances = MemoryUtil.memAllocFloat(Math.max(floats, instances.capacity() * 2));
+        }
+        instances.clear();
+        return instances;
+    }
+
+    /**
+     * Draws the first count instances of the staging buffer as quads with half extents
+     * (halfWidth, halfHeight) times each instance's size. Blending and depth state are
+     * up to the caller.
+     */
+    public void render(int count, Matrix4f projection, Matrix4f view, float halfWidth, float halfHeight) {
+        if (count <= 0)
+            return;
+        instances.position(0).limit(count * FLOATS_PER_INSTANCE);
+
+        shaderProgram.bind();
+        shaderProgram.set(uProjection, projection);
+        shaderProgram.set(uView, view);
+        shaderProgram.set(uQuadSize, halfWidth, halfHeight);
+
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+        // Orphan last frame's storage instead of waiting for draws still reading it
+        glBufferData(GL_ARRAY_BUFFER, instances, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glDrawArraysInstanced(GL_TRIANGLE_FAN, 0, 4, count);
+        glBindVertexArray(0);
+
+        shaderProgram.unbind();
+    }
+
+    public void cleanup() {
+        shaderProgram.cleanup();
+        glDeleteBuffers(cornerVboId);
+        glDeleteBuffers(instanceVboId);
+        glDeleteVertexArrays(vaoId);
+        MemoryUtil.memFree(instances);
+    }
+}
@@ -25,6 +25,18 @@ public class Mesh {
         this(data.positions, data.textCoords, data.normals, data.indices);
     }
 
+    /**
+     * For subclasses with their own vertex layout: creates and binds an empty VAO,
+     * the subclass fills in the buffers and registers them in vboIdList.
+     */
+    protected Mesh(int vertexCount) {
+        this.colour = new Vector3f(1, 1, 1);
+        this.vertexCount = vertexCount;
+        this.vboIdList = new ArrayList<>();
+        this.vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+    }
+
     public Mesh(float[] positions, float[] textCoords, float[] normals, int[] indices) {
         this.colour = new Vector3f(1, 1, 1);
         FloatBuffer posBuffer = null;
@@ -0,0 +1,115 @@
+package engine.raster;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive vertex/index streams for building a {@link PackedMeshData}
+ * without boxing. Intended to be reused: call {@link #reset()} before each mesh.
+ * Quads may be tagged with a group so {@link #build(int[])} can lay each group
+ * out as one contiguous index range.
+ */
+public class PackedMeshBuilder {
+
+    private int[] vertices;
+    private int[] indices;
+    private int[] quadGroups;
+    private int vertexCount;
+    private int indexCount;
+    private int quadCount;
+
+    public PackedMeshBuilder() {
+        this(1024);
+    }
+
+    public PackedMeshBuilder(int initialVertices) {
+        vertices = new int[initialVertices * PackedMeshData.INTS_PER_VERTEX];
+        indices = new int[initialVertices * 3 / 2];
+        quadGroups = new int[initialVertices / 4];
+    }
+
+    public void reset() {
+        vertexCount = 0;
+        indexCount = 0;
+        quadCount = 0;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public void vertex(int word0, int word1) {
+        int v = vertexCount * PackedMeshData.INTS_PER_VERTEX;
+        if (v + PackedMeshData.INTS_PER_VERTEX > vertices.length) {
+            vertices = Arrays.copyOf(vertices, Math.max(32, vertices.length * 2));
+        }
+        vertices[v] = word0;
+        vertices[v + 1] = word1;
+        vertexCount++;
+    }
+
+    /**
+     * Adds the two triangles (0,1,2) (2,3,0) for the last four vertices written.
+     */
+    public void quadIndices() {
+        quadIndices(0);
+    }
+
+    /**
+     * Like {@link #quadIndices()}, tagging the quad with a group for {@link #build(int[])}.
+     */
+    public void quadIndices(int group) {
+        if (indexCount + 6 > indices.length) {
+            indices = Arrays.copyOf(indices, Math.max(24, indices.length * 2));
+        }
+        if (quadCount == quadGroups.length) {
+            quadGroups = Arrays.copyOf(quadGroups, Math.max(4, quadGroups.length * 2));
+        }
+        quadGroups[quadCount++] = group;
+        int base = vertexCount - 4;
+        indices[indexCount++] = base;
+        indices[indexCount++] = base + 1;
+        indices[indexCount++] = base + 2;
+        indices[indexCount++] = base + 2;
+        indices[indexCount++] = base + 3;
+        indices[indexCount++] = base;
+    }
+
+    /**
+     * Copies the current contents into a right-sized {@link PackedMeshData}.
+     */
+    public PackedMeshData build() {
+        return new PackedMeshData(
+                Arrays.copyOf(vertices, vertexCount * PackedMeshData.INTS_PER_VERTEX),
+                Arrays.copyOf(indices, indexCount));
+    }
+
+    /**
+     * Like {@link #build()}, with the indices ordered by quad group (stable within a
+     * group) so that group g occupies indices [groupStarts[g], groupStarts[g + 1]).
+     *
+     * @param groupStarts filled in; its length is the group count + 1
+     */
+    public PackedMeshData build(int[] groupStarts) {
+        int groups = groupStarts.length - 1;
+        Arrays.fill(groupStarts, 0);
+        for (int q = 0; q < quadCount; q++) {
+            groupStarts[quadGroups[q] + 1] += 6;
+        }
+        for (int g = 0; g < groups; g++) {
+            groupStarts[g + 1] += groupStarts[g];
+        }
+
+        int[] cursor = Arrays.copyOf(groupStarts, groups);
+        int[] sorted = new int[indexCount];
+        for (int q = 0; q < quadCount; q++) {
+            int g = quadGroups[q];
+            System.arraycopy(indices, q * 6, sorted, cursor[g], 6);
+            cursor[g] += 6;
+        }
+        return new PackedMeshData(Arrays.copyOf(vertices, vertexCount * PackedMeshData.INTS_PER_VERTEX), sorted);
+    }
+}
@@ -0,0 +1,22 @@
+package engine.raster;
+
+/**
+ * CPU-side geometry for a {@link GeometryArena} slice: every vertex is
+ * {@link #INTS_PER_VERTEX} 32-bit words whose meaning is defined by the shader that
+ * draws it.
+ */
+public class PackedMeshData {
+    public static final int INTS_PER_VERTEX = 2;
+
+    public final int[] vertices;
+    public final int[] indices;
+
+    public PackedMeshData(int[] vertices, int[] indices) {
+        this.vertices = vertices;
+        this.indices = indices;
+    }
+
+    public int getVertexCount() {
+        return vertices.length / INTS_PER_VERTEX;
+    }
+}
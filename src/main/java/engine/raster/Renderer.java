@@ -3,9 +3,13 @@ package engine.raster;
 import engine.entity.Entity;
 import engine.camera.*;
 import engine.shaders.ShaderProgram;
+import engine.shaders.Uniform;
 import engine.io.Window;
 import engine.utils.Utils;
 import game.voxel.Chunk;
+import game.voxel.gfx.MeshSections;
+import game.voxel.gfx.SectionVisibility;
+import game.voxel.gfx.TranslucentQuads;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
@@ -24,11 +28,42 @@ public class Renderer {
     private static final float FOV = 90.0f; // degrees, matches VoxelGame default
     private static final float Z_NEAR = 0.01f;
     private static final float Z_FAR = 1000.f;
+    private static final Vector3f CHUNK_COLOUR = new Vector3f(1, 1, 1);
 
     private final Transformation transformation;
+    // Terrain draws for the current frame: the opaque pass's, then from
+    // translucentDrawStart the translucent pass's, farthest chunk first
+    private final DrawCommandList chunkDraws = new DrawCommandList();
+    private int translucentDrawStart;
+    private final DepthOrder<Chunk> translucentOrder = new DepthOrder<>();
+    private int translucentResorts;
+    private final Matrix4f chunkModelMatrix = new Matrix4f();
+    private final Matrix4f chunkModelViewMatrix = new Matrix4f();
+    private final FrustumCullingFilter frustumFilter = new FrustumCullingFilter();
+    private final SectionVisibility sectionVisibility = new SectionVisibility();
+    private final SectionVisibility.SectionFilter sectionInFrustum = (cx, sy, cz) -> frustumFilter.insideFrustum(
+            cx * Chunk.SIZE_X, sy * MeshSections.SECTION_SIZE, cz * Chunk.SIZE_Z, (cx + 1) * Chunk.SIZE_X,
+            (sy + 1) * MeshSections.SECTION_SIZE, (cz + 1) * Chunk.SIZE_Z);
+    private boolean occlusionCulling = true;
+    private int sectionsDrawn;
+    private int sectionsCulled;
+    private int sectionsOccluded;
 
     private ShaderProgram shaderProgram;
     private ShaderProgram instancedShaderProgram;
+    // Scene shader uniforms set per draw
+    private Uniform uModelView;
+    private Uniform uModel;
+    private Uniform uView;
+    private Uniform uColour;
+    private Uniform uUseColour;
+    private Uniform uBreakProgress;
+    private Uniform uAlpha;
+    private Uniform uPackedVertices;
+    private Uniform uChunkOrigins;
+    // Scratch for per-draw matrices, render thread only
+    private final Matrix4f itemModelMatrix = new Matrix4f();
+    private final Matrix4f itemModelViewMatrix = new Matrix4f();
 
     // Scene framebuffer resources
     private int sceneFBO = 0;
@@ -88,12 +123,12 @@ public class Renderer {
         shaderProgram.setUniform("projectionMatrix", projectionMatrix);
 
         Matrix4f viewMatrix = transformation.getViewMatrix(camera);
-        Matrix4f modelMatrix = new Matrix4f().translate(pos.x + 0.5f, pos.y + 0.5f, pos.z + 0.5f);
-        Matrix4f modelViewMatrix = new Matrix4f(viewMatrix).mul(modelMatrix);
+        Matrix4f modelMatrix = itemModelMatrix.translation(pos.x + 0.5f, pos.y + 0.5f, pos.z + 0.5f);
+        Matrix4f modelViewMatrix = viewMatrix.mul(modelMatrix, itemModelViewMatrix);
 
-        shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-        shaderProgram.setUniform("uModelMatrix", modelMatrix);
-        shaderProgram.setUniform("useColour", 1);
+        shaderProgram.set(uModelView, modelViewMatrix);
+        shaderProgram.set(uModel, modelMatrix);
+        shaderProgram.set(uUseColour, 1);
         shaderProgram.setUniform("texture_sampler", 0);
 
         // Pass breaking progress to the shader for procedural cracks
@@ -111,18 +146,18 @@ public class Renderer {
 
         // Alpha calculation
         float alphaValue = 0.2f + progressRatio * 0.4f;
-        shaderProgram.setUniform("colour", new org.joml.Vector3f(1.0f, 1.0f, 1.0f));
-        shaderProgram.setUniform("uAlpha", alphaValue);
+        shaderProgram.set(uColour, 1.0f, 1.0f, 1.0f);
+        shaderProgram.set(uAlpha, alphaValue);
 
         // --- Pass 1: Semi-transparent Fill ---
         // Inline manual render to avoid uBreakProgress reset in renderGameItemQuick
-        shaderProgram.setUniform("useColour", 1);
+        shaderProgram.set(uUseColour, 1);
         selectionMesh.render();
 
         // Pass 2: Wireframe
         glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
-        shaderProgram.setUniform("uAlpha", 1.0f);
-        shaderProgram.setUniform("colour", new org.joml.Vector3f(0, 0, 0)); // Black wireframe
+        shaderProgram.set(uAlpha, 1.0f);
+        shaderProgram.set(uColour, 0, 0, 0); // Black wireframe
         selectionMesh.render();
 
         glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
@@ -147,15 +182,23 @@ public class Renderer {
         shaderProgram.setUniform("texture_sampler", 0);
     }
 
+    /**
+     * Projection of the scene target, for passes that draw with their own shader.
+     */
+    public Matrix4f getSceneProjectionMatrix(Transformation transformation) {
+        return transformation.getProjectionMatrix((float) Math.toRadians(FOV), sceneWidth, sceneHeight, Z_NEAR,
+                Z_FAR);
+    }
+
     public void renderGameItemQuick(Mesh mesh, Matrix4f modelViewMatrix) {
         if (mesh == null)
             return;
 
-        shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-        shaderProgram.setUniform("colour", mesh.getColour());
-        shaderProgram.setUniform("useColour", mesh.getTexture() != null ? 0 : 1);
-        shaderProgram.setUniform("uBreakProgress", 0.0f);
-        shaderProgram.setUniform("uAlpha", 1.0f);
+        shaderProgram.set(uModelView, modelViewMatrix);
+        shaderProgram.set(uColour, mesh.getColour());
+        shaderProgram.set(uUseColour, mesh.getTexture() != null ? 0 : 1);
+        shaderProgram.set(uBreakProgress, 0.0f);
+        shaderProgram.set(uAlpha, 1.0f);
 
         if (mesh.getTexture() != null) {
             glActiveTexture(GL_TEXTURE0);
@@ -190,20 +233,23 @@ public class Renderer {
         shaderProgram.link();
 
         shaderProgram.createUniform("projectionMatrix");
-        shaderProgram.createUniform("modelViewMatrix");
+        uModelView = shaderProgram.createUniform("modelViewMatrix");
         shaderProgram.createUniform("texture_sampler");
-        shaderProgram.createUniform("useColour");
-        shaderProgram.createUniform("colour");
+        uUseColour = shaderProgram.createUniform("useColour");
+        uColour = shaderProgram.createUniform("colour");
 
         // Lighting uniforms
         shaderProgram.createUniform("lightDirection");
         shaderProgram.createUniform("lightColor");
         shaderProgram.createUniform("cameraPos");
         shaderProgram.createUniform("ambientStrength");
-        shaderProgram.createUniform("uBreakProgress");
-        shaderProgram.createUniform("uAlpha");
+        uBreakProgress = shaderProgram.createUniform("uBreakProgress");
+        uAlpha = shaderProgram.createUniform("uAlpha");
         shaderProgram.createUniform("uRenderPass");
-        shaderProgram.createUniform("uModelMatrix");
+        uModel = shaderProgram.createUniform("uModelMatrix");
+        uPackedVertices = shaderProgram.createUniform("uPackedVertices");
+        uChunkOrigins = shaderProgram.createUniform("uChunkOrigins");
+        uView = shaderProgram.createUniform("viewMatrix");
 
         // Weather uniforms
         shaderProgram.createUniform("uFogDensity");
@@ -217,6 +263,8 @@ public class Renderer {
         shaderProgram.setUniform("uSkyDarkness", 0.0f);
         shaderProgram.setUniform("uAlpha", 1.0f);
         shaderProgram.setUniform("uRenderPass", 0);
+        shaderProgram.setUniform("uPackedVertices", 0);
+        shaderProgram.setUniform("uChunkOrigins", 0);
         shaderProgram.unbind();
     }
 
@@ -326,12 +374,12 @@ public class Renderer {
         if (mesh != null) {
             // Use hierarchical world transform
             Matrix4f modelMatrix = item.getWorldTransform();
-            Matrix4f modelViewMatrix = new Matrix4f(viewMatrix).mul(modelMatrix);
+            Matrix4f modelViewMatrix = viewMatrix.mul(modelMatrix, itemModelViewMatrix);
 
-            shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-            shaderProgram.setUniform("uModelMatrix", modelMatrix);
-            shaderProgram.setUniform("colour", mesh.getColour());
-            shaderProgram.setUniform("useColour", mesh.getTexture() != null ? 0 : 1);
+            shaderProgram.set(uModelView, modelViewMatrix);
+            shaderProgram.set(uModel, modelMatrix);
+            shaderProgram.set(uColour, mesh.getColour());
+            shaderProgram.set(uUseColour, mesh.getTexture() != null ? 0 : 1);
 
             if (mesh.getTexture() != null) {
                 glActiveTexture(GL_TEXTURE0);
@@ -357,6 +405,8 @@ public class Renderer {
     public void renderChunksToTexture(Window window,
             Camera camera,
             Collection<Chunk> chunks,
+            GeometryArena arena,
+            Texture texture,
             game.voxel.world.TimeSystem timeSystem,
             game.voxel.world.WeatherSystem weatherSystem) {
 
@@ -385,7 +435,8 @@ public class Renderer {
         shaderProgram.setUniform("uAlpha", 1.0f);
 
         // Combined logic to avoid duplication
-        renderChunkMeshes(chunks, viewMatrix, camera);
+        buildChunkDraws(chunks, arena, camera, projectionMatrix, viewMatrix);
+        renderChunkMeshes(arena, texture, viewMatrix, 0, translucentDrawStart);
 
         shaderProgram.unbind();
     }
@@ -393,6 +444,8 @@ public class Renderer {
     // Direct on-screen chunk rendering (used if no postprocess)
     public void renderChunks(Window window, Camera camera,
             Collection<Chunk> chunks,
+            GeometryArena arena,
+            Texture texture,
             game.voxel.world.TimeSystem timeSystem,
             game.voxel.world.WeatherSystem weatherSystem) {
         handleResize(window);
@@ -421,56 +474,243 @@ public class Renderer {
         shaderProgram.setUniform("uBreakProgress", 0.0f);
         shaderProgram.setUniform("uAlpha", 1.0f);
 
+        buildChunkDraws(chunks, arena, camera, projectionMatrix, viewMatrix);
+
         // Pass 1: Opaque
         shaderProgram.setUniform("uRenderPass", 0);
         glDisable(GL_BLEND);
         glDepthMask(true);
-        renderChunkMeshes(chunks, viewMatrix, camera);
+        renderChunkMeshes(arena, texture, viewMatrix, 0, translucentDrawStart);
 
-        // Pass 2: Transparent
+        // Pass 2: Transparent, translucent faces only, back to front
         shaderProgram.setUniform("uRenderPass", 1);
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         glDepthMask(false); // No depth writing for transparency
-        renderChunkMeshes(chunks, viewMatrix, camera);
+        renderChunkMeshes(arena, texture, viewMatrix, translucentDrawStart, chunkDraws.size() - translucentDrawStart);
 
         glDepthMask(true);
         shaderProgram.unbind();
     }
 
-    private void renderChunkMeshes(Collection<Chunk> chunks, Matrix4f viewMatrix, Camera camera) {
+    /**
+     * Collects this frame's chunk draws and uploads them for multi-draw; the list
+     * is then drawn once per pass. Each 16-block section is tested against the
+     * frustum on its own, using the Y range its faces actually cover, and runs of
+     * visible sections become one draw. With occlusion culling on, sections the
+     * visibility search could not reach from the camera are skipped as well.
+     * <p>
+     * Translucent faces have their own range per mesh. The opaque pass draws it too,
+     * since leaves are cut out of the same quads, but the translucent pass draws only
+     * those ranges, farthest chunk first, with each chunk's quads re-sorted when the
+     * camera has entered a new block.
+     */
+    private void buildChunkDraws(Collection<Chunk> chunks, GeometryArena arena, Camera camera,
+            Matrix4f projectionMatrix, Matrix4f viewMatrix) {
         org.joml.Vector3f playerPos = camera.getPosition();
+        frustumFilter.updateFrustum(projectionMatrix, viewMatrix);
+        chunkDraws.clear();
+        sectionsDrawn = 0;
+        sectionsCulled = 0;
+        sectionsOccluded = 0;
+        translucentOrder.begin();
+        int cameraCx = Math.floorDiv((int) Math.floor(playerPos.x), Chunk.SIZE_X);
+        int cameraCz = Math.floorDiv((int) Math.floor(playerPos.z), Chunk.SIZE_Z);
+        if (occlusionCulling)
+            computeSectionVisibility(chunks, cameraCx, cameraCz, (int) Math.floor(playerPos.y));
+
         for (Chunk chunk : chunks) {
             float dx = chunk.getChunkX() * Chunk.SIZE_X + 8 - playerPos.x;
             float dz = chunk.getChunkZ() * Chunk.SIZE_Z + 8 - playerPos.z;
-            float distSq = dx * dx + dz * dz;
-
-            int lod = 0;
-            if (distSq > 160 * 160)
-                lod = 2;
-            else if (distSq > 80 * 80)
-                lod = 1;
-
-            Mesh mesh = chunk.getMesh(lod);
-            if (mesh != null) {
-                Matrix4f modelMatrix = new Matrix4f()
-                        .translate(chunk.getChunkX() * Chunk.SIZE_X, 0,
-                                chunk.getChunkZ() * Chunk.SIZE_Z);
-                Matrix4f modelViewMatrix = new Matrix4f(viewMatrix).mul(modelMatrix);
-                shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-                shaderProgram.setUniform("uModelMatrix", modelMatrix);
-
-                shaderProgram.setUniform("colour", mesh.getColour());
-                shaderProgram.setUniform("useColour", mesh.getTexture() != null ? 0 : 1);
-
-                if (mesh.getTexture() != null) {
-                    glActiveTexture(GL_TEXTURE0);
-                    glBindTexture(GL_TEXTURE_2D, mesh.getTexture().getId());
+            int lod = Chunk.lodForDistance(dx, dz);
+            // Missing LODs are built on demand; draw the closest existing one meanwhile
+            chunk.setWantedLod(lod);
+
+            GeometryArena.Slice slice = chunk.getMesh(lod);
+            if (slice == null)
+                continue;
+            MeshSections sections = chunk.getMeshSections(lod);
+            float minX = chunk.getChunkX() * Chunk.SIZE_X;
+            float minZ = chunk.getChunkZ() * Chunk.SIZE_Z;
+            float maxX = minX + Chunk.SIZE_X;
+            float maxZ = minZ + Chunk.SIZE_Z;
+            if (!frustumFilter.insideFrustum(minX, sections.getMinY(), minZ, maxX, sections.getMaxY(), maxZ)) {
+                sectionsCulled += sections.getNonEmptyCount();
+                continue;
+            }
+
+            int reachable = occlusionCulling
+                    ? sectionVisibility.getVisibleMask(chunk.getChunkX(), chunk.getChunkZ())
+                    : -1;
+
+            // Index ranges of adjacent sections are contiguous, so visible runs merge
+            int runStart = -1;
+            int runEnd = -1;
+            boolean translucentVisible = false;
+            for (int s = 0; s < MeshSections.SECTION_COUNT; s++) {
+                if (sections.isEmpty(s))
+                    continue;
+                if ((reachable & (1 << s)) == 0) {
+                    sectionsOccluded++;
+                    addChunkDraw(slice, runStart, runEnd, minX, minZ);
+                    runStart = -1;
+                } else if (frustumFilter.insideFrustum(minX, sections.getMinY(s), minZ, maxX, sections.getMaxY(s),
+                        maxZ)) {
+                    sectionsDrawn++;
+                    translucentVisible |= sections.hasTranslucent(s);
+                    int first = sections.getFirstIndex(s);
+                    if (runStart < 0 || runEnd != first) {
+                        addChunkDraw(slice, runStart, runEnd, minX, minZ);
+                        runStart = first;
+                    }
+                    runEnd = first + sections.getIndexCount(s);
+                } else {
+                    sectionsCulled++;
+                    addChunkDraw(slice, runStart, runEnd, minX, minZ);
+                    runStart = -1;
                 }
+            }
+            addChunkDraw(slice, runStart, runEnd, minX, minZ);
+
+            if (translucentVisible) {
+                int first = sections.getTranslucentFirstIndex();
+                addChunkDraw(slice, first, first + sections.getTranslucentIndexCount(), minX, minZ);
+                float cx = minX + Chunk.SIZE_X * 0.5f - playerPos.x;
+                float cy = (sections.getMinY() + sections.getMaxY()) * 0.5f - playerPos.y;
+                float cz = minZ + Chunk.SIZE_Z * 0.5f - playerPos.z;
+                translucentOrder.add(chunk, cx * cx + cy * cy + cz * cz);
+            }
+        }
 
-                mesh.render();
+        translucentDrawStart = chunkDraws.size();
+        translucentResorts = 0;
+        int translucentChunks = translucentOrder.finish();
+        for (int i = 0; i < translucentChunks; i++) {
+            Chunk chunk = translucentOrder.get(i);
+            int lod = chunk.getWantedLod();
+            GeometryArena.Slice slice = chunk.getMesh(lod);
+            MeshSections sections = chunk.getMeshSections(lod);
+            float minX = chunk.getChunkX() * Chunk.SIZE_X;
+            float minZ = chunk.getChunkZ() * Chunk.SIZE_Z;
+            int first = sections.getTranslucentFirstIndex();
+            TranslucentQuads quads = sections.getTranslucent();
+            if (quads.sort(playerPos.x - minX, playerPos.y, playerPos.z - minZ)) {
+                arena.updateIndices(slice, first, quads.getSortedIndices());
+                translucentResorts++;
             }
+            addChunkDraw(slice, first, first + sections.getTranslucentIndexCount(), minX, minZ);
         }
+        if (arena.isIndirectSupported())
+            arena.uploadCommands(chunkDraws);
+    }
+
+    private void computeSectionVisibility(Collection<Chunk> chunks, int cameraCx, int cameraCz, int cameraY) {
+        int radius = 0;
+        for (Chunk chunk : chunks) {
+            radius = Math.max(radius, Math.max(Math.abs(chunk.getChunkX() - cameraCx),
+                    Math.abs(chunk.getChunkZ() - cameraCz)));
+        }
+        sectionVisibility.begin(cameraCx, cameraCz, radius);
+        for (Chunk chunk : chunks) {
+            // Connectivity comes from blocks, so any built LOD will do; unmeshed chunks count as open
+            MeshSections sections = chunk.getMeshSections(chunk.getWantedLod());
+            if (sections != null)
+                sectionVisibility.setColumn(chunk.getChunkX(), chunk.getChunkZ(), sections.getConnectivity());
+        }
+        sectionVisibility.compute(Math.floorDiv(cameraY, MeshSections.SECTION_SIZE), sectionInFrustum);
+    }
+
+    private void addChunkDraw(GeometryArena.Slice slice, int runStart, int runEnd, float originX, float originZ) {
+        if (runStart >= 0 && runEnd > runStart) {
+            chunkDraws.add(runEnd - runStart, slice.getIndexOffset() + runStart, slice.getVertexOffset(), originX, 0,
+                    originZ);
+        }
+    }
+
+    /**
+     * Draws commands [first, first + count) of this frame's terrain list.
+     */
+    private void renderChunkMeshes(GeometryArena arena, Texture texture, Matrix4f viewMatrix, int first, int count) {
+        // Chunk meshes are packed slices of one arena; everything else drawn with this shader uses float attributes
+        shaderProgram.set(uPackedVertices, 1);
+        shaderProgram.set(uColour, CHUNK_COLOUR);
+        shaderProgram.set(uUseColour, 0);
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, texture.getId());
+        arena.bind();
+
+        // Use GL_PATCHES for tessellation, as Mesh.render does
+        int mode = org.lwjgl.opengl.GL40.GL_PATCHES;
+        if (arena.isIndirectSupported()) {
+            // Origins come from the per-draw instance attribute
+            shaderProgram.set(uChunkOrigins, 1);
+            shaderProgram.set(uView, viewMatrix);
+            arena.drawIndirect(mode, first, count);
+            shaderProgram.set(uChunkOrigins, 0);
+        } else {
+            for (int i = first; i < first + count; i++) {
+                chunkModelMatrix.translation(chunkDraws.getOriginX(i), chunkDraws.getOriginY(i),
+                        chunkDraws.getOriginZ(i));
+                viewMatrix.mul(chunkModelMatrix, chunkModelViewMatrix);
+                shaderProgram.set(uModelView, chunkModelViewMatrix);
+                shaderProgram.set(uModel, chunkModelMatrix);
+                arena.drawCommand(mode, chunkDraws, i);
+            }
+        }
+
+        arena.unbind();
+        glBindTexture(GL_TEXTURE_2D, 0);
+        shaderProgram.set(uPackedVertices, 0);
+    }
+
+    /**
+     * Terrain draws issued last frame (one multi-draw per pass when supported).
+     */
+    public int getChunkDrawCount() {
+        return chunkDraws.size();
+    }
+
+    /**
+     * Chunks whose translucent faces were drawn last frame.
+     */
+    public int getTranslucentChunkCount() {
+        return translucentOrder.size();
+    }
+
+    /**
+     * Chunks whose translucent faces were re-sorted and re-uploaded last frame.
+     */
+    public int getTranslucentResortCount() {
+        return translucentResorts;
+    }
+
+    /**
+     * Non-empty chunk sections that passed the frustum test last frame.
+     */
+    public int getSectionsDrawn() {
+        return sectionsDrawn;
+    }
+
+    /**
+     * Non-empty chunk sections rejected by the frustum test last frame.
+     */
+    public int getSectionsCulled() {
+        return sectionsCulled;
+    }
+
+    /**
+     * Non-empty chunk sections in view but unreachable from the camera last frame.
+     */
+    public int getSectionsOccluded() {
+        return sectionsOccluded;
+    }
+
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
     }
 
     private void handleResize(Window window) {
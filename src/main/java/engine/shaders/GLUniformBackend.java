@@ -0,0 +1,50 @@
+package engine.shaders;
+
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * {@link UniformBackend} on the current GL context. Uniform calls apply to the
+ * program in use, so the owning program must be bound, as before.
+ */
+public final class GLUniformBackend implements UniformBackend {
+
+    public static final GLUniformBackend INSTANCE = new GLUniformBackend();
+
+    private GLUniformBackend() {
+    }
+
+    @Override
+    public int getLocation(int programId, String name) {
+        return glGetUniformLocation(programId, name);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+        glUniform1f(location, value);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix4(int location, float[] values) {
+        glUniformMatrix4fv(location, false, values);
+    }
+}
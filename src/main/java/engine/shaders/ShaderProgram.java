@@ -4,31 +4,44 @@ import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
-import org.lwjgl.system.MemoryStack;
-
-import java.nio.FloatBuffer;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL43.GL_COMPUTE_SHADER;
 
+/**
+ * A linked GL program. Uniforms are set either by name or, on hot paths, through a
+ * {@link Uniform} handle resolved once with {@link #createUniform}. Both go through a
+ * per-program {@link UniformState} that drops uploads of unchanged values; totals
+ * for all programs are in {@link #getUniformCounters()}.
+ */
 public class ShaderProgram {
 
+    private static final UniformCounters UNIFORM_COUNTERS = new UniformCounters();
+
     private final int programId;
     private int vertexShaderId;
     private int fragmentShaderId;
     private int computeShaderId;
     private int tessControlShaderId;
     private int tessEvalShaderId;
-    private final Map<String, Integer> uniforms;
+    private final UniformState uniforms;
+    // Scratch for matrix uploads; uniforms are only set from the render thread
+    private final float[] matrixValues = new float[16];
 
     public ShaderProgram() throws Exception {
         programId = glCreateProgram();
         if (programId == 0) {
             throw new Exception("Could not create Shader");
         }
-        uniforms = new HashMap<>();
+        uniforms = new UniformState(GLUniformBackend.INSTANCE, programId, UNIFORM_COUNTERS);
+    }
+
+    /**
+     * Uniform uploads issued and skipped by all programs; the game loop calls
+     * {@link UniformCounters#endFrame()} once per frame.
+     */
+    public static UniformCounters getUniformCounters() {
+        return UNIFORM_COUNTERS;
     }
 
     public void createVertexShader(String shaderCode) throws Exception {
@@ -69,13 +82,6 @@ public class ShaderProgram {
         return shaderId;
     }
 
-    public void setUniform(String name, Vector2f value) {
-        Integer location = uniforms.get(name);
-        if (location != null) {
-            glUniform2f(location, value.x, value.y);
-        }
-    }
-
     public void link() throws Exception {
         glLinkProgram(programId);
         if (glGetProgrami(programId, GL_LINK_STATUS) == 0) {
@@ -97,6 +103,8 @@ public class ShaderProgram {
         if (tessEvalShaderId != 0) {
             glDetachShader(programId, tessEvalShaderId);
         }
+        // Linking resets every uniform to zero
+        uniforms.invalidate();
 
         glValidateProgram(programId);
         if (glGetProgrami(programId, GL_VALIDATE_STATUS) == 0) {
@@ -119,51 +127,96 @@ public class ShaderProgram {
         }
     }
 
-    public void createUniform(String uniformName) {
-        int uniformLocation = glGetUniformLocation(programId, uniformName);
-        if (uniformLocation < 0) {
-            // It's not necessarily an error, but good to know
-            // System.err.println("Could not find uniform:" + uniformName);
-        }
-        uniforms.put(uniformName, uniformLocation);
+    /**
+     * Looks up a uniform's location once. The returned handle can be kept for
+     * {@link #set}; a uniform the program doesn't use gets a handle whose sets are ignored.
+     */
+    public Uniform createUniform(String uniformName) {
+        return uniforms.resolve(uniformName);
+    }
+
+    public void set(Uniform uniform, int value) {
+        uniforms.set(uniform, value);
+    }
+
+    public void set(Uniform uniform, boolean value) {
+        uniforms.set(uniform, value ? 1 : 0);
+    }
+
+    public void set(Uniform uniform, float value) {
+        uniforms.set(uniform, value);
+    }
+
+    public void set(Uniform uniform, float x, float y) {
+        uniforms.set(uniform, x, y);
     }
 
+    public void set(Uniform uniform, float x, float y, float z) {
+        uniforms.set(uniform, x, y, z);
+    }
+
+    public void set(Uniform uniform, float x, float y, float z, float w) {
+        uniforms.set(uniform, x, y, z, w);
+    }
+
+    public void set(Uniform uniform, Vector2f value) {
+        uniforms.set(uniform, value.x, value.y);
+    }
+
+    public void set(Uniform uniform, Vector3f value) {
+        uniforms.set(uniform, value.x, value.y, value.z);
+    }
+
+    public void set(Uniform uniform, Vector4f value) {
+        uniforms.set(uniform, value.x, value.y, value.z, value.w);
+    }
+
+    public void set(Uniform uniform, Matrix4f value) {
+        value.get(matrixValues);
+        uniforms.setMatrix4(uniform, matrixValues);
+    }
+
+    // By-name setters: a map lookup, then the same path. Uniforms never created are ignored.
+
     public void setUniform(String uniformName, Matrix4f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer fb = stack.mallocFloat(16);
-            value.get(fb);
-            Integer location = uniforms.get(uniformName);
-            if (location != null) {
-                glUniformMatrix4fv(location, false, fb);
-            }
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            set(uniform, value);
         }
     }
 
     public void setUniform(String uniformName, int value) {
-        Integer location = uniforms.get(uniformName);
-        if (location != null) {
-            glUniform1i(location, value);
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            uniforms.set(uniform, value);
         }
     }
 
     public void setUniform(String uniformName, float value) {
-        Integer location = uniforms.get(uniformName);
-        if (location != null) {
-            glUniform1f(location, value);
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            uniforms.set(uniform, value);
+        }
+    }
+
+    public void setUniform(String uniformName, Vector2f value) {
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            set(uniform, value);
         }
     }
 
     public void setUniform(String uniformName, Vector3f value) {
-        Integer location = uniforms.get(uniformName);
-        if (location != null) {
-            glUniform3f(location, value.x, value.y, value.z);
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            set(uniform, value);
         }
     }
 
     public void setUniform(String uniformName, Vector4f value) {
-        Integer location = uniforms.get(uniformName);
-        if (location != null) {
-            glUniform4f(location, value.x, value.y, value.z, value.w);
+        Uniform uniform = uniforms.find(uniformName);
+        if (uniform != null) {
+            set(uniform, value);
         }
     }
 }
@@ -0,0 +1,40 @@
+package engine.shaders;
+
+/**
+ * A uniform of one program, resolved once by name. Setting through a handle skips
+ * the name lookup; see {@link ShaderProgram#set(Uniform, int)}.
+ */
+public final class Uniform {
+
+    final UniformState owner;
+    final int slot;
+    private final String name;
+    private final int location;
+
+    Uniform(UniformState owner, int slot, String name, int location) {
+        this.owner = owner;
+        this.slot = slot;
+        this.name = name;
+        this.location = location;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * -1 if the program has no such active uniform; sets are then ignored, as GL does.
+     */
+    public int getLocation() {
+        return location;
+    }
+
+    public boolean isActive() {
+        return location >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + "@" + location;
+    }
+}
@@ -0,0 +1,28 @@
+package engine.shaders;
+
+/**
+ * The GL calls {@link UniformState} needs, so the shadow-state logic can run without
+ * a context. {@link GLUniformBackend} is the real one.
+ */
+public interface UniformBackend {
+
+    /**
+     * @return the location, or -1 if the program has no active uniform of that name
+     */
+    int getLocation(int programId, String name);
+
+    void uniform1i(int location, int value);
+
+    void uniform1f(int location, float value);
+
+    void uniform2f(int location, float x, float y);
+
+    void uniform3f(int location, float x, float y, float z);
+
+    void uniform4f(int location, float x, float y, float z, float w);
+
+    /**
+     * @param values 16 floats, column-major
+     */
+    void uniformMatrix4(int location, float[] values);
+}
@@ -0,0 +1,54 @@
+package engine.shaders;
+
+/**
+ * Uniform uploads sent to GL versus skipped because the program already held the
+ * value. Counts accumulate until {@link #endFrame()}, which publishes them as the
+ * last frame's totals.
+ */
+public class UniformCounters {
+
+    private long issued;
+    private long skipped;
+    private long lastIssued;
+    private long lastSkipped;
+
+    void issued() {
+        issued++;
+    }
+
+    void skipped() {
+        skipped++;
+    }
+
+    public void endFrame() {
+        lastIssued = issued;
+        lastSkipped = skipped;
+        issued = 0;
+        skipped = 0;
+    }
+
+    /**
+     * glUniform* calls made in the last completed frame.
+     */
+    public long getIssued() {
+        return lastIssued;
+    }
+
+    /**
+     * Uploads skipped as redundant in the last completed frame.
+     */
+    public long getSkipped() {
+        return lastSkipped;
+    }
+
+    /**
+     * Counts of the frame in progress.
+     */
+    public long getPendingIssued() {
+        return issued;
+    }
+
+    public long getPendingSkipped() {
+        return skipped;
+    }
+}
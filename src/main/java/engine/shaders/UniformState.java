@@ -0,0 +1,197 @@
+package engine.shaders;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uniform handles of one program plus a shadow copy of the last value uploaded to
+ * each. GL keeps uniform values per program, so a set that matches the shadow is
+ * dropped instead of re-sent. Values are compared bit for bit, and a set of a
+ * different type than last time always uploads. All GL access goes through a
+ * {@link UniformBackend}.
+ */
+public class UniformState {
+
+    private static final int MAX_COMPONENTS = 16;
+
+    private static final byte UNSET = 0;
+    private static final byte INT = 1;
+    private static final byte FLOAT = 2;
+    private static final byte VEC2 = 3;
+    private static final byte VEC3 = 4;
+    private static final byte VEC4 = 5;
+    private static final byte MAT4 = 6;
+
+    private final UniformBackend backend;
+    private final int programId;
+    private final UniformCounters counters;
+    private final Map<String, Uniform> byName = new HashMap<>();
+    private Uniform[] handles = new Uniform[16];
+    private byte[] types = new byte[16];
+    // MAX_COMPONENTS raw bit patterns per slot
+    private int[] values = new int[16 * MAX_COMPONENTS];
+    private int size;
+
+    public UniformState(UniformBackend backend, int programId, UniformCounters counters) {
+        this.backend = backend;
+        this.programId = programId;
+        this.counters = counters;
+    }
+
+    /**
+     * The handle for name, looking up its location the first time.
+     */
+    public Uniform resolve(String name) {
+        Uniform uniform = byName.get(name);
+        if (uniform != null)
+            return uniform;
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+            values = Arrays.copyOf(values, size * 2 * MAX_COMPONENTS);
+        }
+        uniform = new Uniform(this, size, name, backend.getLocation(programId, name));
+        handles[size] = uniform;
+        types[size] = UNSET;
+        size++;
+        byName.put(name, uniform);
+        return uniform;
+    }
+
+    /**
+     * The handle for name if it was resolved before, otherwise null.
+     */
+    public Uniform find(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Forgets every shadowed value, e.g. after a relink reset them, so the next set
+     * of each uniform uploads.
+     */
+    public void invalidate() {
+        Arrays.fill(types, 0, size, UNSET);
+    }
+
+    public void set(Uniform uniform, int value) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        if (types[uniform.slot] == INT && values[base] == value) {
+            counters.skipped();
+            return;
+        }
+        types[uniform.slot] = INT;
+        values[base] = value;
+        counters.issued();
+        backend.uniform1i(uniform.getLocation(), value);
+    }
+
+    public void set(Uniform uniform, float value) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        int bits = Float.floatToRawIntBits(value);
+        if (types[uniform.slot] == FLOAT && values[base] == bits) {
+            counters.skipped();
+            return;
+        }
+        types[uniform.slot] = FLOAT;
+        values[base] = bits;
+        counters.issued();
+        backend.uniform1f(uniform.getLocation(), value);
+    }
+
+    public void set(Uniform uniform, float x, float y) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        if (!store(uniform.slot, base, VEC2, x, y, 0, 0)) {
+            counters.skipped();
+            return;
+        }
+        counters.issued();
+        backend.uniform2f(uniform.getLocation(), x, y);
+    }
+
+    public void set(Uniform uniform, float x, float y, float z) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        if (!store(uniform.slot, base, VEC3, x, y, z, 0)) {
+            counters.skipped();
+            return;
+        }
+        counters.issued();
+        backend.uniform3f(uniform.getLocation(), x, y, z);
+    }
+
+    public void set(Uniform uniform, float x, float y, float z, float w) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        if (!store(uniform.slot, base, VEC4, x, y, z, w)) {
+            counters.skipped();
+            return;
+        }
+        counters.issued();
+        backend.uniform4f(uniform.getLocation(), x, y, z, w);
+    }
+
+    /**
+     * @param matrix 16 floats, column-major; only read during the call
+     */
+    public void setMatrix4(Uniform uniform, float[] matrix) {
+        int base = begin(uniform);
+        if (base < 0)
+            return;
+        boolean same = types[uniform.slot] == MAT4;
+        for (int i = 0; i < MAX_COMPONENTS; i++) {
+            int bits = Float.floatToRawIntBits(matrix[i]);
+            if (values[base + i] != bits) {
+                values[base + i] = bits;
+                same = false;
+            }
+        }
+        if (same) {
+            counters.skipped();
+            return;
+        }
+        types[uniform.slot] = MAT4;
+        counters.issued();
+        backend.uniformMatrix4(uniform.getLocation(), matrix);
+    }
+
+    /**
+     * @return offset of the uniform's shadow values, or -1 if there is nothing to upload to
+     */
+    private int begin(Uniform uniform) {
+        if (uniform.owner != this)
+            throw new IllegalArgumentException("Uniform " + uniform + " belongs to another program");
+        return uniform.isActive() ? uniform.slot * MAX_COMPONENTS : -1;
+    }
+
+    /**
+     * @return true if the value differs from the shadow (which now holds it)
+     */
+    private boolean store(int slot, int base, byte type, float x, float y, float z, float w) {
+        int bx = Float.floatToRawIntBits(x);
+        int by = Float.floatToRawIntBits(y);
+        int bz = Float.floatToRawIntBits(z);
+        int bw = Float.floatToRawIntBits(w);
+        if (types[slot] == type && values[base] == bx && values[base + 1] == by && values[base + 2] == bz
+                && values[base + 3] == bw)
+            return false;
+        types[slot] = type;
+        values[base] = bx;
+        values[base + 1] = by;
+        values[base + 2] = bz;
+        values[base + 3] = bw;
+        return true;
+    }
+
+    public int getUniformCount() {
+        return size;
+    }
+}
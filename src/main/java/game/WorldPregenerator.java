@@ -0,0 +1,167 @@
+package game;
+
+import game.save.WorldStorage;
+import game.voxel.Chunk;
+import game.voxel.world.gen.GenerationPipeline;
+import game.voxel.world.gen.TerrainGenerator;
+import game.voxel.world.region.RegionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates every chunk within a radius of spawn and stores it in the world's region
+ * files, without a window or GL context, so a new world opens on chunks that only
+ * need loading. Chunks already stored are skipped, which makes an interrupted run
+ * resumable and leaves chunks edited in game alone. Run with:
+ * java -cp build/classes/java/main game.WorldPregenerator seed worldName radius [threads]
+ */
+public class WorldPregenerator {
+
+    // Work goes out one region at a time, nearest first, so workers share proto chunks
+    // and an interrupted run leaves a filled square around spawn
+    private static final int REGION_CHUNKS = 32;
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    private final RegionManager regionManager;
+    private final GenerationPipeline pipeline;
+    private final int threads;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public WorldPregenerator(long seed, String worldName, int threads) {
+        this.regionManager = new RegionManager(RegionManager.worldDirectory(worldName));
+        this.pipeline = new GenerationPipeline(new TerrainGenerator(seed));
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: WorldPregenerator seed worldName radius [threads]");
+            System.exit(2);
+        }
+        long seed = Long.parseLong(args[0]);
+        String worldName = args[1];
+        int radius = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // The game takes the seed from the metadata, so it has to match what is baked
+        WorldStorage.WorldMetadata meta = WorldStorage.loadWorldMetadata(worldName);
+        if (meta == null) {
+            WorldStorage.saveWorldMetadata(new WorldStorage.WorldMetadata(worldName, seed));
+        } else if (meta.seed != seed) {
+            System.err.println("World " + worldName + " already exists with seed " + meta.seed);
+            System.exit(2);
+        }
+
+        WorldPregenerator pregenerator = new WorldPregenerator(seed, worldName, threads);
+        boolean ok = pregenerator.run(radius);
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Generates and stores the chunks within radius (Chebyshev) of chunk (0, 0) on
+     * the worker threads, printing progress from the calling one.
+     *
+     * @return false if any chunk failed to generate or store
+     */
+    public boolean run(int radius) throws InterruptedException {
+        long[] order = order(radius);
+        System.out.printf("Pregenerating %d chunks (radius %d) on %d threads%n", order.length, radius, threads);
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Pregenerator");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> work(order));
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            report(order.length, start);
+        }
+        report(order.length, start);
+
+        regionManager.compactRegions();
+        regionManager.cleanup();
+        if (failed.get() > 0)
+            System.err.println(failed.get() + " chunks failed, run again to retry them");
+        return failed.get() == 0;
+    }
+
+    private void work(long[] order) {
+        byte[] biomes = new byte[Chunk.COLUMNS];
+        int i;
+        while ((i = next.getAndIncrement()) < order.length) {
+            int cx = (int) (order[i] >> 32);
+            int cz = (int) order[i];
+            try {
+                if (regionManager.hasChunk(cx, cz)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                regionManager.saveChunk(cx, cz, pipeline.generateIds(cx, cz, biomes), biomes);
+                generated.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("Chunk " + cx + "," + cz + ": " + e);
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private void report(int total, long start) {
+        int done = generated.get() + skipped.get() + failed.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = generated.get() / Math.max(seconds, 1e-3);
+        int remaining = total - done;
+        System.out.printf("%d/%d chunks (%.1f%%): %d generated, %d skipped, %d failed, %.1f chunks/s, eta %s%n",
+                done, total, 100.0 * done / total, generated.get(), skipped.get(), failed.get(), rate,
+                rate > 0 ? Math.round(remaining / rate) + " s" : "?");
+    }
+
+    /**
+     * Packed (x << 32 | z) chunk positions, grouped by region, regions nearest to spawn
+     * first and rows within a region.
+     */
+    static long[] order(int radius) {
+        List<long[]> regions = new ArrayList<>();
+        int minRegion = Math.floorDiv(-radius, REGION_CHUNKS);
+        int maxRegion = Math.floorDiv(radius, REGION_CHUNKS);
+        for (int rz = minRegion; rz <= maxRegion; rz++) {
+            for (int rx = minRegion; rx <= maxRegion; rx++) {
+                // Distance from spawn to the region's center, in half chunks
+                long dx = 2L * rx * REGION_CHUNKS + REGION_CHUNKS;
+                long dz = 2L * rz * REGION_CHUNKS + REGION_CHUNKS;
+                regions.add(new long[] { dx * dx + dz * dz, rx, rz });
+            }
+        }
+        regions.sort(Comparator.comparingLong(r -> r[0]));
+
+        int side = 2 * radius + 1;
+        long[] order = new long[side * side];
+        int count = 0;
+        for (long[] region : regions) {
+            int x0 = Math.max(-radius, (int) region[1] * REGION_CHUNKS);
+            int z0 = Math.max(-radius, (int) region[2] * REGION_CHUNKS);
+            int x1 = Math.min(radius, (int) region[1] * REGION_CHUNKS + REGION_CHUNKS - 1);
+            int z1 = Math.min(radius, (int) region[2] * REGION_CHUNKS + REGION_CHUNKS - 1);
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    order[count++] = (long) x << 32 | z & 0xFFFFFFFFL;
+                }
+            }
+        }
+        return count == order.length ? order : Arrays.copyOf(order, count);
+    }
+}
@@ -0,0 +1,160 @@
+package game.bench;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.BiomeSystem;
+import game.voxel.world.gen.GenerationContext;
+import game.voxel.world.gen.TerrainGenerator;
+import game.voxel.world.gen.biomes.*;
+
+/**
+ * Time to resolve the 16x16 biome map of a chunk: per column fbm and a new biome
+ * object per call as generation used to, the interpolated climate with the exact
+ * thresholds, and the interpolated climate with the quantized table. Also reports
+ * classification alone and how many columns the table assigns differently. Run with:
+ * java -cp build/classes/java/main game.bench.BiomeResolutionBenchmark [side] [seed]
+ */
+public class BiomeResolutionBenchmark {
+
+    private static final int COLUMNS = Chunk.SIZE_X * Chunk.SIZE_Z;
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1337L;
+        SimplexNoise noise = new SimplexNoise(seed);
+        int chunks = side * side;
+
+        byte[] exact = new byte[chunks * COLUMNS];
+        byte[] table = new byte[chunks * COLUMNS];
+        byte[] resolved = new byte[chunks * COLUMNS];
+        long[] sink = new long[1];
+        GenerationContext context = new GenerationContext(noise);
+        GenerationContext.ChunkClimate climate = new GenerationContext.ChunkClimate();
+        TerrainGenerator generator = new TerrainGenerator(context);
+        byte[] map = new byte[COLUMNS];
+        // Build the climate maps up front so every variant below only samples them
+        for (int i = 0; i < chunks; i++) {
+            context.sampleClimate(i % side, i / side, climate);
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            double legacyNanos = fastest(chunks, () -> {
+                for (int i = 0; i < chunks; i++) {
+                    sink[0] += legacy(context, i % side, i / side)[0].getId();
+                }
+            });
+            double exactNanos = fastest(chunks, () -> {
+                for (int i = 0; i < chunks; i++) {
+                    context.sampleClimate(i % side, i / side, climate);
+                    for (int c = 0; c < COLUMNS; c++) {
+                        exact[i * COLUMNS + c] = (byte) BiomeSystem.getBiome(climate.temperature[c],
+                                climate.humidity[c], climate.continentalness[c], climate.erosion[c]).getId();
+                    }
+                }
+            });
+            double tableNanos = fastest(chunks, () -> {
+                for (int i = 0; i < chunks; i++) {
+                    context.sampleClimate(i % side, i / side, climate);
+                    for (int c = 0; c < COLUMNS; c++) {
+                        table[i * COLUMNS + c] = (byte) BiomeSystem.lookupBiomeId(climate.temperature[c],
+                                climate.humidity[c], climate.continentalness[c], climate.erosion[c]);
+                    }
+                }
+            });
+            // What generation and loading call
+            double resolveNanos = fastest(chunks, () -> {
+                for (int i = 0; i < chunks; i++) {
+                    generator.resolveBiomes(i % side, i / side, map);
+                    System.arraycopy(map, 0, resolved, i * COLUMNS, COLUMNS);
+                }
+            });
+
+            // Classification alone, over the last chunk's climate
+            int repeats = 1000;
+            double exactClassify = fastest(repeats, () -> {
+                for (int r = 0; r < repeats; r++) {
+                    for (int c = 0; c < COLUMNS; c++) {
+                        sink[0] += BiomeSystem.getBiome(climate.temperature[c], climate.humidity[c],
+                                climate.continentalness[c], climate.erosion[c]).getId();
+                    }
+                }
+            });
+            double tableClassify = fastest(repeats, () -> {
+                for (int r = 0; r < repeats; r++) {
+                    for (int c = 0; c < COLUMNS; c++) {
+                        sink[0] += BiomeSystem.lookupBiomeId(climate.temperature[c], climate.humidity[c],
+                                climate.continentalness[c], climate.erosion[c]);
+                    }
+                }
+            });
+
+            if (pass == 1) {
+                System.out.printf("per chunk: legacy fbm + new biome %.1f us, climate + exact %.1f us, "
+                        + "climate + table %.1f us, resolveBiomes %.1f us%n", legacyNanos / 1e3, exactNanos / 1e3,
+                        tableNanos / 1e3, resolveNanos / 1e3);
+                System.out.printf("classification of 256 columns: exact %.2f us, table %.2f us%n",
+                        exactClassify / 1e3, tableClassify / 1e3);
+            }
+        }
+
+        long tableMismatch = 0;
+        long resolvedMismatch = 0;
+        for (int i = 0; i < exact.length; i++) {
+            if (exact[i] != table[i])
+                tableMismatch++;
+            if (exact[i] != resolved[i])
+                resolvedMismatch++;
+        }
+        System.out.printf("%d chunks: table differs from exact in %.3f%% of columns, resolveBiomes in %.3f%% "
+                + "(sink %d)%n", chunks, 100.0 * tableMismatch / exact.length, 100.0 * resolvedMismatch / exact.length,
+                sink[0]);
+    }
+
+    /**
+     * Nanoseconds per item of the fastest of five runs, which filters out collections
+     * and other processes.
+     */
+    private static double fastest(int items, Runnable run) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / items;
+    }
+
+    /**
+     * Biome map as generation resolved it before the generation context: four fbm
+     * fields per column and a new biome object per column.
+     */
+    private static Biome[] legacy(GenerationContext context, int chunkX, int chunkZ) {
+        Biome[] biomes = new Biome[COLUMNS];
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                double globalX = chunkX * Chunk.SIZE_X + x;
+                double globalZ = chunkZ * Chunk.SIZE_Z + z;
+                double cont = context.continentalness(globalX, globalZ);
+                double erosion = context.erosion(globalX, globalZ);
+                double temp = context.temperature(globalX, globalZ);
+                double humid = context.humidity(globalX, globalZ);
+                biomes[x * Chunk.SIZE_Z + z] = allocatingBiome(temp, humid, cont, erosion);
+            }
+        }
+        return biomes;
+    }
+
+    private static Biome allocatingBiome(double temp, double humid, double cont, double erosion) {
+        if (cont < 0)
+            return new OceanBiome();
+        if (erosion < -0.5 && cont > 0.5)
+            return new MountainBiome();
+        if (temp > 0.6 && humid < 0.4)
+            return new DesertBiome();
+        if (temp < 0.4 && humid > 0.5)
+            return new TaigaBiome();
+        if (temp > 0.4 && humid > 0.4)
+            return new ForestBiome();
+        return new PlainsBiome();
+    }
+}
@@ -0,0 +1,169 @@
+package game.bench;
+
+import game.voxel.Block;
+import game.voxel.Chunk;
+import game.voxel.world.gen.GenerationPipeline;
+import game.voxel.world.gen.TerrainGenerator;
+import game.voxel.world.region.ChunkCodec;
+import game.voxel.world.region.ChunkCodecs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encode/decode throughput and stored size of each {@link ChunkCodec} against the
+ * stream-based zlib save path, plus bulk vs per-voxel chunk construction. The chunks
+ * are finished {@link GenerationPipeline} terrain, trees included, as the game saves
+ * them. "spill" counts chunks that need a second region sector once the biome map is
+ * stored with them. Run with:
+ * java -cp build/classes/java/main game.bench.ChunkCodecBenchmark [chunks] [iterations] [seed]
+ */
+public class ChunkCodecBenchmark {
+
+    private static final int SECTOR_SIZE = 4096;
+    // Length, type byte and biome map in front of the codec data
+    private static final int STORED_OVERHEAD = 5 + ChunkCodecs.BIOME_MAP_BYTES;
+
+    public static void main(String[] args) throws IOException {
+        int chunkCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        GenerationPipeline pipeline = new GenerationPipeline(new TerrainGenerator(seed));
+        List<byte[]> chunks = new ArrayList<>();
+        int side = (int) Math.ceil(Math.sqrt(chunkCount));
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(pipeline.generateIds(i % side, i / side));
+        }
+
+        System.out.printf("%-16s %12s %10s %8s %12s %12s%n", "codec", "bytes/chunk", "max", "spill", "encode MB/s",
+                "decode MB/s");
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1; // first pass warms up
+            runStream(chunks, iterations, report);
+            run(ChunkCodecs.ZLIB, "zlib", chunks, iterations, report);
+            run(ChunkCodecs.COLUMN_RLE, "column-rle", chunks, iterations, report);
+            run(ChunkCodecs.DEFLATED_COLUMN_RLE, "deflated-rle", chunks, iterations, report);
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int it = 0; it < iterations; it++) {
+                for (byte[] ids : chunks) {
+                    sink += perVoxel(ids).getGroundHeight(0, 0);
+                }
+            }
+            long perVoxelNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int it = 0; it < iterations; it++) {
+                for (byte[] ids : chunks) {
+                    Chunk chunk = new Chunk(0, 0);
+                    chunk.setBlockIds(ids);
+                    sink += chunk.getGroundHeight(0, 0);
+                }
+            }
+            long bulkNanos = System.nanoTime() - start;
+            if (report) {
+                int n = iterations * chunks.size();
+                System.out.printf("chunk build: per-voxel setBlock %.3f ms, setBlockIds %.3f ms (checksum %d)%n",
+                        perVoxelNanos / 1e6 / n, bulkNanos / 1e6 / n, sink);
+            }
+        }
+    }
+
+    /**
+     * The save path before codecs: a DataOutputStream over DeflaterOutputStream.
+     */
+    private static void runStream(List<byte[]> chunks, int iterations, boolean report) throws IOException {
+        long size = 0;
+        int[] sizes = new int[chunks.size()];
+        long start = System.nanoTime();
+        for (int it = 0; it < iterations; it++) {
+            for (int i = 0; i < chunks.size(); i++) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (DataOutputStream dos = new DataOutputStream(new DeflaterOutputStream(bos))) {
+                    dos.write(chunks.get(i));
+                }
+                size += bos.size();
+                sizes[i] = bos.size();
+            }
+        }
+        long encodeNanos = System.nanoTime() - start;
+        if (report)
+            print("zlib-stream", size, sizes, encodeNanos, 0, chunks.size() * iterations);
+    }
+
+    private static void run(ChunkCodec codec, String name, List<byte[]> chunks, int iterations, boolean report)
+            throws IOException {
+        List<byte[]> encoded = new ArrayList<>();
+        long size = 0;
+        long start = System.nanoTime();
+        for (int it = 0; it < iterations; it++) {
+            encoded.clear();
+            for (byte[] ids : chunks) {
+                byte[] data = codec.encode(ids);
+                size += data.length;
+                encoded.add(data);
+            }
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        byte[] dst = new byte[Chunk.VOLUME];
+        start = System.nanoTime();
+        for (int it = 0; it < iterations; it++) {
+            for (byte[] data : encoded) {
+                codec.decode(data, 0, data.length, dst);
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] data = encoded.get(i);
+            codec.decode(data, 0, data.length, dst);
+            if (!Arrays.equals(dst, chunks.get(i)))
+                throw new IllegalStateException(name + " round trip failed on chunk " + i);
+        }
+        if (report) {
+            int[] sizes = new int[encoded.size()];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = encoded.get(i).length;
+            }
+            print(name, size, sizes, encodeNanos, decodeNanos, chunks.size() * iterations);
+        }
+    }
+
+    private static void print(String name, long size, int[] sizes, long encodeNanos, long decodeNanos, int count) {
+        double mb = (double) count * Chunk.VOLUME / (1024 * 1024);
+        int max = 0;
+        int spill = 0;
+        for (int s : sizes) {
+            max = Math.max(max, s);
+            if (s + STORED_OVERHEAD > SECTOR_SIZE)
+                spill++;
+        }
+        System.out.printf("%-16s %12d %10d %7.1f%% %12.1f %12s%n", name, size / count, max,
+                100.0 * spill / sizes.length, mb / (encodeNanos / 1e9),
+                decodeNanos == 0 ? "-" : String.format("%.1f", mb / (decodeNanos / 1e9)));
+    }
+
+    private static Chunk perVoxel(byte[] ids) {
+        Chunk chunk = new Chunk(0, 0);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    int id = ids[Chunk.index(x, y, z)] & 0xFF;
+                    if (id != 0)
+                        chunk.setBlock(x, y, z, Block.getById(id));
+                }
+            }
+        }
+        return chunk;
+    }
+}
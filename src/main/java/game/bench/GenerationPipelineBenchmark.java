@@ -0,0 +1,99 @@
+package game.bench;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.GenerationContext;
+import game.voxel.world.gen.GenerationPipeline;
+import game.voxel.world.gen.TerrainGenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Chunks per second of {@link GenerationPipeline} over one area under different
+ * schedules: one thread in row order, several threads in shuffled order, and a proto
+ * chunk cache small enough to force regeneration. GenerationPipelineTest checks that
+ * every schedule produces the same blocks. Run with:
+ * java -cp build/classes/java/main game.bench.GenerationPipelineBenchmark [side] [seed] [threads]
+ */
+public class GenerationPipelineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        // Wooded for the default seed, so plenty of trees cross chunk borders
+        int baseX = -side / 2 + 40;
+        int baseZ = -side / 2 - 25;
+        List<int[]> rowOrder = rowOrder(side, baseX, baseZ);
+        List<int[]> shuffled = new ArrayList<>(rowOrder);
+        Collections.shuffle(shuffled, new Random(seed));
+        List<int[]> reversed = new ArrayList<>(rowOrder);
+        Collections.reverse(reversed);
+
+        for (int pass = 0; pass < 2; pass++) {
+            run("1 thread, row order", seed, 1, 1024, rowOrder, side, baseX, baseZ, pass == 1);
+            run(threads + " threads, shuffled", seed, threads, 1024, shuffled, side, baseX, baseZ, pass == 1);
+            run(threads + " threads, reversed, 16 cached", seed, threads, 16, reversed, side, baseX, baseZ,
+                    pass == 1);
+        }
+    }
+
+    private static void run(String name, long seed, int threads, int cached, List<int[]> order, int side, int baseX,
+                            int baseZ, boolean report) throws Exception {
+        GenerationPipeline pipeline = new GenerationPipeline(
+                new TerrainGenerator(new GenerationContext(new SimplexNoise(seed))), cached);
+        long start = System.nanoTime();
+        Chunk[] area = generate(pipeline, threads, order, side, baseX, baseZ);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (report) {
+            System.out.printf("%-32s %6.1f chunks/s, %d stages run%n", name, area.length / seconds,
+                    pipeline.getStagesRun());
+        }
+    }
+
+    /**
+     * The side by side chunks from (baseX, baseZ), z-major.
+     */
+    private static List<int[]> rowOrder(int side, int baseX, int baseZ) {
+        List<int[]> order = new ArrayList<>();
+        for (int z = 0; z < side; z++) {
+            for (int x = 0; x < side; x++) {
+                order.add(new int[] { baseX + x, baseZ + z });
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Generates the chunks at the positions in order on a pool of the given size, into
+     * an area array in row order whatever the schedule.
+     */
+    private static Chunk[] generate(GenerationPipeline pipeline, int threads, List<int[]> order, int side, int baseX,
+                                    int baseZ) throws Exception {
+        Chunk[] area = new Chunk[side * side];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int[] position : order) {
+                futures.add(executor.submit(() -> {
+                    Chunk chunk = pipeline.generate(position[0], position[1]);
+                    area[(position[1] - baseZ) * side + position[0] - baseX] = chunk;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return area;
+    }
+}
@@ -0,0 +1,128 @@
+package game.bench;
+
+import engine.raster.InstancedBillboards;
+import game.voxel.advanced.ParticleSystem;
+import game.voxel.advanced.ParticleSystem.ParticleType;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Emit, update and compact cost of {@link ParticleSystem} at a steady population,
+ * against the list of particle objects it used to keep, at 1k, 10k and 100k
+ * particles. The update is run on one thread and on the common fork/join pool. Run
+ * with: java -cp build/classes/java/main game.bench.ParticleSystemBenchmark [frames]
+ */
+public class ParticleSystemBenchmark {
+
+    private static final float DELTA = 1f / 60f;
+    private static final ParticleType[] TYPES = ParticleType.values();
+    // Average lifetime over all types is a little over 2.5 s
+    private static final int LIFETIME_FRAMES = 160;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int[] counts = { 1_000, 10_000, 100_000 };
+        System.out.printf("fork/join parallelism %d, parallel from %d particles%n",
+                ForkJoinPool.commonPool().getParallelism(), ParticleSystem.PARALLEL_THRESHOLD);
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int count : counts) {
+                run(count, frames, pass == 1);
+            }
+        }
+    }
+
+    private static void run(int population, int frames, boolean report) {
+        int emitPerFrame = Math.max(1, population / LIFETIME_FRAMES);
+        Vector3f origin = new Vector3f(0, 64, 0);
+
+        List<LegacyParticle> legacy = new ArrayList<>();
+        Random random = new Random(42);
+        long legacyLive = 0;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            for (int i = 0; i < emitPerFrame && legacy.size() < population; i++) {
+                legacy.add(new LegacyParticle(origin, random));
+            }
+            legacy.removeIf(p -> p.lifetime <= 0);
+            for (LegacyParticle p : legacy) {
+                p.update(DELTA);
+            }
+            legacyLive += legacy.size();
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        Result serial = measure(population, emitPerFrame, frames, origin, null);
+        Result parallel = measure(population, emitPerFrame, frames, origin, ForkJoinPool.commonPool());
+
+        if (report) {
+            System.out.printf("%,7d particles: legacy %8.1f us/frame (%,.0f live) | emit %6.1f, update %8.1f "
+                    + "(parallel %8.1f), compact %6.1f, export %7.1f us/frame (%,.0f live)%n", population,
+                    legacyNanos / 1e3 / frames, (double) legacyLive / frames, serial.emit / 1e3 / frames,
+                    serial.update / 1e3 / frames, parallel.update / 1e3 / frames, serial.compact / 1e3 / frames,
+                    serial.export / 1e3 / frames, (double) serial.live / frames);
+        }
+    }
+
+    private static final class Result {
+        long emit, update, compact, export, live;
+    }
+
+    private static Result measure(int population, int emitPerFrame, int frames, Vector3f origin, ForkJoinPool pool) {
+        ParticleSystem system = new ParticleSystem(population, new Random(42), pool);
+        FloatBuffer instances = FloatBuffer.allocate(population * InstancedBillboards.FLOATS_PER_INSTANCE);
+        Result result = new Result();
+        for (int f = 0; f < frames; f++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < emitPerFrame; i++) {
+                system.emit(origin, TYPES[i % TYPES.length], 1);
+            }
+            long t1 = System.nanoTime();
+            system.advance(DELTA);
+            long t2 = System.nanoTime();
+            system.compact();
+            long t3 = System.nanoTime();
+            instances.clear();
+            system.writeInstances(instances);
+            long t4 = System.nanoTime();
+            result.emit += t1 - t0;
+            result.update += t2 - t1;
+            result.compact += t3 - t2;
+            result.export += t4 - t3;
+            result.live += system.getParticleCount();
+        }
+        return result;
+    }
+
+    // The particle object this project used to allocate per emission, fade bug included;
+    // lifetimes span roughly the same range as the current types
+    private static final class LegacyParticle {
+        final Vector3f position;
+        final Vector3f velocity;
+        final Vector3f acceleration = new Vector3f(0, -9.81f, 0);
+        final Vector3f color;
+        float lifetime;
+        final float maxLifetime;
+
+        LegacyParticle(Vector3f position, Random random) {
+            this.position = new Vector3f(position);
+            this.velocity = new Vector3f((random.nextFloat() - 0.5f) * 2, random.nextFloat() * 3,
+                    (random.nextFloat() - 0.5f) * 2);
+            this.lifetime = this.maxLifetime = 1.0f + random.nextFloat() * 4.0f;
+            this.color = new Vector3f(1, 1, 1);
+        }
+
+        void update(float deltaTime) {
+            velocity.add(acceleration.x * deltaTime, acceleration.y * deltaTime, acceleration.z * deltaTime);
+            position.add(velocity.x * deltaTime, velocity.y * deltaTime, velocity.z * deltaTime);
+            lifetime -= deltaTime;
+            velocity.mul(0.98f);
+            color.mul(lifetime / maxLifetime);
+        }
+    }
+}
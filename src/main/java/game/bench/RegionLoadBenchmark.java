@@ -0,0 +1,139 @@
+package game.bench;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.region.ChunkCodecs;
+import game.voxel.world.region.RegionFile;
+import game.voxel.world.region.RegionManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Loads every chunk of a full 32x32 region with N threads, through the old
+ * synchronized seek/readFully reader and through {@link RegionFile#readChunk}.
+ * Run with:
+ * java -cp build/classes/java/main game.bench.RegionLoadBenchmark [maxThreads] [iterations]
+ */
+public class RegionLoadBenchmark {
+
+    private static final int REGION_CHUNKS = 32;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File worldDir = Files.createTempDirectory("region-bench").toFile();
+        System.out.println("Writing " + REGION_CHUNKS * REGION_CHUNKS + " chunks to " + worldDir);
+        SimplexNoise noise = new SimplexNoise(1337L);
+        // Zlib so the legacy reader can parse the same file
+        RegionManager manager = new RegionManager(worldDir, ChunkCodecs.ZLIB);
+        for (int cx = 0; cx < REGION_CHUNKS; cx++) {
+            for (int cz = 0; cz < REGION_CHUNKS; cz++) {
+                manager.saveChunk(GreedyMesherBenchmark.generate(noise, cx, cz));
+            }
+        }
+        manager.cleanup();
+        File regionFile = new File(worldDir, "regions/r.0.0.reg");
+        System.out.printf("Region size %.1f MB%n", regionFile.length() / (1024.0 * 1024.0));
+
+        LegacyRegionReader legacy = new LegacyRegionReader(regionFile);
+        RegionFile current = new RegionFile(regionFile);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            // Warm up both paths before measuring
+            run(pool, legacy, current, true);
+            run(pool, legacy, current, false);
+
+            long legacyNanos = 0;
+            long currentNanos = 0;
+            for (int it = 0; it < iterations; it++) {
+                legacyNanos += run(pool, legacy, current, true);
+                currentNanos += run(pool, legacy, current, false);
+            }
+            pool.shutdown();
+
+            double legacyMs = legacyNanos / 1e6 / iterations;
+            double currentMs = currentNanos / 1e6 / iterations;
+            System.out.printf("%2d threads: legacy %7.1f ms/region, channel %7.1f ms/region (%.2fx)%n", threads,
+                    legacyMs, currentMs, legacyMs / currentMs);
+        }
+
+        legacy.close();
+        current.close();
+        regionFile.delete();
+        new File(worldDir, "regions").delete();
+        worldDir.delete();
+    }
+
+    private static long run(ExecutorService pool, LegacyRegionReader legacy, RegionFile current, boolean useLegacy)
+            throws Exception {
+        Future<?>[] futures = new Future<?>[REGION_CHUNKS * REGION_CHUNKS];
+        long start = System.nanoTime();
+        for (int cx = 0; cx < REGION_CHUNKS; cx++) {
+            for (int cz = 0; cz < REGION_CHUNKS; cz++) {
+                final int x = cx;
+                final int z = cz;
+                futures[cx * REGION_CHUNKS + cz] = pool.submit(() -> {
+                    byte[] ids = new byte[Chunk.VOLUME];
+                    if (useLegacy) {
+                        // RegionManager.loadChunk was synchronized too, so inflation was serialized
+                        synchronized (legacy) {
+                            try (DataInputStream dis = legacy.getChunkInputStream(x, z)) {
+                                dis.readFully(ids);
+                            }
+                        }
+                    } else if (!current.readChunk(x, z, ids)) {
+                        throw new IllegalStateException("Missing chunk " + x + "," + z);
+                    }
+                    return ids[0];
+                });
+            }
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The read path RegionFile used before positional reads, kept verbatim.
+     */
+    static class LegacyRegionReader {
+        private static final int SECTOR_SIZE = 4096;
+
+        private final RandomAccessFile raf;
+        private final int[] offsets = new int[1024];
+
+        LegacyRegionReader(File file) throws IOException {
+            raf = new RandomAccessFile(file, "r");
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = raf.readInt();
+            }
+        }
+
+        synchronized DataInputStream getChunkInputStream(int x, int z) throws IOException {
+            int offset = offsets[(x & 31) + (z & 31) * 32];
+            if (offset == 0)
+                return null;
+
+            raf.seek(offset * SECTOR_SIZE);
+            int length = raf.readInt();
+            raf.readByte(); // skip compression type (1 = Zlib)
+
+            byte[] data = new byte[length - 1];
+            raf.readFully(data);
+
+            return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+        }
+
+        void close() throws IOException {
+            raf.close();
+        }
+    }
+}
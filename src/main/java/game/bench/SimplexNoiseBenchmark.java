@@ -0,0 +1,117 @@
+package game.bench;
+
+import game.voxel.world.SimplexNoise;
+
+/**
+ * Samples per second of {@link SimplexNoise} one call at a time against its batch
+ * methods, on the shapes terrain generation uses: 2D rows, a chunk-sized 2D plane and
+ * 3D rows along z. Also samples two seeds from two threads at once and checks both
+ * match their single-threaded output. Run with:
+ * java -cp build/classes/java/main game.bench.SimplexNoiseBenchmark [samples]
+ */
+public class SimplexNoiseBenchmark {
+
+    private static final int ROW = 256;
+    private static final int PLANE = 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        SimplexNoise noise = new SimplexNoise(1337L);
+
+        double[] out = new double[ROW];
+        double sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int rows = samples / ROW;
+
+            long start = System.nanoTime();
+            for (int r = 0; r < rows; r++) {
+                for (int i = 0; i < ROW; i++) {
+                    out[i] = noise.eval((r * ROW + i) * 0.01, r * 0.37);
+                }
+                sink += out[r & (ROW - 1)];
+            }
+            double single2D = rows * ROW / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            for (int r = 0; r < rows; r++) {
+                noise.fillRow2D(out, 0, ROW, r * ROW * 0.01, 0.01, r * 0.37);
+                sink += out[r & (ROW - 1)];
+            }
+            double batch2D = rows * ROW / ((System.nanoTime() - start) / 1e9);
+
+            int planes = samples / (PLANE * PLANE);
+            start = System.nanoTime();
+            for (int p = 0; p < planes; p++) {
+                for (int x = 0; x < PLANE; x++) {
+                    for (int z = 0; z < PLANE; z++) {
+                        out[x * PLANE + z] = noise.eval((p * PLANE + x) / 120.0, z / 120.0);
+                    }
+                }
+                sink += out[p & (ROW - 1)];
+            }
+            double singlePlane = planes * PLANE * PLANE / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            for (int p = 0; p < planes; p++) {
+                noise.fillPlane2D(out, PLANE, PLANE, p * PLANE / 120.0, 1 / 120.0, 0, 1 / 120.0);
+                sink += out[p & (ROW - 1)];
+            }
+            double batchPlane = planes * PLANE * PLANE / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            for (int r = 0; r < rows; r++) {
+                for (int i = 0; i < ROW; i++) {
+                    out[i] = noise.eval(r * 0.02, (r & 63) * 0.08, i * 0.08);
+                }
+                sink += out[r & (ROW - 1)];
+            }
+            double single3D = rows * ROW / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            for (int r = 0; r < rows; r++) {
+                noise.fillRow3D(out, 0, ROW, r * 0.02, (r & 63) * 0.08, 0, 0.08);
+                sink += out[r & (ROW - 1)];
+            }
+            double batch3D = rows * ROW / ((System.nanoTime() - start) / 1e9);
+
+            if (pass == 1) {
+                System.out.printf("2D row:   single %.1f M/s, batch %.1f M/s (%.2fx)%n",
+                        single2D / 1e6, batch2D / 1e6, batch2D / single2D);
+                System.out.printf("2D plane: single %.1f M/s, batch %.1f M/s (%.2fx)%n",
+                        singlePlane / 1e6, batchPlane / 1e6, batchPlane / singlePlane);
+                System.out.printf("3D row:   single %.1f M/s, batch %.1f M/s (%.2fx)%n",
+                        single3D / 1e6, batch3D / 1e6, batch3D / single3D);
+            }
+        }
+
+        // Two worlds of different seeds sampled side by side
+        SimplexNoise other = new SimplexNoise(42L);
+        double[] expectedA = new double[PLANE * PLANE];
+        double[] expectedB = new double[PLANE * PLANE];
+        noise.fillPlane2D(expectedA, PLANE, PLANE, 0, 0.05, 0, 0.05);
+        other.fillPlane2D(expectedB, PLANE, PLANE, 0, 0.05, 0, 0.05);
+        boolean[] mismatch = new boolean[2];
+        Thread a = new Thread(() -> mismatch[0] = !repeat(noise, expectedA, samples / (PLANE * PLANE) / 4));
+        Thread b = new Thread(() -> mismatch[1] = !repeat(other, expectedB, samples / (PLANE * PLANE) / 4));
+        a.start();
+        b.start();
+        a.join();
+        b.join();
+        boolean ok = !mismatch[0] && !mismatch[1];
+        System.out.println("two seeds on two threads: " + (ok ? "ok" : "MISMATCH") + " (sink " + sink + ")");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static boolean repeat(SimplexNoise noise, double[] expected, int times) {
+        double[] out = new double[expected.length];
+        for (int t = 0; t < times; t++) {
+            noise.fillPlane2D(out, PLANE, PLANE, 0, 0.05, 0, 0.05);
+            for (int i = 0; i < out.length; i++) {
+                if (out[i] != expected[i])
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package game.bench;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.GenerationContext;
+import game.voxel.world.gen.TerrainGenerator;
+
+/**
+ * Chunks per second of {@link TerrainGenerator#shapeTerrain} and how often its climate
+ * maps are reused. TerrainGeneratorDeviationTest bounds how far the interpolated fields
+ * move the output from the exact per-column noise. Run with:
+ * java -cp build/classes/java/main game.bench.TerrainGenerationBenchmark [side] [seed]
+ */
+public class TerrainGenerationBenchmark {
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1337L;
+        SimplexNoise noise = new SimplexNoise(seed);
+
+        // Far enough out that the area spans oceans, plains and mountains for most seeds
+        int baseX = -side / 2 + 40;
+        int baseZ = -side / 2 - 25;
+
+        int chunks = side * side;
+        long sink = 0;
+        for (int pass = 0; pass < 3; pass++) {
+            // A fresh context per pass, so climate maps are built inside the timing
+            TerrainGenerator generator = new TerrainGenerator(new GenerationContext(noise));
+            long start = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                Chunk chunk = new Chunk(baseX + i % side, baseZ + i / side);
+                sink += generator.shapeTerrain(chunk).getHeight(i & 15, i >> 4 & 15);
+            }
+            double rate = chunks / ((System.nanoTime() - start) / 1e9);
+            if (pass > 0) {
+                System.out.printf("%d chunks: %.1f chunks/s, climate maps %d built %d reused (sink %d)%n", chunks,
+                        rate, generator.getGenerationContext().getMisses(),
+                        generator.getGenerationContext().getHits(), sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package game.bench;
+
+import engine.raster.DepthOrder;
+import game.voxel.Chunk;
+import game.voxel.gfx.ChunkSnapshot;
+import game.voxel.gfx.GreedyMesher;
+import game.voxel.gfx.MeshSections;
+import game.voxel.gfx.TranslucentQuads;
+import game.voxel.world.SimplexNoise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cost of keeping translucent geometry sorted back to front while the camera walks:
+ * chunk order via {@link DepthOrder} against a full sort every frame, and quad order
+ * via {@link TranslucentQuads} (re-sorted on block changes, incrementally) against a
+ * full sort on every block change and every frame. Run with:
+ * java -cp build/classes/java/main game.bench.TranslucentSortBenchmark [radius] [frames]
+ */
+public class TranslucentSortBenchmark {
+
+    // Camera speed in blocks per frame, roughly sprinting at 60 fps
+    private static final float STEP = 0.1f;
+
+    public static void main(String[] args) {
+        int radius = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        for (int pass = 0; pass < 2; pass++) {
+            chunkOrder(radius, frames, pass == 1);
+        }
+
+        SimplexNoise noise = new SimplexNoise(1337L);
+        List<TranslucentQuads> meshes = new ArrayList<>();
+        int quads = 0;
+        for (int i = 0; i < 16; i++) {
+            Chunk chunk = GreedyMesherBenchmark.generate(noise, i % 4, i / 4);
+            MeshSections sections = GreedyMesher.generateMeshData(ChunkSnapshot.of(chunk, null, null, null, null))
+                    .sections;
+            if (sections.getTranslucent() != null) {
+                meshes.add(sections.getTranslucent());
+                quads += sections.getTranslucent().getQuadCount();
+            }
+        }
+        System.out.printf("%d meshes with translucent faces, %.0f quads each on average%n", meshes.size(),
+                (double) quads / Math.max(1, meshes.size()));
+        if (meshes.isEmpty())
+            return;
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            quadOrder("incremental", meshes, frames, false, false, report);
+            quadOrder("full/block", meshes, frames, true, false, report);
+            quadOrder("full/frame", meshes, frames, true, true, report);
+        }
+    }
+
+    private static void chunkOrder(int radius, int frames, boolean report) {
+        int side = 2 * radius + 1;
+        int count = side * side;
+        List<Integer> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunks.add(i);
+        }
+        float[] depth = new float[count];
+
+        DepthOrder<Integer> order = new DepthOrder<>();
+        long shifts = 0;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            depths(depth, side, f);
+            order.begin();
+            for (int i = 0; i < count; i++) {
+                order.add(chunks.get(i), depth[i]);
+            }
+            order.finish();
+            shifts += order.getLastShiftCount();
+            sink += order.get(0);
+        }
+        long incrementalNanos = System.nanoTime() - start;
+
+        long[] keys = new long[count];
+        start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            depths(depth, side, f);
+            for (int i = 0; i < count; i++) {
+                keys[i] = (long) Float.floatToIntBits(depth[i]) << 32 | i;
+            }
+            Arrays.sort(keys);
+            sink += (int) keys[count - 1];
+        }
+        long packedNanos = System.nanoTime() - start;
+
+        List<Integer> sorted = new ArrayList<>(chunks);
+        Comparator<Integer> farthestFirst = (a, b) -> Float.compare(depth[b], depth[a]);
+        start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            depths(depth, side, f);
+            sorted.sort(farthestFirst);
+            sink += sorted.get(0);
+        }
+        long comparatorNanos = System.nanoTime() - start;
+
+        if (report) {
+            System.out.printf("chunk order, %d chunks: DepthOrder %.1f us/frame (%.1f shifts), packed Arrays.sort "
+                    + "%.1f us/frame, List.sort %.1f us/frame (checksum %d)%n", count,
+                    incrementalNanos / 1e3 / frames, (double) shifts / frames, packedNanos / 1e3 / frames,
+                    comparatorNanos / 1e3 / frames, sink);
+        }
+    }
+
+    // Squared distance from each chunk center of the grid to a camera walking in a circle
+    private static void depths(float[] depth, int side, int frame) {
+        float[] camera = camera(frame, side * Chunk.SIZE_X * 0.5f, side * Chunk.SIZE_X * 0.25f);
+        for (int z = 0; z < side; z++) {
+            for (int x = 0; x < side; x++) {
+                float dx = x * Chunk.SIZE_X + 8 - camera[0];
+                float dz = z * Chunk.SIZE_Z + 8 - camera[2];
+                depth[z * side + x] = dx * dx + dz * dz;
+            }
+        }
+    }
+
+    private static void quadOrder(String name, List<TranslucentQuads> meshes, int frames, boolean full,
+                                  boolean everyFrame, boolean report) {
+        for (TranslucentQuads mesh : meshes) {
+            mesh.invalidate();
+        }
+        long sorts = 0;
+        long sink = 0;
+        long lastBlock = Long.MIN_VALUE;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            // Walk around the middle of the first chunk, a little above the water
+            float[] camera = camera(f, 8, 6);
+            long block = (long) Math.floor(camera[0]) << 32 | (long) Math.floor(camera[2]) & 0xFFFFFFFFL;
+            boolean restart = everyFrame || (full && block != lastBlock);
+            lastBlock = block;
+            for (TranslucentQuads mesh : meshes) {
+                if (restart)
+                    mesh.invalidate();
+                if (mesh.sort(camera[0], camera[1] + 34, camera[2])) {
+                    sorts++;
+                    sink += mesh.getSortedIndices()[0];
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("quad order %-12s %8.1f us/frame, %6.1f sorts/frame (checksum %d)%n", name,
+                    nanos / 1e3 / frames, (double) sorts / frames, sink);
+        }
+    }
+
+    private static float[] camera(int frame, float center, float radius) {
+        double angle = frame * STEP / radius;
+        return new float[] { center + (float) (Math.cos(angle) * radius), 0,
+                center + (float) (Math.sin(angle) * radius) };
+    }
+}
@@ -0,0 +1,127 @@
+package game.bench;
+
+import engine.raster.InstancedBillboards;
+import game.voxel.gfx.WeatherParticles;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Update cost of weather particles at a steady population: the one-object-per-particle
+ * loop {@code WeatherParticleSystem} used to run (linear scan for a free slot, a
+ * billboard matrix pair per particle for its draw call) against {@link WeatherParticles}
+ * plus the instance buffer it fills for one instanced draw. Run with:
+ * java -cp build/classes/java/main game.bench.WeatherParticleBenchmark [frames]
+ */
+public class WeatherParticleBenchmark {
+
+    private static final float DELTA = 1f / 60f;
+    private static final float SPEED = 20f;
+    // A particle lives about 105 frames at 60 fps, so this keeps the pool nearly full
+    private static final int LIFETIME_FRAMES = 100;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int[] counts = { 10_000, 100_000 };
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int count : counts) {
+                run(count, frames, pass == 1);
+            }
+        }
+    }
+
+    private static void run(int capacity, int frames, boolean report) {
+        int spawn = capacity / LIFETIME_FRAMES;
+
+        LegacyParticle[] legacy = new LegacyParticle[capacity];
+        for (int i = 0; i < capacity; i++) {
+            legacy[i] = new LegacyParticle();
+        }
+        Random random = new Random(42);
+        Matrix4f view = new Matrix4f().lookAt(0, 0, 0, 1, -0.5f, 1, 0, 1, 0);
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            sink += legacyUpdate(legacy, spawn, random);
+            sink += legacyRender(legacy, view);
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        WeatherParticles particles = new WeatherParticles(capacity);
+        FloatBuffer instances = FloatBuffer.allocate(capacity * InstancedBillboards.FLOATS_PER_INSTANCE);
+        random = new Random(42);
+        long live = 0;
+        long updateNanos = 0;
+        start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            long t = System.nanoTime();
+            particles.update(DELTA, 0, 64, 0, spawn, SPEED, random);
+            updateNanos += System.nanoTime() - t;
+            instances.clear();
+            sink += particles.writeInstances(instances, 1f, 0.7f, 0.75f, 0.85f, 0.6f);
+            live += particles.getLiveCount();
+        }
+        long currentNanos = System.nanoTime() - start;
+
+        if (report) {
+            System.out.printf("%,7d particles (%,.0f live): legacy %8.1f us/frame, SoA update %7.1f us/frame, "
+                    + "update + instance export %7.1f us/frame (checksum %d)%n", capacity, (double) live / frames,
+                    legacyNanos / 1e3 / frames, updateNanos / 1e3 / frames, currentNanos / 1e3 / frames, sink);
+        }
+    }
+
+    private static final class LegacyParticle {
+        final Vector3f position = new Vector3f();
+        final Vector3f velocity = new Vector3f();
+        boolean active;
+    }
+
+    private static int legacyUpdate(LegacyParticle[] particles, int toSpawn, Random random) {
+        for (int i = 0; i < particles.length && toSpawn > 0; i++) {
+            if (!particles[i].active) {
+                particles[i].active = true;
+                particles[i].position.set((random.nextFloat() - 0.5f) * 40, 64 + 20 + random.nextFloat() * 10,
+                        (random.nextFloat() - 0.5f) * 40);
+                particles[i].velocity.set(0, -SPEED, 0);
+                toSpawn--;
+            }
+        }
+        int live = 0;
+        for (LegacyParticle p : particles) {
+            if (p.active) {
+                p.position.add(p.velocity.x * DELTA, p.velocity.y * DELTA, p.velocity.z * DELTA);
+                if (p.position.y < 64 - 10) {
+                    p.active = false;
+                } else {
+                    live++;
+                }
+            }
+        }
+        return live;
+    }
+
+    // The per-particle CPU work of the old render loop, without the draw call itself
+    private static int legacyRender(LegacyParticle[] particles, Matrix4f view) {
+        int sink = 0;
+        for (LegacyParticle p : particles) {
+            if (p.active) {
+                Matrix4f modelMatrix = new Matrix4f().translate(p.position);
+                modelMatrix.m00(view.m00());
+                modelMatrix.m01(view.m10());
+                modelMatrix.m02(view.m20());
+                modelMatrix.m10(view.m01());
+                modelMatrix.m11(view.m11());
+                modelMatrix.m12(view.m21());
+                modelMatrix.m20(view.m02());
+                modelMatrix.m21(view.m12());
+                modelMatrix.m22(view.m22());
+                Matrix4f modelViewMatrix = new Matrix4f(view).mul(modelMatrix);
+                sink += Float.floatToRawIntBits(modelViewMatrix.m30()) & 1;
+            }
+        }
+        return sink;
+    }
+}
@@ -4,12 +4,17 @@ import engine.io.Input;
 import engine.io.Window;
 import game.voxel.HUD;
 import game.GameSettings;
+import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.glfw.GLFW;
 
 /**
  * Main menu UI - title screen with play, settings, and quit options.
  */
 public class MainMenuUI {
+    private static final Vector4fc BACKGROUND = new Vector4f(0f, 0f, 0f, 0.5f);
+    private static final Vector4fc WHITE = new Vector4f(1f, 1f, 1f, 1f);
+    private static final Vector4fc YELLOW = new Vector4f(1f, 1f, 0f, 1f);
 
     private enum Button {
         PLAY, SETTINGS, QUIT
@@ -93,7 +98,7 @@ public class MainMenuUI {
 
         // 1. Draw semi-transparent background
         hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
-                new org.joml.Vector4f(0f, 0f, 0f, 0.5f));
+                BACKGROUND);
 
         // 2. Title
         hud.renderTextCentered("VOXEL GAME", window.getWidth() / 2f, window.getHeight() / 4f, 8f);
@@ -108,8 +113,7 @@ public class MainMenuUI {
             boolean selected = (i == selectedButton.ordinal());
 
             // Draw selection indicator or color
-            org.joml.Vector4f color = selected ? new org.joml.Vector4f(1f, 1f, 0f, 1f)
-                    : new org.joml.Vector4f(1f, 1f, 1f, 1f);
+            Vector4fc color = selected ? YELLOW : WHITE;
 
             if (selected) {
                 hud.renderTextCentered("> " + labels[i] + " <", window.getWidth() / 2f, y, 5f, color);
@@ -3,9 +3,16 @@ package game.menu;
 import engine.io.Input;
 import engine.io.Window;
 import game.voxel.HUD;
+import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.glfw.GLFW;
 
 public class NewWorldMenu {
+    private static final Vector4fc BACKGROUND = new Vector4f(0, 0, 0, 0.8f);
+    private static final Vector4fc WHITE = new Vector4f(1, 1, 1, 1);
+    private static final Vector4fc YELLOW = new Vector4f(1, 1, 0, 1);
+    private static final Vector4fc GREEN = new Vector4f(0, 1, 0, 1);
+    private static final Vector4fc RED = new Vector4f(1, 0, 0, 1);
 
     private final MenuManager menuManager;
     private StringBuilder worldNameInput = new StringBuilder("New World");
@@ -94,7 +101,7 @@ public class NewWorldMenu {
 
         // Background
         hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
-                new org.joml.Vector4f(0, 0, 0, 0.8f));
+                BACKGROUND);
 
         hud.renderTextCentered("CREATE NEW WORLD", window.getWidth() / 2f, 100, 8f);
 
@@ -104,21 +111,21 @@ public class NewWorldMenu {
         // Name Field
         String nameStr = "NAME: " + worldNameInput.toString() + (selectedButton == 0 ? "_" : "");
         hud.renderTextCentered(nameStr, window.getWidth() / 2f, startY, 5f,
-                selectedButton == 0 ? new org.joml.Vector4f(1, 1, 0, 1) : new org.joml.Vector4f(1, 1, 1, 1));
+                selectedButton == 0 ? YELLOW : WHITE);
 
         // Seed Field
         String seedStr = "SEED: " + (seedInput.length() == 0 ? "(RANDOM)" : seedInput.toString())
                 + (selectedButton == 1 ? "_" : "");
         hud.renderTextCentered(seedStr, window.getWidth() / 2f, startY + spacing, 5f,
-                selectedButton == 1 ? new org.joml.Vector4f(1, 1, 0, 1) : new org.joml.Vector4f(1, 1, 1, 1));
+                selectedButton == 1 ? YELLOW : WHITE);
 
         // Create Button
         hud.renderTextCentered("CREATE WORLD", window.getWidth() / 2f, startY + spacing * 3, 6f,
-                selectedButton == 2 ? new org.joml.Vector4f(0, 1, 0, 1) : new org.joml.Vector4f(1, 1, 1, 1));
+                selectedButton == 2 ? GREEN : WHITE);
 
         // Cancel Button
         hud.renderTextCentered("CANCEL", window.getWidth() / 2f, startY + spacing * 4, 6f,
-                selectedButton == 3 ? new org.joml.Vector4f(1, 0, 0, 1) : new org.joml.Vector4f(1, 1, 1, 1));
+                selectedButton == 3 ? RED : WHITE);
 
         hud.unbind();
     }
@@ -2,12 +2,18 @@ package game.menu;
 
 import engine.io.Input;
 import engine.io.Window;
+import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.glfw.GLFW;
 
 /**
  * Pause menu UI - resume, save, settings, quit.
  */
 public class PauseMenuUI {
+    private static final Vector4fc BACKGROUND = new Vector4f(0, 0, 0, 0.6f);
+    private static final Vector4fc WHITE = new Vector4f(1f, 1f, 1f, 1f);
+    private static final Vector4fc YELLOW = new Vector4f(1f, 1f, 0f, 1f);
+
     private final MenuManager menuManager;
     private int selectedButton = 0;
 
@@ -95,7 +101,7 @@ public class PauseMenuUI {
 
         // Dark Overlay
         hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
-                new org.joml.Vector4f(0, 0, 0, 0.6f));
+                BACKGROUND);
 
         hud.renderTextCentered("PAUSED", window.getWidth() / 2f, 150, 8f);
 
@@ -106,8 +112,7 @@ public class PauseMenuUI {
         for (int i = 0; i < labels.length; i++) {
             float y = startY + i * spacing;
             boolean selected = (i == selectedButton);
-            org.joml.Vector4f color = selected ? new org.joml.Vector4f(1f, 1f, 0f, 1f)
-                    : new org.joml.Vector4f(1f, 1f, 1f, 1f);
+            Vector4fc color = selected ? YELLOW : WHITE;
 
             if (selected) {
                 hud.renderTextCentered("> " + labels[i] + " <", window.getWidth() / 2f, y, 5f, color);
@@ -4,6 +4,8 @@ import engine.io.Input;
 import engine.io.Window;
 import game.GameSettings;
 import game.voxel.HUD;
+import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.glfw.GLFW;
 
 /**
@@ -11,6 +13,9 @@ import org.lwjgl.glfw.GLFW;
  * sensitivity.
  */
 public class SettingsMenuUI {
+    private static final Vector4fc BACKGROUND = new Vector4f(0, 0, 0, 0.8f);
+    private static final Vector4fc WHITE = new Vector4f(1f, 1f, 1f, 1f);
+    private static final Vector4fc YELLOW = new Vector4f(1f, 1f, 0f, 1f);
 
     private enum Setting {
         RENDER_DISTANCE("Render Distance", 4, 16),
@@ -163,7 +168,7 @@ public class SettingsMenuUI {
 
         // Background
         hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
-                new org.joml.Vector4f(0, 0, 0, 0.8f));
+                BACKGROUND);
 
         // Title
         hud.renderTextCentered("SETTINGS", window.getWidth() / 2f, 100, 8f);
@@ -176,8 +181,7 @@ public class SettingsMenuUI {
         for (Setting s : Setting.values()) {
             float y = startY + i * spacing;
             boolean selected = (s == selectedSetting);
-            org.joml.Vector4f color = selected ? new org.joml.Vector4f(1f, 1f, 0f, 1f)
-                    : new org.joml.Vector4f(1f, 1f, 1f, 1f);
+            Vector4fc color = selected ? YELLOW : WHITE;
 
             String text = s.display + ": " + getValue(s);
             if (selected) {
@@ -6,6 +6,7 @@ import game.save.WorldStorage;
 import game.save.WorldStorage.WorldMetadata;
 import game.voxel.HUD;
 import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.glfw.GLFW;
 
 import java.util.ArrayList;
@@ -16,6 +17,13 @@ import java.util.List;
  * existing.
  */
 public class WorldSelectUI {
+    private static final Vector4fc BACKGROUND = new Vector4f(0, 0, 0, 0.8f);
+    private static final Vector4fc DELETE_BACKGROUND = new Vector4f(0.2f, 0, 0, 0.95f);
+    private static final Vector4fc WHITE = new Vector4f(1f, 1f, 1f, 1f);
+    private static final Vector4fc GREY = new Vector4f(0.7f, 0.7f, 0.7f, 1);
+    private static final Vector4fc YELLOW = new Vector4f(1f, 1f, 0f, 1f);
+    private static final Vector4fc GREEN = new Vector4f(0, 1, 0, 1);
+    private static final Vector4fc RED = new Vector4f(1, 0, 0, 1);
 
     private MenuManager menuManager;
     private List<WorldMetadata> availableWorlds;
@@ -189,16 +197,16 @@ public class WorldSelectUI {
 
         // Darken background
         hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
-                new Vector4f(0, 0, 0, 0.8f));
+                BACKGROUND);
 
         hud.renderTextCentered("SELECT WORLD", window.getWidth() / 2f, 100, 8f);
 
         if (confirmDelete) {
             // Render Delete Confirmation Overlay
             hud.renderRect(window.getWidth() / 2f, window.getHeight() / 2f, 600, 300,
-                    new Vector4f(0.2f, 0, 0, 0.95f));
+                    DELETE_BACKGROUND);
             hud.renderTextCentered("DELETE WORLD?", window.getWidth() / 2f, window.getHeight() / 2f - 40, 6f,
-                    new Vector4f(1, 0, 0, 1));
+                    RED);
             String name = (selectedIndex < availableWorlds.size()) ? availableWorlds.get(selectedIndex).name : "???";
             hud.renderTextCentered(name, window.getWidth() / 2f, window.getHeight() / 2f + 20, 5f);
             hud.renderTextCentered("Press Y to Confirm, N to Cancel", window.getWidth() / 2f,
@@ -214,7 +222,7 @@ public class WorldSelectUI {
                 String name = availableWorlds.get(i).name;
                 boolean selected = (i == selectedIndex);
 
-                Vector4f color = selected ? new Vector4f(1f, 1f, 0f, 1f) : new Vector4f(1f, 1f, 1f, 1f);
+                Vector4fc color = selected ? YELLOW : WHITE;
 
                 if (selected) {
                     hud.renderTextCentered("> " + name + " <", window.getWidth() / 2f, y, 5f, color);
@@ -229,12 +237,12 @@ public class WorldSelectUI {
             // Create New
             boolean createSelected = (selectedIndex == availableWorlds.size());
             hud.renderTextCentered("CREATE NEW WORLD", window.getWidth() / 2f, btnY, 5f,
-                    createSelected ? new Vector4f(0, 1, 0, 1) : new Vector4f(0.7f, 0.7f, 0.7f, 1));
+                    createSelected ? GREEN : GREY);
 
             // Back
             boolean backSelected = (selectedIndex == availableWorlds.size() + 1);
             hud.renderTextCentered("BACK", window.getWidth() / 2f, btnY + 50, 5f,
-                    backSelected ? new Vector4f(1, 0, 0, 1) : new Vector4f(0.7f, 0.7f, 0.7f, 1));
+                    backSelected ? RED : GREY);
 
             // Instructions
             hud.renderTextCentered("DEL to Delete | ENTER to Select", window.getWidth() / 2f, window.getHeight() - 50,
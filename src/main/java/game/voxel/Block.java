@@ -39,6 +39,14 @@ public enum Block {
     private final int level;
     private final boolean source;
 
+    private static final Block[] BY_ID = new Block[256];
+
+    static {
+        for (Block b : values()) {
+            BY_ID[b.id] = b;
+        }
+    }
+
     Block(int id, int atlasX, int atlasY, boolean transparent, boolean solid, float hardness, boolean falls,
             boolean liquid, float alpha, int level, boolean source) {
         this.id = id;
@@ -111,10 +119,9 @@ public enum Block {
     }
 
     public static Block getById(int id) {
-        for (Block b : values()) {
-            if (b.id == id)
-                return b;
-        }
-        return AIR;
+        if (id < 0 || id >= BY_ID.length)
+            return AIR;
+        Block b = BY_ID[id];
+        return b != null ? b : AIR;
     }
 }
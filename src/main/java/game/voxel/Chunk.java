@@ -1,8 +1,10 @@
 package game.voxel;
 
-import engine.raster.Mesh;
-import engine.raster.MeshData;
-import engine.raster.Texture;
+import engine.raster.GeometryArena;
+import game.voxel.gfx.ChunkMeshData;
+import game.voxel.gfx.MeshSections;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class Chunk {
 
@@ -10,38 +12,67 @@ public class Chunk {
     public static final int SIZE_Y = 256;
     public static final int SIZE_Z = 16;
 
+    public static final int VOLUME = SIZE_X * SIZE_Y * SIZE_Z;
+    public static final int COLUMNS = SIZE_X * SIZE_Z;
+    // Biome id of columns whose biome is not known, e.g. loaded from an old region
+    public static final byte UNKNOWN_BIOME = -1;
+    private static final int SECTION_COUNT = SIZE_Y / ChunkSection.SIZE;
+
     private final int chunkX;
     private final int chunkZ;
-    private final Block[][][] blocks;
+    private final ChunkSection[] sections; // null = all air
     private final int[] heightMap; // 16x16 cache of highest solid block per column
-    private final Mesh[] lodMeshes;
-    private boolean dirty;
+    private final byte[] biomes; // 16x16 biome ids, see game.voxel.world.gen.biomes.Biomes
+    public static final int LOD_COUNT = 3;
+
+    private final GeometryArena.Slice[] lodMeshes;
+    private final MeshSections[] lodSections;
+    // Bumped whenever this chunk or a bordering block changes; a LOD mesh is stale
+    // while its built version lags behind, and in flight while its requested one matches
+    private volatile int meshVersion;
+    private final int[] builtVersion;
+    // Cleared by mesh workers when a build fails, so atomic unlike builtVersion
+    private final AtomicIntegerArray requestedVersion;
+    private volatile int wantedLod;
+    private volatile boolean modified; // blocks differ from what is on disk
 
     public Chunk(int chunkX, int chunkZ) {
         this.chunkX = chunkX;
         this.chunkZ = chunkZ;
-        this.blocks = new Block[SIZE_X][SIZE_Y][SIZE_Z];
+        this.sections = new ChunkSection[SECTION_COUNT];
         this.heightMap = new int[SIZE_X * SIZE_Z];
-        this.lodMeshes = new Mesh[3]; // LOD 0, 1, 2
-        this.dirty = true;
+        this.biomes = new byte[COLUMNS];
+        java.util.Arrays.fill(biomes, UNKNOWN_BIOME);
+        this.lodMeshes = new GeometryArena.Slice[LOD_COUNT]; // LOD 0, 1, 2, built on demand
+        this.lodSections = new MeshSections[LOD_COUNT];
+        this.builtVersion = new int[] { -1, -1, -1 };
+        this.requestedVersion = new AtomicIntegerArray(new int[] { -1, -1, -1 });
+        this.modified = true;
+    }
 
-        for (int x = 0; x < SIZE_X; x++) {
-            for (int y = 0; y < SIZE_Y; y++) {
-                for (int z = 0; z < SIZE_Z; z++) {
-                    blocks[x][y][z] = Block.AIR;
-                }
-            }
-            // Initialize heightmap to 0
-            for (int z = 0; z < SIZE_Z; z++) {
-                heightMap[x * SIZE_Z + z] = 0;
-            }
-        }
+    /**
+     * Index into the flat block id arrays returned by {@link #getBlockIds()}.
+     * Layout is x-major, then y, then z (same order as the region format).
+     */
+    public static int index(int x, int y, int z) {
+        return (x * SIZE_Y + y) * SIZE_Z + z;
     }
 
     public void setBlock(int x, int y, int z, Block block) {
         if (x >= 0 && x < SIZE_X && y >= 0 && y < SIZE_Y && z >= 0 && z < SIZE_Z) {
-            blocks[x][y][z] = block;
-            dirty = true;
+            int sy = y >> 4;
+            ChunkSection section = sections[sy];
+            if (section == null) {
+                if (block == Block.AIR)
+                    return;
+                section = new ChunkSection(0);
+                sections[sy] = section;
+            }
+            section.set(ChunkSection.index(x, y & 15, z), block.getId());
+            if (section.isEmpty())
+                sections[sy] = null;
+            meshVersion++;
+            modified = true;
 
             // Update heightmap
             int idx = x * SIZE_Z + z;
@@ -53,7 +84,7 @@ public class Chunk {
                 // Removed solid block at heightmap level - need to find new max
                 int newHeight = 0;
                 for (int checkY = SIZE_Y - 1; checkY >= 0; checkY--) {
-                    if (blocks[x][checkY][z].isSolid()) {
+                    if (getBlock(x, checkY, z).isSolid()) {
                         newHeight = checkY;
                         break;
                     }
@@ -63,48 +94,187 @@ public class Chunk {
         }
     }
 
-    public Block getBlock(int x, int y, int z) {
-        if (x >= 0 && x < SIZE_X && y >= 0 && y < SIZE_Y && z >= 0 && z < SIZE_Z) {
-            return blocks[x][y][z];
+    /**
+     * Replaces every block from an array in {@link #index} layout, building the
+     * sections and heightmap in one pass instead of per-voxel setBlock calls.
+     */
+    public void setBlockIds(byte[] ids) {
+        if (ids.length != VOLUME)
+            throw new IllegalArgumentException("Expected " + VOLUME + " block ids, got " + ids.length);
+        int top = 0; // first y above every non-air section
+        for (int sy = 0; sy < SECTION_COUNT; sy++) {
+            sections[sy] = ChunkSection.fromIds(ids, sy * ChunkSection.SIZE * SIZE_Z, SIZE_Y * SIZE_Z, SIZE_Z);
+            if (sections[sy] != null)
+                top = (sy + 1) * ChunkSection.SIZE;
+        }
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                int height = 0;
+                for (int y = top - 1; y > 0; y--) {
+                    if (Block.getById(ids[index(x, y, z)] & 0xFF).isSolid()) {
+                        height = y;
+                        break;
+                    }
+                }
+                heightMap[x * SIZE_Z + z] = height;
+            }
         }
-        return Block.AIR;
+        meshVersion++;
+        modified = true;
+    }
+
+    /**
+     * Biome id of a column, or {@link #UNKNOWN_BIOME}.
+     */
+    public int getBiomeId(int x, int z) {
+        if (x >= 0 && x < SIZE_X && z >= 0 && z < SIZE_Z) {
+            return biomes[x * SIZE_Z + z];
+        }
+        return UNKNOWN_BIOME;
+    }
+
+    public boolean hasBiomes() {
+        return biomes[0] != UNKNOWN_BIOME;
+    }
+
+    /**
+     * Sets the biome map, indexed x * SIZE_Z + z. Biomes never change after
+     * generation, so call this before the chunk is shared with other threads.
+     */
+    public void setBiomeIds(byte[] ids) {
+        if (ids.length != COLUMNS)
+            throw new IllegalArgumentException("Expected " + COLUMNS + " biome ids, got " + ids.length);
+        System.arraycopy(ids, 0, biomes, 0, COLUMNS);
     }
 
-    public void updateMesh(Texture texture, ChunkManager chunkManager) {
-        if (!dirty && lodMeshes[0] != null)
-            return;
+    public byte[] getBiomeIds() {
+        return biomes.clone();
+    }
 
-        for (int i = 0; i < lodMeshes.length; i++) {
-            if (lodMeshes[i] != null)
-                lodMeshes[i].cleanup();
-            MeshData data = game.voxel.gfx.GreedyMesher.generateMeshData(this, texture, chunkManager, i);
-            lodMeshes[i] = new Mesh(data);
-            lodMeshes[i].setTexture(texture);
+    public int getBlockId(int x, int y, int z) {
+        if (x >= 0 && x < SIZE_X && y >= 0 && y < SIZE_Y && z >= 0 && z < SIZE_Z) {
+            ChunkSection section = sections[y >> 4];
+            return section == null ? 0 : section.get(ChunkSection.index(x, y & 15, z));
         }
-        dirty = false;
+        return 0;
+    }
+
+    public Block getBlock(int x, int y, int z) {
+        return Block.getById(getBlockId(x, y, z));
+    }
+
+    /**
+     * LOD band for a chunk whose center is (dx, dz) blocks from the camera.
+     */
+    public static int lodForDistance(float dx, float dz) {
+        float distSq = dx * dx + dz * dz;
+        if (distSq > 160 * 160)
+            return 2;
+        if (distSq > 80 * 80)
+            return 1;
+        return 0;
+    }
+
+    /**
+     * Marks every LOD mesh stale, e.g. after a neighbour's border changed.
+     */
+    public void invalidateMeshes() {
+        meshVersion++;
+    }
+
+    public int getWantedLod() {
+        return wantedLod;
+    }
+
+    /**
+     * Set by the renderer each frame; only this LOD is rebuilt eagerly.
+     */
+    public void setWantedLod(int lod) {
+        this.wantedLod = Math.max(0, Math.min(LOD_COUNT - 1, lod));
+    }
+
+    /**
+     * True if the LOD mesh is missing or stale and no rebuild of the current
+     * content is already in flight. Main thread only.
+     */
+    public boolean needsMesh(int lod) {
+        int version = meshVersion;
+        return builtVersion[lod] != version && requestedVersion.get(lod) != version;
+    }
+
+    /**
+     * Records a rebuild request; call before capturing the snapshot. Main thread only.
+     *
+     * @return the content version the new mesh will represent
+     */
+    public int markMeshRequested(int lod) {
+        int version = meshVersion;
+        requestedVersion.set(lod, version);
+        return version;
+    }
+
+    /**
+     * Withdraws the request {@link #markMeshRequested} returned version for, after its
+     * build failed, so {@link #needsMesh} asks for the LOD again. A newer request is
+     * left alone. Safe from any thread.
+     */
+    public void clearMeshRequest(int lod, int version) {
+        requestedVersion.compareAndSet(lod, version, -1);
     }
 
-    public void setMeshData(int lod, MeshData data, Texture texture) {
+    /**
+     * Uploads a finished mesh into the arena, replacing this LOD's previous slice.
+     * Results older than the mesh already shown are dropped.
+     *
+     * @return false if the data was outdated and discarded
+     */
+    public boolean setMeshData(int lod, ChunkMeshData data, GeometryArena arena, int version) {
         if (lod < 0 || lod >= lodMeshes.length)
-            return;
+            return false;
+        if (builtVersion[lod] >= 0 && version - builtVersion[lod] <= 0)
+            return false;
         if (lodMeshes[lod] != null)
-            lodMeshes[lod].cleanup();
-        lodMeshes[lod] = new Mesh(data);
-        lodMeshes[lod].setTexture(texture);
+            lodMeshes[lod].free();
+        lodMeshes[lod] = arena.upload(data.mesh); // null for a chunk with no visible faces
+        lodSections[lod] = data.sections;
+        builtVersion[lod] = version;
+        return true;
     }
 
-    public MeshData generateMeshData(int lod, Texture texture, ChunkManager chunkManager) {
-        return game.voxel.gfx.GreedyMesher.generateMeshData(this, texture, chunkManager, lod);
+    /**
+     * The mesh for the wanted LOD, or the closest LOD that exists.
+     */
+    public GeometryArena.Slice getMesh() {
+        return getMesh(wantedLod);
     }
 
-    public Mesh getMesh() {
-        return lodMeshes[0];
+    /**
+     * The mesh for lod, falling back to the closest built LOD while it is missing.
+     * Null if nothing is built yet or the closest built LOD has no faces.
+     */
+    public GeometryArena.Slice getMesh(int lod) {
+        int built = closestBuiltLod(lod);
+        return built >= 0 ? lodMeshes[built] : null;
     }
 
-    public Mesh getMesh(int lod) {
+    /**
+     * Section layout of the mesh {@link #getMesh(int)} returns for the same lod.
+     */
+    public MeshSections getMeshSections(int lod) {
+        int built = closestBuiltLod(lod);
+        return built >= 0 ? lodSections[built] : null;
+    }
+
+    private int closestBuiltLod(int lod) {
         if (lod < 0 || lod >= lodMeshes.length)
-            return lodMeshes[0];
-        return lodMeshes[lod];
+            lod = 0;
+        for (int d = 0; d < lodMeshes.length; d++) {
+            if (lod - d >= 0 && builtVersion[lod - d] >= 0)
+                return lod - d;
+            if (lod + d < lodMeshes.length && builtVersion[lod + d] >= 0)
+                return lod + d;
+        }
+        return -1;
     }
 
     public int getChunkX() {
@@ -115,12 +285,58 @@ public class Chunk {
         return chunkZ;
     }
 
-    public boolean isDirty() {
-        return dirty;
+    /**
+     * Whether the blocks changed since the last save (new chunks start modified).
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Call after taking the block snapshot that will be written; an edit made after
+     * this point marks the chunk modified again.
+     */
+    public void markSaved() {
+        modified = false;
+    }
+
+    public void markModified() {
+        modified = true;
+    }
+
+    /**
+     * Copies all block ids into dst (length {@link #VOLUME}, layout {@link #index}).
+     * Lets meshing and serialization scan the chunk without per-voxel lookups.
+     */
+    public void copyBlockIds(byte[] dst) {
+        copyBlockIds(dst, 0, SIZE_Y * SIZE_Z, SIZE_Z);
+    }
+
+    /**
+     * Copies all block ids into a larger z-contiguous array, e.g. a padded meshing
+     * snapshot. offset is the destination of (0, 0, 0).
+     */
+    public void copyBlockIds(byte[] dst, int offset, int strideX, int strideY) {
+        for (int sy = 0; sy < SECTION_COUNT; sy++) {
+            ChunkSection section = sections[sy];
+            int sectionOffset = offset + sy * ChunkSection.SIZE * strideY;
+            if (section == null) {
+                for (int x = 0; x < SIZE_X; x++) {
+                    for (int y = 0; y < ChunkSection.SIZE; y++) {
+                        int row = sectionOffset + x * strideX + y * strideY;
+                        java.util.Arrays.fill(dst, row, row + SIZE_Z, (byte) 0);
+                    }
+                }
+            } else {
+                section.copyTo(dst, sectionOffset, strideX, strideY);
+            }
+        }
     }
 
-    public Block[][][] getBlocks() {
-        return blocks;
+    public byte[] getBlockIds() {
+        byte[] ids = new byte[VOLUME];
+        copyBlockIds(ids);
+        return ids;
     }
 
     public int getGroundHeight(int localX, int localZ) {
@@ -131,9 +347,12 @@ public class Chunk {
     }
 
     public void cleanup() {
-        for (Mesh m : lodMeshes) {
-            if (m != null)
-                m.cleanup();
+        for (int lod = 0; lod < lodMeshes.length; lod++) {
+            if (lodMeshes[lod] != null) {
+                lodMeshes[lod].free();
+                lodMeshes[lod] = null;
+            }
+            lodSections[lod] = null;
         }
     }
 }
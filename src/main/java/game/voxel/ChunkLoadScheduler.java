@@ -0,0 +1,337 @@
+package game.voxel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongPredicate;
+
+/**
+ * Orders chunk load/generate work nearest-first, biased toward the view direction.
+ * Queued requests are re-scored when the player crosses a chunk border or turns,
+ * and dropped if they fall outside the radius before a worker picks them up.
+ * Workers pull from the queue rather than being handed a FIFO of tasks, so the
+ * highest priority chunk is always the next one started. No GL or world state is
+ * touched here; the actual work is the {@link Loader} callback.
+ */
+public class ChunkLoadScheduler {
+
+    public interface Loader {
+        void load(int cx, int cz) throws Exception;
+    }
+
+    public enum Stage {
+        WAIT, // queued until a worker starts it
+        LOAD, // region file read
+        GENERATE, // terrain generation when not on disk
+        TOTAL // worker time for the whole request
+    }
+
+    // Re-score on turns wider than ~25 degrees
+    private static final float TURN_THRESHOLD = 0.9f;
+    private static final long DEFAULT_RETRY_DELAY_MS = 1000;
+
+    private final Executor executor;
+    private final int parallelism;
+    private final Loader loader;
+    private final long retryDelayNanos;
+
+    private final PriorityQueue<Request> queue = new PriorityQueue<>();
+    private final Map<Long, Request> queued = new HashMap<>();
+    private final Set<Long> running = new HashSet<>();
+    private final LatencyStat[] stats = new LatencyStat[Stage.values().length];
+
+    private boolean hasCenter;
+    private int centerX;
+    private int centerZ;
+    private int radius;
+    private float dirX;
+    private float dirZ;
+    private int activeWorkers;
+    private long sequence;
+    private long completed;
+    private long cancelled;
+    private long failed;
+    // Earliest time to queue failed chunks again, -1 while none failed
+    private long retryAtNanos = -1;
+
+    public ChunkLoadScheduler(Executor executor, int parallelism, Loader loader) {
+        this(executor, parallelism, loader, DEFAULT_RETRY_DELAY_MS);
+    }
+
+    /**
+     * @param retryDelayMillis how long after a failed load its chunk is queued again
+     */
+    public ChunkLoadScheduler(Executor executor, int parallelism, Loader loader, long retryDelayMillis) {
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.loader = loader;
+        this.retryDelayNanos = retryDelayMillis * 1_000_000L;
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new LatencyStat();
+        }
+    }
+
+    /**
+     * Call every frame; does nothing unless the center, radius or view direction changed,
+     * or a failed load is due for another try.
+     *
+     * @param dirX,dirZ horizontal view direction, (0, 0) for none
+     * @param isLoaded  whether a chunk key ({@link ChunkManager#getChunkKey}) is already present
+     */
+    public void update(int centerX, int centerZ, int radius, float dirX, float dirZ, LongPredicate isLoaded) {
+        float len = (float) Math.sqrt(dirX * dirX + dirZ * dirZ);
+        if (len > 1e-6f) {
+            dirX /= len;
+            dirZ /= len;
+        } else {
+            dirX = 0;
+            dirZ = 0;
+        }
+
+        synchronized (this) {
+            boolean moved = !hasCenter || centerX != this.centerX || centerZ != this.centerZ
+                    || radius != this.radius;
+            boolean turned = dirX * this.dirX + dirZ * this.dirZ < TURN_THRESHOLD
+                    && (dirX != this.dirX || dirZ != this.dirZ);
+            boolean retry = retryAtNanos >= 0 && System.nanoTime() - retryAtNanos >= 0;
+            if (!moved && !turned && !retry)
+                return;
+
+            hasCenter = true;
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.dirX = dirX;
+            this.dirZ = dirZ;
+
+            if (moved)
+                cancelOutside();
+            rescore();
+            if (moved || retry) {
+                // Chunks whose load failed are neither loaded nor queued, so this picks them up
+                retryAtNanos = -1;
+                enqueueMissing(isLoaded);
+            }
+        }
+        startWorkers();
+    }
+
+    private void cancelOutside() {
+        List<Request> kept = new ArrayList<>(queue.size());
+        for (Request r : queue) {
+            if (Math.max(Math.abs(r.cx - centerX), Math.abs(r.cz - centerZ)) > radius) {
+                queued.remove(r.key);
+                cancelled++;
+            } else {
+                kept.add(r);
+            }
+        }
+        queue.clear();
+        queue.addAll(kept);
+    }
+
+    private void rescore() {
+        List<Request> all = new ArrayList<>(queue);
+        queue.clear();
+        for (Request r : all) {
+            r.score = score(r.cx, r.cz);
+            queue.add(r);
+        }
+    }
+
+    private void enqueueMissing(LongPredicate isLoaded) {
+        long now = System.nanoTime();
+        for (int x = centerX - radius; x <= centerX + radius; x++) {
+            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                long key = ChunkManager.getChunkKey(x, z);
+                if (queued.containsKey(key) || running.contains(key) || isLoaded.test(key))
+                    continue;
+                Request r = new Request(x, z, key, now, sequence++);
+                r.score = score(x, z);
+                queued.put(key, r);
+                queue.add(r);
+            }
+        }
+    }
+
+    /**
+     * Squared distance, scaled from 1x straight ahead to 2x directly behind.
+     */
+    float score(int cx, int cz) {
+        float dx = cx - centerX;
+        float dz = cz - centerZ;
+        float d2 = dx * dx + dz * dz;
+        if (d2 == 0)
+            return 0;
+        float cos = (dx * dirX + dz * dirZ) / (float) Math.sqrt(d2);
+        return d2 * (1.5f - 0.5f * cos);
+    }
+
+    private void startWorkers() {
+        while (true) {
+            synchronized (this) {
+                if (activeWorkers >= parallelism || queue.isEmpty())
+                    return;
+                activeWorkers++;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    activeWorkers--;
+                }
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Request r;
+            synchronized (this) {
+                r = queue.poll();
+                if (r == null) {
+                    activeWorkers--;
+                    return;
+                }
+                queued.remove(r.key);
+                running.add(r.key);
+            }
+
+            long start = System.nanoTime();
+            record(Stage.WAIT, start - r.enqueuedNanos);
+            boolean loaded = false;
+            try {
+                loader.load(r.cx, r.cz);
+                loaded = true;
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                record(Stage.TOTAL, System.nanoTime() - start);
+                synchronized (this) {
+                    running.remove(r.key);
+                    if (loaded) {
+                        completed++;
+                    } else {
+                        failed++;
+                        if (retryAtNanos < 0)
+                            retryAtNanos = System.nanoTime() + retryDelayNanos;
+                    }
+                }
+            }
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        stats[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyStat getStat(Stage stage) {
+        return stats[stage.ordinal()];
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    public synchronized long getCancelledCount() {
+        return cancelled;
+    }
+
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    public synchronized boolean isQueued(int cx, int cz) {
+        return queued.containsKey(ChunkManager.getChunkKey(cx, cz));
+    }
+
+    /**
+     * Queued chunk coordinates in the order workers would take them, as {cx, cz} pairs.
+     */
+    public synchronized List<int[]> getQueueOrder() {
+        PriorityQueue<Request> copy = new PriorityQueue<>(queue);
+        List<int[]> order = new ArrayList<>(copy.size());
+        while (!copy.isEmpty()) {
+            Request r = copy.poll();
+            order.add(new int[] { r.cx, r.cz });
+        }
+        return order;
+    }
+
+    /**
+     * One-line summary for the debug title bar.
+     */
+    public String getSummary() {
+        return String.format("Load q:%d run:%d wait %.1fms load %.1fms gen %.1fms", getQueueDepth(),
+                getRunningCount(), getStat(Stage.WAIT).getAverageMillis(), getStat(Stage.LOAD).getAverageMillis(),
+                getStat(Stage.GENERATE).getAverageMillis());
+    }
+
+    private static final class Request implements Comparable<Request> {
+        final int cx;
+        final int cz;
+        final long key;
+        final long enqueuedNanos;
+        final long seq;
+        float score;
+
+        Request(int cx, int cz, long key, long enqueuedNanos, long seq) {
+            this.cx = cx;
+            this.cz = cz;
+            this.key = key;
+            this.enqueuedNanos = enqueuedNanos;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Request o) {
+            int c = Float.compare(score, o.score);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Count, mean and max of a stage's latency; the mean decays so it tracks recent loads.
+     */
+    public static final class LatencyStat {
+        private static final double SMOOTHING = 0.1;
+
+        private long count;
+        private double averageNanos;
+        private long maxNanos;
+
+        synchronized void record(long nanos) {
+            averageNanos = count == 0 ? nanos : averageNanos + (nanos - averageNanos) * SMOOTHING;
+            count++;
+            if (nanos > maxNanos)
+                maxNanos = nanos;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized double getAverageMillis() {
+            return averageNanos / 1e6;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package game.voxel;
 
+import engine.raster.GeometryArena;
 import engine.raster.Texture;
 
 import game.voxel.gfx.AsyncMeshRebuilder;
-import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.GenerationPipeline;
 import game.voxel.world.gen.TerrainGenerator;
+import game.voxel.world.gen.biomes.Biome;
+import game.voxel.world.gen.biomes.Biomes;
 import game.voxel.world.physics.VoxelPhysics;
 import game.voxel.world.region.RegionManager;
 
-import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -19,35 +21,57 @@ public class ChunkManager {
 
     private final ConcurrentHashMap<Long, Chunk> chunks;
     private final ExecutorService executorService;
+    // Single writer keeps region writes ordered: a later snapshot of a chunk always lands last
+    private final ExecutorService saveExecutor;
     private final Texture texture;
+    // Shared buffers for all chunk meshes; grows on demand, this is roughly a 12 chunk radius
+    private static final int ARENA_INITIAL_VERTICES = 1 << 20;
+    private static final int ARENA_INITIAL_INDICES = 3 << 19;
+    private final GeometryArena geometryArena;
     private final long seed;
     private final ConcurrentHashMap<Long, Byte> changedBlocks = new ConcurrentHashMap<>();
-    private final Set<Long> pendingChunks = ConcurrentHashMap.newKeySet();
     private final Set<Long> dirtyChunks = ConcurrentHashMap.newKeySet();
+    // Snapshots of evicted chunks not yet on disk; a reload must not read the stale region copy
+    private final ConcurrentHashMap<Long, byte[]> pendingSaves = new ConcurrentHashMap<>();
+    // Evicted chunks whose snapshot failed to write, retried by the next saveWorld
+    private final ConcurrentHashMap<Long, Chunk> failedEvictions = new ConcurrentHashMap<>();
 
     // Delegated systems
-    private final TerrainGenerator terrainGenerator;
+    private final GenerationPipeline generationPipeline;
     private final VoxelPhysics physics;
     private final RegionManager regionManager;
     private final AsyncMeshRebuilder meshRebuilder; // Field already existed, ensuring it's here.
+    private final ChunkLoadScheduler loadScheduler;
 
     private float tickTimer = 0;
+    private volatile int playerChunkX;
+    private volatile int playerChunkZ;
     private static final float TICK_RATE = 0.1f; // 10 ticks per second
 
-    public ChunkManager(long seed, String worldName) throws Exception {
+    /**
+     * @param blockTexture terrain atlas, owned by the caller; generation and region
+     *                     storage themselves need no GL (see {@link GenerationPipeline})
+     */
+    public ChunkManager(long seed, String worldName, Texture blockTexture) {
         this.seed = seed;
         this.chunks = new ConcurrentHashMap<>();
-        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        this.texture = new Texture("textures/terrain.png");
+        int loadThreads = Runtime.getRuntime().availableProcessors();
+        this.executorService = Executors.newFixedThreadPool(loadThreads);
+        this.loadScheduler = new ChunkLoadScheduler(executorService, loadThreads, this::loadChunk);
+        this.saveExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ChunkSaveWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        this.texture = blockTexture;
+        this.geometryArena = new GeometryArena(ARENA_INITIAL_VERTICES, ARENA_INITIAL_INDICES);
 
         // Initialize systems
-        SimplexNoise.init(seed);
-        this.terrainGenerator = new TerrainGenerator();
+        this.generationPipeline = new GenerationPipeline(new TerrainGenerator(seed));
         this.physics = new VoxelPhysics(this);
 
-        File worldDir = new File("worlds", worldName); // Existing line
-        this.regionManager = new RegionManager(worldDir); // Existing line
-        this.meshRebuilder = new AsyncMeshRebuilder(this, texture);
+        this.regionManager = new RegionManager(RegionManager.worldDirectory(worldName));
+        this.meshRebuilder = new AsyncMeshRebuilder(this, geometryArena);
     }
 
     public void init() {
@@ -61,18 +85,20 @@ public class ChunkManager {
             tickTimer = 0;
         }
 
-        // Request rebuilds for dirty chunks
+        // Invalidate meshes of chunks whose neighbours changed; updateMeshes rebuilds the wanted LOD
         Iterator<Long> dirtyIt = dirtyChunks.iterator();
         while (dirtyIt.hasNext()) {
             Long key = dirtyIt.next();
             Chunk chunk = chunks.get(key);
             if (chunk != null) {
-                meshRebuilder.requestRebuild(chunk);
+                chunk.invalidateMeshes();
             }
             dirtyIt.remove();
         }
+        this.playerChunkX = playerChunkX;
+        this.playerChunkZ = playerChunkZ;
 
-        meshRebuilder.applyUpdates(chunks, 2); // Upload up to 2 chunks per frame
+        meshRebuilder.uploadPending(chunks, playerChunkX, playerChunkZ); // Time/byte budgeted, nearest first
 
         // Cleanup distant chunks to prevent memory leaks
         // Must be significantly larger than render distance to prevent load cycles
@@ -80,59 +106,146 @@ public class ChunkManager {
     }
 
     public void loadChunksAround(int centerX, int centerZ, int radius) {
-        for (int x = centerX - radius; x <= centerX + radius; x++) {
-            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
-                long key = getChunkKey(x, z);
-                if (chunks.containsKey(key))
-                    continue;
-
-                if (pendingChunks.contains(key)) // Original check
-                    continue;
-
-                pendingChunks.add(key);
-                final int cx = x;
-                final int cz = z;
-                executorService.submit(() -> {
-                    try {
-                        // 1. Try to load from region file
-                        Chunk chunk = regionManager.loadChunk(cx, cz);
-
-                        // 2. If not found, generate new
-                        if (chunk == null) {
-                            chunk = new Chunk(cx, cz);
-                            terrainGenerator.generateTerrain(this, chunk, seed);
-                        }
-
-                        // Async mesh generation
-                        meshRebuilder.requestRebuild(chunk);
-                        chunks.put(key, chunk);
-
-                        // Mark neighbors as dirty so they re-mesh and see this new neighbor
-                        dirtyChunks.add(getChunkKey(cx + 1, cz));
-                        dirtyChunks.add(getChunkKey(cx - 1, cz));
-                        dirtyChunks.add(getChunkKey(cx, cz + 1));
-                        dirtyChunks.add(getChunkKey(cx, cz - 1));
-
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    } finally {
-                        pendingChunks.remove(key);
-                    }
-                });
-            }
+        loadChunksAround(centerX, centerZ, radius, 0, 0);
+    }
+
+    /**
+     * Queues missing chunks in the radius, nearest and in front of (dirX, dirZ) first.
+     * Cheap to call every frame; the queue is only rebuilt when something changed.
+     */
+    public void loadChunksAround(int centerX, int centerZ, int radius, float dirX, float dirZ) {
+        loadScheduler.update(centerX, centerZ, radius, dirX, dirZ, chunks::containsKey);
+    }
+
+    // Runs on a load worker
+    private void loadChunk(int cx, int cz) {
+        long key = getChunkKey(cx, cz);
+        if (chunks.containsKey(key))
+            return;
+
+        // 1. Try an unwritten eviction snapshot, then the region file
+        long start = System.nanoTime();
+        Chunk chunk;
+        byte[] unsaved = pendingSaves.get(key);
+        if (unsaved != null) {
+            chunk = RegionManager.createChunk(cx, cz, unsaved);
+            // The live chunk now carries the unwritten edits to the next save
+            chunk.markModified();
+            failedEvictions.remove(key);
+            pendingSaves.remove(key, unsaved);
+        } else {
+            chunk = regionManager.loadChunk(cx, cz);
         }
+        loadScheduler.record(ChunkLoadScheduler.Stage.LOAD, System.nanoTime() - start);
+
+        // 2. If not found, generate new
+        if (chunk == null) {
+            start = System.nanoTime();
+            chunk = generationPipeline.generate(cx, cz);
+            loadScheduler.record(ChunkLoadScheduler.Stage.GENERATE, System.nanoTime() - start);
+        } else if (!chunk.hasBiomes()) {
+            // Stored before biome maps were, or from an eviction snapshot
+            byte[] biomes = new byte[Chunk.COLUMNS];
+            generationPipeline.getGenerator().resolveBiomes(cx, cz, biomes);
+            chunk.setBiomeIds(biomes);
+        }
+
+        // Meshed by updateMeshes on the main thread, starting with the LOD for its distance
+        chunk.setWantedLod(Chunk.lodForDistance((cx - playerChunkX) * Chunk.SIZE_X,
+                (cz - playerChunkZ) * Chunk.SIZE_Z));
+        chunks.put(key, chunk);
+
+        // Mark neighbors as dirty so they re-mesh and see this new neighbor
+        dirtyChunks.add(getChunkKey(cx + 1, cz));
+        dirtyChunks.add(getChunkKey(cx - 1, cz));
+        dirtyChunks.add(getChunkKey(cx, cz + 1));
+        dirtyChunks.add(getChunkKey(cx, cz - 1));
+    }
+
+    public ChunkLoadScheduler getLoadScheduler() {
+        return loadScheduler;
+    }
+
+    public Chunk getChunk(int cx, int cz) {
+        return chunks.get(getChunkKey(cx, cz));
     }
 
     public boolean isChunkLoaded(int cx, int cz) {
         return chunks.containsKey(getChunkKey(cx, cz));
     }
 
-    public synchronized void saveWorld() { // Added saveWorld method
-        System.out.println("Saving world...");
+    /**
+     * Queues every chunk modified since its last save, and every evicted chunk whose
+     * write failed, for writing on the background writer. Only the block id copy
+     * happens on the calling thread.
+     */
+    public Future<?> saveWorld() {
+        long start = System.nanoTime();
+        List<Chunk> toSave = new ArrayList<>();
+        List<byte[]> snapshots = new ArrayList<>();
         for (Chunk chunk : chunks.values()) {
-            regionManager.saveChunk(chunk);
+            if (chunk.isModified()) {
+                snapshots.add(chunk.getBlockIds());
+                chunk.markSaved();
+                toSave.add(chunk);
+            }
+        }
+        List<Chunk> evicted = new ArrayList<>();
+        List<byte[]> evictedSnapshots = new ArrayList<>();
+        for (Map.Entry<Long, Chunk> entry : failedEvictions.entrySet()) {
+            byte[] ids = pendingSaves.get(entry.getKey());
+            if (failedEvictions.remove(entry.getKey(), entry.getValue()) && ids != null) {
+                evicted.add(entry.getValue());
+                evictedSnapshots.add(ids);
+            }
+        }
+        long snapshotNanos = System.nanoTime() - start;
+        int loaded = chunks.size();
+
+        return saveExecutor.submit(() -> {
+            long writeStart = System.nanoTime();
+            int written = 0;
+            for (int i = 0; i < toSave.size(); i++) {
+                if (writeSnapshot(toSave.get(i), snapshots.get(i)))
+                    written++;
+            }
+            for (int i = 0; i < evicted.size(); i++) {
+                if (writeEvicted(evicted.get(i), evictedSnapshots.get(i)))
+                    written++;
+            }
+            System.out.printf("World saved: %d/%d chunks written (%d loaded), snapshot %.1f ms, write %.1f ms%n",
+                    written, toSave.size() + evicted.size(), loaded, snapshotNanos / 1e6,
+                    (System.nanoTime() - writeStart) / 1e6);
+        });
+    }
+
+    private boolean writeSnapshot(Chunk chunk, byte[] ids) {
+        try {
+            // The biome map never changes after generation, so it needs no snapshot
+            regionManager.saveChunk(chunk.getChunkX(), chunk.getChunkZ(), ids,
+                    chunk.hasBiomes() ? chunk.getBiomeIds() : null);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            chunk.markModified(); // retry on the next save
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of an evicted chunk. It stays in pendingSaves until a write
+     * succeeds, so a reload still sees the edits and the next saveWorld retries it.
+     */
+    private boolean writeEvicted(Chunk chunk, byte[] ids) {
+        long key = getChunkKey(chunk.getChunkX(), chunk.getChunkZ());
+        if (writeSnapshot(chunk, ids)) {
+            pendingSaves.remove(key, ids);
+            return true;
         }
-        System.out.println("World saved!");
+        // Unless the chunk was reloaded meanwhile and took over the edits
+        if (pendingSaves.get(key) == ids)
+            failedEvictions.put(key, chunk);
+        return false;
     }
 
     private void cleanupChunks(int playerChunkX, int playerChunkZ, int maxRadius) {
@@ -161,26 +274,42 @@ public class ChunkManager {
                 dirtyChunks.add(getChunkKey(cx, cz - 1));
 
                 physics.removeBlocksInChunk(cx, cz);
+                meshRebuilder.evict(key);
+                if (chunk.isModified()) {
+                    byte[] ids = chunk.getBlockIds();
+                    chunk.markSaved();
+                    pendingSaves.put(key, ids);
+                    saveExecutor.submit(() -> writeEvicted(chunk, ids));
+                }
                 chunk.cleanup();
             }
         }
     }
 
+    /**
+     * Requests rebuilds of stale or missing meshes, only for the LOD each chunk is
+     * currently drawn at. Other LODs are rebuilt when the chunk enters their band.
+     */
     public void updateMeshes() {
-        int updates = 0;
-        int MAX_UPDATES_PER_FRAME = 5;
+        int requests = 0;
+        int MAX_REQUESTS_PER_FRAME = 16;
 
         for (Chunk chunk : chunks.values()) {
-            if (chunk.isDirty()) {
-                chunk.updateMesh(texture, this);
-                updates++;
-                if (updates >= MAX_UPDATES_PER_FRAME) {
+            int lod = chunk.getWantedLod();
+            if (chunk.needsMesh(lod)) {
+                meshRebuilder.requestRebuild(chunk, lod);
+                requests++;
+                if (requests >= MAX_REQUESTS_PER_FRAME) {
                     break;
                 }
             }
         }
     }
 
+    public AsyncMeshRebuilder getMeshRebuilder() {
+        return meshRebuilder;
+    }
+
     public Block getBlockAt(int x, int y, int z) {
         if (y < 0 || y >= Chunk.SIZE_Y)
             return Block.AIR;
@@ -229,21 +358,6 @@ public class ChunkManager {
         }
     }
 
-    /**
-     * Use during world generation to avoid physics/dirty checks
-     */
-    public void setBlockAtSilently(int x, int y, int z, Block block) {
-        if (y < 0 || y >= Chunk.SIZE_Y)
-            return;
-        int cx = x >> 4;
-        int cz = z >> 4;
-        long key = getChunkKey(cx, cz);
-        Chunk chunk = chunks.get(key);
-        if (chunk != null) {
-            chunk.setBlock(x & 15, y, z & 15, block);
-        }
-    }
-
     private void triggerNeighbors(int x, int y, int z) {
         int cx = x >> 4;
         int cz = z >> 4;
@@ -311,10 +425,24 @@ public class ChunkManager {
         return chunk.getGroundHeight(localX, localZ) + 1; // +1 to spawn above ground
     }
 
+    /**
+     * Biome of the column at world (x, z), or null if its chunk is not loaded.
+     */
+    public Biome getBiomeAt(int worldX, int worldZ) {
+        Chunk chunk = chunks.get(getChunkKey(worldX >> 4, worldZ >> 4));
+        if (chunk == null)
+            return null;
+        return Biomes.byId(chunk.getBiomeId(worldX & 15, worldZ & 15));
+    }
+
     public Texture getBlockTexture() {
         return texture;
     }
 
+    public GeometryArena getGeometryArena() {
+        return geometryArena;
+    }
+
     public ConcurrentHashMap<Long, Chunk> getChunks() {
         return chunks;
     }
@@ -325,11 +453,20 @@ public class ChunkManager {
 
     public void cleanup() {
         saveWorld();
+        saveExecutor.shutdown();
+        try {
+            if (!saveExecutor.awaitTermination(30, TimeUnit.SECONDS))
+                System.err.println("Chunk save writer did not finish in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        regionManager.compactRegions();
         regionManager.cleanup();
         meshRebuilder.cleanup();
         executorService.shutdown();
         for (Chunk c : chunks.values()) {
             c.cleanup();
         }
+        geometryArena.cleanup();
     }
 }
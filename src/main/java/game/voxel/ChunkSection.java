@@ -0,0 +1,209 @@
+package game.voxel;
+
+/**
+ * A 16x16x16 slice of block ids backing {@link Chunk}.
+ * A section starts out holding a single id and switches to a per-section palette
+ * with bit-packed indices (4, then 8 bits per voxel) once it stops being uniform.
+ * Local index layout is (y << 8) | (z << 4) | x.
+ */
+final class ChunkSection {
+
+    static final int SIZE = 16;
+    static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private volatile Storage storage;
+    private int nonAirCount;
+
+    ChunkSection(int id) {
+        this.storage = new Storage(id);
+        this.nonAirCount = id == 0 ? 0 : VOLUME;
+    }
+
+    /**
+     * Builds a section from a flat z-contiguous array (same offset/stride meaning as
+     * {@link #copyTo}), or returns null if every voxel is air.
+     */
+    static ChunkSection fromIds(byte[] src, int offset, int strideX, int strideY) {
+        int[] slotOf = new int[256]; // id -> palette slot + 1
+        int[] palette = new int[256];
+        int paletteSize = 0;
+        int nonAir = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                int row = offset + x * strideX + y * strideY;
+                for (int z = 0; z < SIZE; z++) {
+                    int id = src[row + z] & 0xFF;
+                    if (slotOf[id] == 0) {
+                        palette[paletteSize++] = id;
+                        slotOf[id] = paletteSize;
+                    }
+                    if (id != 0)
+                        nonAir++;
+                }
+            }
+        }
+        if (nonAir == 0)
+            return null;
+
+        ChunkSection section = new ChunkSection(palette[0]);
+        if (paletteSize > 1) {
+            int bits = paletteSize <= 16 ? 4 : 8;
+            Storage s = new Storage(bits, java.util.Arrays.copyOf(palette, 1 << bits), paletteSize);
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    int row = offset + x * strideX + y * strideY;
+                    for (int z = 0; z < SIZE; z++) {
+                        s.setIndex(index(x, y, z), slotOf[src[row + z] & 0xFF] - 1);
+                    }
+                }
+            }
+            section.storage = s;
+        }
+        section.nonAirCount = nonAir;
+        return section;
+    }
+
+    static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    int get(int index) {
+        return storage.get(index);
+    }
+
+    /**
+     * @return the previous id at index
+     */
+    int set(int index, int id) {
+        Storage s = storage;
+        int prev = s.get(index);
+        if (prev == id)
+            return prev;
+
+        int paletteIdx = s.indexOf(id);
+        if (paletteIdx < 0) {
+            if (s.paletteSize == s.capacity()) {
+                s = s.grow();
+                storage = s;
+            }
+            paletteIdx = s.add(id);
+        }
+        s.setIndex(index, paletteIdx);
+
+        if (prev == 0)
+            nonAirCount++;
+        else if (id == 0)
+            nonAirCount--;
+        return prev;
+    }
+
+    boolean isEmpty() {
+        return nonAirCount == 0;
+    }
+
+    /**
+     * Copies this section into a flat array with z as the contiguous axis.
+     * offset is where local (0, 0, 0) lands; strideX/strideY step one voxel along x/y.
+     */
+    void copyTo(byte[] dst, int offset, int strideX, int strideY) {
+        Storage s = storage;
+        if (s.bits == 0) {
+            byte id = (byte) s.palette[0];
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    int row = offset + x * strideX + y * strideY;
+                    java.util.Arrays.fill(dst, row, row + SIZE, id);
+                }
+            }
+            return;
+        }
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                int local = (y << 8) | (z << 4);
+                int base = offset + y * strideY + z;
+                for (int x = 0; x < SIZE; x++) {
+                    dst[base + x * strideX] = (byte) s.get(local | x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Palette plus packed indices. Replaced wholesale when the index width grows, so a
+     * concurrent reader always sees a bits/data/palette triple that belongs together.
+     */
+    private static final class Storage {
+        final int bits; // 0 = single value in palette[0]
+        final int indexShift; // log2(entries per int)
+        final int mask;
+        final int[] palette;
+        final int[] data;
+        int paletteSize;
+
+        Storage(int id) {
+            this.bits = 0;
+            this.indexShift = 0;
+            this.mask = 0;
+            this.palette = new int[] { id };
+            this.data = null;
+            this.paletteSize = 1;
+        }
+
+        Storage(int bits, int[] palette, int paletteSize) {
+            this.bits = bits;
+            this.indexShift = bits == 4 ? 3 : 2;
+            this.mask = (1 << bits) - 1;
+            this.palette = palette;
+            this.paletteSize = paletteSize;
+            this.data = new int[VOLUME >> indexShift];
+        }
+
+        int capacity() {
+            return bits == 0 ? 1 : palette.length;
+        }
+
+        int get(int index) {
+            if (bits == 0)
+                return palette[0];
+            int word = data[index >> indexShift];
+            int shift = (index & ((1 << indexShift) - 1)) * bits;
+            return palette[(word >>> shift) & mask];
+        }
+
+        void setIndex(int index, int paletteIdx) {
+            int wordIdx = index >> indexShift;
+            int shift = (index & ((1 << indexShift) - 1)) * bits;
+            data[wordIdx] = (data[wordIdx] & ~(mask << shift)) | (paletteIdx << shift);
+        }
+
+        int indexOf(int id) {
+            for (int i = 0; i < paletteSize; i++) {
+                if (palette[i] == id)
+                    return i;
+            }
+            return -1;
+        }
+
+        int add(int id) {
+            palette[paletteSize] = id;
+            return paletteSize++;
+        }
+
+        Storage grow() {
+            // Block ids are bytes, so 8 bits always covers every id
+            int newBits = bits == 0 ? 4 : 8;
+            int[] newPalette = new int[1 << newBits];
+            System.arraycopy(palette, 0, newPalette, 0, paletteSize);
+            Storage grown = new Storage(newBits, newPalette, paletteSize);
+            if (bits != 0) {
+                for (int i = 0; i < VOLUME; i++) {
+                    int word = data[i >> indexShift];
+                    int shift = (i & ((1 << indexShift) - 1)) * bits;
+                    grown.setIndex(i, (word >>> shift) & mask);
+                }
+            }
+            // bits == 0: every index is already 0, which is palette[0]
+            return grown;
+        }
+    }
+}
@@ -1,31 +1,52 @@
 package game.voxel;
 
-import engine.shaders.GUIShaderProgram;
 import engine.entity.Entity;
-import engine.raster.Mesh;
+import engine.gfx.SpriteBatch;
 import engine.raster.Texture;
 import engine.io.Window;
-import game.voxel.entity.ItemEntity;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import org.joml.Vector4fc;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.lwjgl.glfw.GLFW.*;
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL30.*;
 
+/**
+ * In-game HUD and the drawing helpers the menus use. Everything goes through one
+ * {@link SpriteBatch}: {@link #bind()} starts a batch, {@link #unbind()} draws it.
+ */
 public class HUD {
 
+    private static final Vector4fc WHITE = new Vector4f(1, 1, 1, 1);
+    private static final Vector4fc MENU_DIM = new Vector4f(0f, 0f, 0f, 0.7f);
+    private static final Vector4fc LOADING_DIM = new Vector4f(0f, 0f, 0f, 0.9f);
+    private static final Vector4fc BUTTON = new Vector4f(0.15f, 0.15f, 0.15f, 0.8f);
+    private static final Vector4fc BUTTON_SELECTED = new Vector4f(0.2f, 0.6f, 1.0f, 0.9f);
+    private static final Vector4fc SLOT_HIGHLIGHT = new Vector4f(1, 1, 1, 0.8f);
+    private static final Vector4fc COMPASS_BACKGROUND = new Vector4f(0.1f, 0.1f, 0.1f, 0.7f);
+    private static final Vector4fc STATS_BACKGROUND = new Vector4f(0, 0, 0, 0.5f);
+    private static final Vector4fc DEBUG_BACKGROUND = new Vector4f(0, 0, 0, 0.4f);
+
     private final List<Entity> entities;
-    private final GUIShaderProgram shaderProgram;
-    private Mesh quadMesh;
+    private final SpriteBatch batch;
+    // Icons are placed by the entity hierarchy; their current texture lives here
+    private final Map<Entity, Texture> iconTextures = new IdentityHashMap<>();
+    // Scratch, render thread only
+    private final Matrix4f itemTransform = new Matrix4f();
+    private final int[] windowWidth = new int[1];
+    private final int[] windowHeight = new int[1];
 
     // Stats
     private String fpsText = "FPS: 0";
     private String statsText = "Chunks: 0";
+    private String loadStatsText = "";
+    private String cullStatsText = "";
+    private String uniformStatsText = "";
 
     // Player state
     private float playerHealth = 100f;
@@ -46,13 +67,9 @@ public class HUD {
     private Texture waterFull, waterEmpty;
     private Texture slotTexture;
 
-    // Simple built-in 5x7 block font for menu text (drawn as coloured quads, no
-    // external textures).
-
     public HUD() throws Exception {
         entities = new ArrayList<>();
-        shaderProgram = new GUIShaderProgram();
-        setupQuadMesh();
+        batch = new SpriteBatch();
 
         // Load textures
         heartFull = new Texture("textures/heartFull.png");
@@ -71,74 +88,36 @@ public class HUD {
         setupWater();
     }
 
-    private void setupQuadMesh() {
-        float[] positions = new float[] {
-                -0.5f, 0.5f, 0.0f,
-                -0.5f, -0.5f, 0.0f,
-                0.5f, -0.5f, 0.0f,
-                0.5f, 0.5f, 0.0f,
-        };
-        float[] textCoords = new float[] {
-                0.0f, 0.0f,
-                0.0f, 1.0f,
-                1.0f, 1.0f,
-                1.0f, 0.0f
-        };
-        int[] indices = new int[] { 0, 1, 2, 2, 3, 0 };
-        this.quadMesh = new Mesh(positions, textCoords, new float[positions.length], indices);
+    private List<Entity> setupIcons(Texture texture, float y) {
+        List<Entity> icons = new ArrayList<>();
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            Entity icon = new Entity(null);
+            icon.setLocalScale(32f);
+            iconTextures.put(icon, texture);
+            hudRoot.addChild(icon, new Vector3f(20 + i * 40, y, 0));
+            icons.add(icon);
+        }
+        return icons;
     }
 
     private void setupHearts() {
-        hearts = new ArrayList<>();
-        int maxHearts = 10;
-        for (int i = 0; i < maxHearts; i++) {
-            Entity heart = new Entity(quadMesh);
-            heart.setLocalScale(32f);
-            heart.getMesh().setTexture(heartFull);
-            hudRoot.addChild(heart, new Vector3f(20 + i * 40, 40, 0));
-            hearts.add(heart);
-        }
+        hearts = setupIcons(heartFull, 40);
     }
 
     private void setupHunger() {
-        hungerIcons = new ArrayList<>();
-        int maxHunger = 10;
-        for (int i = 0; i < maxHunger; i++) {
-            Entity icon = new Entity(quadMesh);
-            icon.setLocalScale(32f);
-            icon.getMesh().setTexture(hungerFull);
-            hudRoot.addChild(icon, new Vector3f(20 + i * 40, 80, 0));
-            hungerIcons.add(icon);
-        }
+        hungerIcons = setupIcons(hungerFull, 80);
     }
 
     private void setupWater() {
-        waterIcons = new ArrayList<>();
-        int maxWater = 10;
-        for (int i = 0; i < maxWater; i++) {
-            Entity icon = new Entity(quadMesh);
-            icon.setLocalScale(32f);
-            icon.getMesh().setTexture(waterFull);
-            hudRoot.addChild(icon, new Vector3f(20 + i * 40, 120, 0));
-            waterIcons.add(icon);
-        }
+        waterIcons = setupIcons(waterFull, 120);
     }
 
     public void init(Window window) {
     }
 
     public void render(Window window) {
-        shaderProgram.bind();
-
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        glDisable(GL_DEPTH_TEST);
-        glDisable(GL_CULL_FACE);
-
-        Matrix4f ortho = new Matrix4f().ortho2D(
-                0, window.getWidth(),
-                window.getHeight(), 0);
-        shaderProgram.setUniform("projectionMatrix", ortho);
+        batch.begin(window.getWidth(), window.getHeight());
 
         for (Entity item : entities) {
             renderHudItemRecursive(item);
@@ -148,41 +127,20 @@ public class HUD {
         renderCompass(window);
         renderStatsOverlay(window);
 
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_CULL_FACE);
-        glDisable(GL_BLEND);
-        shaderProgram.unbind();
+        batch.end();
     }
 
     public void renderLoadingScreen(Window window, String text) {
-        shaderProgram.bind();
-
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        glDisable(GL_DEPTH_TEST);
-        glDisable(GL_CULL_FACE);
+        batch.begin(window.getWidth(), window.getHeight());
 
-        Matrix4f ortho = new Matrix4f().ortho2D(
-                0, window.getWidth(),
-                window.getHeight(), 0);
-        shaderProgram.setUniform("projectionMatrix", ortho);
-
-        // Fullscreen dim background
-        Matrix4f bgMatrix = new Matrix4f()
-                .translate(window.getWidth() / 2f, window.getHeight() / 2f, 0)
-                .scale(window.getWidth(), window.getHeight(), 1);
-        shaderProgram.setUniform("modelMatrix", bgMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(0f, 0f, 0f, 0.9f)); // Darker for loading
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        // Fullscreen dim background, darker for loading
+        batch.fillRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
+                LOADING_DIM);
 
         // Render centered text
         renderTextCentered(text, window.getWidth() / 2f, window.getHeight() / 2f, 10f);
 
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_CULL_FACE);
-        glDisable(GL_BLEND);
-        shaderProgram.unbind();
+        batch.end();
     }
 
     /**
@@ -191,26 +149,11 @@ public class HUD {
      * (Start, Options, Quit). The currently selected button is highlighted.
      */
     public void renderMainMenu(Window window, int selectedIndex) {
-        shaderProgram.bind();
-
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        glDisable(GL_DEPTH_TEST);
-        glDisable(GL_CULL_FACE);
-
-        Matrix4f ortho = new Matrix4f().ortho2D(
-                0, window.getWidth(),
-                window.getHeight(), 0);
-        shaderProgram.setUniform("projectionMatrix", ortho);
+        batch.begin(window.getWidth(), window.getHeight());
 
         // Fullscreen dim background
-        Matrix4f bgMatrix = new Matrix4f()
-                .translate(window.getWidth() / 2f, window.getHeight() / 2f, 0)
-                .scale(window.getWidth(), window.getHeight(), 1);
-        shaderProgram.setUniform("modelMatrix", bgMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(0f, 0f, 0f, 0.7f));
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        batch.fillRect(window.getWidth() / 2f, window.getHeight() / 2f, window.getWidth(), window.getHeight(),
+                MENU_DIM);
 
         // Simple vertical button list
         String[] labels = { "Start World", "Options (WIP)", "Quit" };
@@ -226,623 +169,57 @@ public class HUD {
             float y = startY + i * (buttonHeight + spacing);
 
             // Button background
-            Matrix4f buttonMatrix = new Matrix4f()
-                    .translate(x, y, 0)
-                    .scale(buttonWidth, buttonHeight, 1);
-            shaderProgram.setUniform("modelMatrix", buttonMatrix);
-            boolean selected = (i == selectedIndex);
-            Vector4f colour = selected
-                    ? new Vector4f(0.2f, 0.6f, 1.0f, 0.9f)
-                    : new Vector4f(0.15f, 0.15f, 0.15f, 0.8f);
-            shaderProgram.setUniform("colour", colour);
-            shaderProgram.setUniform("hasTexture", 0);
-            quadMesh.render();
+            batch.fillRect(x, y, buttonWidth, buttonHeight, i == selectedIndex ? BUTTON_SELECTED : BUTTON);
 
             // Render label text on top (simple 5x7 block font)
             // Smaller scale so text fits comfortably inside the button.
             renderTextCentered(labels[i], x, y, 6f);
         }
 
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_CULL_FACE);
-        glDisable(GL_BLEND);
-        shaderProgram.unbind();
+        batch.end();
     }
 
     // --------------------------
-    // Minimal 5x7 text rendering for menu
+    // Batched 2D drawing for menus
     // --------------------------
 
+    /**
+     * Starts a batch covering the current window; draw calls follow at {@link #unbind()}.
+     */
     public void bind() {
-        shaderProgram.bind();
-
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        glDisable(GL_DEPTH_TEST);
-        glDisable(GL_CULL_FACE);
-
-        // Default orthographic projection
-        int[] winWidth = new int[1];
-        int[] winHeight = new int[1];
-        glfwGetWindowSize(glfwGetCurrentContext(), winWidth, winHeight);
-
-        Matrix4f ortho = new Matrix4f().ortho2D(
-                0, winWidth[0],
-                winHeight[0], 0);
-        shaderProgram.setUniform("projectionMatrix", ortho);
+        glfwGetWindowSize(glfwGetCurrentContext(), windowWidth, windowHeight);
+        batch.begin(windowWidth[0], windowHeight[0]);
     }
 
     public void unbind() {
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_CULL_FACE);
-        glDisable(GL_BLEND);
-        shaderProgram.unbind();
+        batch.end();
     }
 
-    public void renderRect(float x, float y, float w, float h, Vector4f color) {
-        Matrix4f modelMatrix = new Matrix4f()
-                .translate(x, y, 0)
-                .scale(w, h, 1);
-        shaderProgram.setUniform("modelMatrix", modelMatrix);
-        shaderProgram.setUniform("colour", color);
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+    public void renderRect(float x, float y, float w, float h, Vector4fc color) {
+        batch.fillRect(x, y, w, h, color);
     }
 
     public void renderTextCentered(String text, float centerX, float centerY, float scale) {
-        renderTextCentered(text, centerX, centerY, scale, new Vector4f(1, 1, 1, 1));
+        renderTextCentered(text, centerX, centerY, scale, WHITE);
     }
 
-    public void renderTextCentered(String text, float centerX, float centerY, float scale, Vector4f color) {
+    public void renderTextCentered(String text, float centerX, float centerY, float scale, Vector4fc color) {
         if (text == null || text.isEmpty())
             return;
-
-        text = text.toUpperCase();
-        int charWidth = 6; // 5 cols + 1 spacing
-        int textPixelWidth = charWidth * text.length();
-        float totalWidth = textPixelWidth * scale;
-        float startX = centerX - totalWidth / 2f;
-        float startY = centerY - (7 * scale) / 2f;
-
-        for (int ci = 0; ci < text.length(); ci++) {
-            char ch = text.charAt(ci);
-            boolean[][] glyph = getGlyph5x7(ch);
-            if (glyph == null)
-                continue;
-
-            float baseX = startX + ci * charWidth * scale;
-            for (int row = 0; row < 7; row++) {
-                for (int col = 0; col < 5; col++) {
-                    if (!glyph[row][col])
-                        continue;
-                    float x = baseX + col * scale;
-                    float y = startY + row * scale;
-
-                    Matrix4f m = new Matrix4f()
-                            .translate(x, y, 0)
-                            .scale(scale, scale, 1);
-                    shaderProgram.setUniform("modelMatrix", m);
-                    shaderProgram.setUniform("colour", color);
-                    shaderProgram.setUniform("hasTexture", 0);
-                    quadMesh.render();
-                }
-            }
-        }
+        batch.drawTextCentered(text, centerX, centerY, scale, color);
     }
 
     /**
-     * Returns a 5x7 boolean grid for a given ASCII character. True cells are drawn
-     * as white quads. Unknown characters return null and are skipped.
+     * Draw calls of the last batch, e.g. one per texture change.
      */
-    private boolean[][] getGlyph5x7(char c) {
-        if (c == ' ')
-            return new boolean[7][5];
-        String[] pattern;
-        switch (c) {
-            case 'A':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        "#####",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                };
-                break;
-            case 'B':
-                pattern = new String[] {
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "####.",
-                };
-                break;
-            case 'C':
-                pattern = new String[] {
-                        ".####",
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#....",
-                        ".####",
-                };
-                break;
-            case 'D':
-                pattern = new String[] {
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "####.",
-                };
-                break;
-            case 'E':
-                pattern = new String[] {
-                        "#####",
-                        "#....",
-                        "#....",
-                        "####.",
-                        "#....",
-                        "#....",
-                        "#####",
-                };
-                break;
-            case 'F':
-                pattern = new String[] {
-                        "#####",
-                        "#....",
-                        "#....",
-                        "####.",
-                        "#....",
-                        "#....",
-                        "#....",
-                };
-                break;
-            case 'G':
-                pattern = new String[] {
-                        ".####",
-                        "#....",
-                        "#....",
-                        "#.###",
-                        "#...#",
-                        "#...#",
-                        ".####",
-                };
-                break;
-            case 'H':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#####",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                };
-                break;
-            case 'I':
-                pattern = new String[] {
-                        "#####",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "#####",
-                };
-                break;
-            case 'J':
-                pattern = new String[] {
-                        "#####",
-                        "....#",
-                        "....#",
-                        "....#",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case 'K':
-                pattern = new String[] {
-                        "#...#",
-                        "#..#.",
-                        "#.#..",
-                        "##...",
-                        "#.#..",
-                        "#..#.",
-                        "#...#",
-                };
-                break;
-            case 'L':
-                pattern = new String[] {
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#....",
-                        "#####",
-                };
-                break;
-            case 'M':
-                pattern = new String[] {
-                        "#...#",
-                        "##.##",
-                        "#.u.#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                };
-                break;
-            case 'N':
-                pattern = new String[] {
-                        "#...#",
-                        "##..#",
-                        "#.#.#",
-                        "#..##",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                };
-                break;
-            case 'O':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case 'P':
-                pattern = new String[] {
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "####.",
-                        "#....",
-                        "#....",
-                        "#....",
-                };
-                break;
-            case 'Q':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#.#.#",
-                        "#..##",
-                        ".##.#",
-                };
-                break;
-            case 'R':
-                pattern = new String[] {
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "####.",
-                        "#.#..",
-                        "#..#.",
-                        "#...#",
-                };
-                break;
-            case 'S':
-                pattern = new String[] {
-                        ".####",
-                        "#....",
-                        "#....",
-                        ".###.",
-                        "....#",
-                        "....#",
-                        "####.",
-                };
-                break;
-            case 'T':
-                pattern = new String[] {
-                        "#####",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                };
-                break;
-            case 'U':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case 'V':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        ".#.#.",
-                        "..#..",
-                };
-                break;
-            case 'W':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#.#.#",
-                        "#.#.#",
-                        "##.##",
-                        "#...#",
-                };
-                break;
-            case 'X':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        ".#.#.",
-                        "..#..",
-                        ".#.#.",
-                        "#...#",
-                        "#...#",
-                };
-                break;
-            case 'Y':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        ".#.#.",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                };
-                break;
-            case 'Z':
-                pattern = new String[] {
-                        "#####",
-                        "....#",
-                        "...#.",
-                        "..#..",
-                        ".#...",
-                        "#....",
-                        "#####",
-                };
-                break;
-            case '>':
-                pattern = new String[] {
-                        "#....",
-                        ".#...",
-                        "..#..",
-                        "...#.",
-                        "..#..",
-                        ".#...",
-                        "#....",
-                };
-                break;
-            case '<':
-                pattern = new String[] {
-                        "....#",
-                        "...#.",
-                        "..#..",
-                        ".#...",
-                        "..#..",
-                        "...#.",
-                        "....#",
-                };
-                break;
-            case '/':
-                pattern = new String[] {
-                        "....#",
-                        "...#.",
-                        "...#.",
-                        "..#..",
-                        ".#...",
-                        ".#...",
-                        "#....",
-                };
-                break;
-            case ':':
-                pattern = new String[] {
-                        ".....",
-                        "..#..",
-                        "..#..",
-                        ".....",
-                        "..#..",
-                        "..#..",
-                        ".....",
-                };
-                break;
-            case '0':
-                pattern = new String[] {
-                        ".###.",
-                        "#..##",
-                        "#.###",
-                        "##.##",
-                        "###.#",
-                        "##..#",
-                        ".###.",
-                };
-                break;
-            case '1':
-                pattern = new String[] {
-                        "..#..",
-                        ".##..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        ".###.",
-                };
-                break;
-            case '2':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "....#",
-                        ".###.",
-                        "#....",
-                        "#....",
-                        "#####",
-                };
-                break;
-            case '3':
-                pattern = new String[] {
-                        "#####",
-                        "....#",
-                        "..##.",
-                        "....#",
-                        "....#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case '4':
-                pattern = new String[] {
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        "#####",
-                        "....#",
-                        "....#",
-                        "....#",
-                };
-                break;
-            case '5':
-                pattern = new String[] {
-                        "#####",
-                        "#....",
-                        "####.",
-                        "....#",
-                        "....#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case '6':
-                pattern = new String[] {
-                        ".###.",
-                        "#....",
-                        "####.",
-                        "#...#",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case '7':
-                pattern = new String[] {
-                        "#####",
-                        "....#",
-                        "...#.",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                };
-                break;
-            case '8':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        ".###.",
-                };
-                break;
-            case '9':
-                pattern = new String[] {
-                        ".###.",
-                        "#...#",
-                        "#...#",
-                        ".####",
-                        "....#",
-                        "....#",
-                        ".###.",
-                };
-                break;
-            case '%':
-                pattern = new String[] {
-                        "#...#",
-                        ".....",
-                        "..#..",
-                        ".#.#.",
-                        "..#..",
-                        ".....",
-                        "#...#",
-                };
-                break;
-            case '|':
-                pattern = new String[] {
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                        "..#..",
-                };
-                break;
-            default:
-                // Fallback: simple box for unknown characters
-                pattern = new String[] {
-                        "#####",
-                        "#####",
-                        "#####",
-                        "#####",
-                        "#####",
-                        "#####",
-                        "#####",
-                };
-                break;
-        }
-
-        boolean[][] grid = new boolean[7][5];
-        for (int row = 0; row < 7; row++) {
-            String line = pattern[row];
-            for (int col = 0; col < 5 && col < line.length(); col++) {
-                grid[row][col] = line.charAt(col) == '#';
-            }
-        }
-        return grid;
+    public int getLastDrawCalls() {
+        return batch.getLastDrawCalls();
     }
 
     private void renderHudItemRecursive(Entity item) {
-        Mesh mesh = item.getMesh();
-        if (mesh != null) {
-            Matrix4f modelMatrix = item.getWorldTransform();
-
-            shaderProgram.setUniform("modelMatrix", modelMatrix);
-            shaderProgram.setUniform("colour",
-                    mesh.getColour() != null ? new Vector4f(mesh.getColour(), 1.0f)
-                            : new Vector4f(1, 1, 1, 1));
-            shaderProgram.setUniform("hasTexture", mesh.getTexture() != null ? 1 : 0);
-
-            if (mesh.getTexture() != null) {
-                shaderProgram.setUniform("texture_sampler", 0);
-                glActiveTexture(GL_TEXTURE0);
-                mesh.getTexture().bind();
-            }
-
-            mesh.render();
+        Texture texture = iconTextures.get(item);
+        if (texture != null) {
+            batch.drawQuad(item.getWorldTransform(itemTransform), texture, 1, 1, 1, 1);
         }
 
         for (Entity child : item.getChildren()) {
@@ -861,6 +238,19 @@ public class HUD {
         this.statsText = String.format("Chunks: %d/%d | Verts: %,d", renderedChunks, totalChunks, vertices);
     }
 
+    public void setCullStats(int sectionsDrawn, int sectionsCulled, int sectionsOccluded, int drawCalls) {
+        this.cullStatsText = String.format("Sections: %d drawn %d culled %d occluded (%d draws)", sectionsDrawn,
+                sectionsCulled, sectionsOccluded, drawCalls);
+    }
+
+    public void setUniformStats(long issued, long skipped) {
+        this.uniformStatsText = String.format("Uniforms: %d sent %d skipped", issued, skipped);
+    }
+
+    public void setLoadStats(String loadStats) {
+        this.loadStatsText = loadStats;
+    }
+
     public void setPlayerHealth(float health) {
         this.playerHealth = health;
         updateHearts();
@@ -887,28 +277,23 @@ public class HUD {
     // --------------------------
     // Feature updaters
     // --------------------------
-    private void updateHearts() {
-        int heartsToFill = (int) Math.ceil(playerHealth / 10f);
-        for (int i = 0; i < hearts.size(); i++) {
-            Mesh mesh = hearts.get(i).getMesh();
-            mesh.setTexture(i < heartsToFill ? heartFull : heartEmpty);
+    private void updateIcons(List<Entity> icons, float value, Texture full, Texture empty) {
+        int filled = (int) Math.ceil(value / 10f);
+        for (int i = 0; i < icons.size(); i++) {
+            iconTextures.put(icons.get(i), i < filled ? full : empty);
         }
     }
 
+    private void updateHearts() {
+        updateIcons(hearts, playerHealth, heartFull, heartEmpty);
+    }
+
     private void updateHunger() {
-        int filled = (int) Math.ceil(playerHunger / 10f);
-        for (int i = 0; i < hungerIcons.size(); i++) {
-            Mesh mesh = hungerIcons.get(i).getMesh();
-            mesh.setTexture(i < filled ? hungerFull : hungerEmpty);
-        }
+        updateIcons(hungerIcons, playerHunger, hungerFull, hungerEmpty);
     }
 
     private void updateWater() {
-        int filled = (int) Math.ceil(playerWater / 10f);
-        for (int i = 0; i < waterIcons.size(); i++) {
-            Mesh mesh = waterIcons.get(i).getMesh();
-            mesh.setTexture(i < filled ? waterFull : waterEmpty);
-        }
+        updateIcons(waterIcons, playerWater, waterFull, waterEmpty);
     }
 
     // --------------------------
@@ -921,67 +306,33 @@ public class HUD {
 
         for (int i = 0; i < slots; i++) {
             // Slot background
-            Matrix4f slotMatrix = new Matrix4f()
-                    .translate(startX + i * spacing, window.getHeight() - 80, 0)
-                    .scale(40f, 40f, 1);
-            shaderProgram.setUniform("modelMatrix", slotMatrix);
-            shaderProgram.setUniform("colour", new Vector4f(1, 1, 1, 1));
-            shaderProgram.setUniform("hasTexture", 1);
-
-            shaderProgram.setUniform("texture_sampler", 0);
-            glActiveTexture(GL_TEXTURE0);
-            slotTexture.bind();
-            quadMesh.render();
-
-            // Highlight selected slot
+            float x = startX + i * spacing;
+            float y = window.getHeight() - 80;
+            batch.drawTexture(slotTexture, x, y, 40f, 40f, WHITE);
+
+            // Highlight selected slot, slightly larger as an outline
             if (i == selectedSlot) {
-                Matrix4f highlightMatrix = new Matrix4f()
-                        .translate(startX + i * spacing, window.getHeight() - 80, 0)
-                        .scale(48f, 48f, 1); // slightly larger outline
-                shaderProgram.setUniform("modelMatrix", highlightMatrix);
-                shaderProgram.setUniform("colour", new Vector4f(1, 1, 1, 0.8f)); // white outline
-                shaderProgram.setUniform("hasTexture", 0);
-                quadMesh.render();
+                batch.fillRect(x, y, 48f, 48f, SLOT_HIGHLIGHT);
             }
         }
     }
 
     private void renderCompass(Window window) {
         // Compass background
-        Matrix4f compassMatrix = new Matrix4f()
-                .translate(window.getWidth() / 2f, 50, 0)
-                .scale(200f, 20f, 1);
-        shaderProgram.setUniform("modelMatrix", compassMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(0.1f, 0.1f, 0.1f, 0.7f));
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        batch.fillRect(window.getWidth() / 2f, 50, 200f, 20f, COMPASS_BACKGROUND);
 
         // Normalize yaw to [0, 360)
         float normalizedYaw = ((playerYaw % 360f) + 360f) % 360f;
         float offset = (normalizedYaw / 360f) * 200f - 100f;
 
         // Marker
-        Matrix4f markerMatrix = new Matrix4f()
-                .translate(window.getWidth() / 2f + offset, 50, 0)
-                .scale(10f, 20f, 1);
-        shaderProgram.setUniform("modelMatrix", markerMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(1, 1, 1, 1));
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        batch.fillRect(window.getWidth() / 2f + offset, 50, 10f, 20f, WHITE);
 
         // Direction labels (N, E, S, W)
-        String[] directions = { "N", "E", "S", "W" };
-        for (int i = 0; i < directions.length; i++) {
+        for (int i = 0; i < 4; i++) {
             float dirAngle = i * 90f;
             float dirOffset = (dirAngle / 360f) * 200f - 100f;
-
-            Matrix4f labelMatrix = new Matrix4f()
-                    .translate(window.getWidth() / 2f + dirOffset, 80, 0)
-                    .scale(20f, 20f, 1);
-            shaderProgram.setUniform("modelMatrix", labelMatrix);
-            shaderProgram.setUniform("colour", new Vector4f(1, 1, 1, 1));
-            shaderProgram.setUniform("hasTexture", 0);
-            quadMesh.render();
+            batch.fillRect(window.getWidth() / 2f + dirOffset, 80, 20f, 20f, WHITE);
 
             // TODO: Replace with text rendering (bitmap font or textured quads for "N.png",
             // "E.png", etc.)
@@ -990,27 +341,25 @@ public class HUD {
 
     private void renderStatsOverlay(Window window) {
         // Simple semi-transparent box
-        Matrix4f modelMatrix = new Matrix4f()
-                .translate(150, window.getHeight() - 150, 0)
-                .scale(200f, 60f, 1);
-        shaderProgram.setUniform("modelMatrix", modelMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(0, 0, 0, 0.5f));
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        batch.fillRect(150, window.getHeight() - 150, 200f, 60f, STATS_BACKGROUND);
 
         // For now, stats are shown in window title
-        window.setTitle(fpsText + " | " + statsText);
+        window.setTitle(fpsText + " | " + statsText + (cullStatsText.isEmpty() ? "" : " | " + cullStatsText)
+                + (uniformStatsText.isEmpty() ? "" : " | " + uniformStatsText)
+                + (loadStatsText.isEmpty() ? "" : " | " + loadStatsText));
     }
 
     private void renderDebugOverlay(Window window) {
-        Matrix4f debugMatrix = new Matrix4f()
-                .translate(200, window.getHeight() - 250, 0)
-                .scale(250f, 100f, 1);
-        shaderProgram.setUniform("modelMatrix", debugMatrix);
-        shaderProgram.setUniform("colour", new Vector4f(0, 0, 0, 0.4f));
-        shaderProgram.setUniform("hasTexture", 0);
-        quadMesh.render();
+        batch.fillRect(200, window.getHeight() - 250, 250f, 100f, DEBUG_BACKGROUND);
 
         // Could render debug info here if needed
     }
-}
\ No newline at end of file
+
+    public void cleanup() {
+        batch.cleanup();
+        for (Texture texture : new Texture[] { heartFull, heartEmpty, hungerFull, hungerEmpty, waterFull, waterEmpty,
+                slotTexture }) {
+            texture.cleanup();
+        }
+    }
+}
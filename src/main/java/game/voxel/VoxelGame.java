@@ -1,8 +1,11 @@
 package game.voxel;
 
 import engine.IGameLogic;
+import engine.shaders.ShaderProgram;
 import engine.shaders.SkyDomeShader;
+import engine.shaders.UniformCounters;
 import engine.raster.Renderer;
+import engine.raster.Texture;
 import engine.raster.Transformation;
 import engine.io.Input;
 import engine.io.MousePicker;
@@ -34,6 +37,7 @@ public class VoxelGame implements IGameLogic {
 
     private final Renderer renderer;
     private ChunkManager chunkManager;
+    private Texture blockTexture;
     private MousePicker mousePicker;
     private final Transformation transformation;
 
@@ -94,7 +98,8 @@ public class VoxelGame implements IGameLogic {
         boolean startsInMenu = worldName.equals("menu_background");
 
         player = new PlayerController(new Camera());
-        chunkManager = new ChunkManager(seed, worldName);
+        blockTexture = new Texture("textures/terrain.png");
+        chunkManager = new ChunkManager(seed, worldName, blockTexture);
         chunkManager.init();
 
         timeSystem.setTimeSpeed(0.005f);
@@ -391,6 +396,13 @@ public class VoxelGame implements IGameLogic {
                 .filter(c -> c.getMesh() != null)
                 .count();
         hud.setStats(renderedChunks, chunkManager.getChunks().size(), chunkManager.getTotalVertices());
+        hud.setCullStats(renderer.getSectionsDrawn(), renderer.getSectionsCulled(), renderer.getSectionsOccluded(),
+                renderer.getChunkDrawCount());
+        UniformCounters uniformCounters = ShaderProgram.getUniformCounters();
+        hud.setUniformStats(uniformCounters.getIssued(), uniformCounters.getSkipped());
+        hud.setLoadStats(chunkManager.getLoadScheduler().getSummary() + " | "
+                + chunkManager.getMeshRebuilder().getSummary() + " | "
+                + chunkManager.getGeometryArena().getSummary());
 
         // Player state
         hud.setPlayerHealth(player.getHealth()); // hearts
@@ -423,8 +435,10 @@ public class VoxelGame implements IGameLogic {
         // Update HUD
         hud.setPlayerYaw(player.getViewRotation().y);
 
-        // Load chunks
-        chunkManager.loadChunksAround(px, pz, menuManager.getSettings().getRenderDistance());
+        // Load chunks, nearest and in view first
+        float loadYaw = (float) Math.toRadians(player.getCamera().getRotation().y);
+        chunkManager.loadChunksAround(px, pz, menuManager.getSettings().getRenderDistance(),
+                (float) Math.sin(loadYaw), (float) -Math.cos(loadYaw));
 
         timeSystem.update(interval);
         weatherSystem.update(interval);
@@ -456,6 +470,8 @@ public class VoxelGame implements IGameLogic {
 
     @Override
     public void render(Window window) {
+        // Uniform upload counts cover one render call each
+        ShaderProgram.getUniformCounters().endFrame();
         if (isBusy) {
             hud.renderLoadingScreen(window, busyMessage);
             return;
@@ -477,6 +493,18 @@ public class VoxelGame implements IGameLogic {
 
     @Override
     public void cleanup() {
+        cleanupWorld();
+        if (hud != null) {
+            hud.cleanup();
+            hud = null;
+        }
+    }
+
+    /**
+     * Frees everything that belongs to the current world. The HUD outlives worlds:
+     * loadWorld draws its loading screen between this and building the next world.
+     */
+    private void cleanupWorld() {
         if (renderSystem != null) {
             renderSystem.cleanup();
         }
@@ -499,6 +527,10 @@ public class VoxelGame implements IGameLogic {
         if (chunkManager != null) {
             chunkManager.cleanup();
         }
+        if (blockTexture != null) {
+            blockTexture.cleanup();
+            blockTexture = null;
+        }
         for (ItemEntity ie : itemEntities) {
             if (ie.getGameItem().getMesh() != null) {
                 ie.getGameItem().getMesh().cleanup();
@@ -554,6 +586,9 @@ public class VoxelGame implements IGameLogic {
             game.save.WorldStorage.WorldMetadata meta = new game.save.WorldStorage.WorldMetadata(worldName, seed);
             game.save.WorldStorage.saveWorldMetadata(meta);
 
+            // Modified chunks go to the region files on a background writer
+            chunkManager.saveWorld();
+
             // Save Chunks (Changed Blocks)
             WorldSave.save(worldName, seed, timeSystem.getTimeOfDay(), timeSystem.getDayOfYear(),
                     chunkManager.getChangedBlocks());
@@ -598,7 +633,7 @@ public class VoxelGame implements IGameLogic {
 
     public void loadWorld(String name, long forcedSeed) {
         // Unload current
-        cleanup(); // Cleanup old resources (chunks, player meshes, etc.)
+        cleanupWorld(); // Cleanup old resources (chunks, player meshes, etc.)
 
         // Reset/Re-init
         this.worldName = name;
@@ -628,7 +663,8 @@ public class VoxelGame implements IGameLogic {
             this.weatherParticleSystem = new WeatherParticleSystem(); // Re-init weather particle system
 
             // Re-create ChunkManager
-            chunkManager = new ChunkManager(this.seed, name);
+            blockTexture = new Texture("textures/terrain.png");
+            chunkManager = new ChunkManager(this.seed, name, blockTexture);
 
             // Load changed blocks
             WorldSave.LoadedWorld loaded = null;
@@ -1,69 +1,76 @@
 package game.voxel.advanced;
 
-import org.joml.Vector3f;
-import java.util.ArrayList;
-import java.util.List;
+import engine.raster.InstancedBillboards;
+import org.joml.Vector3fc;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * ParticleSystem: Advanced particle effects for the engine
  * Supports various particle types: dust, smoke, fire, water splashes, etc.
+ * <p>
+ * Particles live in parallel primitive arrays, packed at indices 0..count-1: a dead
+ * particle is replaced by the last one, so nothing is allocated per emission and
+ * every loop runs over live particles only. From {@link #PARALLEL_THRESHOLD}
+ * particles, given a pool with more than one worker, the update is split into one
+ * chunk per worker on a fork/join pool. Not thread-safe; call from one thread.
  */
 public class ParticleSystem {
-    
-    private List<Particle> particles;
+
     private static final int MAX_PARTICLES = 10000;
-    
-    public ParticleSystem() {
-        particles = new ArrayList<>();
-    }
-    
+    private static final float GRAVITY = -9.81f;
+    private static final float DRAG = 0.98f;
+
+    // Fewest particles worth a task of their own
+    private static final int PARALLEL_CHUNK = 2048;
+
     /**
-     * Particle class
+     * Live particles from which {@link #update} runs in parallel: two chunks, well
+     * below the default capacity.
      */
-    public static class Particle {
-        public Vector3f position;
-        public Vector3f velocity;
-        public Vector3f acceleration;
-        public float lifetime;
-        public float maxLifetime;
-        public Vector3f color;
-        public float size;
-        public ParticleType type;
-        
-        public Particle(Vector3f position, Vector3f velocity, float lifetime, Vector3f color, float size, ParticleType type) {
-            this.position = new Vector3f(position);
-            this.velocity = new Vector3f(velocity);
-            this.acceleration = new Vector3f(0, -9.81f, 0);  // Gravity
-            this.lifetime = lifetime;
-            this.maxLifetime = lifetime;
-            this.color = new Vector3f(color);
-            this.size = size;
-            this.type = type;
-        }
-        
-        public void update(float deltaTime) {
-            // Update velocity with acceleration
-            velocity.add(acceleration.x * deltaTime, acceleration.y * deltaTime, acceleration.z * deltaTime);
-            
-            // Update position
-            position.add(velocity.x * deltaTime, velocity.y * deltaTime, velocity.z * deltaTime);
-            
-            // Update lifetime
-            lifetime -= deltaTime;
-            
-            // Apply drag
-            velocity.mul(0.98f);
-            
-            // Fade out effect
-            float alpha = lifetime / maxLifetime;
-            color.mul(alpha);
-        }
-        
-        public boolean isAlive() {
-            return lifetime > 0;
-        }
+    public static final int PARALLEL_THRESHOLD = 2 * PARALLEL_CHUNK;
+
+    private static final ParticleType[] TYPES = ParticleType.values();
+
+    private final int capacity;
+    private final float[] x, y, z;
+    private final float[] vx, vy, vz;
+    private final float[] lifetime, maxLifetime;
+    // Colour at full life; the fade is applied on export
+    private final float[] r, g, b;
+    private final float[] size;
+    private final byte[] type;
+    private int count;
+
+    private final Random random;
+    private final ForkJoinPool pool;
+
+    public ParticleSystem() {
+        this(MAX_PARTICLES, new Random(), ForkJoinPool.commonPool());
+    }
+
+    public ParticleSystem(int capacity, Random random, ForkJoinPool pool) {
+        this.capacity = capacity;
+        this.random = random;
+        this.pool = pool;
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        vz = new float[capacity];
+        lifetime = new float[capacity];
+        maxLifetime = new float[capacity];
+        r = new float[capacity];
+        g = new float[capacity];
+        b = new float[capacity];
+        size = new float[capacity];
+        type = new byte[capacity];
     }
-    
+
     public enum ParticleType {
         DUST,
         SMOKE,
@@ -73,106 +80,142 @@ public class ParticleSystem {
         SPARK,
         LEAF
     }
-    
+
     /**
      * Emit particles at a location
+     *
+     * @return the number emitted, fewer than count once the pool is full
      */
-    public void emit(Vector3f position, ParticleType type, int count) {
-        if (particles.size() >= MAX_PARTICLES) {
-            return;
-        }
-        
-        for (int i = 0; i < count; i++) {
-            Vector3f velocity = generateRandomVelocity(type);
-            float lifetime = generateLifetime(type);
-            Vector3f color = getColorForType(type);
-            float size = getDefaultSize(type);
-            
-            particles.add(new Particle(position, velocity, lifetime, color, size, type));
+    public int emit(Vector3fc position, ParticleType particleType, int count) {
+        int emitted = Math.min(count, capacity - this.count);
+        for (int n = 0; n < emitted; n++) {
+            int i = this.count++;
+            x[i] = position.x();
+            y[i] = position.y();
+            z[i] = position.z();
+            setRandomVelocity(i, particleType);
+            lifetime[i] = maxLifetime[i] = generateLifetime(particleType);
+            setColor(i, particleType);
+            size[i] = getDefaultSize(particleType);
+            type[i] = (byte) particleType.ordinal();
         }
+        return emitted;
     }
-    
+
     /**
-     * Generate random velocity based on particle type
+     * Random velocity based on particle type
      */
-    private Vector3f generateRandomVelocity(ParticleType type) {
-        float x = (float) (Math.random() - 0.5f) * 2.0f;
-        float y = (float) Math.random();
-        float z = (float) (Math.random() - 0.5f) * 2.0f;
-        
-        switch (type) {
+    private void setRandomVelocity(int i, ParticleType particleType) {
+        float rx = (random.nextFloat() - 0.5f) * 2.0f;
+        float ry = random.nextFloat();
+        float rz = (random.nextFloat() - 0.5f) * 2.0f;
+
+        float horizontal;
+        float vertical;
+        switch (particleType) {
             case DUST:
-                return new Vector3f(x * 2.0f, y * 1.0f, z * 2.0f);
+                horizontal = 2.0f;
+                vertical = 1.0f;
+                break;
             case SMOKE:
-                return new Vector3f(x * 0.5f, y * 3.0f, z * 0.5f);
+                horizontal = 0.5f;
+                vertical = 3.0f;
+                break;
             case FIRE:
-                return new Vector3f(x * 1.0f, y * 4.0f, z * 1.0f);
+                horizontal = 1.0f;
+                vertical = 4.0f;
+                break;
             case WATER:
-                return new Vector3f(x * 3.0f, y * 5.0f, z * 3.0f);
+                horizontal = 3.0f;
+                vertical = 5.0f;
+                break;
             case BLOOD:
-                return new Vector3f(x * 4.0f, y * 6.0f, z * 4.0f);
+                horizontal = 4.0f;
+                vertical = 6.0f;
+                break;
             case SPARK:
-                return new Vector3f(x * 5.0f, y * 8.0f, z * 5.0f);
+                horizontal = 5.0f;
+                vertical = 8.0f;
+                break;
             case LEAF:
-                return new Vector3f(x * 1.5f, y * 0.5f, z * 1.5f);
+                horizontal = 1.5f;
+                vertical = 0.5f;
+                break;
             default:
-                return new Vector3f(x, y, z);
+                horizontal = 1.0f;
+                vertical = 1.0f;
         }
+        vx[i] = rx * horizontal;
+        vy[i] = ry * vertical;
+        vz[i] = rz * horizontal;
     }
-    
+
     /**
      * Generate lifetime based on particle type
      */
-    private float generateLifetime(ParticleType type) {
-        switch (type) {
+    private float generateLifetime(ParticleType particleType) {
+        switch (particleType) {
             case DUST:
-                return 2.0f + (float) Math.random() * 2.0f;
+                return 2.0f + random.nextFloat() * 2.0f;
             case SMOKE:
-                return 3.0f + (float) Math.random() * 2.0f;
+                return 3.0f + random.nextFloat() * 2.0f;
             case FIRE:
-                return 1.0f + (float) Math.random() * 1.0f;
+                return 1.0f + random.nextFloat() * 1.0f;
             case WATER:
-                return 2.0f + (float) Math.random() * 1.0f;
+                return 2.0f + random.nextFloat() * 1.0f;
             case BLOOD:
-                return 3.0f + (float) Math.random() * 2.0f;
+                return 3.0f + random.nextFloat() * 2.0f;
             case SPARK:
-                return 0.5f + (float) Math.random() * 0.5f;
+                return 0.5f + random.nextFloat() * 0.5f;
             case LEAF:
-                return 5.0f + (float) Math.random() * 3.0f;
+                return 5.0f + random.nextFloat() * 3.0f;
             default:
                 return 2.0f;
         }
     }
-    
+
     /**
-     * Get color for particle type
+     * Color for particle type
      */
-    private Vector3f getColorForType(ParticleType type) {
-        switch (type) {
+    private void setColor(int i, ParticleType particleType) {
+        switch (particleType) {
             case DUST:
-                return new Vector3f(0.8f, 0.7f, 0.6f);
+                setColor(i, 0.8f, 0.7f, 0.6f);
+                break;
             case SMOKE:
-                return new Vector3f(0.5f, 0.5f, 0.5f);
+                setColor(i, 0.5f, 0.5f, 0.5f);
+                break;
             case FIRE:
-                return new Vector3f(1.0f, 0.5f, 0.0f);
+                setColor(i, 1.0f, 0.5f, 0.0f);
+                break;
             case WATER:
-                return new Vector3f(0.2f, 0.6f, 1.0f);
+                setColor(i, 0.2f, 0.6f, 1.0f);
+                break;
             case BLOOD:
-                return new Vector3f(0.8f, 0.0f, 0.0f);
+                setColor(i, 0.8f, 0.0f, 0.0f);
+                break;
             case SPARK:
-                return new Vector3f(1.0f, 1.0f, 0.0f);
+                setColor(i, 1.0f, 1.0f, 0.0f);
+                break;
             case LEAF:
-                return new Vector3f(0.2f, 0.8f, 0.2f);
+                setColor(i, 0.2f, 0.8f, 0.2f);
+                break;
             default:
-                return new Vector3f(1.0f, 1.0f, 1.0f);
+                setColor(i, 1.0f, 1.0f, 1.0f);
         }
     }
-    
+
+    private void setColor(int i, float red, float green, float blue) {
+        r[i] = red;
+        g[i] = green;
+        b[i] = blue;
+    }
+
     /**
      * Get default size for particle type
      */
-    private float getDefaultSize(ParticleType type) {
-        switch (type) {
+    private float getDefaultSize(ParticleType particleType) {
+        switch (particleType) {
             case DUST:
                 return 0.1f;
             case SMOKE:
@@ -191,29 +234,154 @@ public class ParticleSystem {
                 return 0.1f;
         }
     }
-    
+
     /**
-     * Update all particles
+     * Update all particles, then drop the ones whose lifetime ran out
      */
     public void update(float deltaTime) {
-        particles.removeIf(p -> !p.isAlive());
-        
-        for (Particle p : particles) {
-            p.update(deltaTime);
+        advance(deltaTime);
+        compact();
+    }
+
+    /**
+     * Moves every particle and ages it, without removing any
+     */
+    public void advance(float deltaTime) {
+        if (count >= PARALLEL_THRESHOLD && pool != null && pool.getParallelism() > 1) {
+            int parallelism = pool.getParallelism();
+            int chunk = Math.max(PARALLEL_CHUNK, (count + parallelism - 1) / parallelism);
+            pool.invoke(new UpdateTask(0, count, chunk, deltaTime));
+        } else {
+            integrate(0, count, deltaTime);
         }
     }
-    
+
+    private void integrate(int from, int to, float deltaTime) {
+        float gravity = GRAVITY * deltaTime;
+        for (int i = from; i < to; i++) {
+            float velX = vx[i];
+            float velY = vy[i] + gravity;
+            float velZ = vz[i];
+            x[i] += velX * deltaTime;
+            y[i] += velY * deltaTime;
+            z[i] += velZ * deltaTime;
+            vx[i] = velX * DRAG;
+            vy[i] = velY * DRAG;
+            vz[i] = velZ * DRAG;
+            lifetime[i] -= deltaTime;
+        }
+    }
+
     /**
-     * Get all active particles
+     * Swap-removes dead particles; order among the survivors is not kept.
+     *
+     * @return the number removed
      */
-    public List<Particle> getParticles() {
-        return particles;
+    public int compact() {
+        int removed = 0;
+        int i = 0;
+        while (i < count) {
+            if (lifetime[i] > 0) {
+                i++;
+                continue;
+            }
+            int last = --count;
+            if (i != last) {
+                x[i] = x[last];
+                y[i] = y[last];
+                z[i] = z[last];
+                vx[i] = vx[last];
+                vy[i] = vy[last];
+                vz[i] = vz[last];
+                lifetime[i] = lifetime[last];
+                maxLifetime[i] = maxLifetime[last];
+                r[i] = r[last];
+                g[i] = g[last];
+                b[i] = b[last];
+                size[i] = size[last];
+                type[i] = type[last];
+            }
+            removed++;
+        }
+        return removed;
     }
-    
+
+    private final class UpdateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final float deltaTime;
+
+        UpdateTask(int from, int to, int chunk, float deltaTime) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                integrate(from, to, deltaTime);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new UpdateTask(from, mid, chunk, deltaTime), new UpdateTask(mid, to, chunk, deltaTime));
+        }
+    }
+
+    /**
+     * Puts one instance per live particle at the buffer's position in the layout of
+     * {@link InstancedBillboards}: position, size, then colour with the remaining
+     * fraction of the lifetime as alpha.
+     *
+     * @return the number of instances written
+     */
+    public int writeInstances(FloatBuffer dst) {
+        for (int i = 0; i < count; i++) {
+            float alpha = lifetime[i] / maxLifetime[i];
+            dst.put(x[i]).put(y[i]).put(z[i]).put(size[i]).put(r[i]).put(g[i]).put(b[i]).put(alpha);
+        }
+        return count;
+    }
+
+    /**
+     * Number of live particles, at indices 0..count-1
+     */
+    public int getParticleCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getZ(int i) {
+        return z[i];
+    }
+
+    public float getLifetime(int i) {
+        return lifetime[i];
+    }
+
+    public ParticleType getType(int i) {
+        return TYPES[type[i]];
+    }
+
     /**
      * Clear all particles
      */
     public void clear() {
-        particles.clear();
+        count = 0;
     }
 }
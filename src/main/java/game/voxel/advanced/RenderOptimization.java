@@ -9,27 +9,24 @@ import org.joml.Vector3f;
 public class RenderOptimization {
     
     /**
-     * Frustum culling: Check if a bounding box is visible in camera frustum
+     * Frustum culling: Check if a bounding box is visible in camera frustum.
+     * Matrices are column-major float[16] (OpenGL / JOML {@code Matrix4f.get(float[])} order).
      */
     public static class FrustumCuller {
-        private float[] frustumPlanes;  // 6 planes (left, right, top, bottom, near, far)
+        private final float[] frustumPlanes;  // 6 planes (left, right, bottom, top, near, far), ax+by+cz+d >= 0 inside
+        private final float[] combined;
         
         public FrustumCuller() {
             frustumPlanes = new float[24];  // 6 planes * 4 coefficients each
+            combined = new float[16];
         }
         
         /**
          * Update frustum planes from projection and view matrices
          */
         public void updateFrustum(float[] projectionMatrix, float[] viewMatrix) {
-            // Extract frustum planes from combined projection-view matrix
-            // This is a simplified version - full implementation would use proper matrix math
-            
-            // Combine matrices
-            float[] combined = new float[16];
+            // Clip space = projection * view
             multiplyMatrices(projectionMatrix, viewMatrix, combined);
-            
-            // Extract planes from combined matrix
             extractPlanesFromMatrix(combined);
         }
         
@@ -37,32 +34,37 @@ public class RenderOptimization {
          * Check if a bounding box is within the frustum
          */
         public boolean isBoundingBoxVisible(Vector3f min, Vector3f max) {
-            // Check all 8 corners of the bounding box
-            Vector3f[] corners = {
-                new Vector3f(min.x, min.y, min.z),
-                new Vector3f(max.x, min.y, min.z),
-                new Vector3f(min.x, max.y, min.z),
-                new Vector3f(max.x, max.y, min.z),
-                new Vector3f(min.x, min.y, max.z),
-                new Vector3f(max.x, min.y, max.z),
-                new Vector3f(min.x, max.y, max.z),
-                new Vector3f(max.x, max.y, max.z)
-            };
-            
-            // If any corner is inside frustum, box is visible
-            for (Vector3f corner : corners) {
-                if (isPointInFrustum(corner)) {
-                    return true;
+            return isBoundingBoxVisible(min.x, min.y, min.z, max.x, max.y, max.z);
+        }
+        
+        /**
+         * A box is outside only if it lies entirely behind one plane, which is decided
+         * by the corner furthest along that plane's normal (the p-vertex). Testing
+         * whether any corner is inside, as before, rejects boxes that span the view
+         * without a corner in it, e.g. a large box around the camera.
+         * Conservative: boxes just outside a frustum corner may still pass.
+         */
+        public boolean isBoundingBoxVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            for (int i = 0; i < 6; i++) {
+                float a = frustumPlanes[i * 4];
+                float b = frustumPlanes[i * 4 + 1];
+                float c = frustumPlanes[i * 4 + 2];
+                float d = frustumPlanes[i * 4 + 3];
+                
+                float px = a >= 0 ? maxX : minX;
+                float py = b >= 0 ? maxY : minY;
+                float pz = c >= 0 ? maxZ : minZ;
+                if (a * px + b * py + c * pz + d < 0) {
+                    return false;
                 }
             }
-            
-            return false;
+            return true;
         }
         
         /**
          * Check if a point is within the frustum
          */
-        private boolean isPointInFrustum(Vector3f point) {
+        public boolean isPointInFrustum(float x, float y, float z) {
             // Check against all 6 planes
             for (int i = 0; i < 6; i++) {
                 float a = frustumPlanes[i * 4];
@@ -70,7 +72,7 @@ public class RenderOptimization {
                 float c = frustumPlanes[i * 4 + 2];
                 float d = frustumPlanes[i * 4 + 3];
                 
-                float distance = a * point.x + b * point.y + c * point.z + d;
+                float distance = a * x + b * y + c * z + d;
                 if (distance < 0) {
                     return false;
                 }
@@ -78,54 +80,28 @@ public class RenderOptimization {
             return true;
         }
         
-        private void multiplyMatrices(float[] a, float[] b, float[] result) {
-            for (int i = 0; i < 4; i++) {
-                for (int j = 0; j < 4; j++) {
-                    result[i * 4 + j] = 0;
+        // Column-major: element (row r, column c) is at c * 4 + r
+        private static void multiplyMatrices(float[] a, float[] b, float[] result) {
+            for (int col = 0; col < 4; col++) {
+                for (int row = 0; row < 4; row++) {
+                    float sum = 0;
                     for (int k = 0; k < 4; k++) {
-                        result[i * 4 + j] += a[i * 4 + k] * b[k * 4 + j];
+                        sum += a[k * 4 + row] * b[col * 4 + k];
                     }
+                    result[col * 4 + row] = sum;
                 }
             }
         }
         
-        private void extractPlanesFromMatrix(float[] matrix) {
-            // Extract frustum planes from projection matrix
-            // Left plane
-            frustumPlanes[0] = matrix[3] + matrix[0];
-            frustumPlanes[1] = matrix[7] + matrix[4];
-            frustumPlanes[2] = matrix[11] + matrix[8];
-            frustumPlanes[3] = matrix[15] + matrix[12];
-            
-            // Right plane
-            frustumPlanes[4] = matrix[3] - matrix[0];
-            frustumPlanes[5] = matrix[7] - matrix[4];
-            frustumPlanes[6] = matrix[11] - matrix[8];
-            frustumPlanes[7] = matrix[15] - matrix[12];
-            
-            // Top plane
-            frustumPlanes[8] = matrix[3] - matrix[1];
-            frustumPlanes[9] = matrix[7] - matrix[5];
-            frustumPlanes[10] = matrix[11] - matrix[9];
-            frustumPlanes[11] = matrix[15] - matrix[13];
-            
-            // Bottom plane
-            frustumPlanes[12] = matrix[3] + matrix[1];
-            frustumPlanes[13] = matrix[7] + matrix[5];
-            frustumPlanes[14] = matrix[11] + matrix[9];
-            frustumPlanes[15] = matrix[15] + matrix[13];
-            
-            // Near plane
-            frustumPlanes[16] = matrix[3] + matrix[2];
-            frustumPlanes[17] = matrix[7] + matrix[6];
-            frustumPlanes[18] = matrix[11] + matrix[10];
-            frustumPlanes[19] = matrix[15] + matrix[14];
-            
-            // Far plane
-            frustumPlanes[20] = matrix[3] - matrix[2];
-            frustumPlanes[21] = matrix[7] - matrix[6];
-            frustumPlanes[22] = matrix[11] - matrix[10];
-            frustumPlanes[23] = matrix[15] - matrix[14];
+        private void extractPlanesFromMatrix(float[] m) {
+            // Gribb/Hartmann: each plane is row 3 plus or minus row 0, 1 or 2
+            for (int i = 0; i < 6; i++) {
+                int row = i / 2;
+                float sign = (i & 1) == 0 ? 1 : -1;
+                for (int c = 0; c < 4; c++) {
+                    frustumPlanes[i * 4 + c] = m[c * 4 + 3] + sign * m[c * 4 + row];
+                }
+            }
         }
     }
     
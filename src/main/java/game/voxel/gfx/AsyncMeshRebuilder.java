@@ -2,73 +2,127 @@ package game.voxel.gfx;
 
 import game.voxel.Chunk;
 import game.voxel.ChunkManager;
-import engine.raster.MeshData;
-import engine.raster.Texture;
+import engine.raster.GeometryArena;
 
-import java.util.*;
-import java.util.concurrent.*;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Meshes one LOD of a chunk per job on a small worker pool. Only the LOD the
+ * renderer currently wants is requested; other LODs stay stale until the chunk
+ * moves into their distance band. Finished meshes wait in a {@link MeshUploadQueue}
+ * that the render thread drains within a per-frame budget into the shared
+ * {@link GeometryArena}.
+ */
 public class AsyncMeshRebuilder {
+    // Per-frame upload budget; at least one mesh is uploaded regardless
+    private static final long UPLOAD_BUDGET_MICROS = 2000;
+    private static final long UPLOAD_BUDGET_BYTES = 2L * 1024 * 1024;
+
     private final ExecutorService meshExecutor;
-    private final Map<Long, MeshData[]> meshDataResults = new ConcurrentHashMap<>();
-    private final Set<Long> pendingRebuilds = ConcurrentHashMap.newKeySet();
+    private final MeshUploadQueue<Result> uploadQueue = new MeshUploadQueue<>();
     private final ChunkManager chunkManager;
-    private final Texture texture;
+    private final GeometryArena arena;
+
+    // Counters for tuning: jobs per LOD, results that reached the queue but were outdated on upload
+    private final AtomicLong[] jobsPerLod = new AtomicLong[Chunk.LOD_COUNT];
+    private final AtomicLong discarded = new AtomicLong();
+
+    private static final class Result {
+        final Chunk chunk;
+        final int lod;
+        final int version;
+        final ChunkMeshData data;
+
+        Result(Chunk chunk, int lod, int version, ChunkMeshData data) {
+            this.chunk = chunk;
+            this.lod = lod;
+            this.version = version;
+            this.data = data;
+        }
+    }
 
-    public AsyncMeshRebuilder(ChunkManager chunkManager, Texture texture) {
+    public AsyncMeshRebuilder(ChunkManager chunkManager, GeometryArena arena) {
         this.chunkManager = chunkManager;
-        this.texture = texture;
+        this.arena = arena;
         // Use a small pool to avoid starving the world generation executor
         this.meshExecutor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+        for (int i = 0; i < jobsPerLod.length; i++) {
+            jobsPerLod[i] = new AtomicLong();
+        }
     }
 
-    public void requestRebuild(Chunk chunk) {
-        long key = ChunkManager.getChunkKey(chunk.getChunkX(), chunk.getChunkZ());
-        if (pendingRebuilds.contains(key))
+    /**
+     * Queues a rebuild of one LOD if it is stale and not already in flight.
+     * Called on the MAIN thread, which owns block edits.
+     */
+    public void requestRebuild(Chunk chunk, int lod) {
+        if (!chunk.needsMesh(lod))
             return;
 
-        pendingRebuilds.add(key);
+        int version = chunk.markMeshRequested(lod);
+        // Copy on the calling thread so the worker never touches live block data
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(chunk, chunkManager);
+        jobsPerLod[lod].incrementAndGet();
         meshExecutor.submit(() -> {
             try {
-                MeshData[] lods = new MeshData[3];
-                for (int i = 0; i < lods.length; i++) {
-                    lods[i] = chunk.generateMeshData(i, texture, chunkManager);
-                }
-                meshDataResults.put(key, lods);
+                ChunkMeshData data = GreedyMesher.generateMeshData(snapshot, lod);
+                long bytes = 4L * (data.mesh.vertices.length + data.mesh.indices.length);
+                uploadQueue.offer(ChunkManager.getChunkKey(chunk.getChunkX(), chunk.getChunkZ()),
+                        chunk.getChunkX(), chunk.getChunkZ(), lod, version, bytes,
+                        new Result(chunk, lod, version, data));
             } catch (Exception e) {
                 e.printStackTrace();
-            } finally {
-                pendingRebuilds.remove(key);
+                // Otherwise the chunk counts as in flight until its next edit
+                chunk.clearMeshRequest(lod, version);
             }
         });
     }
 
     /**
-     * Called on the MAIN thread to upload finished mesh data to OpenGL.
-     * Limits the number of uploads per frame to prevent stutter.
+     * Called on the MAIN thread to upload finished mesh data to OpenGL, nearest
+     * chunks first, within the per-frame time and byte budget.
      */
-    public void applyUpdates(Map<Long, Chunk> chunks, int maxPerFrame) {
-        if (meshDataResults.isEmpty())
-            return;
+    public void uploadPending(Map<Long, Chunk> chunks, int centerX, int centerZ) {
+        uploadQueue.drain(centerX, centerZ, UPLOAD_BUDGET_MICROS, UPLOAD_BUDGET_BYTES, chunks::containsKey,
+                result -> {
+                    Chunk chunk = result.chunk;
+                    // A chunk unloaded and reloaded meanwhile is a different object; its own rebuild follows
+                    Chunk current = chunks.get(ChunkManager.getChunkKey(chunk.getChunkX(), chunk.getChunkZ()));
+                    if (current != chunk || !chunk.setMeshData(result.lod, result.data, arena, result.version))
+                        discarded.incrementAndGet();
+                });
+    }
 
-        int count = 0;
-        Iterator<Map.Entry<Long, MeshData[]>> it = meshDataResults.entrySet().iterator();
-        while (it.hasNext() && count < maxPerFrame) {
-            Map.Entry<Long, MeshData[]> entry = it.next();
-            Chunk chunk = chunks.get(entry.getKey());
-            if (chunk != null) {
-                MeshData[] lods = entry.getValue();
-                for (int i = 0; i < lods.length; i++) {
-                    chunk.setMeshData(i, lods[i], texture);
-                }
-            }
-            it.remove();
-            count++;
+    /**
+     * Drops pending uploads for a chunk that is being unloaded.
+     */
+    public void evict(long key) {
+        uploadQueue.evict(key);
+    }
+
+    public long getJobCount(int lod) {
+        return jobsPerLod[lod].get();
+    }
+
+    public long getJobCount() {
+        long total = 0;
+        for (AtomicLong jobs : jobsPerLod) {
+            total += jobs.get();
         }
+        return total;
+    }
+
+    public long getDiscardedCount() {
+        return discarded.get() + uploadQueue.getDroppedCount();
     }
 
-    public boolean isPending(long key) {
-        return pendingRebuilds.contains(key);
+    public String getSummary() {
+        return String.format("Mesh jobs %d/%d/%d up:%d q:%d merged:%d drop:%d %.1fms", getJobCount(0),
+                getJobCount(1), getJobCount(2), uploadQueue.getUploadedCount(), uploadQueue.size(),
+                uploadQueue.getCoalescedCount(), getDiscardedCount(), uploadQueue.getLastDrainMillis());
     }
 
     public void cleanup() {
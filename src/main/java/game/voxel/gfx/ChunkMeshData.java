@@ -0,0 +1,17 @@
+package game.voxel.gfx;
+
+import engine.raster.PackedMeshData;
+
+/**
+ * Mesher output for one chunk LOD: the packed geometry, with indices grouped by
+ * section as described by {@link #sections}.
+ */
+public class ChunkMeshData {
+    public final PackedMeshData mesh;
+    public final MeshSections sections;
+
+    public ChunkMeshData(PackedMeshData mesh, MeshSections sections) {
+        this.mesh = mesh;
+        this.sections = sections;
+    }
+}
@@ -0,0 +1,93 @@
+package game.voxel.gfx;
+
+import game.voxel.Chunk;
+import game.voxel.ChunkManager;
+
+/**
+ * Immutable meshing input: a chunk's block ids plus a one-voxel border taken from its
+ * four face neighbours, copied into a padded 18x258x18 array. The mesher reads only
+ * this copy, so it needs no chunk map lookups and is unaffected by concurrent edits.
+ * Missing neighbours and the rows below y=0 / above the top are air.
+ */
+public final class ChunkSnapshot {
+
+    public static final int PAD_X = Chunk.SIZE_X + 2;
+    public static final int PAD_Y = Chunk.SIZE_Y + 2;
+    public static final int PAD_Z = Chunk.SIZE_Z + 2;
+
+    public static final int STRIDE_X = PAD_Y * PAD_Z;
+    public static final int STRIDE_Y = PAD_Z;
+    public static final int STRIDE_Z = 1;
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final byte[] ids;
+
+    private ChunkSnapshot(int chunkX, int chunkZ, byte[] ids) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.ids = ids;
+    }
+
+    /**
+     * Copies chunk and its loaded neighbours. Call on the thread that owns block edits.
+     */
+    public static ChunkSnapshot capture(Chunk chunk, ChunkManager chunkManager) {
+        int cx = chunk.getChunkX();
+        int cz = chunk.getChunkZ();
+        if (chunkManager == null)
+            return of(chunk, null, null, null, null);
+        return of(chunk,
+                chunkManager.getChunk(cx - 1, cz),
+                chunkManager.getChunk(cx + 1, cz),
+                chunkManager.getChunk(cx, cz - 1),
+                chunkManager.getChunk(cx, cz + 1));
+    }
+
+    /**
+     * @param negX neighbour at chunkX - 1 (nullable), and so on
+     */
+    public static ChunkSnapshot of(Chunk chunk, Chunk negX, Chunk posX, Chunk negZ, Chunk posZ) {
+        byte[] ids = new byte[PAD_X * PAD_Y * PAD_Z];
+        chunk.copyBlockIds(ids, index(0, 0, 0), STRIDE_X, STRIDE_Y);
+
+        for (int y = 0; y < Chunk.SIZE_Y; y++) {
+            for (int i = 0; i < Chunk.SIZE_Z; i++) {
+                if (negX != null)
+                    ids[index(-1, y, i)] = (byte) negX.getBlockId(Chunk.SIZE_X - 1, y, i);
+                if (posX != null)
+                    ids[index(Chunk.SIZE_X, y, i)] = (byte) posX.getBlockId(0, y, i);
+            }
+            for (int i = 0; i < Chunk.SIZE_X; i++) {
+                if (negZ != null)
+                    ids[index(i, y, -1)] = (byte) negZ.getBlockId(i, y, Chunk.SIZE_Z - 1);
+                if (posZ != null)
+                    ids[index(i, y, Chunk.SIZE_Z)] = (byte) posZ.getBlockId(i, y, 0);
+            }
+        }
+        return new ChunkSnapshot(chunk.getChunkX(), chunk.getChunkZ(), ids);
+    }
+
+    /**
+     * Index of chunk-local (x, y, z); valid for -1..SIZE on every axis.
+     */
+    public static int index(int x, int y, int z) {
+        return (x + 1) * STRIDE_X + (y + 1) * STRIDE_Y + (z + 1);
+    }
+
+    public int getBlockId(int x, int y, int z) {
+        return ids[index(x, y, z)] & 0xFF;
+    }
+
+    byte[] getIds() {
+        return ids;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+}
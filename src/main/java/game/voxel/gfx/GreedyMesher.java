@@ -1,287 +1,269 @@
 package game.voxel.gfx;
 
-import engine.raster.MeshData;
-import engine.raster.Texture;
+import engine.raster.PackedMeshBuilder;
+import engine.raster.PackedMeshData;
 import game.voxel.Block;
 import game.voxel.Chunk;
-import game.voxel.ChunkManager;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Greedy mesher over a {@link ChunkSnapshot}. Quads never cross a 16-block section
+ * boundary in Y, so every section's faces form their own index range (see
+ * {@link MeshSections}) and can be culled on their own. Faces of transparent blocks
+ * (water, leaves) go into one extra range after the sections so the translucent
+ * pass can draw and depth-sort them alone.
+ */
 public class GreedyMesher {
 
-    public static MeshData generateMeshData(Chunk chunk, Texture texture, ChunkManager chunkManager) {
-        return generateMeshData(chunk, texture, chunkManager, 0);
+    private static final int SECTION_SIZE = MeshSections.SECTION_SIZE;
+    private static final int SECTION_COUNT = MeshSections.SECTION_COUNT;
+
+    private static final int[] DIMS = { Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z };
+    private static final int[] STRIDES = { ChunkSnapshot.STRIDE_X, ChunkSnapshot.STRIDE_Y, ChunkSnapshot.STRIDE_Z };
+
+    // Blocks that stop sight lines for occlusion culling
+    private static final boolean[] OPAQUE = new boolean[256];
+
+    static {
+        for (int id = 1; id < OPAQUE.length; id++) {
+            OPAQUE[id] = !Block.getById(id).isTransparent();
+        }
     }
 
-    public static MeshData generateMeshData(Chunk chunk, Texture texture, ChunkManager chunkManager, int lod) {
-        int step = 1 << lod;
-        List<Float> positions = new ArrayList<>();
-        List<Float> textCoords = new ArrayList<>();
-        List<Float> normals = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
+    // Per-thread scratch so mesh workers don't allocate per chunk
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private static final class Context {
+        final PackedMeshBuilder builder = new PackedMeshBuilder(8192);
+        // Largest slice is SIZE_Y x max(SIZE_X, SIZE_Z)
+        final int[] mask = new int[Chunk.SIZE_Y * Math.max(Chunk.SIZE_X, Chunk.SIZE_Z)];
+        final int[] x = new int[3];
+        final int[] quad = new int[12];
+        final int[] drop = new int[4];
+        final int[] sectionMinY = new int[SECTION_COUNT];
+        final int[] sectionMaxY = new int[SECTION_COUNT];
+        // Doubled centers of translucent quads, in the order they were added
+        int[] translucentCenters = new int[3 * 256];
+        int translucentQuads;
+        int translucentSections;
+    }
 
-        int indexOffset = 0;
-        float textureStep = 1.0f / 4.0f;
+    public static ChunkMeshData generateMeshData(ChunkSnapshot snapshot) {
+        return generateMeshData(snapshot, 0);
+    }
 
-        Block[][][] blocks = chunk.getBlocks();
+    /**
+     * Meshes a snapshot at the given LOD (voxel step 1 << lod). Samples that fall
+     * outside the chunk read the snapshot's one-voxel border.
+     */
+    public static ChunkMeshData generateMeshData(ChunkSnapshot snapshot, int lod) {
+        Context ctx = CONTEXT.get();
+        PackedMeshBuilder builder = ctx.builder;
+        builder.reset();
+        Arrays.fill(ctx.sectionMinY, Integer.MAX_VALUE);
+        Arrays.fill(ctx.sectionMaxY, Integer.MIN_VALUE);
+        ctx.translucentQuads = 0;
+        ctx.translucentSections = 0;
+
+        byte[] ids = snapshot.getIds();
+        int origin = ChunkSnapshot.index(0, 0, 0);
+        int[] mask = ctx.mask;
+        int[] x = ctx.x;
+        int step = 1 << lod;
 
         // Greedy Meshing: Process each axis
         for (int axis = 0; axis < 3; axis++) {
             int u = (axis + 1) % 3;
             int v = (axis + 2) % 3;
-
-            int[] x = new int[3];
-            int[] q = new int[3];
-            int[] dims = new int[] { Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z };
-
-            q[axis] = step;
-            Block[] mask = new Block[(dims[u] / step) * (dims[v] / step)];
+            int dimU = DIMS[u];
+            int dimV = DIMS[v];
+            int cols = dimU / step;
+            int strideA = STRIDES[axis];
+            int strideU = STRIDES[u];
+            int strideV = STRIDES[v];
 
             // Iterate through slices
-            for (x[axis] = -step; x[axis] < dims[axis];) {
+            for (int a = -step; a < DIMS[axis];) {
                 int n = 0;
-
-                // Build mask
-                for (x[v] = 0; x[v] < dims[v]; x[v] += step) {
-                    for (x[u] = 0; x[u] < dims[u]; x[u] += step) {
-
-                        // Get current block (behind the plane at x[axis])
-                        Block current = Block.AIR;
-                        if (x[axis] >= 0) {
-                            current = blocks[x[0]][x[1]][x[2]];
-                        } else {
-                            // Query neighbor chunk
-                            int gx = chunk.getChunkX() * Chunk.SIZE_X + x[0];
-                            int gy = x[1];
-                            int gz = chunk.getChunkZ() * Chunk.SIZE_Z + x[2];
-                            current = chunkManager.getBlockAt(gx, gy, gz);
-                        }
-
-                        // Get next block (in front of the plane at x[axis])
-                        Block next = Block.AIR;
-                        int nx = x[0] + q[0];
-                        int ny = x[1] + q[1];
-                        int nz = x[2] + q[2];
-
-                        if (nx >= 0 && nx < Chunk.SIZE_X && ny >= 0 && ny < Chunk.SIZE_Y && nz >= 0
-                                && nz < Chunk.SIZE_Z) {
-                            next = blocks[nx][ny][nz];
-                        } else {
-                            // Query neighbor chunk
-                            int gx = chunk.getChunkX() * Chunk.SIZE_X + nx;
-                            int gy = ny;
-                            int gz = chunk.getChunkZ() * Chunk.SIZE_Z + nz;
-                            next = chunkManager.getBlockAt(gx, gy, gz);
-                        }
-
-                        // Determine if we should draw a face
-                        if (current == next) {
-                            mask[n++] = null;
-                        } else if (current != Block.AIR
-                                && (next == Block.AIR || (next.isTransparent() && !current.isTransparent()))) {
-                            mask[n++] = current;
-                        } else if (next != Block.AIR
-                                && (current == Block.AIR || (current.isTransparent() && !next.isTransparent()))) {
-                            mask[n++] = next;
-                        } else {
-                            mask[n++] = null;
-                        }
+                // Coarse LODs step past the border; clamp to the padding layer
+                int behind = origin + Math.max(a, -1) * strideA;
+                int front = origin + (a + step) * strideA;
+
+                // Build mask: >0 face owned by the block behind the plane, <0 by the one in front
+                for (int j = 0; j < dimV; j += step) {
+                    for (int i = 0; i < dimU; i += step) {
+                        int offset = i * strideU + j * strideV;
+                        mask[n++] = faceMask(ids[behind + offset] & 0xFF, ids[front + offset] & 0xFF);
                     }
                 }
 
-                x[axis] += step;
-                n = 0;
+                a += step;
+                x[axis] = a;
 
                 // Generate mesh from mask
-                for (int j = 0; j < dims[v]; j += step) {
-                    for (int i = 0; i < dims[u];) {
-                        int maskIdx = (i / step) + (j / step) * (dims[u] / step);
-                        if (mask[maskIdx] != null) {
-                            Block block = mask[maskIdx];
-
-                            // Compute width
-                            int w;
-                            for (w = step; i + w < dims[u]
-                                    && mask[((i + w) / step) + (j / step) * (dims[u] / step)] == block; w += step)
-                                ;
-
-                            // Compute height
-                            boolean done = false;
-                            int h;
-                            for (h = step; j + h < dims[v]; h += step) {
-                                for (int k = 0; k < w; k += step) {
-                                    if (mask[((i + k) / step) + ((j + h) / step) * (dims[u] / step)] != block) {
-                                        done = true;
-                                        break;
-                                    }
-                                }
-                                if (done)
-                                    break;
-                            }
-
-                            // Add quad
-                            x[u] = i;
-                            x[v] = j;
-
-                            int[] du = new int[3];
-                            du[u] = w;
-                            int[] dv = new int[3];
-                            dv[v] = h;
-
-                            // Determine backface
-                            int cx = x[0] - q[0];
-                            int cy = x[1] - q[1];
-                            int cz = x[2] - q[2];
-
-                            Block checkCurrent = Block.AIR;
-                            if (cx >= 0 && cy >= 0 && cz >= 0 && cx < Chunk.SIZE_X && cy < Chunk.SIZE_Y
-                                    && cz < Chunk.SIZE_Z) {
-                                checkCurrent = blocks[cx][cy][cz];
-                            } else {
-                                int gx = chunk.getChunkX() * Chunk.SIZE_X + cx;
-                                int gy = cy;
-                                int gz = chunk.getChunkZ() * Chunk.SIZE_Z + cz;
-                                checkCurrent = chunkManager.getBlockAt(gx, gy, gz);
-                            }
-
-                            boolean backFace = (checkCurrent == block);
-
-                            // Texture coordinates
-                            float u0 = block.getAtlasX() * textureStep;
-                            float v0 = block.getAtlasY() * textureStep;
-
-                            // Quad vertices
-                            float[] v1Pos = new float[] { x[0], x[1], x[2] };
-                            float[] v2Pos = new float[] { x[0] + du[0], x[1] + du[1], x[2] + du[2] };
-                            float[] v3Pos = new float[] { x[0] + du[0] + dv[0], x[1] + du[1] + dv[1],
-                                    x[2] + du[2] + dv[2] };
-                            float[] v4Pos = new float[] { x[0] + dv[0], x[1] + dv[1], x[2] + dv[2] };
+                for (int j = 0; j < dimV; j += step) {
+                    int row = (j / step) * cols;
+                    for (int i = 0; i < dimU;) {
+                        int m = mask[(i / step) + row];
+                        if (m == 0) {
+                            i += step;
+                            continue;
+                        }
 
-                            // Liquid Height Adjustment
-                            if (block.isLiquid()) {
-                                float hScale = block.getLevel() / 16.0f;
-                                if (axis == 1) { // Horizontal faces
-                                    if (backFace) { // Top face
-                                        float offset = 1.0f - hScale;
-                                        v1Pos[1] -= offset;
-                                        v2Pos[1] -= offset;
-                                        v3Pos[1] -= offset;
-                                        v4Pos[1] -= offset;
-                                    }
-                                } else { // Side faces
-                                    float offset = 1.0f - hScale;
-                                    if (axis == 0) {
-                                        v2Pos[1] -= offset;
-                                        v3Pos[1] -= offset;
-                                    } else if (axis == 2) {
-                                        v3Pos[1] -= offset;
-                                        v4Pos[1] -= offset;
-                                    }
-                                }
+                        // Compute width, stopping at a section boundary when u is Y
+                        int limitU = u == 1 ? Math.min(dimU, (i / SECTION_SIZE + 1) * SECTION_SIZE) : dimU;
+                        int w;
+                        for (w = step; i + w < limitU && mask[((i + w) / step) + row] == m; w += step)
+                            ;
+
+                        // Compute height, likewise when v is Y
+                        int limitV = v == 1 ? Math.min(dimV, (j / SECTION_SIZE + 1) * SECTION_SIZE) : dimV;
+                        int h;
+                        outer: for (h = step; j + h < limitV; h += step) {
+                            int hRow = ((j + h) / step) * cols;
+                            for (int k = 0; k < w; k += step) {
+                                if (mask[((i + k) / step) + hRow] != m)
+                                    break outer;
                             }
+                        }
 
-                            float nx = 0, ny = 0, nz = 0;
-                            if (backFace) {
-                                nx = q[0];
-                                ny = q[1];
-                                nz = q[2];
-                                addQuad(positions, textCoords, normals, indices, indexOffset,
-                                        v1Pos, v2Pos, v3Pos, v4Pos,
-                                        u0, v0, u0, v0, nx, ny, nz);
-                            } else {
-                                nx = -q[0];
-                                ny = -q[1];
-                                nz = -q[2];
-                                addQuad(positions, textCoords, normals, indices, indexOffset,
-                                        v1Pos, v4Pos, v3Pos, v2Pos,
-                                        u0, v0, u0, v0, nx, ny, nz);
-                            }
-                            indexOffset += 4;
+                        x[u] = i;
+                        x[v] = j;
+                        addQuad(ctx, x, axis, u, v, w, h, m, step);
 
-                            // Clear mask
-                            for (int l = 0; l < h; l += step) {
-                                for (int k = 0; k < w; k += step) {
-                                    int clearIdx = ((i + k) / step) + ((j + l) / step) * (dims[u] / step);
-                                    mask[clearIdx] = null;
-                                }
+                        // Clear mask
+                        for (int l = 0; l < h; l += step) {
+                            int clearRow = ((j + l) / step) * cols;
+                            for (int k = 0; k < w; k += step) {
+                                mask[((i + k) / step) + clearRow] = 0;
                             }
-
-                            i += w;
-                        } else {
-                            i += step;
                         }
+
+                        i += w;
                     }
                 }
             }
         }
 
-        float[] posArr = new float[positions.size()];
-        for (int i = 0; i < positions.size(); i++)
-            posArr[i] = positions.get(i);
-        float[] texArr = new float[textCoords.size()];
-        for (int i = 0; i < textCoords.size(); i++)
-            texArr[i] = textCoords.get(i);
-        float[] normArr = new float[normals.size()];
-        for (int i = 0; i < normals.size(); i++)
-            normArr[i] = normals.get(i);
-        int[] indArr = new int[indices.size()];
-        for (int i = 0; i < indices.size(); i++)
-            indArr[i] = indices.get(i);
-
-        return new MeshData(posArr, texArr, normArr, indArr);
+        // Groups 0..SECTION_COUNT-1 are the sections' opaque faces, the last one translucent faces
+        int[] starts = new int[SECTION_COUNT + 2];
+        PackedMeshData mesh = builder.build(starts);
+        int[] minY = new int[SECTION_COUNT];
+        int[] maxY = new int[SECTION_COUNT];
+        for (int sy = 0; sy < SECTION_COUNT; sy++) {
+            if (starts[sy + 1] > starts[sy] || (ctx.translucentSections & (1 << sy)) != 0) {
+                minY[sy] = ctx.sectionMinY[sy];
+                maxY[sy] = ctx.sectionMaxY[sy];
+            }
+        }
+        long[] connectivity = new long[SECTION_COUNT];
+        for (int sy = 0; sy < SECTION_COUNT; sy++) {
+            connectivity[sy] = SectionConnectivity.compute(ids, ChunkSnapshot.index(0, sy * SECTION_SIZE, 0),
+                    ChunkSnapshot.STRIDE_X, ChunkSnapshot.STRIDE_Y, ChunkSnapshot.STRIDE_Z, OPAQUE);
+        }
+        TranslucentQuads translucent = null;
+        if (ctx.translucentQuads > 0) {
+            int first = starts[SECTION_COUNT];
+            translucent = new TranslucentQuads(Arrays.copyOfRange(mesh.indices, first, first + ctx.translucentQuads * 6),
+                    Arrays.copyOf(ctx.translucentCenters, ctx.translucentQuads * 3));
+        }
+        return new ChunkMeshData(mesh, new MeshSections(starts, minY, maxY, connectivity,
+                ctx.translucentSections, translucent));
     }
 
-    private static void addQuad(List<Float> p, List<Float> t, List<Float> n, List<Integer> i, int offset,
-            float[] v1, float[] v2, float[] v3, float[] v4,
-            float u0, float tv0, float u1, float tv1,
-            float nx, float ny, float nz) {
-        // v1
-        p.add(v1[0]);
-        p.add(v1[1]);
-        p.add(v1[2]);
-        t.add(u0);
-        t.add(tv1);
-        n.add(nx);
-        n.add(ny);
-        n.add(nz);
+    // Determine if we should draw a face
+    private static int faceMask(int current, int next) {
+        if (current == next)
+            return 0;
+        Block c = Block.getById(current);
+        Block n = Block.getById(next);
+        if (current != 0 && (next == 0 || (n.isTransparent() && !c.isTransparent())))
+            return current + 1;
+        if (next != 0 && (current == 0 || (c.isTransparent() && !n.isTransparent())))
+            return -(next + 1);
+        return 0;
+    }
 
-        // v2
-        p.add(v2[0]);
-        p.add(v2[1]);
-        p.add(v2[2]);
-        t.add(u1);
-        t.add(tv1);
-        n.add(nx);
-        n.add(ny);
-        n.add(nz);
+    private static void addQuad(Context ctx, int[] x, int axis, int u, int v, int w, int h, int m, int step) {
+        PackedMeshBuilder builder = ctx.builder;
+        int[] q = ctx.quad;
+        int[] drop = ctx.drop;
+        boolean backFace = m > 0;
+        Block block = Block.getById(backFace ? m - 1 : -m - 1);
+
+        // Quad vertices: q[0..2] = x, q[3..5] = x+du, q[6..8] = x+du+dv, q[9..11] = x+dv
+        for (int c = 0; c < 3; c++) {
+            int base = x[c];
+            int du = c == u ? w : 0;
+            int dv = c == v ? h : 0;
+            q[c] = base;
+            q[3 + c] = base + du;
+            q[6 + c] = base + du + dv;
+            q[9 + c] = base + dv;
+        }
 
-        // v3
-        p.add(v3[0]);
-        p.add(v3[1]);
-        p.add(v3[2]);
-        t.add(u1);
-        t.add(tv0);
-        n.add(nx);
-        n.add(ny);
-        n.add(nz);
+        // Liquid Height Adjustment, in sixteenths of a block (decoded in vertex.vs)
+        drop[0] = drop[1] = drop[2] = drop[3] = 0;
+        if (block.isLiquid()) {
+            int offset = 16 - block.getLevel();
+            if (axis == 1) { // Horizontal faces
+                if (backFace) { // Top face
+                    drop[0] = drop[1] = drop[2] = drop[3] = offset;
+                }
+            } else if (axis == 0) { // Side faces
+                drop[1] = offset;
+                drop[2] = offset;
+            } else {
+                drop[2] = offset;
+                drop[3] = offset;
+            }
+        }
 
-        // v4
-        p.add(v4[0]);
-        p.add(v4[1]);
-        p.add(v4[2]);
-        t.add(u0);
-        t.add(tv0);
-        n.add(nx);
-        n.add(ny);
-        n.add(nz);
+        int tex = TerrainVertexFormat.packTexture(block.getAtlasX(), block.getAtlasY());
+        int normal = TerrainVertexFormat.normalIndex(axis, backFace);
+
+        if (backFace) {
+            vertex(builder, q, drop, 0, normal, tex);
+            vertex(builder, q, drop, 1, normal, tex);
+            vertex(builder, q, drop, 2, normal, tex);
+            vertex(builder, q, drop, 3, normal, tex);
+        } else {
+            vertex(builder, q, drop, 0, normal, tex);
+            vertex(builder, q, drop, 3, normal, tex);
+            vertex(builder, q, drop, 2, normal, tex);
+            vertex(builder, q, drop, 1, normal, tex);
+        }
+        // Section of the block owning the face; y faces sit on the plane between two blocks
+        int ownerY = axis == 1 && backFace ? x[1] - step : x[1];
+        int section = Math.max(0, Math.min(SECTION_COUNT - 1, ownerY / SECTION_SIZE));
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int c = 0; c < 4; c++) {
+            int y = q[c * 3 + 1];
+            // Liquid drop lowers a vertex by up to one block
+            minY = Math.min(minY, drop[c] > 0 ? y - 1 : y);
+            maxY = Math.max(maxY, y);
+        }
+        ctx.sectionMinY[section] = Math.min(ctx.sectionMinY[section], minY);
+        ctx.sectionMaxY[section] = Math.max(ctx.sectionMaxY[section], maxY);
+        if (block.isTransparent()) {
+            if (ctx.translucentQuads * 3 == ctx.translucentCenters.length)
+                ctx.translucentCenters = Arrays.copyOf(ctx.translucentCenters, ctx.translucentCenters.length * 2);
+            int c = ctx.translucentQuads * 3;
+            ctx.translucentCenters[c] = q[0] + q[6];
+            ctx.translucentCenters[c + 1] = q[1] + q[7];
+            ctx.translucentCenters[c + 2] = q[2] + q[8];
+            ctx.translucentQuads++;
+            ctx.translucentSections |= 1 << section;
+            builder.quadIndices(SECTION_COUNT);
+        } else {
+            builder.quadIndices(section);
+        }
+    }
 
-        i.add(offset + 0);
-        i.add(offset + 1);
-        i.add(offset + 2);
-        i.add(offset + 2);
-        i.add(offset + 3);
-        i.add(offset + 0);
+    private static void vertex(PackedMeshBuilder builder, int[] q, int[] drop, int corner, int normal, int tex) {
+        int o = corner * 3;
+        builder.vertex(TerrainVertexFormat.packPosition(q[o], q[o + 1], q[o + 2], normal, drop[corner]), tex);
     }
 }
@@ -0,0 +1,135 @@
+package game.voxel.gfx;
+
+import game.voxel.Chunk;
+
+/**
+ * Where each 16-block section's faces sit inside a chunk mesh: a contiguous index
+ * range plus the lowest and highest Y its vertices reach. The renderer tests the
+ * resulting per-section boxes against the frustum and draws only the visible ranges.
+ * Each section also carries its {@link SectionConnectivity} for occlusion culling.
+ * Translucent faces of all sections share one range after the last section, with a
+ * CPU copy in {@link TranslucentQuads} for depth sorting.
+ */
+public class MeshSections {
+
+    public static final int SECTION_SIZE = 16;
+    public static final int SECTION_COUNT = Chunk.SIZE_Y / SECTION_SIZE;
+
+    private final int[] starts;
+    private final int[] minY;
+    private final int[] maxY;
+    private final long[] connectivity;
+    private final int translucentMask;
+    private final TranslucentQuads translucent;
+
+    /**
+     * @param starts          first index of each section's opaque faces, then of the
+     *                        translucent faces, plus the total index count at the end
+     * @param minY            lowest vertex Y per section (rounded down)
+     * @param maxY            highest vertex Y per section
+     * @param connectivity    face-to-face visibility per section, including empty ones
+     * @param translucentMask bit per section with translucent faces
+     * @param translucent     the translucent faces, null if there are none
+     */
+    public MeshSections(int[] starts, int[] minY, int[] maxY, long[] connectivity,
+                        int translucentMask, TranslucentQuads translucent) {
+        this.starts = starts;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.connectivity = connectivity;
+        this.translucentMask = translucentMask;
+        this.translucent = translucent;
+    }
+
+    /**
+     * First index of the section's opaque faces.
+     */
+    public int getFirstIndex(int section) {
+        return starts[section];
+    }
+
+    /**
+     * Index count of the section's opaque faces.
+     */
+    public int getIndexCount(int section) {
+        return starts[section + 1] - starts[section];
+    }
+
+    /**
+     * True if the section has no faces at all, opaque or translucent.
+     */
+    public boolean isEmpty(int section) {
+        return starts[section + 1] == starts[section] && !hasTranslucent(section);
+    }
+
+    public boolean hasTranslucent(int section) {
+        return (translucentMask & (1 << section)) != 0;
+    }
+
+    public int getTranslucentFirstIndex() {
+        return starts[SECTION_COUNT];
+    }
+
+    public int getTranslucentIndexCount() {
+        return starts[SECTION_COUNT + 1] - starts[SECTION_COUNT];
+    }
+
+    /**
+     * Null if the mesh has no translucent faces.
+     */
+    public TranslucentQuads getTranslucent() {
+        return translucent;
+    }
+
+    public long getConnectivity(int section) {
+        return connectivity[section];
+    }
+
+    /**
+     * All sections' connectivity, bottom first; shared, do not modify.
+     */
+    public long[] getConnectivity() {
+        return connectivity;
+    }
+
+    public int getNonEmptyCount() {
+        int n = 0;
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            if (!isEmpty(s))
+                n++;
+        }
+        return n;
+    }
+
+    public int getMinY(int section) {
+        return minY[section];
+    }
+
+    public int getMaxY(int section) {
+        return maxY[section];
+    }
+
+    /**
+     * Lowest Y over all non-empty sections, or 0 for an empty mesh.
+     */
+    public int getMinY() {
+        int min = Integer.MAX_VALUE;
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            if (!isEmpty(s))
+                min = Math.min(min, minY[s]);
+        }
+        return min == Integer.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * Highest Y over all non-empty sections, or 0 for an empty mesh.
+     */
+    public int getMaxY() {
+        int max = 0;
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            if (!isEmpty(s))
+                max = Math.max(max, maxY[s]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,204 @@
+package game.voxel.gfx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Finished meshes waiting for GPU upload. Producers (mesh workers) offer results
+ * from any thread; the render thread drains nearest chunks first until a per-frame
+ * time or byte budget is spent. A newer result for the same chunk and LOD replaces
+ * the pending one, and results for chunks that were unloaded are dropped.
+ * The upload itself is a callback, so the policy runs without GL.
+ */
+public class MeshUploadQueue<T> {
+
+    public interface Uploader<T> {
+        void upload(T item);
+    }
+
+    private final LongSupplier clock;
+    private final Map<Long, Entry<T>> pending = new HashMap<>();
+
+    private long uploaded;
+    private long uploadedBytes;
+    private long coalesced;
+    private long dropped;
+    private long lastDrainNanos;
+
+    public MeshUploadQueue() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond time source, replaceable for tests
+     */
+    public MeshUploadQueue(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param key     chunk key (see ChunkManager.getChunkKey)
+     * @param version content version; an older version never replaces a newer one
+     * @param bytes   upload size, used for the byte budget
+     */
+    public synchronized void offer(long key, int cx, int cz, int lod, int version, long bytes, T item) {
+        Entry<T> entry = pending.get(key);
+        if (entry == null) {
+            entry = new Entry<>(cx, cz);
+            pending.put(key, entry);
+        }
+        Slot<T> slot = entry.slots.get(lod);
+        if (slot != null) {
+            coalesced++;
+            if (version - slot.version < 0)
+                return; // keep the newer result already waiting
+        }
+        entry.slots.put(lod, new Slot<>(lod, version, bytes, item));
+    }
+
+    /**
+     * Discards everything pending for a chunk, e.g. when it is unloaded.
+     */
+    public synchronized void evict(long key) {
+        Entry<T> entry = pending.remove(key);
+        if (entry != null)
+            dropped += entry.slots.size();
+    }
+
+    /**
+     * Uploads pending results nearest to (centerX, centerZ) first. At least one result
+     * is uploaded per call so a single oversized mesh can't stall the queue.
+     *
+     * @param budgetMicros stop once this much time was spent uploading
+     * @param budgetBytes  stop once this many bytes were uploaded
+     * @param isLoaded     chunks failing this are dropped instead of uploaded
+     * @return number of results uploaded
+     */
+    public int drain(int centerX, int centerZ, long budgetMicros, long budgetBytes, LongPredicate isLoaded,
+            Uploader<T> uploader) {
+        long start = clock.getAsLong();
+        List<Slot<T>> order = takeOrdered(centerX, centerZ, isLoaded);
+
+        int count = 0;
+        long bytes = 0;
+        int i = 0;
+        for (; i < order.size(); i++) {
+            if (count > 0 && (bytes >= budgetBytes || clock.getAsLong() - start >= budgetMicros * 1000L))
+                break;
+            Slot<T> slot = order.get(i);
+            uploader.upload(slot.item);
+            bytes += slot.bytes;
+            count++;
+        }
+
+        synchronized (this) {
+            // Put back what the budget didn't cover unless a newer result arrived meanwhile
+            for (; i < order.size(); i++) {
+                Slot<T> slot = order.get(i);
+                Entry<T> entry = pending.get(slot.key);
+                if (entry == null) {
+                    entry = new Entry<>(slot.cx, slot.cz);
+                    pending.put(slot.key, entry);
+                }
+                Slot<T> newer = entry.slots.get(slot.lod);
+                if (newer == null || newer.version - slot.version < 0)
+                    entry.slots.put(slot.lod, slot);
+            }
+            uploaded += count;
+            uploadedBytes += bytes;
+            lastDrainNanos = clock.getAsLong() - start;
+        }
+        return count;
+    }
+
+    private synchronized List<Slot<T>> takeOrdered(int centerX, int centerZ, LongPredicate isLoaded) {
+        List<Slot<T>> order = new ArrayList<>();
+        Iterator<Map.Entry<Long, Entry<T>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Entry<T>> e = it.next();
+            Entry<T> entry = e.getValue();
+            it.remove();
+            if (!isLoaded.test(e.getKey())) {
+                dropped += entry.slots.size();
+                continue;
+            }
+            int dx = entry.cx - centerX;
+            int dz = entry.cz - centerZ;
+            int distSq = dx * dx + dz * dz;
+            for (Slot<T> slot : entry.slots.values()) {
+                slot.key = e.getKey();
+                slot.cx = entry.cx;
+                slot.cz = entry.cz;
+                slot.distSq = distSq;
+                order.add(slot);
+            }
+        }
+        // Nearest first; finer LODs first within a chunk since they are the close ones
+        order.sort((a, b) -> a.distSq != b.distSq ? Integer.compare(a.distSq, b.distSq)
+                : Integer.compare(a.lod, b.lod));
+        return order;
+    }
+
+    public synchronized int size() {
+        int n = 0;
+        for (Entry<T> entry : pending.values()) {
+            n += entry.slots.size();
+        }
+        return n;
+    }
+
+    public synchronized long getUploadedCount() {
+        return uploaded;
+    }
+
+    public synchronized long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized double getLastDrainMillis() {
+        return lastDrainNanos / 1e6;
+    }
+
+    private static final class Entry<T> {
+        final int cx;
+        final int cz;
+        final Map<Integer, Slot<T>> slots = new HashMap<>(4);
+
+        Entry(int cx, int cz) {
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+
+    private static final class Slot<T> {
+        final int lod;
+        final int version;
+        final long bytes;
+        final T item;
+        // Filled in while ordering a drain
+        long key;
+        int cx;
+        int cz;
+        int distSq;
+
+        Slot(int lod, int version, long bytes, T item) {
+            this.lod = lod;
+            this.version = version;
+            this.bytes = bytes;
+            this.item = item;
+        }
+    }
+}
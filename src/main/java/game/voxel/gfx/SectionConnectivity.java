@@ -0,0 +1,154 @@
+package game.voxel.gfx;
+
+/**
+ * Which faces of a 16x16x16 section can see each other through non-opaque voxels.
+ * A flood fill labels the open regions of the section; every pair of faces touched
+ * by the same region is connected. The result is a 6x6 bit matrix in the low 36
+ * bits of a long, used by {@link SectionVisibility} to skip sections hidden behind
+ * solid ground.
+ */
+public final class SectionConnectivity {
+
+    public static final int FACE_NEG_X = 0;
+    public static final int FACE_POS_X = 1;
+    public static final int FACE_NEG_Y = 2;
+    public static final int FACE_POS_Y = 3;
+    public static final int FACE_NEG_Z = 4;
+    public static final int FACE_POS_Z = 5;
+    public static final int FACE_COUNT = 6;
+
+    /** Every face sees every other, e.g. an all-air section. */
+    public static final long ALL = (1L << (FACE_COUNT * FACE_COUNT)) - 1;
+    /** Completely solid. */
+    public static final long NONE = 0;
+
+    private static final int SIZE = MeshSections.SECTION_SIZE;
+    private static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private static final class Context {
+        final boolean[] visited = new boolean[VOLUME];
+        final int[] stack = new int[VOLUME];
+    }
+
+    private SectionConnectivity() {
+    }
+
+    public static int opposite(int face) {
+        return face ^ 1;
+    }
+
+    public static boolean isConnected(long connectivity, int from, int to) {
+        return (connectivity >>> (from * FACE_COUNT + to) & 1L) != 0;
+    }
+
+    /**
+     * Flood fills one section of a block id array.
+     *
+     * @param origin  index of the section's (0, 0, 0) voxel in ids
+     * @param opaque  indexed by unsigned block id; true blocks stop the fill
+     */
+    public static long compute(byte[] ids, int origin, int strideX, int strideY, int strideZ, boolean[] opaque) {
+        Context ctx = CONTEXT.get();
+        boolean[] visited = ctx.visited;
+        int[] stack = ctx.stack;
+
+        // Opaque voxels count as visited so the fill never enters them
+        int open = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                int row = origin + x * strideX + y * strideY;
+                int local = (x * SIZE + y) * SIZE;
+                for (int z = 0; z < SIZE; z++) {
+                    boolean solid = opaque[ids[row + z * strideZ] & 0xFF];
+                    visited[local + z] = solid;
+                    if (!solid)
+                        open++;
+                }
+            }
+        }
+        if (open == 0)
+            return NONE;
+        if (open == VOLUME)
+            return ALL;
+
+        long connectivity = NONE;
+        for (int start = 0; start < VOLUME; start++) {
+            if (visited[start])
+                continue;
+            visited[start] = true;
+            int top = 0;
+            stack[top++] = start;
+            int faces = 0;
+            while (top > 0) {
+                int l = stack[--top];
+                int x = l / (SIZE * SIZE);
+                int y = (l / SIZE) % SIZE;
+                int z = l % SIZE;
+                faces |= faceBits(x, y, z);
+                if (x > 0 && !visited[l - SIZE * SIZE]) {
+                    visited[l - SIZE * SIZE] = true;
+                    stack[top++] = l - SIZE * SIZE;
+                }
+                if (x < SIZE - 1 && !visited[l + SIZE * SIZE]) {
+                    visited[l + SIZE * SIZE] = true;
+                    stack[top++] = l + SIZE * SIZE;
+                }
+                if (y > 0 && !visited[l - SIZE]) {
+                    visited[l - SIZE] = true;
+                    stack[top++] = l - SIZE;
+                }
+                if (y < SIZE - 1 && !visited[l + SIZE]) {
+                    visited[l + SIZE] = true;
+                    stack[top++] = l + SIZE;
+                }
+                if (z > 0 && !visited[l - 1]) {
+                    visited[l - 1] = true;
+                    stack[top++] = l - 1;
+                }
+                if (z < SIZE - 1 && !visited[l + 1]) {
+                    visited[l + 1] = true;
+                    stack[top++] = l + 1;
+                }
+            }
+            connectivity |= connect(faces);
+            if (connectivity == ALL)
+                break;
+        }
+        return connectivity;
+    }
+
+    private static int faceBits(int x, int y, int z) {
+        int faces = 0;
+        if (x == 0)
+            faces |= 1 << FACE_NEG_X;
+        if (x == SIZE - 1)
+            faces |= 1 << FACE_POS_X;
+        if (y == 0)
+            faces |= 1 << FACE_NEG_Y;
+        if (y == SIZE - 1)
+            faces |= 1 << FACE_POS_Y;
+        if (z == 0)
+            faces |= 1 << FACE_NEG_Z;
+        if (z == SIZE - 1)
+            faces |= 1 << FACE_POS_Z;
+        return faces;
+    }
+
+    /**
+     * Connectivity with every pair of the given faces (bit per face) connected.
+     */
+    public static long connect(int faces) {
+        long connectivity = NONE;
+        for (int a = 0; a < FACE_COUNT; a++) {
+            if ((faces & (1 << a)) == 0)
+                continue;
+            for (int b = 0; b < FACE_COUNT; b++) {
+                if ((faces & (1 << b)) != 0)
+                    connectivity |= 1L << (a * FACE_COUNT + b);
+            }
+        }
+        return connectivity;
+    }
+}
@@ -0,0 +1,160 @@
+package game.voxel.gfx;
+
+import java.util.Arrays;
+
+import static game.voxel.gfx.SectionConnectivity.FACE_COUNT;
+
+/**
+ * Occlusion culling over the section grid around the camera (the "visibility
+ * graph"). A breadth-first search starts in the camera's section and steps into a
+ * neighbour only if the neighbour is in view and the current section connects the
+ * face it was entered through to the face it leaves through (see
+ * {@link SectionConnectivity}). The search also never turns back against a
+ * direction it already travelled, so it cannot wrap around behind solid ground.
+ * Sections it never reaches are hidden.
+ * <p>
+ * Usage per frame: {@link #begin}, {@link #setColumn} for each chunk with a mesh,
+ * then {@link #compute}; afterwards {@link #getVisibleMask} says which sections of a
+ * chunk were reached. Arrays are reused between frames.
+ */
+public class SectionVisibility {
+
+    private static final int SECTIONS = MeshSections.SECTION_COUNT;
+    private static final int[] DX = { -1, 1, 0, 0, 0, 0 };
+    private static final int[] DY = { 0, 0, -1, 1, 0, 0 };
+    private static final int[] DZ = { 0, 0, 0, 0, -1, 1 };
+
+    /**
+     * Whether a section (chunk x, section y, chunk z) is inside the view frustum.
+     */
+    public interface SectionFilter {
+        boolean test(int cx, int sy, int cz);
+    }
+
+    private int centerX;
+    private int centerZ;
+    private int radius;
+    private int side;
+    // Per column within the radius: connectivity of its 16 sections, null if unknown
+    private long[][] columns = new long[0][];
+    private int[] visibleMasks = new int[0];
+    // BFS queue of packed (column, section, entry face, travelled directions)
+    private int[] queue = new int[0];
+    private int visited;
+
+    /**
+     * Clears the grid for a camera in chunk (centerX, centerZ), covering chunks up to
+     * radius away in x and z.
+     */
+    public void begin(int centerX, int centerZ, int radius) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.side = 2 * radius + 1;
+        int cells = side * side;
+        if (columns.length < cells) {
+            columns = new long[cells][];
+            visibleMasks = new int[cells];
+            queue = new int[cells * SECTIONS];
+        } else {
+            Arrays.fill(columns, 0, cells, null);
+            Arrays.fill(visibleMasks, 0, cells, 0);
+        }
+        visited = 0;
+    }
+
+    /**
+     * @param connectivity per section, {@link MeshSections#SECTION_COUNT} entries;
+     *                     chunks never given are treated as fully open
+     */
+    public void setColumn(int cx, int cz, long[] connectivity) {
+        int column = column(cx, cz);
+        if (column >= 0)
+            columns[column] = connectivity;
+    }
+
+    /**
+     * Runs the search from the camera's section. sy is clamped to the world height so
+     * a camera above or below the world starts from the nearest section.
+     */
+    public void compute(int cameraSy, SectionFilter filter) {
+        int start = column(centerX, centerZ);
+        if (start < 0)
+            return;
+        int sy = Math.max(0, Math.min(SECTIONS - 1, cameraSy));
+
+        int head = 0;
+        int tail = 0;
+        visibleMasks[start] |= 1 << sy;
+        visited++;
+        queue[tail++] = pack(start, sy, FACE_COUNT, 0); // no entry face: every exit allowed
+
+        while (head < tail) {
+            int entry = queue[head++];
+            int column = entry >>> 16;
+            int y = (entry >>> 11) & 0x1F;
+            int entryFace = (entry >>> 6) & 0x7;
+            int travelled = entry & 0x3F;
+            long connectivity = connectivity(column, y);
+            int cx = column % side - radius + centerX;
+            int cz = column / side - radius + centerZ;
+
+            for (int face = 0; face < FACE_COUNT; face++) {
+                // Never step back against a direction already taken
+                if ((travelled & (1 << SectionConnectivity.opposite(face))) != 0)
+                    continue;
+                if (entryFace != FACE_COUNT && !SectionConnectivity.isConnected(connectivity, entryFace, face))
+                    continue;
+                int nx = cx + DX[face];
+                int ny = y + DY[face];
+                int nz = cz + DZ[face];
+                if (ny < 0 || ny >= SECTIONS)
+                    continue;
+                int next = column(nx, nz);
+                if (next < 0 || (visibleMasks[next] & (1 << ny)) != 0)
+                    continue;
+                if (!filter.test(nx, ny, nz))
+                    continue;
+                visibleMasks[next] |= 1 << ny;
+                visited++;
+                queue[tail++] = pack(next, ny, SectionConnectivity.opposite(face), travelled | (1 << face));
+            }
+        }
+    }
+
+    private long connectivity(int column, int sy) {
+        long[] sections = columns[column];
+        return sections != null ? sections[sy] : SectionConnectivity.ALL;
+    }
+
+    private static int pack(int column, int sy, int entryFace, int travelled) {
+        return column << 16 | sy << 11 | entryFace << 6 | travelled;
+    }
+
+    private int column(int cx, int cz) {
+        int x = cx - centerX + radius;
+        int z = cz - centerZ + radius;
+        if (x < 0 || x >= side || z < 0 || z >= side)
+            return -1;
+        return z * side + x;
+    }
+
+    /**
+     * Bit sy is set if section sy of the chunk was reached by the last search.
+     */
+    public int getVisibleMask(int cx, int cz) {
+        int column = column(cx, cz);
+        return column >= 0 ? visibleMasks[column] : 0;
+    }
+
+    public boolean isVisible(int cx, int sy, int cz) {
+        return (getVisibleMask(cx, cz) & (1 << sy)) != 0;
+    }
+
+    /**
+     * Sections reached by the last search.
+     */
+    public int getVisitedCount() {
+        return visited;
+    }
+}
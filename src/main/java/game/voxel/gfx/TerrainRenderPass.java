@@ -29,7 +29,8 @@ public class TerrainRenderPass implements RenderPass {
 
     @Override
     public void render(Window window, float deltaTime) {
-        renderer.renderChunks(window, camera, chunkManager.getChunks().values(), timeSystem, weatherSystem);
+        renderer.renderChunks(window, camera, chunkManager.getChunks().values(), chunkManager.getGeometryArena(),
+                chunkManager.getBlockTexture(), timeSystem, weatherSystem);
     }
 
     @Override
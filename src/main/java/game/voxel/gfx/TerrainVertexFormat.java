@@ -0,0 +1,102 @@
+package game.voxel.gfx;
+
+/**
+ * Packed chunk vertex: two 32-bit words, 8 bytes instead of 32 for the old
+ * position/uv/normal float streams. Decoded in vertex.vs when uPackedVertices is set.
+ *
+ * word0: x (5 bits, 0..16) | y (9 bits, 0..256) | z (5 bits, 0..16)
+ *        | normal index (3 bits) | liquid drop (5 bits, sixteenths of a block lowered, 0..16)
+ * word1: atlas tile index (16 bits, atlasX + atlasY * ATLAS_TILES)
+ */
+public final class TerrainVertexFormat {
+
+    public static final int BYTES_PER_VERTEX = 8;
+    public static final int ATLAS_TILES = 4; // terrain.png is a 4x4 atlas
+
+    public static final int NORMAL_POS_X = 0;
+    public static final int NORMAL_NEG_X = 1;
+    public static final int NORMAL_POS_Y = 2;
+    public static final int NORMAL_NEG_Y = 3;
+    public static final int NORMAL_POS_Z = 4;
+    public static final int NORMAL_NEG_Z = 5;
+
+    private static final int X_SHIFT = 0;
+    private static final int Y_SHIFT = 5;
+    private static final int Z_SHIFT = 14;
+    private static final int NORMAL_SHIFT = 19;
+    private static final int DROP_SHIFT = 22;
+
+    private static final int XZ_MASK = 0x1F;
+    private static final int Y_MASK = 0x1FF;
+    private static final int NORMAL_MASK = 0x7;
+    private static final int DROP_MASK = 0x1F;
+    private static final int TILE_MASK = 0xFFFF;
+
+    private static final float[][] NORMALS = {
+            { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 }
+    };
+
+    private TerrainVertexFormat() {
+    }
+
+    /**
+     * @param axis     0, 1, 2 for x, y, z
+     * @param positive whether the face points along +axis
+     */
+    public static int normalIndex(int axis, boolean positive) {
+        return axis * 2 + (positive ? 0 : 1);
+    }
+
+    public static int packPosition(int x, int y, int z, int normal, int liquidDrop) {
+        if (x < 0 || x > 16 || y < 0 || y > 256 || z < 0 || z > 16 || normal < 0 || normal > 5
+                || liquidDrop < 0 || liquidDrop > 16) {
+            throw new IllegalArgumentException("Vertex out of packable range: " + x + "," + y + "," + z
+                    + " normal=" + normal + " drop=" + liquidDrop);
+        }
+        return (x << X_SHIFT) | (y << Y_SHIFT) | (z << Z_SHIFT) | (normal << NORMAL_SHIFT)
+                | (liquidDrop << DROP_SHIFT);
+    }
+
+    public static int packTexture(int atlasX, int atlasY) {
+        return (atlasX + atlasY * ATLAS_TILES) & TILE_MASK;
+    }
+
+    public static int unpackX(int word0) {
+        return (word0 >>> X_SHIFT) & XZ_MASK;
+    }
+
+    public static int unpackY(int word0) {
+        return (word0 >>> Y_SHIFT) & Y_MASK;
+    }
+
+    public static int unpackZ(int word0) {
+        return (word0 >>> Z_SHIFT) & XZ_MASK;
+    }
+
+    public static int unpackNormal(int word0) {
+        return (word0 >>> NORMAL_SHIFT) & NORMAL_MASK;
+    }
+
+    public static int unpackLiquidDrop(int word0) {
+        return (word0 >>> DROP_SHIFT) & DROP_MASK;
+    }
+
+    /**
+     * Final vertex height as the shader computes it.
+     */
+    public static float decodeY(int word0) {
+        return unpackY(word0) - unpackLiquidDrop(word0) / 16.0f;
+    }
+
+    public static float[] normalVector(int normal) {
+        return NORMALS[normal].clone();
+    }
+
+    public static int unpackAtlasX(int word1) {
+        return (word1 & TILE_MASK) % ATLAS_TILES;
+    }
+
+    public static int unpackAtlasY(int word1) {
+        return (word1 & TILE_MASK) / ATLAS_TILES;
+    }
+}
@@ -0,0 +1,133 @@
+package game.voxel.gfx;
+
+import java.util.Arrays;
+
+/**
+ * CPU copy of a chunk mesh's translucent quads, kept so they can be re-sorted back
+ * to front as the camera moves. A sort only happens when the camera has entered a
+ * different block since the last one. The first sort is a full sort; later ones
+ * start from the previous order and repair it with an insertion sort, which is
+ * close to linear since a one-block move barely changes the order.
+ * Used from the render thread only.
+ */
+public class TranslucentQuads {
+
+    private final int[] indices;
+    // Quad centers in chunk-local half blocks (x2, y2, z2 per quad)
+    private final int[] centers;
+    private final int[] order;
+    private final float[] depth;
+    private final int[] sorted;
+    private boolean everSorted;
+    private int sortedBlockX;
+    private int sortedBlockY;
+    private int sortedBlockZ;
+    private long lastShifts;
+
+    /**
+     * @param indices 6 per quad, in the order the quads were meshed
+     * @param centers 3 per quad, twice the chunk-local quad center
+     */
+    public TranslucentQuads(int[] indices, int[] centers) {
+        this.indices = indices;
+        this.centers = centers;
+        int quads = indices.length / 6;
+        this.order = new int[quads];
+        this.depth = new float[quads];
+        this.sorted = new int[indices.length];
+    }
+
+    public int getQuadCount() {
+        return order.length;
+    }
+
+    /**
+     * Sorts farthest first for a camera at chunk-local (x, y, z) unless the camera is
+     * still in the block of the last sort.
+     *
+     * @return true if the order was recomputed and {@link #getSortedIndices()} changed
+     */
+    public boolean sort(float x, float y, float z) {
+        int bx = (int) Math.floor(x);
+        int by = (int) Math.floor(y);
+        int bz = (int) Math.floor(z);
+        if (everSorted && bx == sortedBlockX && by == sortedBlockY && bz == sortedBlockZ)
+            return false;
+
+        float x2 = 2 * x;
+        float y2 = 2 * y;
+        float z2 = 2 * z;
+        for (int q = 0; q < depth.length; q++) {
+            float dx = centers[q * 3] - x2;
+            float dy = centers[q * 3 + 1] - y2;
+            float dz = centers[q * 3 + 2] - z2;
+            depth[q] = dx * dx + dy * dy + dz * dz;
+        }
+
+        if (!everSorted) {
+            fullSort();
+            lastShifts = 0;
+        } else {
+            lastShifts = insertionSort();
+        }
+        for (int i = 0; i < order.length; i++) {
+            System.arraycopy(indices, order[i] * 6, sorted, i * 6, 6);
+        }
+
+        everSorted = true;
+        sortedBlockX = bx;
+        sortedBlockY = by;
+        sortedBlockZ = bz;
+        return true;
+    }
+
+    private void fullSort() {
+        // Non-negative floats order like their bit patterns; pack depth and quad id
+        long[] keys = new long[order.length];
+        for (int q = 0; q < keys.length; q++) {
+            keys[q] = (long) Float.floatToIntBits(depth[q]) << 32 | q;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[keys.length - 1 - i];
+        }
+    }
+
+    private long insertionSort() {
+        long shifts = 0;
+        for (int i = 1; i < order.length; i++) {
+            int quad = order[i];
+            float d = depth[quad];
+            int j = i - 1;
+            while (j >= 0 && depth[order[j]] < d) {
+                order[j + 1] = order[j];
+                j--;
+                shifts++;
+            }
+            order[j + 1] = quad;
+        }
+        return shifts;
+    }
+
+    /**
+     * Forgets the last sort so the next {@link #sort} runs a full sort, e.g. after the
+     * camera jumped far enough that the old order is no help.
+     */
+    public void invalidate() {
+        everSorted = false;
+    }
+
+    /**
+     * Indices of all quads, farthest first as of the last {@link #sort}; shared.
+     */
+    public int[] getSortedIndices() {
+        return sorted;
+    }
+
+    /**
+     * Element moves done by the last incremental sort.
+     */
+    public long getLastShiftCount() {
+        return lastShifts;
+    }
+}
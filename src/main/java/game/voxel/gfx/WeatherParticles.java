@@ -0,0 +1,140 @@
+package game.voxel.gfx;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Simulation side of {@link WeatherParticleSystem}: rain or snow particles as parallel
+ * float arrays instead of one object per particle. Dead slots go on a free-index stack,
+ * so spawning pops a slot instead of scanning for one. Weather only falls straight
+ * down, so a particle is a position and a fall speed. Nothing here touches GL.
+ */
+public class WeatherParticles {
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final float[] fallSpeed;
+    private final boolean[] alive;
+    private final int[] free;
+    private int freeCount;
+    // No live particle at or above this slot
+    private int highWater;
+    private int liveCount;
+
+    public WeatherParticles(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        fallSpeed = new float[capacity];
+        alive = new boolean[capacity];
+        free = new int[capacity];
+        // Lowest slots on top, so live particles stay packed at the front and the
+        // loops only cover slots up to the highest live one
+        for (int i = 0; i < capacity; i++) {
+            free[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+    }
+
+    /**
+     * Spawns up to count particles in a 40x10x40 box 20 blocks above the camera, then
+     * moves every particle and kills those that fell 10 blocks below the camera.
+     *
+     * @return the number of particles actually spawned, less than count when full
+     */
+    public int update(float deltaTime, float camX, float camY, float camZ, int count, float speed,
+                      Random random) {
+        int spawned = 0;
+        while (spawned < count && freeCount > 0) {
+            int i = free[--freeCount];
+            x[i] = camX + (random.nextFloat() - 0.5f) * 40;
+            y[i] = camY + 20 + random.nextFloat() * 10;
+            z[i] = camZ + (random.nextFloat() - 0.5f) * 40;
+            fallSpeed[i] = speed;
+            alive[i] = true;
+            if (i >= highWater)
+                highWater = i + 1;
+            spawned++;
+        }
+        liveCount += spawned;
+
+        float killY = camY - 10;
+        // Downwards, so the lowest dead slot ends up on top of the free stack
+        for (int i = highWater - 1; i >= 0; i--) {
+            if (!alive[i])
+                continue;
+            float py = y[i] - fallSpeed[i] * deltaTime;
+            y[i] = py;
+            if (py < killY) {
+                alive[i] = false;
+                free[freeCount++] = i;
+                liveCount--;
+            }
+        }
+        while (highWater > 0 && !alive[highWater - 1]) {
+            highWater--;
+        }
+        return spawned;
+    }
+
+    /**
+     * Puts one instance per live particle at the buffer's position in the layout of
+     * {@link engine.raster.InstancedBillboards}: center, size, then colour.
+     *
+     * @return the number of instances written
+     */
+    public int writeInstances(FloatBuffer dst, float size, float r, float g, float b, float a) {
+        int written = 0;
+        for (int i = 0; i < highWater; i++) {
+            if (!alive[i])
+                continue;
+            dst.put(x[i]).put(y[i]).put(z[i]).put(size).put(r).put(g).put(b).put(a);
+            written++;
+        }
+        return written;
+    }
+
+    public void clear() {
+        for (int i = 0; i < highWater; i++) {
+            alive[i] = false;
+        }
+        for (int i = 0; i < free.length; i++) {
+            free[i] = free.length - 1 - i;
+        }
+        freeCount = free.length;
+        highWater = 0;
+        liveCount = 0;
+    }
+
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * One past the highest live slot; every loop stops here.
+     */
+    int getHighWater() {
+        return highWater;
+    }
+
+    public int getCapacity() {
+        return alive.length;
+    }
+
+    public boolean isAlive(int slot) {
+        return alive[slot];
+    }
+
+    public float getX(int slot) {
+        return x[slot];
+    }
+
+    public float getY(int slot) {
+        return y[slot];
+    }
+
+    public float getZ(int slot) {
+        return z[slot];
+    }
+}
@@ -2,19 +2,37 @@ package game.voxel.world;
 
 import java.util.Random;
 
+/**
+ * 2D and 3D simplex noise for one seed. Instances are immutable, so any number of
+ * threads and worlds can sample their own (or a shared) instance at once.
+ * <p>
+ * Besides single samples there are batch methods that fill a row or plane of an
+ * array with exactly the values {@link #eval} returns. Neighbouring samples of a
+ * finely stepped row mostly fall in the same simplex cell, so the batch methods hash
+ * a cell's corners once when the row enters it, instead of walking the permutation
+ * table for every corner of every sample. Any part of the skew that is constant
+ * along the row is summed once.
+ */
 public class SimplexNoise {
 
-    private static SimplexNoise instance;
-    private Grad[] grad3 = {
-            new Grad(1, 1, 0), new Grad(-1, 1, 0), new Grad(1, -1, 0), new Grad(-1, -1, 0),
-            new Grad(1, 0, 1), new Grad(-1, 0, 1), new Grad(1, 0, -1), new Grad(-1, 0, -1),
-            new Grad(0, 1, 1), new Grad(0, -1, 1), new Grad(0, 1, -1), new Grad(0, -1, -1)
-    };
-    private short[] p = new short[256];
-    private short[] perm = new short[512];
-    private short[] permMod12 = new short[512];
+    // Skewing and unskewing factors for 2 and 3 dimensions
+    private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+    private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+    private static final double F3 = 1.0 / 3.0;
+    private static final double G3 = 1.0 / 6.0;
 
-    private SimplexNoise(long seed) {
+    // Gradients to the edge midpoints of a cube, as three parallel arrays
+    private static final double[] GRAD_X = { 1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0 };
+    private static final double[] GRAD_Y = { 1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1 };
+    private static final double[] GRAD_Z = { 0, 0, 0, 0, 1, 1, -1, -1, 1, 1, -1, -1 };
+
+    private final long seed;
+    private final short[] perm = new short[512];
+    private final short[] permMod12 = new short[512];
+
+    public SimplexNoise(long seed) {
+        this.seed = seed;
+        short[] p = new short[256];
         Random rand = new Random(seed);
         for (int i = 0; i < 256; i++) {
             p[i] = (short) i;
@@ -31,161 +49,249 @@ public class SimplexNoise {
         }
     }
 
-    public static void init(long seed) {
-        instance = new SimplexNoise(seed);
+    public long getSeed() {
+        return seed;
+    }
+
+    // --------------------------
+    // Batch sampling
+    // --------------------------
+
+    /**
+     * out[offset + i] = eval(x0 + i * dx, y) for i in 0..count-1.
+     */
+    public void fillRow2D(double[] out, int offset, int count, double x0, double dx, double y) {
+        line2D(out, null, offset, count, x0, y, dx, true);
+    }
+
+    /**
+     * Like {@link #fillRow2D(double[], int, int, double, double, double)} into floats.
+     */
+    public void fillRow2D(float[] out, int offset, int count, double x0, double dx, double y) {
+        line2D(null, out, offset, count, x0, y, dx, true);
+    }
+
+    /**
+     * out[ix * ny + iy] = eval(x0 + ix * dx, y0 + iy * dy) for an nx by ny grid, the
+     * x-major layout of chunk columns.
+     */
+    public void fillPlane2D(double[] out, int nx, int ny, double x0, double dx, double y0, double dy) {
+        for (int ix = 0; ix < nx; ix++) {
+            line2D(out, null, ix * ny, ny, x0 + ix * dx, y0, dy, false);
+        }
+    }
+
+    /**
+     * out[offset + i] = eval(x, y, z0 + i * dz) for i in 0..count-1, a run along z
+     * like the innermost axis of the block id layout.
+     */
+    public void fillRow3D(double[] out, int offset, int count, double x, double y, double z0, double dz) {
+        // (xin + yin + zin) adds left to right, so the sum of x and y is the same every sample
+        double xy = x + y;
+        int[] hash = new int[8];
+        int ci = 0;
+        int cj = 0;
+        int ck = 0;
+        boolean cached = false;
+        for (int n = 0; n < count; n++) {
+            double z = z0 + n * dz;
+            double s = (xy + z) * F3;
+            int i = fastfloor(x + s);
+            int j = fastfloor(y + s);
+            int k = fastfloor(z + s);
+            if (!cached || i != ci || j != cj || k != ck) {
+                hashCorners3D(i, j, k, hash);
+                ci = i;
+                cj = j;
+                ck = k;
+                cached = true;
+            }
+            double t = (i + j + k) * G3;
+            double cx = x - (i - t);
+            double cy = y - (j - t);
+            double cz = z - (k - t);
+            int corners = simplexCorners3D(cx, cy, cz);
+            out[offset + n] = surflets3D(cx, cy, cz, corners, hash[0], hash[corners & 7], hash[corners >> 3],
+                    hash[7]);
+        }
+    }
+
+    /**
+     * A row of 2D samples stepping along x (alongX) or y from (x0, y0), into doubles or
+     * floats, whichever is not null.
+     */
+    private void line2D(double[] doubles, float[] floats, int offset, int count, double x0, double y0,
+            double step, boolean alongX) {
+        int h00 = 0;
+        int h10 = 0;
+        int h01 = 0;
+        int h11 = 0;
+        int ci = 0;
+        int cj = 0;
+        boolean cached = false;
+        for (int n = 0; n < count; n++) {
+            double xin = alongX ? x0 + n * step : x0;
+            double yin = alongX ? y0 : y0 + n * step;
+            double s = (xin + yin) * F2;
+            int i = fastfloor(xin + s);
+            int j = fastfloor(yin + s);
+            if (!cached || i != ci || j != cj) {
+                int ii = i & 255;
+                int jj = j & 255;
+                int pj0 = perm[jj];
+                int pj1 = perm[jj + 1];
+                h00 = permMod12[ii + pj0];
+                h10 = permMod12[ii + 1 + pj0];
+                h01 = permMod12[ii + pj1];
+                h11 = permMod12[ii + 1 + pj1];
+                ci = i;
+                cj = j;
+                cached = true;
+            }
+            double t = (i + j) * G2;
+            double cx = xin - (i - t);
+            double cy = yin - (j - t);
+            int i1 = cx > cy ? 1 : 0;
+            double value = surflets2D(cx, cy, i1, h00, i1 == 1 ? h10 : h01, h11);
+            if (doubles != null) {
+                doubles[offset + n] = value;
+            } else {
+                floats[offset + n] = (float) value;
+            }
+        }
     }
 
-    public static double noise(double xin, double yin) {
-        if (instance == null)
-            init(0);
-        return instance.eval(xin, yin);
+    // Gradient indices of the eight corners of cell (i, j, k), indexed by the corner's
+    // offset as x << 2 | y << 1 | z
+    private void hashCorners3D(int i, int j, int k, int[] hash) {
+        int ii = i & 255;
+        int jj = j & 255;
+        int kk = k & 255;
+        int pk0 = perm[kk];
+        int pk1 = perm[kk + 1];
+        int p00 = perm[jj + pk0];
+        int p01 = perm[jj + pk1];
+        int p10 = perm[jj + 1 + pk0];
+        int p11 = perm[jj + 1 + pk1];
+        hash[0] = permMod12[ii + p00];
+        hash[1] = permMod12[ii + p01];
+        hash[2] = permMod12[ii + p10];
+        hash[3] = permMod12[ii + p11];
+        hash[4] = permMod12[ii + 1 + p00];
+        hash[5] = permMod12[ii + 1 + p01];
+        hash[6] = permMod12[ii + 1 + p10];
+        hash[7] = permMod12[ii + 1 + p11];
     }
 
-    private double eval(double xin, double yin) {
-        double n0, n1, n2; // Noise contributions from the three corners
+    // --------------------------
+    // Single samples
+    // --------------------------
+
+    /**
+     * 2D noise in [-1, 1].
+     */
+    public double eval(double xin, double yin) {
         // Skew the input space to determine which simplex cell we're in
-        final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
         double s = (xin + yin) * F2; // Hairy factor for 2D
         int i = fastfloor(xin + s);
         int j = fastfloor(yin + s);
-        final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
         double t = (i + j) * G2;
-        double X0 = i - t; // Unskew the cell origin back to (x,y) space
-        double Y0 = j - t;
-        double x0 = xin - X0; // The x,y distances from the cell origin
-        double y0 = yin - Y0;
+        double x0 = xin - (i - t); // The x,y distances from the cell origin
+        double y0 = yin - (j - t);
         // For the 2D case, the simplex shape is an equilateral triangle.
-        // Determine which simplex we are in.
-        int i1, j1; // Offsets for second (middle) corner of simplex in (i,j) coords
-        if (x0 > y0) {
-            i1 = 1;
-            j1 = 0;
-        } // lower triangle, XY order: (0,0)->(1,0)->(1,1)
-        else {
-            i1 = 0;
-            j1 = 1;
-        } // upper triangle, YX order: (0,0)->(0,1)->(1,1)
-          // A step of (1,0) in (i,j) means a step of (1-c,-c) in (x,y), and
-          // a step of (0,1) in (i,j) means a step of (-c,1-c) in (x,y), where
-          // c = (3-sqrt(3))/6
-        double x1 = x0 - i1 + G2; // Offsets for middle corner in (x,y) unskewed coords
-        double y1 = y0 - j1 + G2;
-        double x2 = x0 - 1.0 + 2.0 * G2; // Offsets for last corner in (x,y) unskewed coords
-        double y2 = y0 - 1.0 + 2.0 * G2;
+        // Lower triangle, XY order: (0,0)->(1,0)->(1,1), else upper triangle, YX order
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
         // Work out the hashed gradient indices of the three simplex corners
         int ii = i & 255;
         int jj = j & 255;
         int gi0 = permMod12[ii + perm[jj]];
         int gi1 = permMod12[ii + i1 + perm[jj + j1]];
         int gi2 = permMod12[ii + 1 + perm[jj + 1]];
-        // Calculate the contribution from the three corners
-        double t0 = 0.5 - x0 * x0 - y0 * y0;
-        if (t0 < 0) {
-            n0 = 0.0;
-        } else {
-            t0 *= t0;
-            n0 = t0 * t0 * dot(grad3[gi0], x0, y0);
-        }
-        double t1 = 0.5 - x1 * x1 - y1 * y1;
-        if (t1 < 0) {
-            n1 = 0.0;
-        } else {
-            t1 *= t1;
-            n1 = t1 * t1 * dot(grad3[gi1], x1, y1);
-        }
-        double t2 = 0.5 - x2 * x2 - y2 * y2;
-        if (t2 < 0) {
-            n2 = 0.0;
-        } else {
-            t2 *= t2;
-            n2 = t2 * t2 * dot(grad3[gi2], x2, y2);
-        }
+        return surflets2D(x0, y0, i1, gi0, gi1, gi2);
+    }
+
+    /**
+     * Sum of the three corner contributions, given the offset (x0, y0) from the cell
+     * origin, whether the middle corner is (1, 0) rather than (0, 1), and the corners'
+     * gradient indices.
+     */
+    private static double surflets2D(double x0, double y0, int i1, int gi0, int gi1, int gi2) {
+        int j1 = 1 - i1;
+        double x1 = x0 - i1 + G2; // Offsets for middle corner in (x,y) unskewed coords
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 - 1.0 + 2.0 * G2; // Offsets for last corner in (x,y) unskewed coords
+        double y2 = y0 - 1.0 + 2.0 * G2;
+        // Contribution from each corner, zero outside its radius
+        double n0 = corner(0.5 - x0 * x0 - y0 * y0, GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0);
+        double n1 = corner(0.5 - x1 * x1 - y1 * y1, GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1);
+        double n2 = corner(0.5 - x2 * x2 - y2 * y2, GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2);
         // Add contributions from each corner to get the final noise value.
         // The result is scaled to return values in the interval [-1,1].
         return 70.0 * (n0 + n1 + n2);
     }
 
-    public static double noise(double xin, double yin, double zin) {
-        if (instance == null)
-            init(0);
-        return instance.eval(xin, yin, zin);
-    }
-
-    private double eval(double xin, double yin, double zin) {
-        double n0, n1, n2, n3; // Noise contributions from the four corners
-
+    /**
+     * 3D noise, just inside [-1, 1].
+     */
+    public double eval(double xin, double yin, double zin) {
         // Skew the input space to determine which simplex cell we're in
-        final double F3 = 1.0 / 3.0;
         double s = (xin + yin + zin) * F3;
         int i = fastfloor(xin + s);
         int j = fastfloor(yin + s);
         int k = fastfloor(zin + s);
-
-        final double G3 = 1.0 / 6.0;
         double t = (i + j + k) * G3;
-        double X0 = i - t; // Unskew the cell origin back to (x,y,z) space
-        double Y0 = j - t;
-        double Z0 = k - t;
-        double x0 = xin - X0; // The x,y,z distances from the cell origin
-        double y0 = yin - Y0;
-        double z0 = zin - Z0;
+        double x0 = xin - (i - t); // The x,y,z distances from the cell origin
+        double y0 = yin - (j - t);
+        double z0 = zin - (k - t);
+
+        int corners = simplexCorners3D(x0, y0, z0);
+        int c1 = corners & 7;
+        int c2 = corners >> 3;
 
-        // For the 3D case, the simplex shape is a slightly irregular tetrahedron.
-        // Determine which simplex we are in.
-        int i1, j1, k1; // Offsets for second corner of simplex in (i,j,k) coords
-        int i2, j2, k2; // Offsets for third corner of simplex in (i,j,k) coords
+        // Work out the hashed gradient indices of the four simplex corners
+        int ii = i & 255;
+        int jj = j & 255;
+        int kk = k & 255;
+        int gi0 = permMod12[ii + perm[jj + perm[kk]]];
+        int gi1 = permMod12[ii + (c1 >> 2) + perm[jj + (c1 >> 1 & 1) + perm[kk + (c1 & 1)]]];
+        int gi2 = permMod12[ii + (c2 >> 2) + perm[jj + (c2 >> 1 & 1) + perm[kk + (c2 & 1)]]];
+        int gi3 = permMod12[ii + 1 + perm[jj + 1 + perm[kk + 1]]];
+        return surflets3D(x0, y0, z0, corners, gi0, gi1, gi2, gi3);
+    }
 
+    /**
+     * For the 3D case, the simplex shape is a slightly irregular tetrahedron. Returns
+     * its second and third corners as offsets x << 2 | y << 1 | z, the second in the low
+     * three bits and the third above them.
+     */
+    private static int simplexCorners3D(double x0, double y0, double z0) {
         if (x0 >= y0) {
-            if (y0 >= z0) {
-                i1 = 1;
-                j1 = 0;
-                k1 = 0;
-                i2 = 1;
-                j2 = 1;
-                k2 = 0;
-            } // X Y Z order
-            else if (x0 >= z0) {
-                i1 = 1;
-                j1 = 0;
-                k1 = 0;
-                i2 = 1;
-                j2 = 0;
-                k2 = 1;
-            } // X Z Y order
-            else {
-                i1 = 0;
-                j1 = 0;
-                k1 = 1;
-                i2 = 1;
-                j2 = 0;
-                k2 = 1;
-            } // Z X Y order
-        } else { // x0 < y0
-            if (y0 < z0) {
-                i1 = 0;
-                j1 = 0;
-                k1 = 1;
-                i2 = 0;
-                j2 = 1;
-                k2 = 1;
-            } // Z Y X order
-            else if (x0 < z0) {
-                i1 = 0;
-                j1 = 1;
-                k1 = 0;
-                i2 = 0;
-                j2 = 1;
-                k2 = 1;
-            } // Y Z X order
-            else {
-                i1 = 0;
-                j1 = 1;
-                k1 = 0;
-                i2 = 1;
-                j2 = 1;
-                k2 = 0;
-            } // Y X Z order
+            if (y0 >= z0)
+                return 4 | 6 << 3; // X Y Z order
+            if (x0 >= z0)
+                return 4 | 5 << 3; // X Z Y order
+            return 1 | 5 << 3; // Z X Y order
         }
+        if (y0 < z0)
+            return 1 | 3 << 3; // Z Y X order
+        if (x0 < z0)
+            return 2 | 3 << 3; // Y Z X order
+        return 2 | 6 << 3; // Y X Z order
+    }
+
+    /**
+     * Sum of the four corner contributions, given the offset (x0, y0, z0) from the cell
+     * origin, the corners from {@link #simplexCorners3D} and their gradient indices.
+     */
+    private static double surflets3D(double x0, double y0, double z0, int corners, int gi0, int gi1, int gi2,
+            int gi3) {
+        int i1 = corners >> 2 & 1;
+        int j1 = corners >> 1 & 1;
+        int k1 = corners & 1;
+        int i2 = corners >> 5 & 1;
+        int j2 = corners >> 4 & 1;
+        int k2 = corners >> 3 & 1;
 
         // A step of (1,0,0) in (i,j,k) means a step of (1-c,-c,-c) in (x,y,z),
         // a step of (0,1,0) in (i,j,k) means a step of (-c,1-c,-c) in (x,y,z), and
@@ -201,70 +307,31 @@ public class SimplexNoise {
         double y3 = y0 - 1.0 + 3.0 * G3;
         double z3 = z0 - 1.0 + 3.0 * G3;
 
-        // Work out the hashed gradient indices of the four simplex corners
-        int ii = i & 255;
-        int jj = j & 255;
-        int kk = k & 255;
-        int gi0 = permMod12[ii + perm[jj + perm[kk]]];
-        int gi1 = permMod12[ii + i1 + perm[jj + j1 + perm[kk + k1]]];
-        int gi2 = permMod12[ii + i2 + perm[jj + j2 + perm[kk + k2]]];
-        int gi3 = permMod12[ii + 1 + perm[jj + 1 + perm[kk + 1]]];
-
-        // Calculate the contribution from the four corners
-        double t0 = 0.6 - x0 * x0 - y0 * y0 - z0 * z0;
-        if (t0 < 0)
-            n0 = 0.0;
-        else {
-            t0 *= t0;
-            n0 = t0 * t0 * dot(grad3[gi0], x0, y0, z0);
-        }
-        double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
-        if (t1 < 0)
-            n1 = 0.0;
-        else {
-            t1 *= t1;
-            n1 = t1 * t1 * dot(grad3[gi1], x1, y1, z1);
-        }
-        double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
-        if (t2 < 0)
-            n2 = 0.0;
-        else {
-            t2 *= t2;
-            n2 = t2 * t2 * dot(grad3[gi2], x2, y2, z2);
-        }
-        double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
-        if (t3 < 0)
-            n3 = 0.0;
-        else {
-            t3 *= t3;
-            n3 = t3 * t3 * dot(grad3[gi3], x3, y3, z3);
-        }
+        // Contribution from each corner, zero outside its radius
+        double n0 = corner(0.6 - x0 * x0 - y0 * y0 - z0 * z0,
+                GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0 + GRAD_Z[gi0] * z0);
+        double n1 = corner(0.6 - x1 * x1 - y1 * y1 - z1 * z1,
+                GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1 + GRAD_Z[gi1] * z1);
+        double n2 = corner(0.6 - x2 * x2 - y2 * y2 - z2 * z2,
+                GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2 + GRAD_Z[gi2] * z2);
+        double n3 = corner(0.6 - x3 * x3 - y3 * y3 - z3 * z3,
+                GRAD_X[gi3] * x3 + GRAD_Y[gi3] * y3 + GRAD_Z[gi3] * z3);
 
         // Add contributions from each corner to get the final noise value.
         // The result is scaled to stay just inside [-1,1]
         return 32.0 * (n0 + n1 + n2 + n3);
     }
 
-    private double dot(Grad g, double x, double y, double z) {
-        return g.x * x + g.y * y + g.z * z;
+    // t^4 * dot inside the corner's radius (t > 0), else 0
+    private static double corner(double t, double dot) {
+        if (t < 0)
+            return 0.0;
+        t *= t;
+        return t * t * dot;
     }
 
-    private int fastfloor(double x) {
+    private static int fastfloor(double x) {
         int xi = (int) x;
         return x < xi ? xi - 1 : xi;
     }
-
-    private double dot(Grad g, double x, double y) {
-        return g.x * x + g.y * y;
-    }
-
-    private static class Grad {
-        double x, y, z;
-
-        Grad(double x, double y, double z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
-    }
 }
@@ -2,21 +2,107 @@ package game.voxel.world.gen;
 
 import game.voxel.world.gen.biomes.*;
 
+/**
+ * Picks the biome of a column from its climate. {@link #getBiome} applies the
+ * thresholds one by one; {@link #lookupBiomeId} reads a table quantized to
+ * {@link #TEMPERATURE_STEPS} x {@link #HUMIDITY_STEPS} x {@link #CONTINENTALNESS_STEPS}
+ * x {@link #EROSION_STEPS} cells. The steps put every threshold on a cell edge, so
+ * both agree (building the table fails otherwise; refine the steps along with new
+ * thresholds). The thresholds do not depend on the seed, so the table is built once
+ * per process.
+ */
 public class BiomeSystem {
 
+    // Temperature and humidity thresholds are multiples of 0.05 in 0..1
+    public static final int TEMPERATURE_STEPS = 20;
+    public static final int HUMIDITY_STEPS = 20;
+    // Continentalness and erosion thresholds are multiples of 0.25 in -1..1
+    public static final int CONTINENTALNESS_STEPS = 8;
+    public static final int EROSION_STEPS = 8;
+
+    // [temperature][humidity][continentalness][erosion]
+    private static final byte[] TABLE = buildTable();
+
     public static Biome getBiome(double temp, double humid, double cont, double erosion) {
         if (cont < 0)
-            return new OceanBiome();
+            return Biomes.OCEAN;
         if (erosion < -0.5 && cont > 0.5)
-            return new MountainBiome();
+            return Biomes.MOUNTAIN;
 
         if (temp > 0.6 && humid < 0.4)
-            return new DesertBiome();
+            return Biomes.DESERT;
         if (temp < 0.4 && humid > 0.5)
-            return new TaigaBiome();
+            return Biomes.TAIGA;
         if (temp > 0.4 && humid > 0.4)
-            return new ForestBiome();
+            return Biomes.FOREST;
+
+        return Biomes.PLAINS;
+    }
+
+    /**
+     * Table lookup of the biome id, temperature and humidity in 0..1 and
+     * continentalness and erosion in -1..1 (clamped). Same as {@link #getBiome}:
+     * values that land exactly on a cell edge, where a threshold may sit or rounding
+     * may have pushed a value from the other side, go through it instead.
+     */
+    public static int lookupBiomeId(double temp, double humid, double cont, double erosion) {
+        double ts = temp * TEMPERATURE_STEPS;
+        double hs = humid * HUMIDITY_STEPS;
+        double cs = (cont + 1.0) * 0.5 * CONTINENTALNESS_STEPS;
+        double es = (erosion + 1.0) * 0.5 * EROSION_STEPS;
+        int t = (int) ts;
+        int h = (int) hs;
+        int c = (int) cs;
+        int e = (int) es;
+        if (t == ts || h == hs || c == cs || e == es)
+            return getBiome(temp, humid, cont, erosion).getId();
+        t = clamp(t, TEMPERATURE_STEPS);
+        h = clamp(h, HUMIDITY_STEPS);
+        c = clamp(c, CONTINENTALNESS_STEPS);
+        e = clamp(e, EROSION_STEPS);
+        return TABLE[((t * HUMIDITY_STEPS + h) * CONTINENTALNESS_STEPS + c) * EROSION_STEPS + e];
+    }
+
+    private static int clamp(int cell, int steps) {
+        return cell < 0 ? 0 : cell >= steps ? steps - 1 : cell;
+    }
+
+    private static byte[] buildTable() {
+        byte[] table = new byte[TEMPERATURE_STEPS * HUMIDITY_STEPS * CONTINENTALNESS_STEPS * EROSION_STEPS];
+        int i = 0;
+        for (int t = 0; t < TEMPERATURE_STEPS; t++) {
+            for (int h = 0; h < HUMIDITY_STEPS; h++) {
+                for (int c = 0; c < CONTINENTALNESS_STEPS; c++) {
+                    for (int e = 0; e < EROSION_STEPS; e++) {
+                        table[i++] = (byte) classifyCell(t, h, c, e);
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * The biome of a cell, checked to be the same just inside each of its corners.
+     */
+    private static int classifyCell(int t, int h, int c, int e) {
+        int id = -1;
+        for (int corner = 0; corner < 16; corner++) {
+            double temp = cellPoint(t, corner & 1, TEMPERATURE_STEPS);
+            double humid = cellPoint(h, corner >> 1 & 1, HUMIDITY_STEPS);
+            double cont = cellPoint(c, corner >> 2 & 1, CONTINENTALNESS_STEPS) * 2.0 - 1.0;
+            double erosion = cellPoint(e, corner >> 3 & 1, EROSION_STEPS) * 2.0 - 1.0;
+            int biome = getBiome(temp, humid, cont, erosion).getId();
+            if (id >= 0 && biome != id)
+                throw new IllegalStateException("A biome threshold crosses table cell " + t + "," + h + "," + c
+                        + "," + e);
+            id = biome;
+        }
+        return id;
+    }
 
-        return new PlainsBiome();
+    // Fraction of the axis just inside the low (high = 0) or high edge of a cell
+    private static double cellPoint(int cell, int high, int steps) {
+        return (cell + (high == 0 ? 1e-6 : 1 - 1e-6)) / steps;
     }
 }
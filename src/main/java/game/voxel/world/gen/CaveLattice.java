@@ -0,0 +1,60 @@
+package game.voxel.world.gen;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+
+/**
+ * The cave noise of one chunk, evaluated every {@link #STEP} blocks on each axis and
+ * interpolated trilinearly. The lattice includes x = 16 and z = 16, which are the
+ * first lattice points of the next chunks, so caves line up across chunk borders.
+ */
+final class CaveLattice {
+
+    static final int STEP = 4;
+    static final double FREQUENCY = 0.02;
+    private static final int NX = Chunk.SIZE_X / STEP + 1;
+    private static final int NZ = Chunk.SIZE_Z / STEP + 1;
+    private static final int NY = Chunk.SIZE_Y / STEP + 1;
+
+    // [x][y][z] like the block ids
+    private final double[] values = new double[NX * NY * NZ];
+
+    /**
+     * Samples the lattice for y up to at least maxY.
+     */
+    void fill(SimplexNoise noise, int chunkX, int chunkZ, int maxY) {
+        int layers = Math.min(NY, maxY / STEP + 2);
+        double baseX = (double) chunkX * Chunk.SIZE_X;
+        double baseZ = (double) chunkZ * Chunk.SIZE_Z;
+        for (int ix = 0; ix < NX; ix++) {
+            double x = (baseX + ix * STEP) * FREQUENCY;
+            for (int iy = 0; iy < layers; iy++) {
+                noise.fillRow3D(values, (ix * NY + iy) * NZ, NZ, x, iy * STEP * FREQUENCY, baseZ * FREQUENCY,
+                        STEP * FREQUENCY);
+            }
+        }
+    }
+
+    /**
+     * Interpolated noise at a chunk-local block, y no higher than the last fill's maxY.
+     */
+    double sample(int x, int y, int z) {
+        int ix = x / STEP;
+        int iy = y / STEP;
+        int iz = z / STEP;
+        double fx = (double) (x % STEP) / STEP;
+        double fy = (double) (y % STEP) / STEP;
+        double fz = (double) (z % STEP) / STEP;
+        int i000 = (ix * NY + iy) * NZ + iz;
+        int i100 = i000 + NY * NZ;
+        double c00 = lerp(values[i000], values[i000 + 1], fz);
+        double c01 = lerp(values[i000 + NZ], values[i000 + NZ + 1], fz);
+        double c10 = lerp(values[i100], values[i100 + 1], fz);
+        double c11 = lerp(values[i100 + NZ], values[i100 + NZ + 1], fz);
+        return lerp(lerp(c00, c01, fy), lerp(c10, c11, fy), fx);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
@@ -0,0 +1,80 @@
+package game.voxel.world.gen;
+
+import game.voxel.Block;
+import game.voxel.Chunk;
+
+import java.util.Arrays;
+
+/**
+ * Block writes of one chunk's decoration, kept per target chunk instead of going into
+ * the world. Coordinates are local to the decorated chunk and may reach into its eight
+ * neighbours (x and z in -16..31). {@link GenerationPipeline} applies every buffer
+ * aimed at a chunk before that chunk is handed out.
+ */
+public final class DecorationBuffer {
+
+    // Packed writes: index << 9 | onlyIntoAir << 8 | block id
+    private static final int IF_AIR = 1 << 8;
+
+    private final int[][] writes = new int[9][];
+    private final int[] counts = new int[9];
+
+    public void setBlock(int x, int y, int z, Block block) {
+        add(x, y, z, block.getId());
+    }
+
+    /**
+     * Sets the block only where the target is air once everything before it has been
+     * applied, e.g. leaves that must not replace trunks or terrain.
+     */
+    public void setBlockIfAir(int x, int y, int z, Block block) {
+        add(x, y, z, IF_AIR | block.getId());
+    }
+
+    private void add(int x, int y, int z, int value) {
+        if (y < 0 || y >= Chunk.SIZE_Y)
+            return;
+        int dx = Math.floorDiv(x, Chunk.SIZE_X);
+        int dz = Math.floorDiv(z, Chunk.SIZE_Z);
+        if (dx < -1 || dx > 1 || dz < -1 || dz > 1)
+            throw new IllegalArgumentException("Decoration at " + x + ", " + z + " reaches past the neighbours");
+        int target = slot(dx, dz);
+        int[] list = writes[target];
+        if (list == null) {
+            list = new int[64];
+            writes[target] = list;
+        } else if (counts[target] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            writes[target] = list;
+        }
+        int index = Chunk.index(x - dx * Chunk.SIZE_X, y, z - dz * Chunk.SIZE_Z);
+        list[counts[target]++] = index << 9 | value;
+    }
+
+    /**
+     * Number of writes aimed at the neighbour (dx, dz), or this chunk for (0, 0).
+     */
+    public int getWriteCount(int dx, int dz) {
+        return counts[slot(dx, dz)];
+    }
+
+    /**
+     * Applies the writes aimed at the neighbour (dx, dz) to its block ids, in the
+     * order they were made.
+     */
+    void applyTo(int dx, int dz, byte[] ids) {
+        int target = slot(dx, dz);
+        int[] list = writes[target];
+        for (int i = 0; i < counts[target]; i++) {
+            int write = list[i];
+            int index = write >>> 9;
+            if ((write & IF_AIR) != 0 && ids[index] != 0)
+                continue;
+            ids[index] = (byte) write;
+        }
+    }
+
+    private static int slot(int dx, int dz) {
+        return (dz + 1) * 3 + dx + 1;
+    }
+}
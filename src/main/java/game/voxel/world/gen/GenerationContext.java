@@ -0,0 +1,224 @@
+package game.voxel.world.gen;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Noise state shared by all chunks of one world. The low-frequency fields
+ * (continentalness, erosion, temperature, humidity) vary over hundreds of blocks, so
+ * instead of evaluating their octaves per column they are sampled every
+ * {@link #CLIMATE_STEP} blocks into a {@link ClimateMap} per region of
+ * {@link #CLIMATE_REGION_CHUNKS}x{@link #CLIMATE_REGION_CHUNKS} chunks and read back
+ * with bilinear interpolation. Recently used maps are kept in a small LRU, so the
+ * chunks of a region share one. Every field is sampled from this context's
+ * {@link SimplexNoise}, so contexts of different seeds can generate side by side.
+ * Thread-safe.
+ */
+public class GenerationContext {
+
+    public static final int CLIMATE_STEP = 8;
+    public static final int CLIMATE_REGION_CHUNKS = 8;
+    private static final int REGION_BLOCKS = CLIMATE_REGION_CHUNKS * Chunk.SIZE_X;
+    // Grid points per side, including the far edge shared with the next region
+    private static final int GRID = REGION_BLOCKS / CLIMATE_STEP + 1;
+    private static final int DEFAULT_MAX_MAPS = 64;
+
+    private final SimplexNoise noise;
+    private final Map<Long, ClimateMap> maps;
+    private long hits;
+    private long misses;
+
+    public GenerationContext(SimplexNoise noise) {
+        this(noise, DEFAULT_MAX_MAPS);
+    }
+
+    public GenerationContext(SimplexNoise noise, int maxMaps) {
+        this.noise = noise;
+        this.maps = new LinkedHashMap<Long, ClimateMap>(maxMaps * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ClimateMap> eldest) {
+                return size() > maxMaps;
+            }
+        };
+    }
+
+    /**
+     * The climate map of a region, computed on a miss. Two threads missing the same
+     * region at once both compute it; the results are identical.
+     */
+    public ClimateMap getClimateMap(int regionX, int regionZ) {
+        long key = (long) regionX << 32 | regionZ & 0xFFFFFFFFL;
+        synchronized (maps) {
+            ClimateMap map = maps.get(key);
+            if (map != null) {
+                hits++;
+                return map;
+            }
+            misses++;
+        }
+        ClimateMap map = new ClimateMap(this, regionX, regionZ);
+        synchronized (maps) {
+            ClimateMap raced = maps.putIfAbsent(key, map);
+            return raced != null ? raced : map;
+        }
+    }
+
+    /**
+     * Fills out with the interpolated low-frequency fields of every column of a chunk.
+     */
+    public void sampleClimate(int chunkX, int chunkZ, ChunkClimate out) {
+        ClimateMap map = getClimateMap(Math.floorDiv(chunkX, CLIMATE_REGION_CHUNKS),
+                Math.floorDiv(chunkZ, CLIMATE_REGION_CHUNKS));
+        int originX = Math.floorMod(chunkX, CLIMATE_REGION_CHUNKS) * Chunk.SIZE_X;
+        int originZ = Math.floorMod(chunkZ, CLIMATE_REGION_CHUNKS) * Chunk.SIZE_Z;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            int lx = originX + x;
+            int gx = lx / CLIMATE_STEP;
+            double fx = (double) (lx % CLIMATE_STEP) / CLIMATE_STEP;
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int lz = originZ + z;
+                int gz = lz / CLIMATE_STEP;
+                double fz = (double) (lz % CLIMATE_STEP) / CLIMATE_STEP;
+                int column = x * Chunk.SIZE_Z + z;
+                out.continentalness[column] = bilinear(map.continentalness, gx, gz, fx, fz);
+                out.erosion[column] = bilinear(map.erosion, gx, gz, fx, fz);
+                out.temperature[column] = bilinear(map.temperature, gx, gz, fx, fz);
+                out.humidity[column] = bilinear(map.humidity, gx, gz, fx, fz);
+            }
+        }
+    }
+
+    private static double bilinear(double[] grid, int gx, int gz, double fx, double fz) {
+        int i = gx * GRID + gz;
+        double a = grid[i] + (grid[i + 1] - grid[i]) * fz;
+        double b = grid[i + GRID] + (grid[i + GRID + 1] - grid[i + GRID]) * fz;
+        return a + (b - a) * fx;
+    }
+
+    public SimplexNoise getNoise() {
+        return noise;
+    }
+
+    public long getHits() {
+        synchronized (maps) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (maps) {
+            return misses;
+        }
+    }
+
+    // --------------------------
+    // Exact fields, also used to build the climate maps
+    // --------------------------
+
+    /**
+     * Large scale oceans vs land, -1..1.
+     */
+    public double continentalness(double x, double z) {
+        return fbm(x, z, 2000.0, 3, 0.5);
+    }
+
+    /**
+     * Large scale mountains vs flat, -1..1.
+     */
+    public double erosion(double x, double z) {
+        return fbm(x + 5000, z + 5000, 1000.0, 3, 0.5);
+    }
+
+    /**
+     * 0..1.
+     */
+    public double temperature(double x, double z) {
+        return (fbm(x, z, 1000.0, 2, 0.5) + 1.0) * 0.5;
+    }
+
+    /**
+     * 0..1.
+     */
+    public double humidity(double x, double z) {
+        return (fbm(x + 1234, z + 2341, 1000.0, 2, 0.5) + 1.0) * 0.5;
+    }
+
+    double fbm(double x, double z, double scale, int octaves, double persistence) {
+        double total = 0;
+        double frequency = 1.0 / scale;
+        double amplitude = 1.0;
+        double maxValue = 0;
+        for (int i = 0; i < octaves; i++) {
+            total += noise.eval(x * frequency, z * frequency) * amplitude;
+            maxValue += amplitude;
+            amplitude *= persistence;
+            frequency *= 2;
+        }
+        return total / maxValue;
+    }
+
+    /**
+     * {@link #fbm} over an nx by nz grid with spacing step from (x0, z0), x-major.
+     *
+     * @param octave scratch of at least nx * nz
+     */
+    void fbmPlane(double[] out, double[] octave, int nx, int nz, double x0, double z0, double step, double scale,
+                  int octaves, double persistence) {
+        int n = nx * nz;
+        Arrays.fill(out, 0, n, 0.0);
+        double frequency = 1.0 / scale;
+        double amplitude = 1.0;
+        double maxValue = 0;
+        for (int i = 0; i < octaves; i++) {
+            noise.fillPlane2D(octave, nx, nz, x0 * frequency, step * frequency, z0 * frequency, step * frequency);
+            for (int j = 0; j < n; j++) {
+                out[j] += octave[j] * amplitude;
+            }
+            maxValue += amplitude;
+            amplitude *= persistence;
+            frequency *= 2;
+        }
+        for (int j = 0; j < n; j++) {
+            out[j] /= maxValue;
+        }
+    }
+
+    /**
+     * The low-frequency fields sampled on a {@link #CLIMATE_STEP} grid over one region.
+     */
+    public static final class ClimateMap {
+        final double[] continentalness = new double[GRID * GRID];
+        final double[] erosion = new double[GRID * GRID];
+        final double[] temperature = new double[GRID * GRID];
+        final double[] humidity = new double[GRID * GRID];
+
+        ClimateMap(GenerationContext context, int regionX, int regionZ) {
+            double x = (double) regionX * REGION_BLOCKS;
+            double z = (double) regionZ * REGION_BLOCKS;
+            double[] octave = new double[GRID * GRID];
+            // Same fields as the exact methods above, a plane per octave
+            context.fbmPlane(continentalness, octave, GRID, GRID, x, z, CLIMATE_STEP, 2000.0, 3, 0.5);
+            context.fbmPlane(erosion, octave, GRID, GRID, x + 5000, z + 5000, CLIMATE_STEP, 1000.0, 3, 0.5);
+            context.fbmPlane(temperature, octave, GRID, GRID, x, z, CLIMATE_STEP, 1000.0, 2, 0.5);
+            context.fbmPlane(humidity, octave, GRID, GRID, x + 1234, z + 2341, CLIMATE_STEP, 1000.0, 2, 0.5);
+            for (int i = 0; i < GRID * GRID; i++) {
+                temperature[i] = (temperature[i] + 1.0) * 0.5;
+                humidity[i] = (humidity[i] + 1.0) * 0.5;
+            }
+        }
+    }
+
+    /**
+     * Low-frequency fields per column of one chunk, indexed x * SIZE_Z + z.
+     */
+    public static final class ChunkClimate {
+        public final double[] continentalness = new double[Chunk.SIZE_X * Chunk.SIZE_Z];
+        public final double[] erosion = new double[Chunk.SIZE_X * Chunk.SIZE_Z];
+        public final double[] temperature = new double[Chunk.SIZE_X * Chunk.SIZE_Z];
+        public final double[] humidity = new double[Chunk.SIZE_X * Chunk.SIZE_Z];
+    }
+}
@@ -0,0 +1,204 @@
+package game.voxel.world.gen;
+
+import game.voxel.Chunk;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates complete chunks in stages over a cache of unfinished proto chunks. A
+ * proto chunk is shaped, then surfaced, then decorated; decoration waits until the
+ * 3x3 neighbourhood is surfaced, and its writes are buffered per target chunk. A
+ * chunk is handed out once its whole 3x3 neighbourhood is decorated, with every
+ * buffer aimed at it applied in a fixed order.
+ * <p>
+ * Each stage only reads its own proto chunk and its result is a function of the seed
+ * alone, so the output is the same for any number of threads and any load order. A
+ * proto chunk dropped from the cache is simply generated again. Thread-safe; workers
+ * asking for neighbouring chunks share the proto chunks between them.
+ */
+public class GenerationPipeline {
+
+    public enum Stage {
+        SHAPED(0),
+        SURFACED(0),
+        DECORATED(1);
+
+        // Chebyshev radius of chunks that must have reached the previous stage
+        final int radius;
+
+        Stage(int radius) {
+            this.radius = radius;
+        }
+    }
+
+    private static final int DEFAULT_MAX_PROTO_CHUNKS = 1024;
+
+    private final TerrainGenerator generator;
+    private final Map<Long, ProtoChunk> protoChunks;
+    private final AtomicInteger stagesRun = new AtomicInteger();
+
+    public GenerationPipeline(TerrainGenerator generator) {
+        this(generator, DEFAULT_MAX_PROTO_CHUNKS);
+    }
+
+    /**
+     * @param maxProtoChunks proto chunks kept for neighbours still to come; generating
+     *                       one chunk touches the 5x5 around it
+     */
+    public GenerationPipeline(TerrainGenerator generator, int maxProtoChunks) {
+        this.generator = generator;
+        this.protoChunks = new LinkedHashMap<Long, ProtoChunk>(maxProtoChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProtoChunk> eldest) {
+                return size() > maxProtoChunks;
+            }
+        };
+    }
+
+    public TerrainGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * The finished chunk at (chunkX, chunkZ), trees from the neighbours included.
+     * Blocks the calling thread while missing stages of the 5x5 around it run.
+     */
+    public Chunk generate(int chunkX, int chunkZ) {
+        Chunk chunk = new Chunk(chunkX, chunkZ);
+        byte[] biomes = new byte[Chunk.COLUMNS];
+        chunk.setBlockIds(generateIds(chunkX, chunkZ, biomes));
+        chunk.setBiomeIds(biomes);
+        return chunk;
+    }
+
+    public byte[] generateIds(int chunkX, int chunkZ) {
+        return generateIds(chunkX, chunkZ, null);
+    }
+
+    /**
+     * Like {@link #generate} but only the block ids ({@link Chunk#index} layout), e.g.
+     * to store the chunk without building it. The biome map goes into biomes when not
+     * null.
+     */
+    public byte[] generateIds(int chunkX, int chunkZ, byte[] biomes) {
+        ProtoChunk[] neighbourhood = new ProtoChunk[9];
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                ProtoChunk proto = getProtoChunk(chunkX + dx, chunkZ + dz);
+                advance(proto, Stage.DECORATED);
+                neighbourhood[(dz + 1) * 3 + dx + 1] = proto;
+            }
+        }
+
+        byte[] ids = neighbourhood[4].ids.clone();
+        if (biomes != null)
+            neighbourhood[4].columns.copyBiomeIds(biomes);
+        for (int i = 0; i < neighbourhood.length; i++) {
+            // The buffer of the neighbour at offset (dx, dz) targets its (-dx, -dz)
+            neighbourhood[i].decoration.applyTo(1 - i % 3, 1 - i / 3, ids);
+        }
+
+        // A proto chunk is no longer needed once all nine chunks it decorates are out
+        for (ProtoChunk proto : neighbourhood) {
+            if (proto.finished.incrementAndGet() == 9)
+                removeProtoChunk(proto);
+        }
+        return ids;
+    }
+
+    /**
+     * Runs the missing stages of proto up to target, first bringing the neighbourhood
+     * of each stage up to the one before it. Only one proto chunk is locked at a time.
+     */
+    private void advance(ProtoChunk proto, Stage target) {
+        if (proto.stage >= target.ordinal())
+            return;
+        if (target.ordinal() > 0) {
+            Stage previous = Stage.values()[target.ordinal() - 1];
+            for (int dz = -target.radius; dz <= target.radius; dz++) {
+                for (int dx = -target.radius; dx <= target.radius; dx++) {
+                    ProtoChunk neighbour = dx == 0 && dz == 0 ? proto
+                            : getProtoChunk(proto.chunkX + dx, proto.chunkZ + dz);
+                    advance(neighbour, previous);
+                }
+            }
+        }
+        synchronized (proto) {
+            if (proto.stage >= target.ordinal())
+                return;
+            switch (target) {
+                case SHAPED:
+                    proto.columns = generator.shape(proto.chunkX, proto.chunkZ, proto.ids);
+                    break;
+                case SURFACED:
+                    generator.surface(proto.columns, proto.ids);
+                    break;
+                case DECORATED:
+                    generator.decorate(proto.columns, proto.ids, proto.decoration);
+                    break;
+            }
+            proto.stage = target.ordinal();
+            stagesRun.incrementAndGet();
+        }
+    }
+
+    private ProtoChunk getProtoChunk(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        synchronized (protoChunks) {
+            ProtoChunk proto = protoChunks.get(key);
+            if (proto == null) {
+                proto = new ProtoChunk(chunkX, chunkZ);
+                protoChunks.put(key, proto);
+            }
+            return proto;
+        }
+    }
+
+    private void removeProtoChunk(ProtoChunk proto) {
+        synchronized (protoChunks) {
+            protoChunks.remove(key(proto.chunkX, proto.chunkZ), proto);
+        }
+    }
+
+    /**
+     * Proto chunks currently cached.
+     */
+    public int getProtoChunkCount() {
+        synchronized (protoChunks) {
+            return protoChunks.size();
+        }
+    }
+
+    /**
+     * Stages run so far, including proto chunks generated again after eviction.
+     */
+    public int getStagesRun() {
+        return stagesRun.get();
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+    }
+
+    /**
+     * A chunk on its way through the stages. Its ids are final once surfaced; the
+     * trees of every neighbour go into copies made by {@link #generateIds}.
+     */
+    private static final class ProtoChunk {
+        final int chunkX;
+        final int chunkZ;
+        final byte[] ids = new byte[Chunk.VOLUME];
+        final DecorationBuffer decoration = new DecorationBuffer();
+        final AtomicInteger finished = new AtomicInteger();
+        TerrainGenerator.Columns columns; // set by SHAPED
+        // Ordinal of the last stage run, -1 for none; written under the proto's lock
+        volatile int stage = -1;
+
+        ProtoChunk(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+}
@@ -2,108 +2,238 @@ package game.voxel.world.gen;
 
 import game.voxel.Block;
 import game.voxel.Chunk;
-import game.voxel.ChunkManager;
 import game.voxel.world.SimplexNoise;
 import game.voxel.world.gen.biomes.Biome;
+import game.voxel.world.gen.biomes.Biomes;
 
+import java.util.Arrays;
+
+/**
+ * The generation stages of one chunk: {@link #shape} decides every block from noise,
+ * {@link #surface} covers it with biome blocks, {@link #decorate} then places trees.
+ * {@link GenerationPipeline} runs them in order across neighbouring chunks.
+ * Low-frequency fields come interpolated from the {@link GenerationContext}, cave
+ * noise from a coarse {@link CaveLattice}; only the peaks/valleys detail is evaluated
+ * per column. Safe to use from several load workers.
+ */
 public class TerrainGenerator {
 
     private static final int SEA_LEVEL = 32;
+    private static final int COLUMNS = Chunk.SIZE_X * Chunk.SIZE_Z;
 
-    public void generateTerrain(ChunkManager cm, Chunk chunk, long seed) {
-        int chunkX = chunk.getChunkX();
-        int chunkZ = chunk.getChunkZ();
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
 
-        for (int x = 0; x < Chunk.SIZE_X; x++) {
-            for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                double globalX = chunkX * Chunk.SIZE_X + x;
-                double globalZ = chunkZ * Chunk.SIZE_Z + z;
+    private final GenerationContext generation;
+
+    private static final class Context {
+        final byte[] ids = new byte[Chunk.VOLUME];
+        final GenerationContext.ChunkClimate climate = new GenerationContext.ChunkClimate();
+        final CaveLattice caves = new CaveLattice();
+        final double[] pv = new double[COLUMNS];
+        final double[] octave = new double[COLUMNS];
+    }
+
+    /**
+     * Surface height and biome of every column of a shaped chunk.
+     */
+    public static final class Columns {
+        private final int chunkX;
+        private final int chunkZ;
+        private final int[] heights = new int[COLUMNS];
+        private final Biome[] biomes = new Biome[COLUMNS];
+        private final byte[] biomeIds = new byte[COLUMNS];
+
+        private Columns(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        public int getChunkX() {
+            return chunkX;
+        }
+
+        public int getChunkZ() {
+            return chunkZ;
+        }
+
+        public int getHeight(int x, int z) {
+            return heights[x * Chunk.SIZE_Z + z];
+        }
+
+        public Biome getBiome(int x, int z) {
+            return biomes[x * Chunk.SIZE_Z + z];
+        }
 
-                // --- 1. Base Terrain Shape (Multi-Octave) ---
-                // Continentalness: Large scale oceans vs land
-                double continentalness = fbm(globalX, globalZ, 2000.0, 3, 0.5);
-                // Erosion: large scale mountains vs flat
-                double erosion = fbm(globalX + 5000, globalZ + 5000, 1000.0, 3, 0.5);
-                // PV (PeaksValleys): Detail scale
-                double pv = fbm(globalX, globalZ, 120.0, 4, 0.6);
+        /**
+         * Copies the 16x16 biome map, indexed x * SIZE_Z + z like {@link Chunk#getBiomeId}.
+         */
+        public void copyBiomeIds(byte[] dst) {
+            System.arraycopy(biomeIds, 0, dst, 0, COLUMNS);
+        }
+    }
 
-                // Climate
-                double temperature = (fbm(globalX, globalZ, 1000.0, 2, 0.5) + 1.0) * 0.5; // 0..1
-                double humidity = (fbm(globalX + 1234, globalZ + 2341, 1000.0, 2, 0.5) + 1.0) * 0.5; // 0..1
+    public TerrainGenerator(long seed) {
+        this(new GenerationContext(new SimplexNoise(seed)));
+    }
+
+    public TerrainGenerator(GenerationContext generation) {
+        this.generation = generation;
+    }
+
+    public GenerationContext getGenerationContext() {
+        return generation;
+    }
+
+    /**
+     * Shapes and surfaces a chunk, without decoration. Trees need the neighbouring
+     * chunks too, so complete chunks come from {@link GenerationPipeline}.
+     */
+    public Columns shapeTerrain(Chunk chunk) {
+        byte[] ids = CONTEXT.get().ids;
+        Columns columns = shape(chunk.getChunkX(), chunk.getChunkZ(), ids);
+        surface(columns, ids);
+        chunk.setBlockIds(ids);
+        return columns;
+    }
+
+    /**
+     * Stage 1: fills ids (length {@link Chunk#VOLUME}, {@link Chunk#index} layout) with
+     * bedrock, stone, water and caves from the terrain noise.
+     */
+    public Columns shape(int chunkX, int chunkZ, byte[] ids) {
+        Context ctx = CONTEXT.get();
+        Columns columns = new Columns(chunkX, chunkZ);
+
+        // --- 1. Base Terrain Shape (Multi-Octave) ---
+        GenerationContext.ChunkClimate climate = ctx.climate;
+        generation.sampleClimate(chunkX, chunkZ, climate);
+        // PV (PeaksValleys): Detail scale, too fine to interpolate
+        double[] pv = ctx.pv;
+        generation.fbmPlane(pv, ctx.octave, Chunk.SIZE_X, Chunk.SIZE_Z, (double) chunkX * Chunk.SIZE_X,
+                (double) chunkZ * Chunk.SIZE_Z, 1.0, 120.0, 4, 0.6);
+        int maxHeight = 0;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int column = x * Chunk.SIZE_Z + z;
 
                 // Biome Determination
-                Biome biome = BiomeSystem.getBiome(temperature, humidity, continentalness, erosion);
+                int biomeId = biomeId(climate, column);
+                Biome biome = Biomes.byId(biomeId);
 
                 // Calculate Surface Height
-                int height = calculateHeight(continentalness, erosion, pv, biome);
-
-                // --- 2. Block Filling ---
-                for (int y = 0; y < Chunk.SIZE_Y; y++) {
-                    // Bedrock at bottom
-                    if (y == 0) {
-                        chunk.setBlock(x, y, z, Block.BEDROCK);
-                        continue;
-                    }
+                int height = calculateHeight(climate.continentalness[column], climate.erosion[column], pv[column],
+                        biome);
+                columns.heights[column] = height;
+                columns.biomes[column] = biome;
+                columns.biomeIds[column] = (byte) biomeId;
+                maxHeight = Math.max(maxHeight, height);
+            }
+        }
 
-                    // Caves (3D Noise)
-                    boolean isCave = false;
-                    if (y > 0 && y < height) {
-                        double caveNoise1 = SimplexNoise.noise(globalX * 0.02, y * 0.02, globalZ * 0.02);
-                        // Ridged noise for tunnels
-                        double tunnel = Math.abs(caveNoise1);
-
-                        // Surface fade: blend caves out near the surface to prevent swiss-cheese
-                        // mountains
-                        double surfaceFade = 1.0;
-                        int distFromSurface = height - y;
-                        if (distFromSurface < 10) {
-                            // Linear fade from surface down to 10 blocks
-                            surfaceFade = distFromSurface / 10.0;
-                        }
+        // --- 2. Block Filling ---
+        ctx.caves.fill(generation.getNoise(), chunkX, chunkZ, maxHeight);
+        Arrays.fill(ids, (byte) 0);
+        byte bedrock = (byte) Block.BEDROCK.getId();
+        byte water = (byte) Block.WATER.getId();
+        byte stone = (byte) Block.STONE.getId();
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int height = columns.heights[x * Chunk.SIZE_Z + z];
 
-                        // Adjusted threshold: higher near surface (less caves), lower deep (more caves)
-                        double threshold = 0.55 + (1.0 - surfaceFade) * 0.15; // 0.55 to 0.70
+                // Bedrock at bottom
+                ids[Chunk.index(x, 0, z)] = bedrock;
+                for (int y = 1; y <= height; y++) {
+                    // Caves (3D Noise)
+                    // Ridged noise for tunnels
+                    double tunnel = Math.abs(ctx.caves.sample(x, y, z));
 
-                        if (tunnel > threshold) {
-                            isCave = true;
-                        }
+                    // Surface fade: blend caves out near the surface to prevent swiss-cheese
+                    // mountains
+                    double surfaceFade = 1.0;
+                    int distFromSurface = height - y;
+                    if (distFromSurface < 10) {
+                        // Linear fade from surface down to 10 blocks
+                        surfaceFade = distFromSurface / 10.0;
                     }
 
-                    if (y <= height) {
-                        if (isCave) {
-                            if (y < SEA_LEVEL) {
-                                chunk.setBlock(x, y, z, Block.WATER); // Flooded caves
-                            } else {
-                                chunk.setBlock(x, y, z, Block.AIR);
-                            }
-                        } else {
-                            if (y < height - 3) {
-                                chunk.setBlock(x, y, z, Block.STONE);
-                            } else {
-                                chunk.setBlock(x, y, z, biome.getSurfaceBlock(y, height));
-                            }
-                        }
+                    // Adjusted threshold: higher near surface (less caves), lower deep (more caves)
+                    double threshold = 0.55 + (1.0 - surfaceFade) * 0.15; // 0.55 to 0.70
+                    boolean isCave = y < height && tunnel > threshold;
+
+                    if (isCave) {
+                        ids[Chunk.index(x, y, z)] = y < SEA_LEVEL ? water : 0; // Flooded caves
                     } else {
-                        // Above ground
-                        if (y <= SEA_LEVEL) {
-                            chunk.setBlock(x, y, z, Block.WATER);
-                            // We need to trigger updates for water if we want it to flow potentially?
-                            // But usually generation is static.
-                        } else {
-                            chunk.setBlock(x, y, z, Block.AIR);
-                        }
+                        ids[Chunk.index(x, y, z)] = stone;
                     }
                 }
+                // Above ground
+                for (int y = height + 1; y <= SEA_LEVEL; y++) {
+                    ids[Chunk.index(x, y, z)] = water;
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Fills out (16x16, indexed x * SIZE_Z + z) with the biome ids {@link #shape} picks
+     * for the chunk, from the climate alone. For chunks stored without a biome map.
+     */
+    public void resolveBiomes(int chunkX, int chunkZ, byte[] out) {
+        GenerationContext.ChunkClimate climate = CONTEXT.get().climate;
+        generation.sampleClimate(chunkX, chunkZ, climate);
+        for (int column = 0; column < COLUMNS; column++) {
+            out[column] = (byte) biomeId(climate, column);
+        }
+    }
+
+    private static int biomeId(GenerationContext.ChunkClimate climate, int column) {
+        return BiomeSystem.lookupBiomeId(climate.temperature[column], climate.humidity[column],
+                climate.continentalness[column], climate.erosion[column]);
+    }
+
+    /**
+     * Stage 2: replaces the stone of the top four layers with each column's biome
+     * surface blocks. Caves reaching into those layers stay open.
+     */
+    public void surface(Columns columns, byte[] ids) {
+        byte stone = (byte) Block.STONE.getId();
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int height = columns.getHeight(x, z);
+                Biome biome = columns.getBiome(x, z);
+                for (int y = Math.max(1, height - 3); y <= height; y++) {
+                    int index = Chunk.index(x, y, z);
+                    if (ids[index] == stone)
+                        ids[index] = (byte) biome.getSurfaceBlock(y, height).getId();
+                }
+            }
+        }
+    }
 
-                // --- 3. Vegetation / Decoration (Surface only) ---
-                if (!isSolidBlockInChunk(chunk, x, height + 1, z) && height >= SEA_LEVEL) {
+    /**
+     * --- 3. Vegetation / Decoration (Surface only) ---
+     * Decides trees from the chunk's own surfaced blocks and writes them to out, which
+     * may reach into the neighbouring chunks.
+     */
+    public void decorate(Columns columns, byte[] ids, DecorationBuffer out) {
+        int chunkX = columns.getChunkX();
+        int chunkZ = columns.getChunkZ();
+        SimplexNoise noise = generation.getNoise();
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                double globalX = chunkX * Chunk.SIZE_X + x;
+                double globalZ = chunkZ * Chunk.SIZE_Z + z;
+                int height = columns.getHeight(x, z);
+                Biome biome = columns.getBiome(x, z);
+                if (!isSolidBlock(ids, x, height + 1, z) && height >= SEA_LEVEL) {
                     double treeProb = biome.getTreeDensity();
                     if (treeProb > 0) {
-                        double densityNoise = SimplexNoise.noise(globalX / 50.0, globalZ / 50.0);
+                        double densityNoise = noise.eval(globalX / 50.0, globalZ / 50.0);
                         if (densityNoise > 0.0) {
-                            double rnd = fract(Math.abs(SimplexNoise.noise(globalX * 13.0, globalZ * 37.0) * 100.0));
+                            double rnd = fract(Math.abs(noise.eval(globalX * 13.0, globalZ * 37.0) * 100.0));
                             if (rnd < treeProb) {
-                                biome.placeTree(cm, chunk, x, height + 1, z);
+                                biome.placeTree(out, x, height + 1, z);
                             }
                         }
                     }
@@ -112,32 +242,18 @@ public class TerrainGenerator {
         }
     }
 
-    private double fbm(double x, double z, double scale, int octaves, double persistence) {
-        double total = 0;
-        double frequency = 1.0 / scale;
-        double amplitude = 1.0;
-        double maxValue = 0;
-        for (int i = 0; i < octaves; i++) {
-            total += SimplexNoise.noise(x * frequency, z * frequency) * amplitude;
-            maxValue += amplitude;
-            amplitude *= persistence;
-            frequency *= 2;
-        }
-        return total / maxValue;
-    }
-
     private double fract(double d) {
         return d - Math.floor(d);
     }
 
-    private boolean isSolidBlockInChunk(Chunk c, int x, int y, int z) {
+    private boolean isSolidBlock(byte[] ids, int x, int y, int z) {
         if (y >= Chunk.SIZE_Y)
             return false;
-        Block b = c.getBlock(x, y, z);
+        Block b = Block.getById(ids[Chunk.index(x, y, z)] & 0xFF);
         return b != Block.AIR && b.isSolid();
     }
 
-    private int calculateHeight(double c, double e, double pv, Biome biome) {
+    static int calculateHeight(double c, double e, double pv, Biome biome) {
         double baseH = SEA_LEVEL;
         if (c < -0.2) {
             baseH -= 20.0 + (-c * 40.0);
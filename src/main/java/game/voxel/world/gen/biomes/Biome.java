@@ -1,13 +1,17 @@
 package game.voxel.world.gen.biomes;
 
 import game.voxel.Block;
-import game.voxel.Chunk;
-import game.voxel.ChunkManager;
+import game.voxel.world.gen.DecorationBuffer;
 
 public interface Biome {
+    /**
+     * Stable id, stored in chunk biome maps; see {@link Biomes}.
+     */
+    int getId();
+
     Block getSurfaceBlock(int y, int surfaceH);
 
     double getTreeDensity();
 
-    void placeTree(ChunkManager cm, Chunk c, int x, int y, int z);
+    void placeTree(DecorationBuffer out, int x, int y, int z);
 }
@@ -0,0 +1,31 @@
+package game.voxel.world.gen.biomes;
+
+/**
+ * The one instance of every biome, by id. Ids are persisted in region files, so
+ * never reuse or renumber one.
+ */
+public final class Biomes {
+
+    public static final Biome OCEAN = new OceanBiome();
+    public static final Biome PLAINS = new PlainsBiome();
+    public static final Biome FOREST = new ForestBiome();
+    public static final Biome DESERT = new DesertBiome();
+    public static final Biome TAIGA = new TaigaBiome();
+    public static final Biome MOUNTAIN = new MountainBiome();
+
+    private static final Biome[] BY_ID = { OCEAN, PLAINS, FOREST, DESERT, TAIGA, MOUNTAIN };
+
+    private Biomes() {
+    }
+
+    /**
+     * @return the biome, or null for an unknown id
+     */
+    public static Biome byId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    public static int count() {
+        return BY_ID.length;
+    }
+}
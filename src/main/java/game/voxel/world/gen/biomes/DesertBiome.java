@@ -1,10 +1,16 @@
 package game.voxel.world.gen.biomes;
 
 import game.voxel.Block;
-import game.voxel.Chunk;
-import game.voxel.ChunkManager;
+import game.voxel.world.gen.DecorationBuffer;
 
 public class DesertBiome implements Biome {
+    public static final int ID = 3;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
     @Override
     public Block getSurfaceBlock(int y, int surfaceH) {
         return Block.SAND;
@@ -16,9 +22,9 @@ public class DesertBiome implements Biome {
     }
 
     @Override
-    public void placeTree(ChunkManager cm, Chunk c, int x, int y, int z) {
+    public void placeTree(DecorationBuffer out, int x, int y, int z) {
         // Improvised Cactus: 3-high wood
         for (int i = 0; i < 3; i++)
-            c.setBlock(x, y + i, z, Block.WOOD);
+            out.setBlock(x, y + i, z, Block.WOOD);
     }
 }
@@ -1,11 +1,17 @@
 package game.voxel.world.gen.biomes;
 
 import game.voxel.Block;
-import game.voxel.Chunk;
-import game.voxel.ChunkManager;
+import game.voxel.world.gen.DecorationBuffer;
 import game.voxel.world.gen.VegetationGenerator;
 
 public class ForestBiome implements Biome {
+    public static final int ID = 2;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
     @Override
     public Block getSurfaceBlock(int y, int surfaceH) {
         return Block.GRASS;
@@ -17,7 +23,7 @@ public class ForestBiome implements Biome {
     }
 
     @Override
-    public void placeTree(ChunkManager cm, Chunk c, int x, int y, int z) {
-        VegetationGenerator.placeOak(cm, c, x, y, z);
+    public void placeTree(DecorationBuffer out, int x, int y, int z) {
+        VegetationGenerator.placeOak(out, x, y, z);
     }
 }
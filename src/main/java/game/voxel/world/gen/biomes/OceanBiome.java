@@ -1,10 +1,16 @@
 package game.voxel.world.gen.biomes;
 
 import game.voxel.Block;
-import game.voxel.Chunk;
-import game.voxel.ChunkManager;
+import game.voxel.world.gen.DecorationBuffer;
 
 public class OceanBiome implements Biome {
+    public static final int ID = 0;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
     @Override
     public Block getSurfaceBlock(int y, int surfaceH) {
         return Block.SAND;
@@ -16,7 +22,7 @@ public class OceanBiome implements Biome {
     }
 
     @Override
-    public void placeTree(ChunkManager cm, Chunk c, int x, int y, int z) {
+    public void placeTree(DecorationBuffer out, int x, int y, int z) {
         // No trees
     }
 }
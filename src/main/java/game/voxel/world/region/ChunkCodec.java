@@ -0,0 +1,24 @@
+package game.voxel.world.region;
+
+import java.io.IOException;
+
+/**
+ * Serializes a chunk's block ids (layout {@link game.voxel.Chunk#index}) for storage
+ * in a region file. Every stored chunk carries its codec's type byte, so new codecs
+ * or revisions get a new type and old chunks stay readable.
+ */
+public interface ChunkCodec {
+
+    /**
+     * Compression type byte written in front of the payload, below
+     * {@link ChunkCodecs#BIOME_MAP_FLAG}. Never reuse a value.
+     */
+    byte getType();
+
+    byte[] encode(byte[] ids) throws IOException;
+
+    /**
+     * @param dst receives exactly dst.length block ids
+     */
+    void decode(byte[] src, int offset, int length, byte[] dst) throws IOException;
+}
@@ -0,0 +1,43 @@
+package game.voxel.world.region;
+
+import java.io.IOException;
+
+/**
+ * Registry of the codecs a region file may contain.
+ */
+public final class ChunkCodecs {
+
+    public static final ChunkCodec ZLIB = new ZlibChunkCodec();
+    public static final ChunkCodec COLUMN_RLE = new ColumnRleChunkCodec();
+    public static final ChunkCodec DEFLATED_COLUMN_RLE = new DeflatedColumnRleChunkCodec();
+
+    /**
+     * Codec used for newly written chunks. Plain column RLE is the fastest, but its
+     * runs take a few KB per generated chunk and push some chunks into a second sector.
+     */
+    public static final ChunkCodec DEFAULT = DEFLATED_COLUMN_RLE;
+
+    /**
+     * Set on a stored type byte when the payload starts with the chunk's 16x16 biome
+     * map ({@link #BIOME_MAP_BYTES} ids) ahead of the codec's data. Codec types stay
+     * below it.
+     */
+    public static final int BIOME_MAP_FLAG = 0x80;
+    public static final int BIOME_MAP_BYTES = 16 * 16;
+
+    private ChunkCodecs() {
+    }
+
+    public static ChunkCodec forType(int type) throws IOException {
+        switch (type) {
+            case ZlibChunkCodec.TYPE:
+                return ZLIB;
+            case ColumnRleChunkCodec.TYPE:
+                return COLUMN_RLE;
+            case DeflatedColumnRleChunkCodec.TYPE:
+                return DEFLATED_COLUMN_RLE;
+            default:
+                throw new IOException("Unsupported compression type " + type);
+        }
+    }
+}
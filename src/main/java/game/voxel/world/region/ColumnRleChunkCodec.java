@@ -0,0 +1,86 @@
+package game.voxel.world.region;
+
+import game.voxel.Chunk;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Type 2: run-length encoding down each vertical column. Terrain columns are a
+ * handful of layers (bedrock, stone, dirt, grass, water, air), so a chunk is usually
+ * a few KB and both directions are a single tight loop with no Deflater.
+ * Each run is two bytes: length - 1 (runs never cross a column, so 1..256 fits) and id.
+ * Columns are stored x-major, then z, each from y = 0 upward.
+ */
+public class ColumnRleChunkCodec implements ChunkCodec {
+
+    public static final byte TYPE = 2;
+
+    private static final int COLUMN_STRIDE = Chunk.SIZE_Z; // one step in y in Chunk.index layout
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    @Override
+    public byte getType() {
+        return TYPE;
+    }
+
+    @Override
+    public byte[] encode(byte[] ids) {
+        if (ids.length != Chunk.VOLUME)
+            throw new IllegalArgumentException("Expected " + Chunk.VOLUME + " block ids, got " + ids.length);
+        byte[] out = BUFFER.get();
+        int n = 0;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int i = Chunk.index(x, 0, z);
+                int end = i + Chunk.SIZE_Y * COLUMN_STRIDE;
+                while (i < end) {
+                    byte id = ids[i];
+                    int run = 1;
+                    i += COLUMN_STRIDE;
+                    while (i < end && ids[i] == id) {
+                        run++;
+                        i += COLUMN_STRIDE;
+                    }
+                    if (n + 2 > out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                        BUFFER.set(out);
+                    }
+                    out[n++] = (byte) (run - 1);
+                    out[n++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    @Override
+    public void decode(byte[] src, int offset, int length, byte[] dst) throws IOException {
+        if (dst.length != Chunk.VOLUME)
+            throw new IllegalArgumentException("Expected " + Chunk.VOLUME + " block ids, got " + dst.length);
+        int p = offset;
+        int limit = offset + length;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int i = Chunk.index(x, 0, z);
+                int y = 0;
+                while (y < Chunk.SIZE_Y) {
+                    if (p + 2 > limit)
+                        throw new IOException("Column data truncated at column " + x + "," + z);
+                    int run = (src[p++] & 0xFF) + 1;
+                    byte id = src[p++];
+                    if (y + run > Chunk.SIZE_Y)
+                        throw new IOException("Run crosses column " + x + "," + z + " at y=" + y);
+                    for (int k = 0; k < run; k++) {
+                        dst[i] = id;
+                        i += COLUMN_STRIDE;
+                    }
+                    y += run;
+                }
+            }
+        }
+        if (p != limit)
+            throw new IOException("Trailing column data: " + (limit - p) + " bytes");
+    }
+}
@@ -0,0 +1,74 @@
+package game.voxel.world.region;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Type 3: the {@link ColumnRleChunkCodec} runs through zlib. Generated terrain leaves
+ * a few KB of runs per chunk whose lengths and ids repeat from column to column, which
+ * deflate squeezes below the size of zlib over the raw ids. Deflate only sees the
+ * runs rather than the whole 64 KB id array, so both directions stay cheaper than
+ * {@link ZlibChunkCodec}.
+ */
+public class DeflatedColumnRleChunkCodec implements ChunkCodec {
+
+    public static final byte TYPE = 3;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(
+            () -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    private final ColumnRleChunkCodec runs = new ColumnRleChunkCodec();
+
+    @Override
+    public byte getType() {
+        return TYPE;
+    }
+
+    @Override
+    public byte[] encode(byte[] ids) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(runs.encode(ids));
+        deflater.finish();
+        byte[] out = BUFFER.get();
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+                BUFFER.set(out);
+            }
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    @Override
+    public void decode(byte[] src, int offset, int length, byte[] dst) throws IOException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(src, offset, length);
+        byte[] buf = BUFFER.get();
+        int n = 0;
+        try {
+            while (!inflater.finished()) {
+                if (n == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    BUFFER.set(buf);
+                }
+                int read = inflater.inflate(buf, n, buf.length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new EOFException("Chunk data truncated at " + n + " bytes of runs");
+                n += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Chunk data corrupted", e);
+        }
+        runs.decode(buf, 0, n, dst);
+    }
+}
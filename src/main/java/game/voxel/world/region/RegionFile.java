@@ -1,24 +1,44 @@
 package game.voxel.world.region;
 
+import game.voxel.Chunk;
+
 import java.io.*;
-import java.util.zip.InflaterInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Handles a single 32x32 chunk region file.
  * Format:
  * - 4096 bytes: Offsets (1024 * 4 bytes)
  * - 4096 bytes: Timestamps (1024 * 4 bytes)
- * - Data sectors (4096 byte aligned)
+ * - Data sectors (4096 byte aligned), each chunk a run of sectors starting with
+ *   its length (int) and compression type (byte, see {@link ChunkCodecs}), then the
+ *   biome map if the type has {@link ChunkCodecs#BIOME_MAP_FLAG}, then the codec data
+ * Sector usage is tracked in memory; rewritten chunks reuse the first free run that
+ * fits and the file is truncated when its tail becomes free.
+ * Reads are positional FileChannel reads under a shared lock, so loader threads can
+ * fetch and inflate chunks from the same region concurrently; writes are exclusive.
  */
 public class RegionFile {
 
     private static final int SECTOR_SIZE = 4096;
     private static final int CHUNKS_PER_REGION = 32 * 32;
+    private static final int HEADER_SECTORS = 2;
 
     private final File file;
     private RandomAccessFile raf;
+    private FileChannel channel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final int[] offsets = new int[CHUNKS_PER_REGION];
     private final int[] timestamps = new int[CHUNKS_PER_REGION];
+    private final int[] sectorCounts = new int[CHUNKS_PER_REGION];
+    private final BitSet usedSectors = new BitSet();
 
     public RegionFile(File file) throws IOException {
         this.file = file;
@@ -39,6 +59,7 @@ public class RegionFile {
 
     private void loadHeader() throws IOException {
         raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
         raf.seek(0);
         for (int i = 0; i < CHUNKS_PER_REGION; i++) {
             offsets[i] = raf.readInt();
@@ -46,63 +67,336 @@ public class RegionFile {
         for (int i = 0; i < CHUNKS_PER_REGION; i++) {
             timestamps[i] = raf.readInt();
         }
+        buildSectorMap();
+    }
+
+    /**
+     * The header only stores offsets, so each chunk's run length comes from the
+     * length prefix at its first sector. Entries pointing outside the file or into
+     * an already claimed run are dropped (the chunk regenerates).
+     */
+    private void buildSectorMap() throws IOException {
+        usedSectors.clear();
+        usedSectors.set(0, HEADER_SECTORS);
+        long fileLength = raf.length();
+        for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+            int offset = offsets[i];
+            if (offset == 0)
+                continue;
+            int sectors = 0;
+            if (offset >= HEADER_SECTORS && (long) offset * SECTOR_SIZE + 5 <= fileLength) {
+                raf.seek((long) offset * SECTOR_SIZE);
+                int length = raf.readInt();
+                if (length > 0)
+                    sectors = sectorsFor(length);
+                if ((long) (offset + sectors) * SECTOR_SIZE > fileLength)
+                    sectors = 0;
+            }
+            int clash = usedSectors.nextSetBit(offset);
+            if (sectors == 0 || (clash >= 0 && clash < offset + sectors)) {
+                System.err.println("Region " + file.getName() + ": dropping bad entry " + i + " at sector " + offset);
+                offsets[i] = 0;
+                continue;
+            }
+            sectorCounts[i] = sectors;
+            usedSectors.set(offset, offset + sectors);
+        }
+    }
+
+    private static int sectorsFor(int payloadLength) {
+        // 4-byte length prefix + payload (type byte + data)
+        return (int) ((4L + payloadLength + SECTOR_SIZE - 1) / SECTOR_SIZE);
+    }
+
+    /**
+     * First fit: lowest free run of the given length, or the end of the file.
+     */
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int next = usedSectors.nextSetBit(start);
+            if (next < 0 || next - start >= sectors)
+                return start;
+            start = usedSectors.nextClearBit(next);
+        }
     }
 
     private int getChunkIndex(int x, int z) {
         return (x & 31) + (z & 31) * 32;
     }
 
-    public synchronized DataInputStream getChunkInputStream(int x, int z) throws IOException {
-        int index = getChunkIndex(x, z);
-        int offset = offsets[index];
-        if (offset == 0)
-            return null;
+    /**
+     * Per loader thread scratch for the stored payload, reused across chunks.
+     */
+    private static final class ReadContext {
+        final ByteBuffer header = ByteBuffer.allocate(5);
+        ByteBuffer data = ByteBuffer.allocate(16 * 1024);
+        byte type;
+    }
 
-        raf.seek(offset * SECTOR_SIZE);
-        int length = raf.readInt();
-        raf.readByte(); // skip compression type (1 = Zlib)
+    private static final ThreadLocal<ReadContext> READ_CONTEXT = ThreadLocal.withInitial(ReadContext::new);
 
-        byte[] data = new byte[length - 1];
-        raf.readFully(data);
+    /**
+     * Decodes the chunk straight into dst, which must be exactly the uncompressed size.
+     *
+     * @return false if the chunk is not stored in this region
+     */
+    public boolean readChunk(int x, int z, byte[] dst) throws IOException {
+        return readChunk(x, z, dst, null);
+    }
 
-        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+    /**
+     * Like {@link #readChunk(int, int, byte[])}, also copying the stored biome map
+     * into biomes when not null. Chunks stored without one fill it with
+     * {@link game.voxel.Chunk#UNKNOWN_BIOME}.
+     */
+    public boolean readChunk(int x, int z, byte[] dst, byte[] biomes) throws IOException {
+        ReadContext ctx = READ_CONTEXT.get();
+        int length = readCompressed(getChunkIndex(x, z), ctx);
+        if (length < 0)
+            return false;
+        try {
+            int type = ctx.type & 0xFF;
+            int offset = 0;
+            if ((type & ChunkCodecs.BIOME_MAP_FLAG) != 0) {
+                if (length < ChunkCodecs.BIOME_MAP_BYTES)
+                    throw new IOException("Payload of " + length + " bytes is shorter than its biome map");
+                if (biomes != null)
+                    System.arraycopy(ctx.data.array(), 0, biomes, 0, ChunkCodecs.BIOME_MAP_BYTES);
+                type &= ~ChunkCodecs.BIOME_MAP_FLAG;
+                offset = ChunkCodecs.BIOME_MAP_BYTES;
+            } else if (biomes != null) {
+                Arrays.fill(biomes, Chunk.UNKNOWN_BIOME);
+            }
+            ChunkCodecs.forType(type).decode(ctx.data.array(), offset, length - offset, dst);
+        } catch (IOException e) {
+            throw new IOException("Chunk " + x + "," + z + " in " + file.getName() + ": " + e.getMessage(), e);
+        }
+        return true;
     }
 
-    public synchronized void writeChunk(int x, int z, byte[] data) throws IOException {
-        int index = getChunkIndex(x, z);
+    public boolean hasChunk(int x, int z) {
+        lock.readLock().lock();
+        try {
+            return offsets[getChunkIndex(x, z)] != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-        // Find a place to write
-        // For simplicity in this initial version, we append to the end
-        // Enterprise version should handle fragmentation/free sectors
-        int newOffset = (int) (raf.length() / SECTOR_SIZE);
-        if (raf.length() % SECTOR_SIZE != 0)
-            newOffset++;
+    /**
+     * Reads the stored payload of a chunk into ctx.data and its type into ctx.type.
+     *
+     * @return payload length, or -1 if the chunk is absent
+     */
+    private int readCompressed(int index, ReadContext ctx) throws IOException {
+        lock.readLock().lock();
+        try {
+            int offset = offsets[index];
+            if (offset == 0)
+                return -1;
 
-        raf.seek(newOffset * SECTOR_SIZE);
-        raf.writeInt(data.length + 1); // space for compression type
-        raf.writeByte(1); // Zlib
-        raf.write(data);
+            long pos = (long) offset * SECTOR_SIZE;
+            ByteBuffer header = ctx.header;
+            header.clear();
+            readFully(header, pos);
+            int length = header.getInt(0);
+            ctx.type = header.get(4);
+            if (length < 1 || length + 4L > (long) sectorCounts[index] * SECTOR_SIZE)
+                throw new IOException("Bad chunk length " + length + " at sector " + offset);
 
-        // Pad to sector size
-        long currentPos = raf.getFilePointer();
-        int padding = (int) (SECTOR_SIZE - (currentPos % SECTOR_SIZE));
-        if (padding < SECTOR_SIZE) {
-            raf.write(new byte[padding]);
+            int dataLength = length - 1;
+            if (ctx.data.capacity() < dataLength)
+                ctx.data = ByteBuffer.allocate(Math.max(dataLength, ctx.data.capacity() * 2));
+            ByteBuffer data = ctx.data;
+            data.clear().limit(dataLength);
+            readFully(data, pos + 5);
+            return dataLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos + buf.position());
+            if (n < 0)
+                throw new EOFException("Region " + file.getName() + " ends before " + (pos + buf.limit()));
         }
+    }
+
+    /**
+     * @param type compression type of data, see {@link ChunkCodec#getType()}
+     */
+    public void writeChunk(int x, int z, byte type, byte[] data) throws IOException {
+        lock.writeLock().lock();
+        try {
+            writeChunkLocked(x, z, type, data);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeChunkLocked(int x, int z, byte type, byte[] data) throws IOException {
+        int index = getChunkIndex(x, z);
+        int oldOffset = offsets[index];
+        int oldSectors = sectorCounts[index];
+        int sectors = sectorsFor(data.length + 1);
+
+        // Never overwrite the live copy: a crash mid-write leaves the old chunk readable
+        int newOffset = allocate(sectors);
+        writeSectors(raf, newOffset, sectors, type, data);
 
         // Update header
         offsets[index] = newOffset;
+        sectorCounts[index] = sectors;
+        usedSectors.set(newOffset, newOffset + sectors);
         raf.seek(index * 4);
         raf.writeInt(newOffset);
 
         timestamps[index] = (int) (System.currentTimeMillis() / 1000L);
-        raf.seek(4096 + index * 4);
+        raf.seek(SECTOR_SIZE + index * 4);
         raf.writeInt(timestamps[index]);
+
+        if (oldOffset != 0) {
+            usedSectors.clear(oldOffset, oldOffset + oldSectors);
+            trimFreeTail();
+        }
+    }
+
+    private static void writeSectors(RandomAccessFile out, int offset, int sectors, byte type, byte[] data)
+            throws IOException {
+        out.seek((long) offset * SECTOR_SIZE);
+        out.writeInt(data.length + 1); // space for compression type
+        out.writeByte(type);
+        out.write(data);
+
+        // Pad to sector size
+        int padding = sectors * SECTOR_SIZE - (data.length + 5);
+        if (padding > 0) {
+            out.write(new byte[padding]);
+        }
+    }
+
+    private void trimFreeTail() throws IOException {
+        long end = (long) Math.max(usedSectors.length(), HEADER_SECTORS) * SECTOR_SIZE;
+        if (raf.length() > end) {
+            raf.setLength(end);
+        }
+    }
+
+    /**
+     * Rewrites this region with every chunk packed back to back in index order,
+     * then swaps it in place of the original. Safe to call while the region is open.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            writeCompacted(tmp);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        raf.close();
+        raf = null;
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            // The compacted copy after a move, the untouched original otherwise
+            loadHeader();
+        }
+    }
+
+    private void writeCompacted(File tmp) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.write(new byte[SECTOR_SIZE * HEADER_SECTORS]);
+            int[] newOffsets = new int[CHUNKS_PER_REGION];
+            int next = HEADER_SECTORS;
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                if (offsets[i] == 0)
+                    continue;
+                raf.seek((long) offsets[i] * SECTOR_SIZE);
+                int length = raf.readInt();
+                byte[] run = new byte[length];
+                raf.readFully(run);
+
+                out.seek((long) next * SECTOR_SIZE);
+                out.writeInt(length);
+                out.write(run);
+                newOffsets[i] = next;
+                next += sectorCounts[i];
+            }
+            out.setLength((long) next * SECTOR_SIZE);
+            out.seek(0);
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                out.writeInt(newOffsets[i]);
+            }
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                out.writeInt(timestamps[i]);
+            }
+        }
+    }
+
+    /**
+     * Offline compaction of a region file that is not open elsewhere.
+     */
+    public static void compact(File file) throws IOException {
+        RegionFile region = new RegionFile(file);
+        try {
+            region.compact();
+        } finally {
+            region.close();
+        }
+    }
+
+    /**
+     * Fraction of the data sectors in the file that hold no chunk, i.e. what
+     * {@link #compact()} would reclaim.
+     */
+    public double getFreeSectorRatio() {
+        lock.readLock().lock();
+        try {
+            int dataSectors = Math.max(usedSectors.length(), HEADER_SECTORS) - HEADER_SECTORS;
+            if (dataSectors == 0)
+                return 0;
+            int free = dataSectors + HEADER_SECTORS - usedSectors.cardinality();
+            return (double) free / dataSectors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getFileLength() throws IOException {
+        lock.readLock().lock();
+        try {
+            return raf.length();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public void close() throws IOException {
-        if (raf != null) {
-            raf.close();
+        lock.writeLock().lock();
+        try {
+            if (raf != null) {
+                raf.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 }
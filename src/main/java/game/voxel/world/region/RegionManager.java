@@ -1,66 +1,94 @@
 package game.voxel.world.region;
 
-import game.voxel.Block;
 import game.voxel.Chunk;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.zip.DeflaterOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RegionManager {
+    // Free sectors are reused by later writes, so only rewrite a region once a good
+    // part of it is holes
+    public static final double COMPACT_FREE_RATIO = 0.25;
+    private static final String WORLDS_DIR = "worlds";
+
     private final File worldDir;
-    private final Map<Long, RegionFile> regionCache = new HashMap<>();
+    private final ChunkCodec codec;
+    // RegionFile does its own locking, so loads and saves only meet per region
+    private final ConcurrentHashMap<Long, RegionFile> regionCache = new ConcurrentHashMap<>();
 
     public RegionManager(File worldDir) {
+        this(worldDir, ChunkCodecs.DEFAULT);
+    }
+
+    /**
+     * @param codec used for writing; chunks stored with any registered codec can be read
+     */
+    public RegionManager(File worldDir, ChunkCodec codec) {
+        this.codec = codec;
         this.worldDir = new File(worldDir, "regions");
         if (!this.worldDir.exists()) {
             this.worldDir.mkdirs();
         }
     }
 
-    public synchronized void saveChunk(Chunk chunk) {
-        int cx = chunk.getChunkX();
-        int cz = chunk.getChunkZ();
-        RegionFile region = getRegionFile(cx, cz);
+    /**
+     * Directory holding the regions of a world, for {@link #RegionManager(File)}.
+     */
+    public static File worldDirectory(String worldName) {
+        return new File(WORLDS_DIR, worldName);
+    }
 
+    public void saveChunk(Chunk chunk) {
         try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            try (DataOutputStream dos = new DataOutputStream(new DeflaterOutputStream(bos))) {
-                // Write simple block data (could be optimized with Run-Length Encoding later)
-                Block[][][] blocks = chunk.getBlocks();
-                for (int x = 0; x < Chunk.SIZE_X; x++) {
-                    for (int y = 0; y < Chunk.SIZE_Y; y++) {
-                        for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                            dos.writeByte(blocks[x][y][z].getId());
-                        }
-                    }
-                }
-            }
-
-            region.writeChunk(cx, cz, bos.toByteArray());
+            saveChunk(chunk.getChunkX(), chunk.getChunkZ(), chunk.getBlockIds(),
+                    chunk.hasBiomes() ? chunk.getBiomeIds() : null);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public synchronized Chunk loadChunk(int cx, int cz) {
+    public void saveChunk(int cx, int cz, byte[] ids) throws IOException {
+        saveChunk(cx, cz, ids, null);
+    }
+
+    /**
+     * Writes a block id snapshot (layout {@link Chunk#index}) and, if not null, the
+     * chunk's biome map. Safe to call from a background thread since it never
+     * touches the live chunk.
+     */
+    public void saveChunk(int cx, int cz, byte[] ids, byte[] biomes) throws IOException {
+        byte[] data = codec.encode(ids);
+        byte type = codec.getType();
+        if (biomes != null) {
+            byte[] withBiomes = new byte[ChunkCodecs.BIOME_MAP_BYTES + data.length];
+            System.arraycopy(biomes, 0, withBiomes, 0, ChunkCodecs.BIOME_MAP_BYTES);
+            System.arraycopy(data, 0, withBiomes, ChunkCodecs.BIOME_MAP_BYTES, data.length);
+            data = withBiomes;
+            type |= ChunkCodecs.BIOME_MAP_FLAG;
+        }
+
         RegionFile region = getRegionFile(cx, cz);
+        if (region == null)
+            throw new IOException("Region unavailable for chunk " + cx + "," + cz);
+        region.writeChunk(cx, cz, type, data);
+    }
+
+    /**
+     * Thread-safe; loader threads only contend while a save or compaction holds the region.
+     */
+    public Chunk loadChunk(int cx, int cz) {
+        RegionFile region = getRegionFile(cx, cz);
+        if (region == null)
+            return null;
         try {
-            DataInputStream dis = region.getChunkInputStream(cx, cz);
-            if (dis == null)
+            byte[] ids = new byte[Chunk.VOLUME];
+            byte[] biomes = new byte[Chunk.COLUMNS];
+            if (!region.readChunk(cx, cz, ids, biomes))
                 return null;
 
-            Chunk chunk = new Chunk(cx, cz);
-            for (int x = 0; x < Chunk.SIZE_X; x++) {
-                for (int y = 0; y < Chunk.SIZE_Y; y++) {
-                    for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                        int id = dis.readByte() & 0xFF;
-                        chunk.setBlock(x, y, z, Block.getById(id));
-                    }
-                }
-            }
-            dis.close();
+            Chunk chunk = createChunk(cx, cz, ids);
+            chunk.setBiomeIds(biomes);
+            chunk.markSaved();
             return chunk;
         } catch (IOException e) {
             // Silently fail if chunk not found or corrupted - will be regenerated
@@ -69,6 +97,23 @@ public class RegionManager {
         return null;
     }
 
+    /**
+     * Whether the chunk is stored, without reading it.
+     */
+    public boolean hasChunk(int cx, int cz) {
+        RegionFile region = getRegionFile(cx, cz);
+        return region != null && region.hasChunk(cx, cz);
+    }
+
+    /**
+     * Builds a chunk from a block id array in region layout ({@link Chunk#index}).
+     */
+    public static Chunk createChunk(int cx, int cz, byte[] ids) {
+        Chunk chunk = new Chunk(cx, cz);
+        chunk.setBlockIds(ids);
+        return chunk;
+    }
+
     private RegionFile getRegionFile(int cx, int cz) {
         int rx = cx >> 5;
         int rz = cz >> 5;
@@ -76,15 +121,41 @@ public class RegionManager {
 
         RegionFile region = regionCache.get(regionKey);
         if (region == null) {
-            File file = new File(worldDir, "r." + rx + "." + rz + ".reg");
+            region = regionCache.computeIfAbsent(regionKey, k -> {
+                File file = new File(worldDir, "r." + rx + "." + rz + ".reg");
+                try {
+                    return new RegionFile(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            });
+        }
+        return region;
+    }
+
+    /**
+     * Shrinks the open region files with at least {@link #COMPACT_FREE_RATIO} of their
+     * sectors free to their live chunks.
+     */
+    public void compactRegions() {
+        compactRegions(COMPACT_FREE_RATIO);
+    }
+
+    /**
+     * Shrinks the open region files whose free sector ratio is at least minFreeRatio;
+     * 0 compacts all of them.
+     */
+    public void compactRegions(double minFreeRatio) {
+        for (RegionFile region : regionCache.values()) {
             try {
-                region = new RegionFile(file);
-                regionCache.put(regionKey, region);
+                if (minFreeRatio > 0 && region.getFreeSectorRatio() < minFreeRatio)
+                    continue;
+                region.compact();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
-        return region;
     }
 
     public void cleanup() {
@@ -0,0 +1,62 @@
+package game.voxel.world.region;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Type 1: the raw id array through zlib. The original region format; still read,
+ * and kept for comparison.
+ */
+public class ZlibChunkCodec implements ChunkCodec {
+
+    public static final byte TYPE = 1;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
+    @Override
+    public byte getType() {
+        return TYPE;
+    }
+
+    @Override
+    public byte[] encode(byte[] ids) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(ids);
+        deflater.finish();
+        byte[] out = BUFFER.get();
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+                BUFFER.set(out);
+            }
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    @Override
+    public void decode(byte[] src, int offset, int length, byte[] dst) throws IOException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(src, offset, length);
+        try {
+            int n = 0;
+            while (n < dst.length) {
+                int read = inflater.inflate(dst, n, dst.length - n);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                    throw new EOFException("Chunk data truncated at " + n + " bytes");
+                n += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Chunk data corrupted", e);
+        }
+    }
+}
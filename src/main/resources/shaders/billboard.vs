@@ -0,0 +1,22 @@
+#version 330
+
+// Quad corner in -1..1, see engine.raster.InstancedBillboards
+layout (location=0) in vec2 corner;
+// Per instance: world center and size factor, then colour
+layout (location=1) in vec4 centerSize;
+layout (location=2) in vec4 colour;
+
+out vec4 outColour;
+
+uniform mat4 projectionMatrix;
+uniform mat4 viewMatrix;
+uniform vec2 quadSize;
+
+void main()
+{
+    // Expand in view space so the quad always faces the camera
+    vec4 mvPos = viewMatrix * vec4(centerSize.xyz, 1.0);
+    mvPos.xy += corner * quadSize * centerSize.w;
+    gl_Position = projectionMatrix * mvPos;
+    outColour = colour;
+}
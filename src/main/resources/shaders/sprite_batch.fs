@@ -0,0 +1,13 @@
+#version 330
+
+in vec2 outTexCoord;
+in vec4 outColour;
+out vec4 fragColor;
+
+// Untextured quads sample a 1x1 white texture
+uniform sampler2D texture_sampler;
+
+void main()
+{
+    fragColor = texture(texture_sampler, outTexCoord) * outColour;
+}
@@ -3,6 +3,10 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec2 texCoord;
 layout (location=2) in vec3 vertexNormal;
+// Terrain chunks: see game.voxel.gfx.TerrainVertexFormat
+layout (location=3) in uvec2 packedVertex;
+// Terrain multi-draw: chunk origin per draw, see engine.raster.GeometryArena
+layout (location=4) in vec3 chunkOrigin;
 
 out vec2 outTexCoord;
 out vec3 mvVertexNormal;
@@ -13,17 +17,46 @@ out vec3 worldNormal;
 uniform mat4 modelViewMatrix;
 uniform mat4 projectionMatrix;
 uniform mat4 uModelMatrix;
+uniform int uPackedVertices;
+uniform int uChunkOrigins;
+uniform mat4 viewMatrix;
+
+const vec3 NORMALS[6] = vec3[6](
+    vec3(1, 0, 0), vec3(-1, 0, 0),
+    vec3(0, 1, 0), vec3(0, -1, 0),
+    vec3(0, 0, 1), vec3(0, 0, -1));
+const float ATLAS_TILES = 4.0;
 
 void main()
 {
-    vec4 mvPos = modelViewMatrix * vec4(position, 1.0);
+    vec3 pos = position;
+    vec2 uv = texCoord;
+    vec3 normal = vertexNormal;
+    if (uPackedVertices == 1) {
+        uint word0 = packedVertex.x;
+        uint tile = packedVertex.y & 0xFFFFu;
+        float drop = float((word0 >> 22u) & 0x1Fu) / 16.0;
+        pos = vec3(float(word0 & 0x1Fu), float((word0 >> 5u) & 0x1FFu) - drop, float((word0 >> 14u) & 0x1Fu));
+        normal = NORMALS[(word0 >> 19u) & 0x7u];
+        uv = vec2(float(tile % 4u), float(tile / 4u)) / ATLAS_TILES;
+    }
+
+    mat4 modelMatrix = uModelMatrix;
+    mat4 mvMatrix = modelViewMatrix;
+    if (uChunkOrigins == 1) {
+        modelMatrix = mat4(1.0);
+        modelMatrix[3] = vec4(chunkOrigin, 1.0);
+        mvMatrix = viewMatrix * modelMatrix;
+    }
+
+    vec4 mvPos = mvMatrix * vec4(pos, 1.0);
     gl_Position = projectionMatrix * mvPos;
-    outTexCoord = texCoord;
-    mvVertexNormal = normalize(modelViewMatrix * vec4(vertexNormal, 0.0)).xyz;
+    outTexCoord = uv;
+    mvVertexNormal = normalize(mvMatrix * vec4(normal, 0.0)).xyz;
     mvVertexPos = mvPos.xyz;
     
     // Pass real world position and normal for texture tiling
-    worldPos = (uModelMatrix * vec4(position, 1.0)).xyz;
-    worldNormal = normalize((uModelMatrix * vec4(vertexNormal, 0.0)).xyz);
+    worldPos = (modelMatrix * vec4(pos, 1.0)).xyz;
+    worldNormal = normalize((modelMatrix * vec4(normal, 0.0)).xyz);
 }
 
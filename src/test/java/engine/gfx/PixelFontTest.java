@@ -0,0 +1,116 @@
+package engine.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelFontTest {
+
+    private static int litPixels(CharSequence text) {
+        int lit = 0;
+        for (int i = 0; i < text.length(); i++) {
+            for (int row = 0; row < PixelFont.GLYPH_HEIGHT; row++) {
+                for (int col = 0; col < PixelFont.GLYPH_WIDTH; col++) {
+                    if (PixelFont.isLit(text.charAt(i), row, col))
+                        lit++;
+                }
+            }
+        }
+        return lit;
+    }
+
+    /**
+     * Total area of the batch's quads, in font pixels at the given scale.
+     */
+    private static float area(QuadBatch batch, float scale) {
+        float[] v = batch.getVertices();
+        float area = 0;
+        for (int q = 0; q < batch.getQuadCount(); q++) {
+            int o = q * QuadBatch.FLOATS_PER_QUAD;
+            float width = v[o + 2 * QuadBatch.FLOATS_PER_VERTEX] - v[o];
+            float height = v[o + 2 * QuadBatch.FLOATS_PER_VERTEX + 1] - v[o + 1];
+            area += width * height;
+        }
+        return area / (scale * scale);
+    }
+
+    @Test
+    void litPixelsInARowMergeIntoOneQuad() {
+        QuadBatch batch = new QuadBatch();
+        // I: full bars on top and bottom, one pixel per row between
+        PixelFont.addText(batch, "I", 0, 0, 1, 1, 1, 1, 1);
+        assertEquals(PixelFont.GLYPH_HEIGHT, batch.getQuadCount());
+
+        batch.clear();
+        // H: rows "#...#" are two quads, the middle bar is one
+        PixelFont.addText(batch, "H", 0, 0, 1, 1, 1, 1, 1);
+        assertEquals(6 * 2 + 1, batch.getQuadCount());
+    }
+
+    @Test
+    void quadsCoverExactlyTheLitPixels() {
+        String text = "SCORE: 1234 / 98%";
+        QuadBatch batch = new QuadBatch();
+        PixelFont.addText(batch, text, 5, 7, 3, 1, 1, 1, 1);
+        assertEquals(litPixels(text), area(batch, 3), 1e-3f);
+        assertTrue(batch.getQuadCount() < litPixels(text));
+    }
+
+    @Test
+    void spaceIsBlankAndUnknownCharactersAreBoxes() {
+        QuadBatch batch = new QuadBatch();
+        PixelFont.addText(batch, " ", 0, 0, 1, 1, 1, 1, 1);
+        assertTrue(batch.isEmpty());
+
+        PixelFont.addText(batch, "#", 0, 0, 1, 1, 1, 1, 1);
+        assertEquals(PixelFont.GLYPH_HEIGHT, batch.getQuadCount());
+        assertEquals(PixelFont.GLYPH_WIDTH * PixelFont.GLYPH_HEIGHT, area(batch, 1), 1e-3f);
+    }
+
+    @Test
+    void lowerCaseUsesTheUpperCaseGlyph() {
+        assertSame(PixelFont.getGlyph('A'), PixelFont.getGlyph('a'));
+        assertSame(PixelFont.getGlyph('?'), PixelFont.getGlyph('é'));
+    }
+
+    @Test
+    void glyphsAdvanceByTheirWidthPlusSpacing() {
+        QuadBatch batch = new QuadBatch();
+        PixelFont.addText(batch, "LL", 10, 0, 2, 1, 1, 1, 1);
+        // L's column is its first quad; the second L starts one advance later
+        float[] v = batch.getVertices();
+        int perGlyph = batch.getQuadCount() / 2;
+        assertEquals(10, v[0]);
+        assertEquals(10 + PixelFont.ADVANCE * 2, v[perGlyph * QuadBatch.FLOATS_PER_QUAD]);
+        assertEquals((2 * PixelFont.ADVANCE - 1) * 2, PixelFont.measure("LL", 2));
+        assertEquals(0, PixelFont.measure("", 2));
+    }
+
+    @Test
+    void centeredTextIsCenteredOnThePoint() {
+        QuadBatch batch = new QuadBatch();
+        // A box glyph fills its whole cell, so the quads span exactly the text's bounds
+        PixelFont.addTextCentered(batch, "##", 100, 50, 2, 1, 1, 1, 1);
+        float[] v = batch.getVertices();
+        float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < batch.getQuadCount() * QuadBatch.VERTICES_PER_QUAD; i++) {
+            int o = i * QuadBatch.FLOATS_PER_VERTEX;
+            minX = Math.min(minX, v[o]);
+            maxX = Math.max(maxX, v[o]);
+            minY = Math.min(minY, v[o + 1]);
+            maxY = Math.max(maxY, v[o + 1]);
+        }
+        assertEquals(100, (minX + maxX) / 2, 1e-4f);
+        assertEquals(50, (minY + maxY) / 2, 1e-4f);
+        assertEquals(PixelFont.measure("##", 2), maxX - minX, 1e-4f);
+    }
+
+    @Test
+    void textUsesTheBatchTexture() {
+        QuadBatch batch = new QuadBatch();
+        batch.setTexture(5);
+        PixelFont.addText(batch, "OK", 0, 0, 1, 1, 1, 1, 1);
+        assertEquals(1, batch.getRunCount());
+        assertEquals(5, batch.getRunTexture(0));
+    }
+}
@@ -0,0 +1,136 @@
+package engine.gfx;
+
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuadBatchTest {
+
+    private static void addRect(QuadBatch batch, float x) {
+        batch.addRect(x, 0, x + 1, 1, 0, 0, 1, 1, 1, 1, 1, 1);
+    }
+
+    @Test
+    void consecutiveQuadsWithOneTextureShareARun() {
+        QuadBatch batch = new QuadBatch();
+        batch.setTexture(3);
+        for (int i = 0; i < 5; i++) {
+            addRect(batch, i);
+        }
+        assertEquals(5, batch.getQuadCount());
+        assertEquals(1, batch.getRunCount());
+        assertEquals(3, batch.getRunTexture(0));
+        assertEquals(0, batch.getRunFirstQuad(0));
+        assertEquals(5, batch.getRunQuadCount(0));
+    }
+
+    @Test
+    void textureChangesStartRunsInSubmissionOrder() {
+        QuadBatch batch = new QuadBatch();
+        batch.setTexture(1);
+        addRect(batch, 0);
+        addRect(batch, 1);
+        batch.setTexture(2);
+        addRect(batch, 2);
+        // Back to the first texture: a new run, so the quad still draws after texture 2's
+        batch.setTexture(1);
+        addRect(batch, 3);
+        addRect(batch, 4);
+        addRect(batch, 5);
+
+        assertEquals(3, batch.getRunCount());
+        int[] textures = { 1, 2, 1 };
+        int[] firsts = { 0, 2, 3 };
+        int[] counts = { 2, 1, 3 };
+        for (int run = 0; run < 3; run++) {
+            assertEquals(textures[run], batch.getRunTexture(run));
+            assertEquals(firsts[run], batch.getRunFirstQuad(run));
+            assertEquals(counts[run], batch.getRunQuadCount(run));
+        }
+    }
+
+    @Test
+    void settingTheSameTextureAgainKeepsTheRun() {
+        QuadBatch batch = new QuadBatch();
+        batch.setTexture(4);
+        addRect(batch, 0);
+        batch.setTexture(4);
+        addRect(batch, 1);
+        assertEquals(1, batch.getRunCount());
+    }
+
+    @Test
+    void clearDropsQuadsButKeepsTheTexture() {
+        QuadBatch batch = new QuadBatch();
+        batch.setTexture(9);
+        addRect(batch, 0);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+        assertEquals(0, batch.getRunCount());
+        assertEquals(9, batch.getTexture());
+        addRect(batch, 0);
+        assertEquals(9, batch.getRunTexture(0));
+    }
+
+    @Test
+    void rectVerticesAreInterleavedCornerByCorner() {
+        QuadBatch batch = new QuadBatch();
+        batch.addRect(10, 20, 30, 40, 0.25f, 0.5f, 0.75f, 1f, 0.1f, 0.2f, 0.3f, 0.4f);
+        float[] v = batch.getVertices();
+        float[][] corners = { { 10, 20, 0.25f, 0.5f }, { 10, 40, 0.25f, 1f }, { 30, 40, 0.75f, 1f },
+                { 30, 20, 0.75f, 0.5f } };
+        for (int c = 0; c < 4; c++) {
+            int o = c * QuadBatch.FLOATS_PER_VERTEX;
+            for (int i = 0; i < 4; i++) {
+                assertEquals(corners[c][i], v[o + i], "corner " + c + " component " + i);
+            }
+            assertEquals(0.1f, v[o + 4]);
+            assertEquals(0.2f, v[o + 5]);
+            assertEquals(0.3f, v[o + 6]);
+            assertEquals(0.4f, v[o + 7]);
+        }
+    }
+
+    @Test
+    void transformedQuadMatchesTheEquivalentRect() {
+        QuadBatch batch = new QuadBatch();
+        Matrix4f transform = new Matrix4f().translate(100, 50, 0).scale(20, 10, 1);
+        batch.addQuad(transform, 1, 1, 1, 1);
+        float[] v = batch.getVertices();
+        float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int c = 0; c < 4; c++) {
+            int o = c * QuadBatch.FLOATS_PER_VERTEX;
+            minX = Math.min(minX, v[o]);
+            maxX = Math.max(maxX, v[o]);
+            minY = Math.min(minY, v[o + 1]);
+            maxY = Math.max(maxY, v[o + 1]);
+            // v is 1 at local y = -0.5 and 0 at y = 0.5
+            assertEquals(v[o + 1] < 50 ? 1f : 0f, v[o + 3]);
+        }
+        assertEquals(90, minX, 1e-5f);
+        assertEquals(110, maxX, 1e-5f);
+        assertEquals(45, minY, 1e-5f);
+        assertEquals(55, maxY, 1e-5f);
+    }
+
+    @Test
+    void growsAndWritesEveryQuad() {
+        QuadBatch batch = new QuadBatch(1);
+        for (int i = 0; i < 100; i++) {
+            addRect(batch, i);
+        }
+        FloatBuffer buffer = FloatBuffer.allocate(100 * QuadBatch.FLOATS_PER_QUAD);
+        batch.writeVertices(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(99, buffer.get(99 * QuadBatch.FLOATS_PER_QUAD));
+    }
+
+    @Test
+    void quadIndicesFormTwoTrianglesPerQuad() {
+        int[] indices = QuadBatch.quadIndices(2);
+        assertArrayEquals(new int[] { 0, 1, 2, 2, 3, 0, 4, 5, 6, 6, 7, 4 }, indices);
+    }
+}
@@ -0,0 +1,113 @@
+package engine.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthOrderTest {
+
+    private static float depth(float[] position, float cameraX, float cameraZ) {
+        float dx = position[0] - cameraX;
+        float dz = position[1] - cameraZ;
+        return dx * dx + dz * dz;
+    }
+
+    @Test
+    void incrementalOrderMatchesAFullSortAsTheCameraMoves() {
+        Random random = new Random(11);
+        List<float[]> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            items.add(new float[] { random.nextFloat() * 512, random.nextFloat() * 512 });
+        }
+
+        DepthOrder<float[]> order = new DepthOrder<>();
+        for (int frame = 0; frame < 200; frame++) {
+            float cameraX = 100 + frame * 1.5f;
+            float cameraZ = 250 + (float) Math.sin(frame * 0.05) * 40;
+            order.begin();
+            for (float[] item : items) {
+                order.add(item, depth(item, cameraX, cameraZ));
+            }
+            assertEquals(items.size(), order.finish());
+
+            List<Float> expected = new ArrayList<>();
+            for (float[] item : items) {
+                expected.add(depth(item, cameraX, cameraZ));
+            }
+            expected.sort((a, b) -> Float.compare(b, a));
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(expected.get(i), order.getDepth(i), "frame " + frame + " position " + i);
+                assertEquals(depth(order.get(i), cameraX, cameraZ), order.getDepth(i));
+            }
+        }
+    }
+
+    @Test
+    void smallMovesNeedFewShifts() {
+        DepthOrder<Integer> order = new DepthOrder<>();
+        order.begin();
+        for (int i = 0; i < 1000; i++) {
+            order.add(i, i);
+        }
+        order.finish();
+        assertTrue(order.getLastShiftCount() > 1000); // first frame: reversed input
+
+        order.begin();
+        for (int i = 0; i < 1000; i++) {
+            order.add(i, i + (i == 500 ? 1.5f : 0));
+        }
+        order.finish();
+        assertEquals(1, order.getLastShiftCount());
+        assertEquals(500, (int) order.get(498));
+    }
+
+    @Test
+    void tiesKeepTheirPreviousOrder() {
+        DepthOrder<String> order = new DepthOrder<>();
+        order.begin();
+        order.add("a", 3);
+        order.add("b", 2);
+        order.add("c", 1);
+        order.finish();
+
+        order.begin();
+        order.add("c", 5);
+        order.add("b", 5);
+        order.add("a", 5);
+        order.finish();
+        assertEquals("a", order.get(0));
+        assertEquals("b", order.get(1));
+        assertEquals("c", order.get(2));
+    }
+
+    @Test
+    void itemsNotAddedAgainAreDropped() {
+        DepthOrder<String> order = new DepthOrder<>();
+        order.begin();
+        for (int i = 0; i < 100; i++) {
+            order.add("item" + i, i);
+        }
+        assertEquals(100, order.finish());
+
+        order.begin();
+        order.add("item7", 1);
+        order.add("new", 2);
+        assertEquals(2, order.finish());
+        Set<String> left = new HashSet<>();
+        for (int i = 0; i < order.size(); i++) {
+            left.add(order.get(i));
+        }
+        assertEquals(Set.of("item7", "new"), left);
+        assertEquals("new", order.get(0));
+
+        order.clear();
+        order.begin();
+        assertEquals(0, order.finish());
+    }
+}
@@ -0,0 +1,82 @@
+package engine.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrawCommandListTest {
+
+    @Test
+    void commandsUseTheDrawElementsIndirectLayout() {
+        DrawCommandList list = new DrawCommandList();
+        list.add(36, 120, 4000, 16, 0, -32);
+        list.add(6, 0, 0, 0, 0, 0);
+
+        IntBuffer commands = IntBuffer.allocate(2 * DrawCommandList.INTS_PER_COMMAND);
+        list.writeCommands(commands);
+        assertFalse(commands.hasRemaining());
+        // count, instanceCount, firstIndex, baseVertex, baseInstance
+        assertArrayEquals(new int[] { 36, 1, 120, 4000, 0, 6, 1, 0, 0, 1 }, commands.array());
+    }
+
+    @Test
+    void baseInstanceIsTheIndexOfTheDrawsOrigin() {
+        DrawCommandList list = new DrawCommandList();
+        for (int i = 0; i < 10; i++) {
+            list.add(6, i * 6, i * 4, i * 16, 0, -i * 16);
+        }
+        FloatBuffer origins = FloatBuffer.allocate(10 * DrawCommandList.FLOATS_PER_ORIGIN);
+        list.writeOrigins(origins);
+        for (int i = 0; i < list.size(); i++) {
+            int instance = list.getBaseInstance(i);
+            assertEquals(i, instance);
+            assertEquals(list.getOriginX(i), origins.get(instance * DrawCommandList.FLOATS_PER_ORIGIN));
+            assertEquals(list.getOriginZ(i), origins.get(instance * DrawCommandList.FLOATS_PER_ORIGIN + 2));
+        }
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        DrawCommandList list = new DrawCommandList(2);
+        for (int i = 0; i < 100; i++) {
+            list.add(i + 1, i * 10, i * 100, i, i * 2, i * 3);
+        }
+        assertEquals(100, list.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, list.getIndexCount(i));
+            assertEquals(i * 10, list.getFirstIndex(i));
+            assertEquals(i * 100, list.getBaseVertex(i));
+            assertEquals(i, list.getBaseInstance(i));
+            assertEquals(i, list.getOriginX(i));
+            assertEquals(i * 2, list.getOriginY(i));
+            assertEquals(i * 3, list.getOriginZ(i));
+        }
+        assertEquals(100 * 101 / 2, list.getTotalIndexCount());
+    }
+
+    @Test
+    void writesOnlyTheCurrentFrameAtTheBufferPosition() {
+        DrawCommandList list = new DrawCommandList(4);
+        for (int i = 0; i < 3; i++) {
+            list.add(6, 0, 0, 1, 2, 3);
+        }
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add(12, 24, 8, 7, 8, 9);
+
+        IntBuffer commands = IntBuffer.allocate(2 + 2 * DrawCommandList.INTS_PER_COMMAND);
+        commands.position(2);
+        list.writeCommands(commands);
+        assertEquals(2 + DrawCommandList.INTS_PER_COMMAND, commands.position());
+        assertEquals(12, commands.get(2));
+        assertEquals(0, commands.get(6)); // baseInstance restarts after clear
+
+        FloatBuffer origins = FloatBuffer.allocate(2 * DrawCommandList.FLOATS_PER_ORIGIN);
+        list.writeOrigins(origins);
+        assertEquals(DrawCommandList.FLOATS_PER_ORIGIN, origins.position());
+        assertArrayEquals(new float[] { 7, 8, 9, 0, 0, 0 }, origins.array());
+    }
+}
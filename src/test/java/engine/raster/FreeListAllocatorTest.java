@@ -0,0 +1,159 @@
+package engine.raster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreeListAllocatorTest {
+
+    @Test
+    void allocatesBackToBackFromAnEmptySpace() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        assertEquals(0, allocator.allocate(10));
+        assertEquals(10, allocator.allocate(20));
+        assertEquals(30, allocator.allocate(70));
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(1));
+        assertEquals(100, allocator.getUsed());
+        assertEquals(3, allocator.getAllocationCount());
+        assertEquals(20, allocator.getSize(10));
+        assertEquals(-1, allocator.getSize(5));
+    }
+
+    @Test
+    void bestFitReusesTheSmallestHoleThatFits() {
+        FreeListAllocator allocator = new FreeListAllocator(1000);
+        int a = allocator.allocate(50);
+        allocator.allocate(10);
+        int b = allocator.allocate(20);
+        allocator.allocate(10);
+        int c = allocator.allocate(30);
+        allocator.allocate(10);
+        allocator.free(a);
+        allocator.free(b);
+        allocator.free(c);
+
+        // Holes of 50, 20 and 30 plus the tail: each request takes the tightest one
+        assertEquals(b, allocator.allocate(20));
+        assertEquals(c, allocator.allocate(25));
+        assertEquals(a, allocator.allocate(40));
+        // Nothing left in front of the tail fits
+        assertEquals(130, allocator.allocate(11));
+    }
+
+    @Test
+    void bestFitTiesGoToTheLowestOffset() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int first = allocator.allocate(10);
+        allocator.allocate(10);
+        int second = allocator.allocate(10);
+        allocator.allocate(70);
+        allocator.free(second);
+        allocator.free(first);
+        assertEquals(first, allocator.allocate(10));
+        assertEquals(second, allocator.allocate(5));
+    }
+
+    @Test
+    void freeCoalescesWithBothNeighbours() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(10);
+        int b = allocator.allocate(10);
+        int c = allocator.allocate(10);
+        allocator.allocate(10);
+
+        allocator.free(a);
+        allocator.free(c);
+        assertEquals(3, allocator.getFreeBlockCount());
+        // b sits between two holes: all three become one block
+        allocator.free(b);
+        assertEquals(2, allocator.getFreeBlockCount());
+        assertEquals(60, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.allocate(30));
+    }
+
+    @Test
+    void freeingEverythingLeavesOneBlock() {
+        FreeListAllocator allocator = new FreeListAllocator(1 << 16);
+        Random random = new Random(7);
+        List<Integer> live = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int offset = allocator.allocate(1 + random.nextInt(200));
+            if (offset != FreeListAllocator.NO_SPACE)
+                live.add(offset);
+            if (!live.isEmpty() && random.nextInt(3) == 0)
+                allocator.free(live.remove(random.nextInt(live.size())));
+        }
+        for (int offset : live) {
+            allocator.free(offset);
+        }
+        assertEquals(0, allocator.getUsed());
+        assertEquals(1, allocator.getFreeBlockCount());
+        assertEquals(1 << 16, allocator.getLargestFreeBlock());
+        assertEquals(0f, allocator.getFragmentation());
+    }
+
+    @Test
+    void rejectsBadFreesAndSizes() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(10);
+        allocator.free(a);
+        assertThrows(IllegalArgumentException.class, () -> allocator.free(a));
+        assertThrows(IllegalArgumentException.class, () -> allocator.free(50));
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocate(0));
+        assertThrows(IllegalArgumentException.class, () -> new FreeListAllocator(-1));
+    }
+
+    @Test
+    void growExtendsTheFreeTail() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        allocator.allocate(60);
+        assertEquals(40, allocator.getTailFree());
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(50));
+
+        allocator.grow(200);
+        assertEquals(200, allocator.getCapacity());
+        assertEquals(140, allocator.getTailFree());
+        assertEquals(1, allocator.getFreeBlockCount());
+        assertEquals(60, allocator.allocate(140));
+        assertThrows(IllegalArgumentException.class, () -> allocator.grow(150));
+    }
+
+    @Test
+    void growAfterAFullSpaceStartsANewBlock() {
+        FreeListAllocator allocator = new FreeListAllocator(0);
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(1));
+        allocator.grow(10);
+        assertEquals(0, allocator.allocate(10));
+        assertEquals(0, allocator.getTailFree());
+        allocator.grow(30);
+        assertEquals(10, allocator.allocate(20));
+    }
+
+    @Test
+    void fragmentationTracksHowSplinteredFreeSpaceIs() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        assertEquals(0f, allocator.getFragmentation());
+
+        int[] offsets = new int[10];
+        for (int i = 0; i < 10; i++) {
+            offsets[i] = allocator.allocate(10);
+        }
+        assertEquals(0f, allocator.getFragmentation()); // no free space at all
+        for (int i = 0; i < 10; i += 2) {
+            allocator.free(offsets[i]);
+        }
+        // Five holes of 10: the largest is a fifth of the free space
+        assertEquals(50, allocator.getFree());
+        assertEquals(0.8f, allocator.getFragmentation(), 1e-6f);
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(11));
+
+        for (int i = 1; i < 10; i += 2) {
+            allocator.free(offsets[i]);
+        }
+        assertEquals(0f, allocator.getFragmentation());
+    }
+}
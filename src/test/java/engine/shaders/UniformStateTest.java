@@ -0,0 +1,199 @@
+package engine.shaders;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniformStateTest {
+
+    private static final int PROGRAM = 7;
+
+    /**
+     * Logs every call as text; locations are handed out in order of lookup, and
+     * names starting with "unused" are inactive.
+     */
+    private static final class RecordingBackend implements UniformBackend {
+        final List<String> calls = new ArrayList<>();
+        final Map<String, Integer> lookups = new HashMap<>();
+
+        @Override
+        public int getLocation(int programId, String name) {
+            assertEquals(PROGRAM, programId);
+            lookups.merge(name, 1, Integer::sum);
+            return name.startsWith("unused") ? -1 : lookups.size();
+        }
+
+        @Override
+        public void uniform1i(int location, int value) {
+            calls.add("1i " + location + " " + value);
+        }
+
+        @Override
+        public void uniform1f(int location, float value) {
+            calls.add("1f " + location + " " + value);
+        }
+
+        @Override
+        public void uniform2f(int location, float x, float y) {
+            calls.add("2f " + location + " " + x + " " + y);
+        }
+
+        @Override
+        public void uniform3f(int location, float x, float y, float z) {
+            calls.add("3f " + location + " " + x + " " + y + " " + z);
+        }
+
+        @Override
+        public void uniform4f(int location, float x, float y, float z, float w) {
+            calls.add("4f " + location + " " + x + " " + y + " " + z + " " + w);
+        }
+
+        @Override
+        public void uniformMatrix4(int location, float[] values) {
+            calls.add("m4 " + location + " " + Arrays.toString(values));
+        }
+    }
+
+    private RecordingBackend backend;
+    private UniformCounters counters;
+    private UniformState state;
+
+    @BeforeEach
+    void setUp() {
+        backend = new RecordingBackend();
+        counters = new UniformCounters();
+        state = new UniformState(backend, PROGRAM, counters);
+    }
+
+    @Test
+    void resolvesEachNameOnce() {
+        Uniform a = state.resolve("uA");
+        Uniform b = state.resolve("uB");
+        assertSame(a, state.resolve("uA"));
+        assertSame(b, state.find("uB"));
+        assertNull(state.find("uC"));
+        assertEquals(1, backend.lookups.get("uA"));
+        assertEquals(2, state.getUniformCount());
+        assertEquals(1, a.getLocation());
+        assertEquals(2, b.getLocation());
+    }
+
+    @Test
+    void repeatedValuesAreSkipped() {
+        Uniform u = state.resolve("uFlag");
+        state.set(u, 1);
+        state.set(u, 1);
+        state.set(u, 0);
+        state.set(u, 0);
+        assertEquals(Arrays.asList("1i 1 1", "1i 1 0"), backend.calls);
+        assertEquals(2, counters.getPendingIssued());
+        assertEquals(2, counters.getPendingSkipped());
+
+        counters.endFrame();
+        assertEquals(2, counters.getIssued());
+        assertEquals(2, counters.getSkipped());
+        assertEquals(0, counters.getPendingIssued());
+    }
+
+    @Test
+    void vectorsCompareEveryComponent() {
+        Uniform u = state.resolve("uColour");
+        state.set(u, 1f, 0.5f, 0.25f, 1f);
+        state.set(u, 1f, 0.5f, 0.25f, 1f);
+        state.set(u, 1f, 0.5f, 0.25f, 0.5f);
+        Uniform v = state.resolve("uOffset");
+        state.set(v, 2f, 3f);
+        state.set(v, 2f, 4f);
+        Uniform w = state.resolve("uLight");
+        state.set(w, 0f, 1f, 0f);
+        state.set(w, 0f, 1f, 0f);
+        assertEquals(Arrays.asList("4f 1 1.0 0.5 0.25 1.0", "4f 1 1.0 0.5 0.25 0.5", "2f 2 2.0 3.0",
+                "2f 2 2.0 4.0", "3f 3 0.0 1.0 0.0"), backend.calls);
+    }
+
+    @Test
+    void matricesUploadOnlyWhenAnElementChanges() {
+        Uniform u = state.resolve("uView");
+        float[] m = new float[16];
+        m[0] = m[5] = m[10] = m[15] = 1;
+        state.setMatrix4(u, m);
+        state.setMatrix4(u, m.clone());
+        m[12] = 3;
+        state.setMatrix4(u, m);
+        assertEquals(2, backend.calls.size());
+        assertTrue(backend.calls.get(1).contains("3.0"));
+        // The caller's array is only read during the call
+        m[12] = 4;
+        state.setMatrix4(u, m);
+        assertEquals(3, backend.calls.size());
+    }
+
+    @Test
+    void valuesCompareBitForBit() {
+        Uniform u = state.resolve("uScale");
+        state.set(u, 0f);
+        state.set(u, -0f);
+        state.set(u, Float.NaN);
+        state.set(u, Float.NaN);
+        assertEquals(Arrays.asList("1f 1 0.0", "1f 1 -0.0", "1f 1 NaN"), backend.calls);
+    }
+
+    @Test
+    void changingTheTypeAlwaysUploads() {
+        Uniform u = state.resolve("uMode");
+        state.set(u, 0);
+        // Same bits as int 0, but a different call
+        state.set(u, 0f);
+        state.set(u, 0f, 0f, 0f, 0f);
+        state.set(u, 0f, 0f);
+        assertEquals(4, backend.calls.size());
+    }
+
+    @Test
+    void inactiveUniformsAreIgnored() {
+        Uniform u = state.resolve("unusedFog");
+        assertFalse(u.isActive());
+        state.set(u, 1);
+        state.set(u, 1f, 2f, 3f);
+        assertTrue(backend.calls.isEmpty());
+        assertEquals(0, counters.getPendingIssued() + counters.getPendingSkipped());
+    }
+
+    @Test
+    void invalidateUploadsEverythingAgain() {
+        Uniform a = state.resolve("uA");
+        Uniform b = state.resolve("uB");
+        state.set(a, 1);
+        state.set(b, 2f);
+        state.invalidate();
+        state.set(a, 1);
+        state.set(b, 2f);
+        assertEquals(Arrays.asList("1i 1 1", "1f 2 2.0", "1i 1 1", "1f 2 2.0"), backend.calls);
+    }
+
+    @Test
+    void handlesOfAnotherProgramAreRejected() {
+        UniformState other = new UniformState(backend, PROGRAM, counters);
+        Uniform foreign = other.resolve("uA");
+        assertThrows(IllegalArgumentException.class, () -> state.set(foreign, 1));
+    }
+
+    @Test
+    void growsPastTheInitialSlots() {
+        for (int i = 0; i < 40; i++) {
+            state.set(state.resolve("u" + i), i);
+        }
+        for (int i = 0; i < 40; i++) {
+            state.set(state.resolve("u" + i), i);
+        }
+        assertEquals(40, backend.calls.size());
+        assertEquals("1i 40 39", backend.calls.get(39));
+    }
+}
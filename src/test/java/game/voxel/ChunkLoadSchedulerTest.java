@@ -0,0 +1,189 @@
+package game.voxel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkLoadSchedulerTest {
+
+    /**
+     * Records loads and runs workers on the calling thread, so update() returns with
+     * the queue drained.
+     */
+    private static final class World implements ChunkLoadScheduler.Loader {
+        final Set<Long> loaded = new HashSet<>();
+        final List<Long> order = new ArrayList<>();
+        final Set<Long> failing = new HashSet<>();
+
+        @Override
+        public void load(int cx, int cz) throws Exception {
+            long key = ChunkManager.getChunkKey(cx, cz);
+            order.add(key);
+            if (failing.remove(key))
+                throw new Exception("disk error at " + cx + "," + cz);
+            loaded.add(key);
+        }
+    }
+
+    /**
+     * Holds worker tasks until the test runs them, so the queue can be inspected and
+     * changed while requests are still waiting.
+     */
+    private static final class DeferredExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static int distance2(int[] chunk, int centerX, int centerZ) {
+        int dx = chunk[0] - centerX;
+        int dz = chunk[1] - centerZ;
+        return dx * dx + dz * dz;
+    }
+
+    private static int indexOf(List<int[]> order, int cx, int cz) {
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i)[0] == cx && order.get(i)[1] == cz)
+                return i;
+        }
+        return -1;
+    }
+
+    @Test
+    void loadsNearestChunksFirst() {
+        World world = new World();
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(Runnable::run, 1, world);
+        scheduler.update(0, 0, 2, 0, 0, world.loaded::contains);
+
+        assertEquals(25, world.loaded.size());
+        assertEquals(ChunkManager.getChunkKey(0, 0), world.order.get(0));
+        int last = 0;
+        for (long key : world.order) {
+            int cx = (int) (key >> 32);
+            int cz = (int) key;
+            int d2 = cx * cx + cz * cz;
+            assertTrue(d2 >= last, "chunk " + cx + "," + cz + " out of order");
+            last = d2;
+        }
+    }
+
+    @Test
+    void failedLoadIsRetriedWithoutMoving() throws InterruptedException {
+        World world = new World();
+        long broken = ChunkManager.getChunkKey(1, 0);
+        world.failing.add(broken);
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(Runnable::run, 1, world, 0);
+
+        scheduler.update(0, 0, 1, 0, 0, world.loaded::contains);
+        assertFalse(world.loaded.contains(broken));
+        assertEquals(1, scheduler.getFailedCount());
+        assertEquals(8, scheduler.getCompletedCount());
+
+        // Same center, radius and direction: only the failure triggers work
+        Thread.sleep(1);
+        scheduler.update(0, 0, 1, 0, 0, world.loaded::contains);
+        assertTrue(world.loaded.contains(broken));
+        assertEquals(9, world.loaded.size());
+        assertEquals(10, world.order.size());
+    }
+
+    @Test
+    void retryWaitsForTheDelay() {
+        World world = new World();
+        world.failing.add(ChunkManager.getChunkKey(0, 0));
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(Runnable::run, 1, world, 60_000);
+
+        scheduler.update(0, 0, 0, 0, 0, world.loaded::contains);
+        scheduler.update(0, 0, 0, 0, 0, world.loaded::contains);
+        assertEquals(1, world.order.size());
+        assertTrue(world.loaded.isEmpty());
+
+        // Moving still queues everything missing, the failed chunk included
+        scheduler.update(0, 0, 1, 0, 0, world.loaded::contains);
+        assertEquals(9, world.loaded.size());
+    }
+
+    @Test
+    void queuedRequestsOutsideTheRadiusAreCancelledBeforeTheyRun() {
+        World world = new World();
+        DeferredExecutor executor = new DeferredExecutor();
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(executor, 1, world);
+
+        scheduler.update(0, 0, 2, 0, 0, world.loaded::contains);
+        assertEquals(25, scheduler.getQueueDepth());
+        assertTrue(world.order.isEmpty());
+
+        // Overlaps the old square in x = 2 only
+        scheduler.update(4, 0, 2, 0, 0, world.loaded::contains);
+        assertEquals(20, scheduler.getCancelledCount());
+        assertFalse(scheduler.isQueued(0, 0));
+        assertTrue(scheduler.isQueued(2, 0));
+        assertEquals(25, scheduler.getQueueDepth());
+
+        executor.runAll();
+        assertEquals(25, world.loaded.size());
+        for (long key : world.order) {
+            assertTrue((int) (key >> 32) >= 2, "loaded chunk outside the radius");
+        }
+    }
+
+    @Test
+    void queuedRequestsAreReorderedWhenThePlayerMoves() {
+        World world = new World();
+        DeferredExecutor executor = new DeferredExecutor();
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(executor, 1, world);
+
+        scheduler.update(0, 0, 3, 0, 0, world.loaded::contains);
+        assertArrayEquals(new int[] { 0, 0 }, scheduler.getQueueOrder().get(0));
+
+        scheduler.update(2, 1, 3, 0, 0, world.loaded::contains);
+        List<int[]> order = scheduler.getQueueOrder();
+        assertArrayEquals(new int[] { 2, 1 }, order.get(0));
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(distance2(order.get(i), 2, 1) >= distance2(order.get(i - 1), 2, 1),
+                    "queue not nearest-first around the new center at " + i);
+        }
+
+        executor.runAll();
+        assertEquals(ChunkManager.getChunkKey(2, 1), world.order.get(0));
+    }
+
+    @Test
+    void chunksAheadComeBeforeChunksBehindAtTheSameDistance() {
+        World world = new World();
+        DeferredExecutor executor = new DeferredExecutor();
+        ChunkLoadScheduler scheduler = new ChunkLoadScheduler(executor, 1, world);
+
+        scheduler.update(0, 0, 4, 1, 0, world.loaded::contains);
+        List<int[]> order = scheduler.getQueueOrder();
+        assertTrue(indexOf(order, 3, 0) < indexOf(order, -3, 0));
+        assertTrue(indexOf(order, 2, 2) < indexOf(order, -2, 2));
+        assertTrue(indexOf(order, 0, 3) < indexOf(order, -3, 0));
+        // The bias is at most 2x, so a chunk far ahead still waits for one close behind
+        assertTrue(indexOf(order, -1, 0) < indexOf(order, 4, 0));
+
+        // Turning around re-scores the queue without moving
+        scheduler.update(0, 0, 4, -1, 0, world.loaded::contains);
+        order = scheduler.getQueueOrder();
+        assertTrue(indexOf(order, -3, 0) < indexOf(order, 3, 0));
+        assertEquals(0, scheduler.getCancelledCount());
+
+        executor.runAll();
+        assertEquals(81, world.loaded.size());
+    }
+}
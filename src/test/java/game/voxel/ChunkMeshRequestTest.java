@@ -0,0 +1,37 @@
+package game.voxel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkMeshRequestTest {
+
+    @Test
+    void requestedLodIsNotRequestedAgain() {
+        Chunk chunk = new Chunk(0, 0);
+        assertTrue(chunk.needsMesh(0));
+        chunk.markMeshRequested(0);
+        assertFalse(chunk.needsMesh(0));
+        assertTrue(chunk.needsMesh(1));
+    }
+
+    @Test
+    void failedBuildIsRequestedAgain() {
+        Chunk chunk = new Chunk(0, 0);
+        int version = chunk.markMeshRequested(0);
+        chunk.clearMeshRequest(0, version);
+        assertTrue(chunk.needsMesh(0));
+    }
+
+    @Test
+    void failureOfAnOlderBuildKeepsTheNewerRequest() {
+        Chunk chunk = new Chunk(0, 0);
+        int old = chunk.markMeshRequested(0);
+        chunk.setBlock(1, 1, 1, Block.STONE);
+        assertTrue(chunk.needsMesh(0));
+        chunk.markMeshRequested(0);
+
+        chunk.clearMeshRequest(0, old);
+        assertFalse(chunk.needsMesh(0));
+    }
+}
@@ -0,0 +1,86 @@
+package game.voxel.advanced;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrustumCullerTest {
+
+    private RenderOptimization.FrustumCuller culler;
+
+    /**
+     * 60 degree square frustum from the origin looking down -z, near 0.1 and far 500.
+     */
+    @BeforeEach
+    void setUp() {
+        culler = new RenderOptimization.FrustumCuller();
+        look(new Vector3f(0, 0, 0), new Vector3f(0, 0, -1));
+    }
+
+    private void look(Vector3f eye, Vector3f center) {
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        new Matrix4f().perspective((float) Math.toRadians(60), 1f, 0.1f, 500f).get(projection);
+        new Matrix4f().lookAt(eye, center, new Vector3f(0, 1, 0)).get(view);
+        culler.updateFrustum(projection, view);
+    }
+
+    private int cornersInside(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int inside = 0;
+        for (int i = 0; i < 8; i++) {
+            if (culler.isPointInFrustum((i & 1) == 0 ? minX : maxX, (i & 2) == 0 ? minY : maxY,
+                    (i & 4) == 0 ? minZ : maxZ))
+                inside++;
+        }
+        return inside;
+    }
+
+    @Test
+    void boxInFrontIsVisible() {
+        assertTrue(culler.isBoundingBoxVisible(new Vector3f(-1, -1, -20), new Vector3f(1, 1, -18)));
+        assertEquals(8, cornersInside(-1, -1, -20, 1, 1, -18));
+    }
+
+    @Test
+    void boxFullyOutsideOnePlaneIsCulled() {
+        // Behind the camera
+        assertFalse(culler.isBoundingBoxVisible(-5, -5, 1, 5, 5, 10));
+        // Off to the left, within the depth range
+        assertFalse(culler.isBoundingBoxVisible(-100, -1, -30, -40, 1, -20));
+        // Past the far plane
+        assertFalse(culler.isBoundingBoxVisible(-1, -1, -700, 1, 1, -600));
+        // Above
+        assertFalse(culler.isBoundingBoxVisible(-1, 50, -20, 1, 60, -18));
+    }
+
+    @Test
+    void boxStraddlingTheFrustumWithNoCornerInsideIsVisible() {
+        // A wall crossing the whole view: every corner is outside the left or right plane
+        assertEquals(0, cornersInside(-1000, -0.5f, -20, 1000, 0.5f, -19));
+        assertTrue(culler.isBoundingBoxVisible(-1000, -0.5f, -20, 1000, 0.5f, -19));
+
+        // A beam along the view axis from behind the camera to past the far plane
+        assertEquals(0, cornersInside(-0.5f, -0.5f, -1000, 0.5f, 0.5f, 10));
+        assertTrue(culler.isBoundingBoxVisible(-0.5f, -0.5f, -1000, 0.5f, 0.5f, 10));
+    }
+
+    @Test
+    void largeBoxEnclosingTheCameraIsVisible() {
+        assertEquals(0, cornersInside(-100, -100, -100, 100, 100, 100));
+        assertTrue(culler.isBoundingBoxVisible(new Vector3f(-100, -100, -100), new Vector3f(100, 100, 100)));
+    }
+
+    @Test
+    void planesFollowTheViewMatrix() {
+        // Standing at x = 100 looking toward +x
+        look(new Vector3f(100, 64, 0), new Vector3f(101, 64, 0));
+        assertTrue(culler.isBoundingBoxVisible(140, 60, -2, 144, 68, 2));
+        assertFalse(culler.isBoundingBoxVisible(40, 60, -2, 44, 68, 2));
+        assertFalse(culler.isBoundingBoxVisible(-4, 60, -2, 4, 68, 2));
+        assertTrue(culler.isPointInFrustum(120, 64, 0));
+        assertFalse(culler.isPointInFrustum(80, 64, 0));
+    }
+}
@@ -0,0 +1,75 @@
+package game.voxel.advanced;
+
+import game.voxel.advanced.ParticleSystem.ParticleType;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticleSystemTest {
+
+    private static final float DELTA = 1f / 60f;
+
+    private static ParticleSystem filled(int capacity, ForkJoinPool pool) {
+        ParticleSystem system = new ParticleSystem(capacity, new Random(42), pool);
+        ParticleType[] types = ParticleType.values();
+        for (int i = 0; i < capacity; i++) {
+            system.emit(new Vector3f(i % 7, 64, i % 5), types[i % types.length], 1);
+        }
+        return system;
+    }
+
+    @Test
+    void emissionStopsAtCapacity() {
+        ParticleSystem system = new ParticleSystem(10, new Random(1), null);
+        assertEquals(8, system.emit(new Vector3f(), ParticleType.DUST, 8));
+        assertEquals(2, system.emit(new Vector3f(), ParticleType.DUST, 8));
+        assertEquals(0, system.emit(new Vector3f(), ParticleType.DUST, 8));
+        assertEquals(10, system.getParticleCount());
+    }
+
+    @Test
+    void defaultCapacityReachesTheParallelPath() {
+        assertTrue(ParticleSystem.PARALLEL_THRESHOLD < new ParticleSystem().getCapacity());
+    }
+
+    @Test
+    void parallelUpdateMatchesTheSerialOne() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParticleSystem serial = filled(10_000, null);
+            ParticleSystem parallel = filled(10_000, pool);
+            for (int frame = 0; frame < 30; frame++) {
+                serial.advance(DELTA);
+                parallel.advance(DELTA);
+            }
+            for (int i = 0; i < serial.getParticleCount(); i++) {
+                assertEquals(serial.getX(i), parallel.getX(i));
+                assertEquals(serial.getY(i), parallel.getY(i));
+                assertEquals(serial.getZ(i), parallel.getZ(i));
+                assertEquals(serial.getLifetime(i), parallel.getLifetime(i));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void compactRemovesOnlyExpiredParticles() {
+        ParticleSystem system = filled(1000, null);
+        // Sparks live at most one second, leaves at least five
+        system.advance(1.01f);
+        int removed = system.compact();
+        assertTrue(removed > 0);
+        assertEquals(1000 - removed, system.getParticleCount());
+        for (int i = 0; i < system.getParticleCount(); i++) {
+            assertTrue(system.getLifetime(i) > 0);
+            assertNotEquals(ParticleType.SPARK, system.getType(i));
+        }
+        system.update(10);
+        assertEquals(0, system.getParticleCount());
+    }
+}
@@ -0,0 +1,153 @@
+package game.voxel.gfx;
+
+import game.voxel.ChunkManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshUploadQueueTest {
+
+    // Budgets no drain here reaches: 1000 s or 1 TB
+    private static final long UNLIMITED = 1_000_000_000L;
+
+    /**
+     * Records uploads and advances a fake clock by a fixed cost per upload.
+     */
+    private static final class FakeUploader implements MeshUploadQueue.Uploader<String> {
+        final long[] now = new long[1];
+        final long nanosPerUpload;
+        final List<String> uploads = new ArrayList<>();
+
+        FakeUploader(long nanosPerUpload) {
+            this.nanosPerUpload = nanosPerUpload;
+        }
+
+        @Override
+        public void upload(String item) {
+            uploads.add(item);
+            now[0] += nanosPerUpload;
+        }
+    }
+
+    private static void offer(MeshUploadQueue<String> queue, int cx, int cz, int lod, int version, long bytes) {
+        queue.offer(ChunkManager.getChunkKey(cx, cz), cx, cz, lod, version, bytes, cx + "," + cz + "@" + lod
+                + "v" + version);
+    }
+
+    private static MeshUploadQueue<String> queue(FakeUploader uploader) {
+        return new MeshUploadQueue<>(() -> uploader.now[0]);
+    }
+
+    @Test
+    void drainsNearestFirstAndFinerLodsFirstWithinAChunk() {
+        FakeUploader uploader = new FakeUploader(0);
+        MeshUploadQueue<String> queue = queue(uploader);
+        offer(queue, 5, 0, 0, 1, 10);
+        offer(queue, 1, 1, 1, 1, 10);
+        offer(queue, 1, 1, 0, 1, 10);
+        offer(queue, 0, -3, 0, 1, 10);
+
+        assertEquals(4, queue.drain(0, 0, UNLIMITED, UNLIMITED, key -> true, uploader));
+        assertEquals(List.of("1,1@0v1", "1,1@1v1", "0,-3@0v1", "5,0@0v1"), uploader.uploads);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void stopsAtTheTimeBudgetAndPutsTheRestBack() {
+        FakeUploader uploader = new FakeUploader(300_000); // 300 us per upload
+        MeshUploadQueue<String> queue = queue(uploader);
+        for (int i = 0; i < 10; i++) {
+            offer(queue, i, 0, 0, 1, 10);
+        }
+
+        // 300 and 600 us are under the 1000 us budget, 900 us is too; 1200 us stops
+        assertEquals(4, queue.drain(0, 0, 1000, UNLIMITED, key -> true, uploader));
+        assertEquals(6, queue.size());
+
+        uploader.uploads.clear();
+        assertEquals(6, queue.drain(0, 0, UNLIMITED, UNLIMITED, key -> true, uploader));
+        assertEquals("4,0@0v1", uploader.uploads.get(0));
+        assertEquals(10, queue.getUploadedCount());
+    }
+
+    @Test
+    void stopsAtTheByteBudget() {
+        FakeUploader uploader = new FakeUploader(0);
+        MeshUploadQueue<String> queue = queue(uploader);
+        for (int i = 0; i < 10; i++) {
+            offer(queue, i, 0, 0, 1, 400);
+        }
+        assertEquals(3, queue.drain(0, 0, UNLIMITED, 1000, key -> true, uploader));
+        assertEquals(1200, queue.getUploadedBytes());
+        assertEquals(7, queue.size());
+    }
+
+    @Test
+    void uploadsOneResultEvenOverBudget() {
+        FakeUploader uploader = new FakeUploader(5_000_000);
+        MeshUploadQueue<String> queue = queue(uploader);
+        offer(queue, 0, 0, 0, 1, 1 << 30);
+        offer(queue, 1, 0, 0, 1, 1 << 30);
+        assertEquals(1, queue.drain(0, 0, 0, 0, key -> true, uploader));
+        assertEquals(1, queue.drain(0, 0, 0, 0, key -> true, uploader));
+        assertEquals(List.of("0,0@0v1", "1,0@0v1"), uploader.uploads);
+    }
+
+    @Test
+    void severalResultsForOneChunkAndLodCoalesceToTheNewest() {
+        FakeUploader uploader = new FakeUploader(0);
+        MeshUploadQueue<String> queue = queue(uploader);
+        offer(queue, 2, 2, 0, 1, 10);
+        offer(queue, 2, 2, 0, 3, 10);
+        // A late, older result does not replace the newer one
+        offer(queue, 2, 2, 0, 2, 10);
+        offer(queue, 2, 2, 1, 1, 10);
+
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.getCoalescedCount());
+        queue.drain(0, 0, UNLIMITED, UNLIMITED, key -> true, uploader);
+        assertEquals(List.of("2,2@0v3", "2,2@1v1"), uploader.uploads);
+    }
+
+    @Test
+    void putBackKeepsANewerResultThatArrivedDuringTheDrain() {
+        FakeUploader uploader = new FakeUploader(2_000_000);
+        MeshUploadQueue<String> queue = queue(uploader);
+        offer(queue, 0, 0, 0, 1, 10);
+        offer(queue, 3, 0, 0, 1, 10);
+
+        queue.drain(0, 0, 1000, UNLIMITED, key -> true, item -> {
+            uploader.upload(item);
+            // A worker finishes a newer mesh of the chunk still waiting
+            offer(queue, 3, 0, 0, 2, 10);
+        });
+        assertEquals(1, queue.size());
+        uploader.uploads.clear();
+        queue.drain(0, 0, UNLIMITED, UNLIMITED, key -> true, uploader);
+        assertEquals(List.of("3,0@0v2"), uploader.uploads);
+    }
+
+    @Test
+    void resultsForEvictedChunksAreDropped() {
+        FakeUploader uploader = new FakeUploader(0);
+        MeshUploadQueue<String> queue = queue(uploader);
+        offer(queue, 0, 0, 0, 1, 10);
+        offer(queue, 1, 0, 0, 1, 10);
+        offer(queue, 1, 0, 1, 1, 10);
+        offer(queue, 2, 0, 0, 1, 10);
+
+        // What cleanupChunks does through AsyncMeshRebuilder.evict
+        queue.evict(ChunkManager.getChunkKey(1, 0));
+        assertEquals(2, queue.getDroppedCount());
+
+        // And a chunk unloaded before the drain, found through isLoaded
+        long unloaded = ChunkManager.getChunkKey(2, 0);
+        assertEquals(1, queue.drain(0, 0, UNLIMITED, UNLIMITED, key -> key != unloaded, uploader));
+        assertEquals(List.of("0,0@0v1"), uploader.uploads);
+        assertEquals(3, queue.getDroppedCount());
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,119 @@
+package game.voxel.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import static game.voxel.gfx.SectionConnectivity.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionConnectivityTest {
+
+    private static final int SIZE = MeshSections.SECTION_SIZE;
+    private static final byte AIR = 0;
+    private static final byte STONE = 1;
+    private static final boolean[] OPAQUE = new boolean[256];
+
+    static {
+        OPAQUE[STONE] = true;
+    }
+
+    private static byte[] filled(byte id) {
+        byte[] ids = new byte[SIZE * SIZE * SIZE];
+        java.util.Arrays.fill(ids, id);
+        return ids;
+    }
+
+    private static void set(byte[] ids, int x, int y, int z, byte id) {
+        ids[(x * SIZE + y) * SIZE + z] = id;
+    }
+
+    private static long compute(byte[] ids) {
+        return SectionConnectivity.compute(ids, 0, SIZE * SIZE, SIZE, 1, OPAQUE);
+    }
+
+    @Test
+    void airConnectsEverythingAndStoneNothing() {
+        assertEquals(ALL, compute(filled(AIR)));
+        assertEquals(NONE, compute(filled(STONE)));
+    }
+
+    @Test
+    void slabSeparatesAboveFromBelow() {
+        byte[] ids = filled(AIR);
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                set(ids, x, 8, z, STONE);
+            }
+        }
+        long c = compute(ids);
+        assertFalse(isConnected(c, FACE_NEG_Y, FACE_POS_Y));
+        assertTrue(isConnected(c, FACE_NEG_Y, FACE_NEG_X));
+        assertTrue(isConnected(c, FACE_POS_Y, FACE_POS_Z));
+        // Both halves touch every side face
+        assertTrue(isConnected(c, FACE_NEG_X, FACE_POS_X));
+    }
+
+    @Test
+    void straightTunnelConnectsOnlyItsEnds() {
+        byte[] ids = filled(STONE);
+        for (int x = 0; x < SIZE; x++) {
+            set(ids, x, 8, 8, AIR);
+        }
+        long c = compute(ids);
+        assertEquals(connect(1 << FACE_NEG_X | 1 << FACE_POS_X), c);
+        assertTrue(isConnected(c, FACE_POS_X, FACE_NEG_X));
+        assertFalse(isConnected(c, FACE_NEG_X, FACE_POS_Y));
+    }
+
+    @Test
+    void bentTunnelConnectsItsTwoMouths() {
+        byte[] ids = filled(STONE);
+        for (int x = 0; x <= 8; x++) {
+            set(ids, x, 5, 8, AIR);
+        }
+        for (int z = 8; z < SIZE; z++) {
+            set(ids, 8, 5, z, AIR);
+        }
+        assertEquals(connect(1 << FACE_NEG_X | 1 << FACE_POS_Z), compute(ids));
+    }
+
+    @Test
+    void closedPocketConnectsNoFaces() {
+        byte[] ids = filled(STONE);
+        for (int x = 4; x < 8; x++) {
+            for (int y = 4; y < 8; y++) {
+                set(ids, x, y, 6, AIR);
+            }
+        }
+        assertEquals(NONE, compute(ids));
+    }
+
+    @Test
+    void separateRegionsDoNotConnectEachOther() {
+        byte[] ids = filled(STONE);
+        for (int x = 0; x < SIZE; x++) {
+            set(ids, x, 2, 2, AIR);
+        }
+        for (int y = 0; y < SIZE; y++) {
+            set(ids, 12, y, 12, AIR);
+        }
+        long c = compute(ids);
+        assertTrue(isConnected(c, FACE_NEG_X, FACE_POS_X));
+        assertTrue(isConnected(c, FACE_NEG_Y, FACE_POS_Y));
+        assertFalse(isConnected(c, FACE_NEG_X, FACE_POS_Y));
+    }
+
+    @Test
+    void readsASectionInsideALargerArray() {
+        // Two sections stacked in y with the chunk's x/y/z strides; the upper one is a tunnel
+        int strideX = SIZE * 2 * SIZE;
+        int strideY = SIZE;
+        byte[] ids = new byte[SIZE * 2 * SIZE * SIZE];
+        java.util.Arrays.fill(ids, STONE);
+        for (int z = 0; z < SIZE; z++) {
+            ids[3 * strideX + (SIZE + 4) * strideY + z] = AIR;
+        }
+        assertEquals(NONE, SectionConnectivity.compute(ids, 0, strideX, strideY, 1, OPAQUE));
+        assertEquals(connect(1 << FACE_NEG_Z | 1 << FACE_POS_Z),
+                SectionConnectivity.compute(ids, SIZE * strideY, strideX, strideY, 1, OPAQUE));
+    }
+}
@@ -0,0 +1,125 @@
+package game.voxel.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static game.voxel.gfx.SectionConnectivity.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionVisibilityTest {
+
+    private static final int SECTIONS = MeshSections.SECTION_COUNT;
+    private static final int RADIUS = 3;
+    private static final int ALL_FACES = (1 << FACE_COUNT) - 1;
+    private static final SectionVisibility.SectionFilter EVERYTHING = (cx, sy, cz) -> true;
+
+    private static long[] column(long below, int firstOpen) {
+        long[] sections = new long[SECTIONS];
+        Arrays.fill(sections, 0, firstOpen, below);
+        Arrays.fill(sections, firstOpen, SECTIONS, ALL);
+        return sections;
+    }
+
+    private static void fill(SectionVisibility visibility, long[] sections) {
+        for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+            for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+                visibility.setColumn(cx, cz, sections);
+            }
+        }
+    }
+
+    @Test
+    void buriedSectionsUnderSurfaceTerrainAreHidden() {
+        // Sections 0-3 solid, 4 is the ground surface open to the sides and up, 5+ air
+        long[] sections = column(NONE, 5);
+        sections[4] = connect(ALL_FACES & ~(1 << FACE_NEG_Y));
+
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(0, 0, RADIUS);
+        fill(visibility, sections);
+        visibility.compute(6, EVERYTHING);
+
+        for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+            for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+                int mask = visibility.getVisibleMask(cx, cz);
+                assertEquals(0xFFFF & ~0xF, mask, "column " + cx + "," + cz);
+            }
+        }
+    }
+
+    @Test
+    void enclosedCaveSeesOnlyItsWalls() {
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(0, 0, RADIUS);
+        fill(visibility, column(NONE, SECTIONS));
+        visibility.compute(5, EVERYTHING);
+
+        // The pocket itself plus the six sections around it, whose inner faces show
+        assertEquals(7, visibility.getVisitedCount());
+        assertEquals(1 << 4 | 1 << 5 | 1 << 6, visibility.getVisibleMask(0, 0));
+        assertTrue(visibility.isVisible(1, 5, 0));
+        assertTrue(visibility.isVisible(-1, 5, 0));
+        assertTrue(visibility.isVisible(0, 5, 1));
+        assertTrue(visibility.isVisible(0, 5, -1));
+        assertFalse(visibility.isVisible(2, 5, 0));
+        assertFalse(visibility.isVisible(1, 5, 1));
+    }
+
+    @Test
+    void sectionsOutsideTheFilterAreNotEntered() {
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(0, 0, RADIUS);
+        // Half-space frustum looking toward +x
+        visibility.compute(8, (cx, sy, cz) -> cx >= 0);
+
+        for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+            assertEquals(0, visibility.getVisibleMask(-1, cz));
+            assertEquals(0xFFFF, visibility.getVisibleMask(RADIUS, cz));
+        }
+    }
+
+    @Test
+    void unknownChunksAreOpenAndAHighCameraStartsAtTheTop() {
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(10, -4, RADIUS);
+        visibility.compute(40, EVERYTHING);
+
+        int side = 2 * RADIUS + 1;
+        assertEquals(side * side * SECTIONS, visibility.getVisitedCount());
+        assertEquals(0xFFFF, visibility.getVisibleMask(10 - RADIUS, -4 + RADIUS));
+        // Outside the grid
+        assertEquals(0, visibility.getVisibleMask(10 + RADIUS + 1, -4));
+    }
+
+    @Test
+    void farSideOfAWallIsHiddenBelowItsTop() {
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(0, 0, RADIUS);
+        // A solid wall of columns at cx = 1, sections 0-7; open air everywhere else
+        for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+            visibility.setColumn(1, cz, column(NONE, 8));
+        }
+        visibility.compute(2, EVERYTHING);
+
+        assertTrue(visibility.isVisible(1, 2, 0)); // the wall's near face
+        assertTrue(visibility.isVisible(2, 9, 0)); // over the top
+        assertFalse(visibility.isVisible(2, 2, 0));
+        assertFalse(visibility.isVisible(3, 0, 0));
+        assertTrue(visibility.isVisible(-RADIUS, 0, 0));
+    }
+
+    @Test
+    void gridIsResetBetweenFrames() {
+        SectionVisibility visibility = new SectionVisibility();
+        visibility.begin(0, 0, RADIUS);
+        visibility.compute(8, EVERYTHING);
+        assertEquals(0xFFFF, visibility.getVisibleMask(2, 2));
+
+        visibility.begin(0, 0, RADIUS);
+        fill(visibility, column(NONE, SECTIONS));
+        visibility.compute(8, EVERYTHING);
+        assertEquals(0, visibility.getVisibleMask(2, 2));
+        assertEquals(7, visibility.getVisitedCount());
+    }
+}
@@ -0,0 +1,84 @@
+package game.voxel.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainVertexFormatTest {
+
+    @Test
+    void positionRoundTripsOverTheWholeRange() {
+        for (int x = 0; x <= 16; x++) {
+            for (int y = 0; y <= 256; y++) {
+                for (int z = 0; z <= 16; z += 4) {
+                    int normal = (x + y + z) % 6;
+                    int drop = (x * 7 + y) % 17;
+                    int word0 = TerrainVertexFormat.packPosition(x, y, z, normal, drop);
+                    assertEquals(x, TerrainVertexFormat.unpackX(word0));
+                    assertEquals(y, TerrainVertexFormat.unpackY(word0));
+                    assertEquals(z, TerrainVertexFormat.unpackZ(word0));
+                    assertEquals(normal, TerrainVertexFormat.unpackNormal(word0));
+                    assertEquals(drop, TerrainVertexFormat.unpackLiquidDrop(word0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void fieldsDoNotOverlap() {
+        int all = TerrainVertexFormat.packPosition(16, 256, 16, 5, 16);
+        assertEquals(16, TerrainVertexFormat.unpackX(all));
+        assertEquals(256, TerrainVertexFormat.unpackY(all));
+        assertEquals(16, TerrainVertexFormat.unpackZ(all));
+        assertEquals(5, TerrainVertexFormat.unpackNormal(all));
+        assertEquals(16, TerrainVertexFormat.unpackLiquidDrop(all));
+        assertEquals(0, TerrainVertexFormat.packPosition(0, 0, 0, 0, 0));
+    }
+
+    @Test
+    void rejectsValuesOutsideTheirBits() {
+        assertThrows(IllegalArgumentException.class, () -> TerrainVertexFormat.packPosition(17, 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> TerrainVertexFormat.packPosition(0, 257, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> TerrainVertexFormat.packPosition(0, 0, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> TerrainVertexFormat.packPosition(0, 0, 0, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> TerrainVertexFormat.packPosition(0, 0, 0, 0, 17));
+    }
+
+    @Test
+    void liquidDropLowersTheDecodedHeight() {
+        assertEquals(64.0f, TerrainVertexFormat.decodeY(TerrainVertexFormat.packPosition(0, 64, 0, 2, 0)));
+        assertEquals(63.875f, TerrainVertexFormat.decodeY(TerrainVertexFormat.packPosition(0, 64, 0, 2, 2)));
+        assertEquals(63.0f, TerrainVertexFormat.decodeY(TerrainVertexFormat.packPosition(0, 64, 0, 2, 16)));
+    }
+
+    @Test
+    void normalIndexMatchesItsVector() {
+        for (int axis = 0; axis < 3; axis++) {
+            for (int sign = 0; sign < 2; sign++) {
+                boolean positive = sign == 0;
+                float[] normal = TerrainVertexFormat.normalVector(TerrainVertexFormat.normalIndex(axis, positive));
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(i == axis ? (positive ? 1f : -1f) : 0f, normal[i]);
+                }
+            }
+        }
+        assertEquals(TerrainVertexFormat.NORMAL_NEG_Y, TerrainVertexFormat.normalIndex(1, false));
+    }
+
+    @Test
+    void normalVectorIsACopy() {
+        TerrainVertexFormat.normalVector(TerrainVertexFormat.NORMAL_POS_X)[0] = 5;
+        assertEquals(1f, TerrainVertexFormat.normalVector(TerrainVertexFormat.NORMAL_POS_X)[0]);
+    }
+
+    @Test
+    void textureRoundTripsEveryAtlasTile() {
+        for (int ax = 0; ax < TerrainVertexFormat.ATLAS_TILES; ax++) {
+            for (int ay = 0; ay < TerrainVertexFormat.ATLAS_TILES; ay++) {
+                int word1 = TerrainVertexFormat.packTexture(ax, ay);
+                assertEquals(ax, TerrainVertexFormat.unpackAtlasX(word1));
+                assertEquals(ay, TerrainVertexFormat.unpackAtlasY(word1));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package game.voxel.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranslucentQuadsTest {
+
+    /**
+     * Random quad centers (twice chunk-local) in a chunk, around sea level.
+     */
+    private static int[] centers(int count, long seed) {
+        Random random = new Random(seed);
+        int[] centers = new int[count * 3];
+        for (int q = 0; q < count; q++) {
+            centers[q * 3] = random.nextInt(33);
+            centers[q * 3 + 1] = 2 * 62 + random.nextInt(9);
+            centers[q * 3 + 2] = random.nextInt(33);
+        }
+        return centers;
+    }
+
+    /**
+     * Quad q uses vertices 4q..4q+3, so it can be told apart in the sorted indices.
+     */
+    private static TranslucentQuads quads(int[] centers) {
+        int count = centers.length / 3;
+        int[] indices = new int[count * 6];
+        for (int q = 0; q < count; q++) {
+            int base = q * 4;
+            int[] quad = { base, base + 1, base + 2, base + 2, base + 3, base };
+            System.arraycopy(quad, 0, indices, q * 6, 6);
+        }
+        return new TranslucentQuads(indices, centers);
+    }
+
+    private static float depth(int[] centers, int quad, float x, float y, float z) {
+        float dx = centers[quad * 3] - 2 * x;
+        float dy = centers[quad * 3 + 1] - 2 * y;
+        float dz = centers[quad * 3 + 2] - 2 * z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void assertFarthestFirst(TranslucentQuads quads, int[] centers, float x, float y, float z) {
+        int[] sorted = quads.getSortedIndices();
+        boolean[] seen = new boolean[quads.getQuadCount()];
+        float previous = Float.MAX_VALUE;
+        for (int i = 0; i < quads.getQuadCount(); i++) {
+            int quad = sorted[i * 6] / 4;
+            assertFalse(seen[quad], "quad " + quad + " twice");
+            seen[quad] = true;
+            assertEquals(quad * 4 + 3, sorted[i * 6 + 4]);
+            float d = depth(centers, quad, x, y, z);
+            assertTrue(d <= previous, "quad " + quad + " at " + i + " is nearer than the one before it");
+            previous = d;
+        }
+    }
+
+    @Test
+    void firstSortIsFarthestFirst() {
+        int[] centers = centers(500, 3);
+        TranslucentQuads quads = quads(centers);
+        assertTrue(quads.sort(8.5f, 64.2f, 8.5f));
+        assertFarthestFirst(quads, centers, 8.5f, 64.2f, 8.5f);
+    }
+
+    @Test
+    void incrementalSortsMatchAFullSortAlongAWalk() {
+        int[] centers = centers(500, 4);
+        TranslucentQuads quads = quads(centers);
+        float x = -20;
+        float y = 66;
+        float z = 3;
+        quads.sort(x, y, z);
+        int sorts = 0;
+        for (int step = 0; step < 120; step++) {
+            x += 0.37f;
+            z += 0.21f;
+            y -= 0.05f;
+            // Within a block the order stays that of the last sort
+            if (quads.sort(x, y, z)) {
+                assertFarthestFirst(quads, centers, x, y, z);
+                sorts++;
+            }
+        }
+        assertTrue(sorts > 40);
+    }
+
+    @Test
+    void resortsOnlyWhenTheCameraEntersAnotherBlock() {
+        TranslucentQuads quads = quads(centers(100, 5));
+        assertTrue(quads.sort(4.1f, 63.1f, 4.1f));
+        int[] first = quads.getSortedIndices().clone();
+
+        assertFalse(quads.sort(4.9f, 63.9f, 4.9f));
+        assertFalse(quads.sort(4.0f, 63.0f, 4.0f));
+        assertArrayEquals(first, quads.getSortedIndices());
+
+        assertTrue(quads.sort(5.0f, 63.5f, 4.5f));
+        assertTrue(quads.sort(5.0f, 64.0f, 4.5f));
+        assertTrue(quads.sort(5.0f, 64.0f, 3.99f));
+        // Negative coordinates floor toward the block below, not toward zero
+        assertTrue(quads.sort(-0.5f, 64.0f, 3.5f));
+        assertFalse(quads.sort(-0.1f, 64.0f, 3.5f));
+        assertTrue(quads.sort(0.1f, 64.0f, 3.5f));
+    }
+
+    @Test
+    void smallMovesRepairTheOrderWithFewShifts() {
+        TranslucentQuads quads = quads(centers(2000, 6));
+        quads.sort(8.5f, 64.5f, 8.5f);
+        assertEquals(0, quads.getLastShiftCount()); // the first sort is a full sort
+        quads.sort(9.5f, 64.5f, 8.5f);
+        assertTrue(quads.getLastShiftCount() < 2000L * 2000 / 4,
+                "one block move took " + quads.getLastShiftCount() + " shifts");
+    }
+
+    @Test
+    void invalidateForcesASortInTheSameBlock() {
+        TranslucentQuads quads = quads(centers(50, 7));
+        quads.sort(1.5f, 64.5f, 1.5f);
+        quads.invalidate();
+        assertTrue(quads.sort(1.5f, 64.5f, 1.5f));
+        assertEquals(0, quads.getLastShiftCount());
+    }
+}
@@ -0,0 +1,117 @@
+package game.voxel.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherParticlesTest {
+
+    // Spawns land 20 to 30 blocks above the camera and die 10 below it
+    private static final float FAST = 100;
+    private static final float SLOW = 1;
+
+    private final Random random = new Random(7);
+
+    /**
+     * Spawns without moving anything.
+     */
+    private int spawn(WeatherParticles particles, int count, float speed) {
+        return particles.update(0, 0, 64, 0, count, speed, random);
+    }
+
+    /**
+     * Moves every particle for one second; fast ones fall out of range.
+     */
+    private void fall(WeatherParticles particles) {
+        particles.update(1, 0, 64, 0, 0, 0, random);
+    }
+
+    @Test
+    void spawningStopsAtCapacity() {
+        WeatherParticles particles = new WeatherParticles(10);
+        assertEquals(6, spawn(particles, 6, SLOW));
+        assertEquals(4, spawn(particles, 6, SLOW));
+        assertEquals(0, spawn(particles, 6, SLOW));
+        assertEquals(10, particles.getLiveCount());
+        assertEquals(10, particles.getHighWater());
+    }
+
+    @Test
+    void particlesBelowTheCameraDieAndTheirLowestSlotIsReusedFirst() {
+        WeatherParticles particles = new WeatherParticles(10);
+        spawn(particles, 2, SLOW); // slots 0, 1
+        spawn(particles, 3, FAST); // slots 2, 3, 4
+        spawn(particles, 2, SLOW); // slots 5, 6
+
+        fall(particles);
+        assertEquals(4, particles.getLiveCount());
+        for (int slot = 2; slot <= 4; slot++) {
+            assertFalse(particles.isAlive(slot));
+        }
+        assertTrue(particles.isAlive(1));
+        assertTrue(particles.isAlive(5));
+        assertTrue(particles.getY(0) >= 64 - 10);
+
+        spawn(particles, 1, SLOW);
+        assertTrue(particles.isAlive(2));
+        spawn(particles, 2, SLOW);
+        assertTrue(particles.isAlive(3) && particles.isAlive(4));
+        assertFalse(particles.isAlive(7));
+        assertEquals(7, particles.getHighWater());
+    }
+
+    @Test
+    void highWaterShrinksWhenTheTopParticlesDie() {
+        WeatherParticles particles = new WeatherParticles(16);
+        spawn(particles, 4, SLOW);
+        spawn(particles, 8, FAST);
+        assertEquals(12, particles.getHighWater());
+
+        fall(particles);
+        assertEquals(4, particles.getHighWater());
+        assertEquals(4, particles.getLiveCount());
+
+        spawn(particles, 1, SLOW);
+        assertEquals(5, particles.getHighWater());
+    }
+
+    @Test
+    void writesOneInstancePerLiveParticle() {
+        WeatherParticles particles = new WeatherParticles(32);
+        spawn(particles, 10, SLOW);
+        spawn(particles, 10, FAST);
+        spawn(particles, 5, SLOW);
+        fall(particles);
+
+        FloatBuffer buffer = FloatBuffer.allocate(32 * 8);
+        int written = particles.writeInstances(buffer, 0.1f, 1, 1, 1, 0.5f);
+        assertEquals(15, particles.getLiveCount());
+        assertEquals(particles.getLiveCount(), written);
+        assertEquals(written * 8, buffer.position());
+        // center, size, colour
+        assertEquals(0.1f, buffer.get(3));
+        assertEquals(0.5f, buffer.get(7));
+    }
+
+    @Test
+    void clearFreesEverySlot() {
+        WeatherParticles particles = new WeatherParticles(8);
+        spawn(particles, 3, FAST);
+        spawn(particles, 5, SLOW);
+        fall(particles);
+
+        particles.clear();
+        assertEquals(0, particles.writeInstances(FloatBuffer.allocate(0), 1, 1, 1, 1, 1));
+        assertEquals(0, particles.getLiveCount());
+        assertEquals(0, particles.getHighWater());
+        for (int slot = 0; slot < 8; slot++) {
+            assertFalse(particles.isAlive(slot));
+        }
+        assertEquals(8, spawn(particles, 20, SLOW));
+        assertEquals(8, particles.getHighWater());
+        assertEquals(8, particles.writeInstances(FloatBuffer.allocate(8 * 8), 1, 1, 1, 1, 1));
+    }
+}
@@ -0,0 +1,94 @@
+package game.voxel.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimplexNoiseTest {
+
+    private final SimplexNoise noise = new SimplexNoise(1337L);
+
+    @Test
+    void rowOf2DSamplesMatchesEval() {
+        double[] out = new double[300];
+        float[] floats = new float[300];
+        Random random = new Random(1);
+        for (int trial = 0; trial < 50; trial++) {
+            // Negative origins and steps both finer and coarser than a cell
+            double x0 = (random.nextDouble() - 0.5) * 1000;
+            double dx = random.nextDouble() * (trial % 2 == 0 ? 0.05 : 3);
+            double y = (random.nextDouble() - 0.5) * 1000;
+            noise.fillRow2D(out, 10, 290, x0, dx, y);
+            noise.fillRow2D(floats, 10, 290, x0, dx, y);
+            for (int i = 0; i < 290; i++) {
+                double expected = noise.eval(x0 + i * dx, y);
+                assertEquals(expected, out[10 + i], "sample " + i);
+                assertEquals((float) expected, floats[10 + i], "sample " + i);
+            }
+        }
+    }
+
+    @Test
+    void planeOf2DSamplesMatchesEval() {
+        double[] out = new double[16 * 16];
+        double x0 = -37.25;
+        double z0 = 12.5;
+        double dx = 1 / 120.0;
+        double dz = 7 / 120.0;
+        noise.fillPlane2D(out, 16, 16, x0, dx, z0, dz);
+        for (int ix = 0; ix < 16; ix++) {
+            for (int iz = 0; iz < 16; iz++) {
+                assertEquals(noise.eval(x0 + ix * dx, z0 + iz * dz), out[ix * 16 + iz]);
+            }
+        }
+    }
+
+    @Test
+    void rowOf3DSamplesMatchesEval() {
+        double[] out = new double[128];
+        Random random = new Random(2);
+        for (int trial = 0; trial < 200; trial++) {
+            double x = (random.nextDouble() - 0.5) * 500;
+            double y = random.nextDouble() * 5;
+            double z0 = (random.nextDouble() - 0.5) * 500;
+            double dz = random.nextDouble() * (trial % 2 == 0 ? 0.08 : 2);
+            noise.fillRow3D(out, 0, out.length, x, y, z0, dz);
+            for (int i = 0; i < out.length; i++) {
+                assertEquals(noise.eval(x, y, z0 + i * dz), out[i], "sample " + i);
+            }
+        }
+    }
+
+    @Test
+    void samplesStayInRange() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            double x = (random.nextDouble() - 0.5) * 2000;
+            double y = (random.nextDouble() - 0.5) * 2000;
+            double z = (random.nextDouble() - 0.5) * 2000;
+            double v2 = noise.eval(x, y);
+            double v3 = noise.eval(x, y, z);
+            assertTrue(v2 >= -1 && v2 <= 1, "2D " + v2);
+            assertTrue(v3 >= -1 && v3 <= 1, "3D " + v3);
+        }
+    }
+
+    @Test
+    void sameSeedIsDeterministicAndSeedsDiffer() {
+        SimplexNoise same = new SimplexNoise(1337L);
+        SimplexNoise other = new SimplexNoise(42L);
+        int differing = 0;
+        for (int i = 0; i < 1000; i++) {
+            double x = i * 0.173;
+            double y = i * -0.091;
+            assertEquals(noise.eval(x, y), same.eval(x, y));
+            assertEquals(noise.eval(x, y, x + y), same.eval(x, y, x + y));
+            if (noise.eval(x, y) != other.eval(x, y))
+                differing++;
+        }
+        assertTrue(differing > 900);
+        assertEquals(42L, other.getSeed());
+    }
+}
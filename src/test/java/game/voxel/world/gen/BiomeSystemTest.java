@@ -0,0 +1,80 @@
+package game.voxel.world.gen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BiomeSystemTest {
+
+    // Every threshold of getBiome, per axis
+    private static final double[] TEMPERATURE_THRESHOLDS = { 0.4, 0.6 };
+    private static final double[] HUMIDITY_THRESHOLDS = { 0.4, 0.5 };
+    private static final double[] CONTINENTALNESS_THRESHOLDS = { 0.0, 0.5 };
+    private static final double[] EROSION_THRESHOLDS = { -0.5 };
+
+    private static void assertSameBiome(double temp, double humid, double cont, double erosion) {
+        assertEquals(BiomeSystem.getBiome(temp, humid, cont, erosion).getId(),
+                BiomeSystem.lookupBiomeId(temp, humid, cont, erosion),
+                "temp " + temp + " humid " + humid + " cont " + cont + " erosion " + erosion);
+    }
+
+    @Test
+    void lookupMatchesGetBiomeOnRandomClimates() {
+        Random random = new Random(1337);
+        for (int i = 0; i < 1_000_000; i++) {
+            assertSameBiome(random.nextDouble(), random.nextDouble(), random.nextDouble() * 2 - 1,
+                    random.nextDouble() * 2 - 1);
+        }
+    }
+
+    @Test
+    void lookupMatchesGetBiomeOutsideTheRange() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            assertSameBiome(random.nextDouble() * 3 - 1, random.nextDouble() * 3 - 1, random.nextDouble() * 6 - 3,
+                    random.nextDouble() * 6 - 3);
+        }
+    }
+
+    /**
+     * Each threshold, the doubles right next to it and every cell edge of an axis,
+     * crossed with the same values on the other axes.
+     */
+    @Test
+    void lookupMatchesGetBiomeNextToThresholds() {
+        double[] temps = nearValues(TEMPERATURE_THRESHOLDS, BiomeSystem.TEMPERATURE_STEPS, 0, 1);
+        double[] humids = nearValues(HUMIDITY_THRESHOLDS, BiomeSystem.HUMIDITY_STEPS, 0, 1);
+        double[] conts = nearValues(CONTINENTALNESS_THRESHOLDS, BiomeSystem.CONTINENTALNESS_STEPS, -1, 1);
+        double[] erosions = nearValues(EROSION_THRESHOLDS, BiomeSystem.EROSION_STEPS, -1, 1);
+        for (double temp : temps) {
+            for (double humid : humids) {
+                for (double cont : conts) {
+                    for (double erosion : erosions) {
+                        assertSameBiome(temp, humid, cont, erosion);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] nearValues(double[] thresholds, int steps, double min, double max) {
+        double[] edges = new double[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            edges[i] = min + (max - min) * i / steps;
+        }
+        double[] values = new double[(thresholds.length + edges.length) * 5];
+        int n = 0;
+        for (double[] points : new double[][] { thresholds, edges }) {
+            for (double p : points) {
+                values[n++] = p;
+                values[n++] = Math.nextDown(p);
+                values[n++] = Math.nextUp(p);
+                values[n++] = p - 1e-9;
+                values[n++] = p + 1e-9;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,126 @@
+package game.voxel.world.gen;
+
+import game.voxel.Block;
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Generation must not depend on the schedule: one thread in row order, several threads
+ * in shuffled order, and a proto chunk cache small enough to force regeneration all
+ * produce the same blocks, trees crossing chunk borders included.
+ */
+class GenerationPipelineTest {
+
+    private static final long SEED = 42L;
+    private static final int SIDE = 6;
+    // Wooded for this seed, so plenty of trees cross chunk borders
+    private static final int BASE_X = -SIDE / 2 + 40;
+    private static final int BASE_Z = -SIDE / 2 - 25;
+
+    private static GenerationPipeline pipeline(int cached) {
+        return new GenerationPipeline(new TerrainGenerator(new GenerationContext(new SimplexNoise(SEED))), cached);
+    }
+
+    private static List<int[]> rowOrder() {
+        List<int[]> order = new ArrayList<>();
+        for (int z = 0; z < SIDE; z++) {
+            for (int x = 0; x < SIDE; x++) {
+                order.add(new int[] { BASE_X + x, BASE_Z + z });
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Block ids of the area in row order, generated in the given order on a pool.
+     */
+    private static byte[][] generate(GenerationPipeline pipeline, int threads, List<int[]> order)
+            throws Exception {
+        byte[][] area = new byte[SIDE * SIDE][];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int[] position : order) {
+                futures.add(executor.submit(() -> {
+                    area[(position[1] - BASE_Z) * SIDE + position[0] - BASE_X] = pipeline.generateIds(position[0],
+                            position[1]);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return area;
+    }
+
+    // FNV-1a over every chunk in order
+    private static long hash(byte[][] area) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte[] ids : area) {
+            for (byte id : ids) {
+                hash = (hash ^ (id & 0xFF)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private static int borderLeaves(byte[][] area) {
+        int leaves = 0;
+        for (byte[] ids : area) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    if (x != 0 && x != Chunk.SIZE_X - 1 && z != 0 && z != Chunk.SIZE_Z - 1)
+                        continue;
+                    for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                        if (ids[Chunk.index(x, y, z)] == Block.LEAVES.getId())
+                            leaves++;
+                    }
+                }
+            }
+        }
+        return leaves;
+    }
+
+    @Test
+    void everyScheduleGeneratesTheSameBlocks() throws Exception {
+        List<int[]> rowOrder = rowOrder();
+        List<int[]> shuffled = new ArrayList<>(rowOrder);
+        Collections.shuffle(shuffled, new Random(SEED));
+        List<int[]> reversed = new ArrayList<>(rowOrder);
+        Collections.reverse(reversed);
+
+        GenerationPipeline cached = pipeline(1024);
+        byte[][] serial = generate(cached, 1, rowOrder);
+        // Trees crossing chunk borders are what a schedule could get wrong
+        assertTrue(borderLeaves(serial) > 0);
+        long expected = hash(serial);
+
+        assertEquals(expected, hash(generate(pipeline(1024), 4, shuffled)), "4 threads, shuffled");
+
+        // Fewer proto chunks than the area needs, so some are evicted and built again
+        GenerationPipeline evicting = pipeline(16);
+        assertEquals(expected, hash(generate(evicting, 4, reversed)), "4 threads, reversed, 16 cached");
+        assertTrue(evicting.getStagesRun() > cached.getStagesRun());
+    }
+
+    @Test
+    void generatingAChunkAgainGivesTheSameBlocks() {
+        GenerationPipeline pipeline = pipeline(1024);
+        byte[] first = pipeline.generateIds(BASE_X, BASE_Z);
+        assertArrayEquals(first, pipeline.generateIds(BASE_X, BASE_Z));
+        assertArrayEquals(first, pipeline(16).generateIds(BASE_X, BASE_Z));
+    }
+}
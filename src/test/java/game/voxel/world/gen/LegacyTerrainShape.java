@@ -0,0 +1,121 @@
+package game.voxel.world.gen;
+
+import game.voxel.Block;
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.biomes.Biome;
+
+/**
+ * Steps 1 and 2 of the generator as it was before the generation context: five fbm
+ * fields per column and 3D noise per voxel, written with setBlock. The reference
+ * {@link TerrainGeneratorDeviationTest} measures the current generator against.
+ */
+final class LegacyTerrainShape {
+    private static final int SEA_LEVEL = 32;
+
+    private final SimplexNoise noise;
+
+    LegacyTerrainShape(SimplexNoise noise) {
+        this.noise = noise;
+    }
+
+    Biome[] generate(Chunk chunk) {
+        Biome[] biomes = new Biome[Chunk.SIZE_X * Chunk.SIZE_Z];
+        int chunkX = chunk.getChunkX();
+        int chunkZ = chunk.getChunkZ();
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                double globalX = chunkX * Chunk.SIZE_X + x;
+                double globalZ = chunkZ * Chunk.SIZE_Z + z;
+
+                double continentalness = fbm(globalX, globalZ, 2000.0, 3, 0.5);
+                double erosion = fbm(globalX + 5000, globalZ + 5000, 1000.0, 3, 0.5);
+                double pv = fbm(globalX, globalZ, 120.0, 4, 0.6);
+                double temperature = (fbm(globalX, globalZ, 1000.0, 2, 0.5) + 1.0) * 0.5;
+                double humidity = (fbm(globalX + 1234, globalZ + 2341, 1000.0, 2, 0.5) + 1.0) * 0.5;
+
+                Biome biome = BiomeSystem.getBiome(temperature, humidity, continentalness, erosion);
+                biomes[x * Chunk.SIZE_Z + z] = biome;
+                int height = calculateHeight(continentalness, erosion, pv);
+
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    if (y == 0) {
+                        chunk.setBlock(x, y, z, Block.BEDROCK);
+                        continue;
+                    }
+                    boolean isCave = false;
+                    if (y < height) {
+                        double tunnel = Math.abs(noise.eval(globalX * 0.02, y * 0.02, globalZ * 0.02));
+                        double surfaceFade = 1.0;
+                        int distFromSurface = height - y;
+                        if (distFromSurface < 10) {
+                            surfaceFade = distFromSurface / 10.0;
+                        }
+                        double threshold = 0.55 + (1.0 - surfaceFade) * 0.15;
+                        if (tunnel > threshold) {
+                            isCave = true;
+                        }
+                    }
+                    if (y <= height) {
+                        if (isCave) {
+                            chunk.setBlock(x, y, z, y < SEA_LEVEL ? Block.WATER : Block.AIR);
+                        } else if (y < height - 3) {
+                            chunk.setBlock(x, y, z, Block.STONE);
+                        } else {
+                            chunk.setBlock(x, y, z, biome.getSurfaceBlock(y, height));
+                        }
+                    } else {
+                        chunk.setBlock(x, y, z, y <= SEA_LEVEL ? Block.WATER : Block.AIR);
+                    }
+                }
+            }
+        }
+        return biomes;
+    }
+
+    /**
+     * Height the legacy generator chose for a column, recovered from its blocks: the
+     * top non-air, non-water block (caves never reach the surface block).
+     */
+    static int surface(Chunk chunk, int x, int z) {
+        for (int y = Chunk.SIZE_Y - 1; y > 0; y--) {
+            Block block = chunk.getBlock(x, y, z);
+            if (block != Block.AIR && block != Block.WATER)
+                return y;
+        }
+        return 0;
+    }
+
+    private double fbm(double x, double z, double scale, int octaves, double persistence) {
+        double total = 0;
+        double frequency = 1.0 / scale;
+        double amplitude = 1.0;
+        double maxValue = 0;
+        for (int i = 0; i < octaves; i++) {
+            total += noise.eval(x * frequency, z * frequency) * amplitude;
+            maxValue += amplitude;
+            amplitude *= persistence;
+            frequency *= 2;
+        }
+        return total / maxValue;
+    }
+
+    private static int calculateHeight(double c, double e, double pv) {
+        double baseH = SEA_LEVEL;
+        if (c < -0.2) {
+            baseH -= 20.0 + (-c * 40.0);
+        } else if (c < 0.1) {
+            baseH += c * 10.0;
+        } else {
+            baseH += 10.0 + (c * 50.0);
+        }
+        double terrainFactor = 1.0;
+        if (e > 0.3) {
+            terrainFactor = 0.2;
+        } else if (e < -0.3) {
+            terrainFactor = 2.5;
+        }
+        double height = baseH + (pv * 20.0 * terrainFactor);
+        return (int) Math.max(1, Math.min(Chunk.SIZE_Y - 1, height));
+    }
+}
@@ -0,0 +1,109 @@
+package game.voxel.world.gen;
+
+import game.voxel.Chunk;
+import game.voxel.world.SimplexNoise;
+import game.voxel.world.gen.biomes.Biome;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden-output bounds on {@link TerrainGenerator#shapeTerrain}: its interpolated
+ * fields against the exact per-column, per-voxel noise of {@link LegacyTerrainShape},
+ * over an 8 by 8 chunk area far enough out to span oceans, plains and mountains.
+ */
+class TerrainGeneratorDeviationTest {
+
+    private static final int SIDE = 8;
+
+    // Bounds on the deviation from the exact fields
+    private static final double MAX_VOXEL_MISMATCH = 0.005;
+    private static final double MAX_HEIGHT_MISMATCH = 0.02;
+    // The height curve has steps at continentalness and erosion thresholds, so a small
+    // field error right at a step moves a column a lot; bound how often that happens
+    private static final int LARGE_HEIGHT_ERROR = 2;
+    private static final double MAX_LARGE_HEIGHT_MISMATCH = 0.005;
+    private static final double MAX_BIOME_MISMATCH = 0.01;
+
+    @ParameterizedTest
+    @ValueSource(longs = { 1337L, 42L, -7L })
+    void currentTerrainStaysWithinTheDeviationBounds(long seed) {
+        SimplexNoise noise = new SimplexNoise(seed);
+        LegacyTerrainShape legacyShape = new LegacyTerrainShape(noise);
+        TerrainGenerator generator = new TerrainGenerator(new GenerationContext(noise));
+        int baseX = -SIDE / 2 + 40;
+        int baseZ = -SIDE / 2 - 25;
+        Deviation deviation = new Deviation();
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            Chunk legacy = new Chunk(baseX + i % SIDE, baseZ + i / SIDE);
+            Biome[] legacyBiomes = legacyShape.generate(legacy);
+            Chunk current = new Chunk(legacy.getChunkX(), legacy.getChunkZ());
+            deviation.add(legacy, legacyBiomes, current, generator.shapeTerrain(current));
+        }
+
+        assertTrue(deviation.getVoxelRate() <= MAX_VOXEL_MISMATCH, "voxels " + deviation.getVoxelRate());
+        assertTrue(deviation.getHeightRate() <= MAX_HEIGHT_MISMATCH, "heights " + deviation.getHeightRate());
+        assertTrue(deviation.getLargeHeightRate() <= MAX_LARGE_HEIGHT_MISMATCH, "heights off by more than "
+                + LARGE_HEIGHT_ERROR + ": " + deviation.getLargeHeightRate() + ", worst "
+                + deviation.getMaxHeightError());
+        assertTrue(deviation.getBiomeRate() <= MAX_BIOME_MISMATCH, "biomes " + deviation.getBiomeRate());
+    }
+
+    /**
+     * Differing voxels, surface heights and biomes between legacy and current chunks.
+     */
+    private static final class Deviation {
+        private long voxels;
+        private long voxelMismatch;
+        private long columnCount;
+        private long heightMismatch;
+        private long largeHeightMismatch;
+        private int maxHeightError;
+        private long biomeMismatch;
+
+        void add(Chunk legacy, Biome[] legacyBiomes, Chunk current, TerrainGenerator.Columns columns) {
+            byte[] a = legacy.getBlockIds();
+            byte[] b = current.getBlockIds();
+            for (int v = 0; v < a.length; v++) {
+                if (a[v] != b[v])
+                    voxelMismatch++;
+            }
+            voxels += a.length;
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    int expected = LegacyTerrainShape.surface(legacy, x, z);
+                    int actual = columns.getHeight(x, z);
+                    if (expected != actual)
+                        heightMismatch++;
+                    if (Math.abs(expected - actual) > LARGE_HEIGHT_ERROR)
+                        largeHeightMismatch++;
+                    maxHeightError = Math.max(maxHeightError, Math.abs(expected - actual));
+                    if (legacyBiomes[x * Chunk.SIZE_Z + z].getClass() != columns.getBiome(x, z).getClass())
+                        biomeMismatch++;
+                    columnCount++;
+                }
+            }
+        }
+
+        double getVoxelRate() {
+            return (double) voxelMismatch / voxels;
+        }
+
+        double getHeightRate() {
+            return (double) heightMismatch / columnCount;
+        }
+
+        double getLargeHeightRate() {
+            return (double) largeHeightMismatch / columnCount;
+        }
+
+        int getMaxHeightError() {
+            return maxHeightError;
+        }
+
+        double getBiomeRate() {
+            return (double) biomeMismatch / columnCount;
+        }
+    }
+}
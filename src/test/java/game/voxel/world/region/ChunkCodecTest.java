@@ -0,0 +1,83 @@
+package game.voxel.world.region;
+
+import game.voxel.Chunk;
+import game.voxel.world.gen.GenerationPipeline;
+import game.voxel.world.gen.TerrainGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkCodecTest {
+
+    private static final ChunkCodec[] CODECS = {
+            ChunkCodecs.ZLIB, ChunkCodecs.COLUMN_RLE, ChunkCodecs.DEFLATED_COLUMN_RLE
+    };
+
+    private static void assertRoundTrip(byte[] ids) throws IOException {
+        for (ChunkCodec codec : CODECS) {
+            byte[] data = codec.encode(ids);
+            byte[] decoded = new byte[Chunk.VOLUME];
+            codec.decode(data, 0, data.length, decoded);
+            assertArrayEquals(ids, decoded, "codec type " + codec.getType());
+            assertSame(codec, ChunkCodecs.forType(codec.getType()));
+        }
+    }
+
+    @Test
+    void roundTripsGeneratedTerrain() throws IOException {
+        GenerationPipeline pipeline = new GenerationPipeline(new TerrainGenerator(42L));
+        for (int i = 0; i < 4; i++) {
+            assertRoundTrip(pipeline.generateIds(40 + i, -25));
+        }
+    }
+
+    @Test
+    void roundTripsEmptyAndWorstCaseChunks() throws IOException {
+        assertRoundTrip(new byte[Chunk.VOLUME]);
+
+        // Every voxel differs from the one below it: one run per block
+        byte[] ids = new byte[Chunk.VOLUME];
+        Random random = new Random(3);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (byte) random.nextInt(256);
+        }
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                for (int y = 1; y < Chunk.SIZE_Y; y++) {
+                    if (ids[Chunk.index(x, y, z)] == ids[Chunk.index(x, y - 1, z)])
+                        ids[Chunk.index(x, y, z)]++;
+                }
+            }
+        }
+        assertRoundTrip(ids);
+    }
+
+    @Test
+    void deflatedRunsAreSmallerThanEitherStageAlone() throws IOException {
+        byte[] ids = new GenerationPipeline(new TerrainGenerator(42L)).generateIds(40, -25);
+        int deflated = ChunkCodecs.DEFLATED_COLUMN_RLE.encode(ids).length;
+        assertTrue(deflated < ChunkCodecs.COLUMN_RLE.encode(ids).length);
+        assertTrue(deflated < ChunkCodecs.ZLIB.encode(ids).length);
+    }
+
+    @Test
+    void truncatedDataIsRejected() throws IOException {
+        byte[] ids = new GenerationPipeline(new TerrainGenerator(42L)).generateIds(0, 0);
+        for (ChunkCodec codec : CODECS) {
+            byte[] data = codec.encode(ids);
+            byte[] truncated = Arrays.copyOf(data, data.length / 2);
+            assertThrows(IOException.class, () -> codec.decode(truncated, 0, truncated.length,
+                    new byte[Chunk.VOLUME]), "codec type " + codec.getType());
+        }
+    }
+
+    @Test
+    void unknownTypesAreRejected() {
+        assertThrows(IOException.class, () -> ChunkCodecs.forType(0));
+        assertThrows(IOException.class, () -> ChunkCodecs.forType(ChunkCodecs.BIOME_MAP_FLAG));
+    }
+}
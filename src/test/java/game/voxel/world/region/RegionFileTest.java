@@ -0,0 +1,231 @@
+package game.voxel.world.region;
+
+import game.voxel.Chunk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionFileTest {
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_BYTES = 2 * SECTOR_SIZE;
+
+    @TempDir
+    File dir;
+
+    /**
+     * Block ids with a terrain-like layering plus noise, so the encoded size varies
+     * with the seed.
+     */
+    private static byte[] chunkIds(long seed, int noisyLayers) {
+        Random random = new Random(seed);
+        byte[] ids = new byte[Chunk.VOLUME];
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                for (int y = 0; y < 64; y++) {
+                    byte id = y < 60 ? (byte) 1 : (byte) 2;
+                    if (y < noisyLayers)
+                        id = (byte) (1 + random.nextInt(6));
+                    ids[Chunk.index(x, y, z)] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void savingTheSameChunkRepeatedlyKeepsTheFileBounded() throws IOException {
+        RegionManager manager = new RegionManager(dir);
+        File regionFile = new File(dir, "regions/r.0.0.reg");
+        byte[] ids = chunkIds(1, 8);
+        manager.saveChunk(3, 4, ids);
+        long firstLength = regionFile.length();
+
+        for (int i = 0; i < 1000; i++) {
+            manager.saveChunk(3, 4, ids);
+        }
+        manager.cleanup();
+
+        // The new copy goes next to the live one, which is freed afterwards: at most
+        // two runs of the chunk exist at any time
+        long runBytes = firstLength - HEADER_BYTES;
+        assertTrue(regionFile.length() <= HEADER_BYTES + 2 * runBytes,
+                "region grew to " + regionFile.length() + " bytes");
+
+        RegionManager reopened = new RegionManager(dir);
+        assertArrayEquals(ids, reopened.loadChunk(3, 4).getBlockIds());
+        reopened.cleanup();
+    }
+
+    @Test
+    void savesOfVaryingSizeReuseFreedSectors() throws IOException {
+        RegionManager manager = new RegionManager(dir);
+        File regionFile = new File(dir, "regions/r.0.0.reg");
+        long maxLength = 0;
+        for (int i = 0; i < 1000; i++) {
+            for (int c = 0; c < 4; c++) {
+                manager.saveChunk(c, 0, chunkIds(i * 4L + c, i % 40));
+            }
+            maxLength = Math.max(maxLength, regionFile.length());
+        }
+        manager.cleanup();
+
+        // Four chunks of at most the 40 noisy layers, plus one spare run each
+        RegionManager sizing = new RegionManager(new File(dir, "sizing"));
+        sizing.saveChunk(0, 0, chunkIds(0, 40));
+        sizing.cleanup();
+        long largestRun = new File(dir, "sizing/regions/r.0.0.reg").length() - HEADER_BYTES;
+        assertTrue(maxLength <= HEADER_BYTES + 8 * largestRun, "region grew to " + maxLength + " bytes");
+    }
+
+    @Test
+    void compactionPacksLiveChunks() throws IOException {
+        File file = new File(dir, "r.0.0.reg");
+        RegionFile region = new RegionFile(file);
+        byte[] small = new byte[100];
+        byte[] large = new byte[3 * SECTOR_SIZE];
+        Arrays.fill(large, (byte) 7);
+        for (int i = 0; i < 8; i++) {
+            region.writeChunk(i, 0, (byte) 0, large);
+        }
+        // Shrink all but the last chunk, leaving holes in front of it
+        for (int i = 0; i < 7; i++) {
+            region.writeChunk(i, 0, (byte) 0, small);
+        }
+        assertTrue(region.getFreeSectorRatio() > 0.5);
+        long before = region.getFileLength();
+
+        region.compact();
+        assertEquals(0.0, region.getFreeSectorRatio());
+        assertEquals(HEADER_BYTES + 7 * SECTOR_SIZE + 4 * SECTOR_SIZE, region.getFileLength());
+        assertTrue(region.getFileLength() < before);
+        region.close();
+
+        RegionFile reopened = new RegionFile(file);
+        assertEquals(HEADER_BYTES + 11 * SECTOR_SIZE, reopened.getFileLength());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(reopened.hasChunk(i, 0));
+        }
+        reopened.close();
+    }
+
+    @Test
+    void failedCompactionLeavesTheRegionUsable() throws IOException {
+        File file = new File(dir, "r.0.0.reg");
+        RegionFile region = new RegionFile(file);
+        byte[] ids = chunkIds(5, 4);
+        byte[] data = ChunkCodecs.DEFAULT.encode(ids);
+        region.writeChunk(0, 0, ChunkCodecs.DEFAULT.getType(), data);
+
+        // A directory in the way of the temporary copy makes the rewrite fail
+        File blocker = new File(file.getPath() + ".tmp");
+        assertTrue(new File(blocker, "occupied").mkdirs());
+        assertThrows(IOException.class, region::compact);
+
+        byte[] read = new byte[Chunk.VOLUME];
+        assertTrue(region.readChunk(0, 0, read));
+        assertArrayEquals(ids, read);
+        region.writeChunk(1, 0, ChunkCodecs.DEFAULT.getType(), data);
+        assertTrue(region.readChunk(1, 0, read));
+        assertArrayEquals(ids, read);
+        region.close();
+    }
+
+    @Test
+    void compactRegionsSkipsRegionsBelowTheThreshold() throws IOException {
+        RegionManager manager = new RegionManager(dir);
+        File regionFile = new File(dir, "regions/r.0.0.reg");
+        byte[] noisy = chunkIds(9, 40);
+        byte[] flat = chunkIds(9, 0);
+        for (int c = 0; c < 4; c++) {
+            manager.saveChunk(c, 0, noisy);
+        }
+        // Frees a run in the middle; the tail stays in use
+        manager.saveChunk(1, 0, flat);
+        long holed = regionFile.length();
+
+        manager.compactRegions(1.0);
+        assertEquals(holed, regionFile.length());
+        manager.compactRegions(0);
+        assertTrue(regionFile.length() < holed);
+        manager.cleanup();
+    }
+
+    private static byte[] biomeMap(long seed) {
+        Random random = new Random(seed);
+        byte[] biomes = new byte[Chunk.COLUMNS];
+        for (int i = 0; i < biomes.length; i++) {
+            biomes[i] = (byte) random.nextInt(6);
+        }
+        return biomes;
+    }
+
+    @Test
+    void biomeMapRoundTrips() throws IOException {
+        RegionManager manager = new RegionManager(dir);
+        byte[] ids = chunkIds(3, 8);
+        byte[] biomes = biomeMap(3);
+        manager.saveChunk(5, 6, ids, biomes);
+        manager.cleanup();
+
+        RegionManager reopened = new RegionManager(dir);
+        Chunk chunk = reopened.loadChunk(5, 6);
+        assertArrayEquals(ids, chunk.getBlockIds());
+        assertArrayEquals(biomes, chunk.getBiomeIds());
+        reopened.cleanup();
+    }
+
+    @Test
+    void chunkWithoutBiomeMapReadsAsUnknown() throws IOException {
+        RegionFile region = new RegionFile(new File(dir, "r.0.0.reg"));
+        byte[] ids = chunkIds(4, 8);
+        region.writeChunk(0, 0, ChunkCodecs.DEFAULT.getType(), ChunkCodecs.DEFAULT.encode(ids));
+
+        byte[] read = new byte[Chunk.VOLUME];
+        byte[] biomes = biomeMap(4);
+        assertTrue(region.readChunk(0, 0, read, biomes));
+        assertArrayEquals(ids, read);
+        byte[] unknown = new byte[Chunk.COLUMNS];
+        Arrays.fill(unknown, Chunk.UNKNOWN_BIOME);
+        assertArrayEquals(unknown, biomes);
+        region.close();
+    }
+
+    @Test
+    void biomeMapSurvivesCompaction() throws IOException {
+        RegionManager manager = new RegionManager(dir);
+        byte[] biomes = biomeMap(7);
+        for (int c = 0; c < 4; c++) {
+            manager.saveChunk(c, 0, chunkIds(7, 40), biomes);
+        }
+        manager.saveChunk(1, 0, chunkIds(7, 0), biomes);
+        manager.compactRegions(0);
+        manager.cleanup();
+
+        RegionManager reopened = new RegionManager(dir);
+        for (int c = 0; c < 4; c++) {
+            Chunk chunk = reopened.loadChunk(c, 0);
+            assertArrayEquals(chunkIds(7, c == 1 ? 0 : 40), chunk.getBlockIds());
+            assertArrayEquals(biomes, chunk.getBiomeIds());
+        }
+        reopened.cleanup();
+    }
+
+    @Test
+    void flaggedPayloadShorterThanTheBiomeMapIsRejected() throws IOException {
+        RegionFile region = new RegionFile(new File(dir, "r.0.0.reg"));
+        byte type = (byte) (ChunkCodecs.DEFAULT.getType() | ChunkCodecs.BIOME_MAP_FLAG);
+        region.writeChunk(0, 0, type, new byte[ChunkCodecs.BIOME_MAP_BYTES - 1]);
+
+        byte[] read = new byte[Chunk.VOLUME];
+        assertThrows(IOException.class, () -> region.readChunk(0, 0, read, new byte[Chunk.COLUMNS]));
+        assertThrows(IOException.class, () -> region.readChunk(0, 0, read));
+        region.close();
+    }
+}